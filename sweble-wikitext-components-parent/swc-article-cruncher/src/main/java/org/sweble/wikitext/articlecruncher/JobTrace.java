@@ -18,6 +18,7 @@
 package org.sweble.wikitext.articlecruncher;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -62,12 +63,16 @@ public class JobTrace
 
 	private final long jobId = jobIdCounter.incrementAndGet();
 
+	private boolean recording = true;
+
 	private List<Signer> signers;
 
 	// =========================================================================
 
 	public void signOff(Class<?> signer, String signature)
 	{
+		if (!recording)
+			return;
 		if (signers == null)
 			signers = new ArrayList<Signer>();
 		signers.add(new Signer(signer, signature));
@@ -78,8 +83,30 @@ public class JobTrace
 		return jobId;
 	}
 
+	/**
+	 * @return Whether this trace records its signers. Decided by the trace
+	 *         mode of the {@link JobTraceSet} the trace is added to.
+	 */
+	public boolean isRecording()
+	{
+		return recording;
+	}
+
+	/**
+	 * Called by {@link JobTraceSet#add(JobTrace)}. A trace that stops
+	 * recording drops the signers it recorded so far.
+	 */
+	void setRecording(boolean recording)
+	{
+		this.recording = recording;
+		if (!recording)
+			signers = null;
+	}
+
 	public List<Signer> getSigners()
 	{
+		if (signers == null)
+			return Collections.emptyList();
 		return signers;
 	}
 
@@ -120,7 +147,9 @@ public class JobTrace
 
 		boolean first = true;
 		b.append("; Signed by = ");
-		for (Signer signer : signers)
+		if (!recording)
+			b.append("(not recorded)");
+		for (Signer signer : getSigners())
 		{
 			if (!first)
 				b.append(", ");
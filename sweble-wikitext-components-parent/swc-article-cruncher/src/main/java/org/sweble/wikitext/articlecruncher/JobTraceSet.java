@@ -17,36 +17,175 @@
 
 package org.sweble.wikitext.articlecruncher;
 
+import java.io.IOException;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.sweble.wikitext.articlecruncher.checkpoint.CheckpointTracker;
+
+import de.fau.cs.osr.utils.WrappedException;
+
+/**
+ * The set of jobs that were generated but not stored yet.
+ *
+ * The traces are kept in a lock-striped concurrent set so that job
+ * generators and storers do not contend on a single lock. The number of
+ * unfinished jobs is tracked in a counter and only the removal of the last
+ * unfinished job wakes up threads waiting for completion.
+ *
+ * The trace mode of the set determines which of the traces added to it
+ * record their signers.
+ */
 public class JobTraceSet
 {
-	private Set<JobTrace> traces = new HashSet<JobTrace>();
+	public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+	public static final int DEFAULT_SAMPLING_INTERVAL = 100;
+
+	private final Set<JobTrace> traces;
+
+	private final AtomicLong unfinished = new AtomicLong(0);
+
+	private final Object completionMonitor = new Object();
+
+	private volatile CheckpointTracker checkpointTracker;
+
+	private volatile TraceMode traceMode = TraceMode.FULL;
+
+	private volatile int samplingInterval = DEFAULT_SAMPLING_INTERVAL;
 
 	// =========================================================================
 
-	public synchronized void add(JobTrace trace)
+	public JobTraceSet()
 	{
-		traces.add(trace);
+		this(DEFAULT_CONCURRENCY_LEVEL);
 	}
 
-	public synchronized boolean remove(JobTrace trace)
+	/**
+	 * @param concurrencyLevel
+	 *            The estimated number of threads adding and removing traces
+	 *            concurrently.
+	 */
+	public JobTraceSet(int concurrencyLevel)
 	{
-		boolean removed = traces.remove(trace);
-		notifyAll();
-		return removed;
+		traces = Collections.newSetFromMap(
+				new ConcurrentHashMap<JobTrace, Boolean>(256, 0.75f, concurrencyLevel));
 	}
 
-	public synchronized Set<JobTrace> getTraces()
+	// =========================================================================
+
+	public void add(JobTrace trace)
+	{
+		trace.setRecording(isRecording(trace.getJobId()));
+
+		if (traces.add(trace))
+			unfinished.incrementAndGet();
+	}
+
+	public boolean remove(JobTrace trace)
+	{
+		if (!traces.remove(trace))
+			return false;
+
+		try
+		{
+			CheckpointTracker checkpointTracker = this.checkpointTracker;
+			if (checkpointTracker != null)
+				checkpointTracker.stored(trace);
+		}
+		catch (IOException e)
+		{
+			throw new WrappedException(e);
+		}
+		finally
+		{
+			// The job is finished even if its checkpoint could not be
+			// written, otherwise waitForCompletion() would never return.
+			if (unfinished.decrementAndGet() == 0)
+			{
+				synchronized (completionMonitor)
+				{
+					completionMonitor.notifyAll();
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Sets the trace mode for all traces added from now on.
+	 * 
+	 * @param samplingInterval
+	 *            In mode {@link TraceMode#SAMPLED} only every n-th job trace
+	 *            records its signers.
+	 */
+	public void setTraceMode(TraceMode traceMode, int samplingInterval)
+	{
+		if (traceMode == null)
+			throw new NullPointerException();
+		if (samplingInterval < 1)
+			throw new IllegalArgumentException("Sampling interval must be at least 1!");
+
+		this.samplingInterval = samplingInterval;
+		this.traceMode = traceMode;
+	}
+
+	public TraceMode getTraceMode()
+	{
+		return traceMode;
+	}
+
+	public int getSamplingInterval()
+	{
+		return samplingInterval;
+	}
+
+	/**
+	 * Lets the given tracker know about every job whose trace is removed,
+	 * i.e. every job that was stored.
+	 */
+	public void setCheckpointTracker(CheckpointTracker checkpointTracker)
+	{
+		this.checkpointTracker = checkpointTracker;
+	}
+
+	/**
+	 * @return A live, unmodifiable view of the traces of the unfinished jobs.
+	 */
+	public Set<JobTrace> getTraces()
 	{
 		return Collections.unmodifiableSet(traces);
 	}
 
-	public synchronized void waitForCompletion(int timeoutInSeconds) throws InterruptedException
+	public long getUnfinishedCount()
+	{
+		return unfinished.get();
+	}
+
+	public void waitForCompletion(int timeoutInSeconds) throws InterruptedException
+	{
+		synchronized (completionMonitor)
+		{
+			while (unfinished.get() > 0)
+				completionMonitor.wait(timeoutInSeconds * 1000L);
+		}
+	}
+
+	// =========================================================================
+
+	private boolean isRecording(long jobId)
 	{
-		while (!traces.isEmpty())
-			wait(timeoutInSeconds * 1000);
+		switch (traceMode)
+		{
+			case FULL:
+				return true;
+			case SAMPLED:
+				return jobId % samplingInterval == 0;
+			default:
+				return false;
+		}
 	}
 }
@@ -25,6 +25,8 @@ import java.util.concurrent.LinkedBlockingDeque;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sweble.wikitext.articlecruncher.checkpoint.CheckpointTracker;
+import org.sweble.wikitext.articlecruncher.metrics.CruncherMetrics;
 import org.sweble.wikitext.articlecruncher.utils.AbortHandler;
 import org.sweble.wikitext.articlecruncher.utils.ExecutorType;
 import org.sweble.wikitext.articlecruncher.utils.MyExecutorService;
@@ -57,6 +59,8 @@ public class Nexus
 
 	private JobTraceSet jobTraces = new JobTraceSet();
 
+	private CruncherMetrics metrics = new CruncherMetrics();
+
 	private MyExecutorService executor;
 
 	private Throwable emergencyCause;
@@ -87,6 +91,25 @@ public class Nexus
 			int inTrayCapacity,
 			int processedJobsCapacity,
 			int outTrayCapacity) throws Throwable
+	{
+		setUp(
+				inTrayCapacity,
+				processedJobsCapacity,
+				outTrayCapacity,
+				ExecutorType.CACHED_THREAD_POOL);
+	}
+
+	/**
+	 * @param executorType
+	 *            The type of executor that runs the job generators, processing
+	 *            nodes, storers and the gatherer. The capacities of the queues
+	 *            between these workers are the same for all executor types.
+	 */
+	public void setUp(
+			int inTrayCapacity,
+			int processedJobsCapacity,
+			int outTrayCapacity,
+			ExecutorType executorType) throws Throwable
 	{
 		synchronized (synchronizer.getMonitor())
 		{
@@ -103,7 +126,12 @@ public class Nexus
 
 				outTray = new LinkedBlockingDeque<Job>(outTrayCapacity);
 
-				executor = new MyExecutorService(ExecutorType.CACHED_THREAD_POOL, logger);
+				metrics.registerQueue("inTray", inTray);
+				metrics.registerQueue("processedJobs", processedJobs);
+				metrics.registerQueue("outTray", outTray);
+				metrics.setJobTraces(jobTraces);
+
+				executor = new MyExecutorService(executorType, logger);
 
 				abortHandler = new AbortHandler()
 				{
@@ -235,10 +263,15 @@ public class Nexus
 						@Override
 						public WorkerBase instantiate()
 						{
-							return factory.create(
+							WorkerBase node = factory.create(
 									abortHandler,
 									inTray,
 									processedJobs);
+
+							if (node instanceof ProcessingNode)
+								((ProcessingNode) node).setMetrics(metrics);
+
+							return node;
 						}
 					}, abortHandler);
 
@@ -286,6 +319,37 @@ public class Nexus
 		}
 	}
 
+	/**
+	 * Determines which job traces record their signers. Only affects jobs
+	 * whose traces are added to the Nexus afterwards.
+	 * 
+	 * @param samplingInterval
+	 *            In mode {@link TraceMode#SAMPLED} only every n-th job trace
+	 *            records its signers.
+	 */
+	public void setTraceMode(TraceMode traceMode, int samplingInterval)
+	{
+		jobTraces.setTraceMode(traceMode, samplingInterval);
+	}
+
+	/**
+	 * Records the progress of the run so that it can be resumed after a
+	 * crash. The tracker has to be set before the first job is generated.
+	 */
+	public void setCheckpointTracker(CheckpointTracker checkpointTracker)
+	{
+		jobTraces.setCheckpointTracker(checkpointTracker);
+	}
+
+	/**
+	 * @return The metrics of this Nexus. Processing nodes extending
+	 *         {@link ProcessingNode} report to them automatically.
+	 */
+	public CruncherMetrics getMetrics()
+	{
+		return metrics;
+	}
+
 	public Set<JobTrace> getJobTraces()
 	{
 		return jobTraces.getTraces();
@@ -17,6 +17,7 @@
 
 package org.sweble.wikitext.articlecruncher;
 
+import org.sweble.wikitext.articlecruncher.metrics.CruncherMetrics;
 import org.sweble.wikitext.articlecruncher.utils.AbortHandler;
 import org.sweble.wikitext.articlecruncher.utils.WorkerBase;
 
@@ -24,6 +25,10 @@ public abstract class ProcessingNode
 		extends
 			WorkerBase
 {
+	private CruncherMetrics metrics;
+
+	// =========================================================================
+
 	public ProcessingNode(String workerName, AbortHandler abortHandler)
 	{
 		super(workerName, abortHandler);
@@ -33,4 +38,23 @@ public abstract class ProcessingNode
 	{
 		super(workerName);
 	}
+
+	// =========================================================================
+
+	/**
+	 * Set by the Nexus before the node is started. Nodes report the
+	 * processing latency of every job and the busy time of their workers.
+	 */
+	public void setMetrics(CruncherMetrics metrics)
+	{
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @return The metrics to report to or null if no metrics are collected.
+	 */
+	public CruncherMetrics getMetrics()
+	{
+		return metrics;
+	}
 }
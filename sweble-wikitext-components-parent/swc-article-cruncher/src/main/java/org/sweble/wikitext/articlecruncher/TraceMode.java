@@ -0,0 +1,35 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.articlecruncher;
+
+/**
+ * Determines which job traces record the signers a job passed on its way
+ * through the Nexus. Job traces are always tracked until their job is
+ * stored, independent of the mode.
+ */
+public enum TraceMode
+{
+	/** All job traces record their signers. */
+	FULL,
+
+	/** Only every n-th job trace records its signers. */
+	SAMPLED,
+
+	/** No job trace records its signers. */
+	DISABLED,
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.articlecruncher.checkpoint;
+
+/**
+ * The state from which an interrupted run can be resumed.
+ *
+ * Jobs are numbered in the order in which they were generated, starting
+ * with 1. All jobs up to and including <code>storedJobs</code> have been
+ * stored. To resume, the job generator starts reading its input at
+ * <code>offset</code>, numbers the first job it generates from there
+ * <code>jobsBeforeOffset + 1</code> and skips all jobs up to
+ * <code>storedJobs</code>.
+ */
+public final class Checkpoint
+{
+	private final long storedJobs;
+
+	private final long offset;
+
+	private final long jobsBeforeOffset;
+
+	// =========================================================================
+
+	public Checkpoint(long storedJobs, long offset, long jobsBeforeOffset)
+	{
+		if (jobsBeforeOffset > storedJobs)
+			throw new IllegalArgumentException("Reading must resume before the first job that was not stored");
+
+		this.storedJobs = storedJobs;
+		this.offset = offset;
+		this.jobsBeforeOffset = jobsBeforeOffset;
+	}
+
+	// =========================================================================
+
+	public long getStoredJobs()
+	{
+		return storedJobs;
+	}
+
+	public long getOffset()
+	{
+		return offset;
+	}
+
+	public long getJobsBeforeOffset()
+	{
+		return jobsBeforeOffset;
+	}
+
+	// =========================================================================
+
+	@Override
+	public int hashCode()
+	{
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + (int) (storedJobs ^ (storedJobs >>> 32));
+		result = prime * result + (int) (offset ^ (offset >>> 32));
+		result = prime * result + (int) (jobsBeforeOffset ^ (jobsBeforeOffset >>> 32));
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		Checkpoint other = (Checkpoint) obj;
+		if (storedJobs != other.storedJobs)
+			return false;
+		if (offset != other.offset)
+			return false;
+		if (jobsBeforeOffset != other.jobsBeforeOffset)
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format(
+				"[ Checkpoint: stored jobs = %d; offset = %d; jobs before offset = %d ]",
+				storedJobs,
+				offset,
+				jobsBeforeOffset);
+	}
+}
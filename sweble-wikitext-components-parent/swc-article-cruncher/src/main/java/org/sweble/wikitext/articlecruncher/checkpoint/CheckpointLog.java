@@ -0,0 +1,214 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.articlecruncher.checkpoint;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+/**
+ * A write-ahead log of checkpoints on local disk.
+ *
+ * Every checkpoint is appended as a fixed-size record with a checksum and
+ * forced to disk before {@link #append(Checkpoint)} returns. When the log is
+ * opened, the last complete record is the checkpoint to resume from. A record
+ * that was only partially written when the process died is discarded. Once
+ * the log holds MAX_RECORDS records it is replaced by a log that only
+ * contains the latest checkpoint.
+ */
+public class CheckpointLog
+		implements
+			Closeable
+{
+	private static final int MAGIC = 0x53574350;
+
+	private static final int RECORD_SIZE = 4 + 8 + 8 + 8 + 4;
+
+	private static final int MAX_RECORDS = 4096;
+
+	// =========================================================================
+
+	private final File file;
+
+	private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+
+	private RandomAccessFile raf;
+
+	private FileChannel channel;
+
+	private int recordCount;
+
+	private Checkpoint lastCheckpoint;
+
+	// =========================================================================
+
+	public CheckpointLog(File file) throws IOException
+	{
+		this.file = file;
+
+		open();
+	}
+
+	// =========================================================================
+
+	/**
+	 * @return The latest checkpoint in the log or null if the log is empty.
+	 */
+	public synchronized Checkpoint getLastCheckpoint()
+	{
+		return lastCheckpoint;
+	}
+
+	public synchronized void append(Checkpoint checkpoint) throws IOException
+	{
+		if (channel == null)
+			throw new IllegalStateException("Checkpoint log was closed");
+
+		if (recordCount >= MAX_RECORDS)
+			compact();
+
+		encode(checkpoint);
+		while (record.hasRemaining())
+			channel.write(record);
+		channel.force(false);
+
+		++recordCount;
+		lastCheckpoint = checkpoint;
+	}
+
+	@Override
+	public synchronized void close() throws IOException
+	{
+		if (raf != null)
+		{
+			raf.close();
+			raf = null;
+			channel = null;
+		}
+	}
+
+	// =========================================================================
+
+	private void open() throws IOException
+	{
+		raf = new RandomAccessFile(file, "rw");
+		channel = raf.getChannel();
+
+		recordCount = 0;
+		lastCheckpoint = null;
+
+		long position = 0;
+		while (true)
+		{
+			record.clear();
+			while (record.hasRemaining() && channel.read(record, position + record.position()) > 0)
+			{
+			}
+
+			if (record.hasRemaining())
+				break;
+
+			Checkpoint checkpoint = decode();
+			if (checkpoint == null)
+				break;
+
+			lastCheckpoint = checkpoint;
+			++recordCount;
+			position += RECORD_SIZE;
+		}
+
+		// Drop a partially written or corrupt record
+		channel.truncate(position);
+		channel.position(position);
+	}
+
+	/**
+	 * Writes the latest checkpoint to a new log file and atomically replaces
+	 * the current log with it.
+	 */
+	private void compact() throws IOException
+	{
+		File tmp = new File(file.getPath() + ".tmp");
+
+		RandomAccessFile tmpRaf = new RandomAccessFile(tmp, "rw");
+		try
+		{
+			FileChannel tmpChannel = tmpRaf.getChannel();
+			tmpChannel.truncate(0);
+
+			encode(lastCheckpoint);
+			while (record.hasRemaining())
+				tmpChannel.write(record);
+			tmpChannel.force(false);
+		}
+		finally
+		{
+			tmpRaf.close();
+		}
+
+		close();
+
+		Files.move(
+				tmp.toPath(),
+				file.toPath(),
+				StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+
+		open();
+	}
+
+	private void encode(Checkpoint checkpoint)
+	{
+		record.clear();
+		record.putInt(MAGIC);
+		record.putLong(checkpoint.getStoredJobs());
+		record.putLong(checkpoint.getOffset());
+		record.putLong(checkpoint.getJobsBeforeOffset());
+		record.putInt(checksum());
+		record.flip();
+	}
+
+	/**
+	 * @return The checkpoint in the record buffer or null if the record is
+	 *         corrupt.
+	 */
+	private Checkpoint decode()
+	{
+		record.flip();
+		if (record.getInt(0) != MAGIC || record.getInt(RECORD_SIZE - 4) != checksum())
+			return null;
+
+		return new Checkpoint(
+				record.getLong(4),
+				record.getLong(12),
+				record.getLong(20));
+	}
+
+	private int checksum()
+	{
+		CRC32 crc = new CRC32();
+		crc.update(record.array(), 0, RECORD_SIZE - 4);
+		return (int) crc.getValue();
+	}
+}
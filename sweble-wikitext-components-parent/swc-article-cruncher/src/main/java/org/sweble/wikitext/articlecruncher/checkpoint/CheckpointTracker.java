@@ -0,0 +1,334 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.articlecruncher.checkpoint;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sweble.wikitext.articlecruncher.JobTrace;
+
+/**
+ * Keeps track of the jobs that were generated but not yet stored and
+ * periodically writes a checkpoint to a {@link CheckpointLog}.
+ *
+ * The job generator numbers its jobs in generation order and registers each
+ * job together with the offset in its input from which the job can be
+ * generated again. Jobs are stored out of order, so a checkpoint only
+ * covers the jobs up to the first job that has not been stored yet. Jobs
+ * after that one might be processed and stored a second time when a run is
+ * resumed.
+ *
+ * Checkpoints are computed while holding the tracker's lock but written to
+ * the log outside of it. Only one thread writes at a time. Checkpoints
+ * which become due while another thread is writing are queued and the
+ * writing thread only writes the latest of them afterwards. Threads which
+ * report stored jobs therefore never wait for the log to be forced to disk
+ * by another thread.
+ *
+ * Instances are thread-safe.
+ */
+public class CheckpointTracker
+		implements
+			Closeable
+{
+	public static final int DEFAULT_INTERVAL = 1000;
+
+	private static final Logger logger = LoggerFactory.getLogger(CheckpointTracker.class);
+
+	// =========================================================================
+
+	private final CheckpointLog log;
+
+	private final int interval;
+
+	private final Checkpoint resumeCheckpoint;
+
+	private final TreeMap<Long, PendingJob> pendingBySequence = new TreeMap<Long, PendingJob>();
+
+	private final Map<Long, PendingJob> pendingByJobId = new HashMap<Long, PendingJob>();
+
+	private long lastSequenceNumber;
+
+	private long lastOffset;
+
+	private long lastJobsBeforeOffset;
+
+	private int storedSinceCheckpoint;
+
+	/**
+	 * The latest checkpoint that is due but was not written yet.
+	 */
+	private Checkpoint queuedCheckpoint;
+
+	/**
+	 * Whether a thread is currently writing checkpoints to the log.
+	 */
+	private boolean writing;
+
+	/**
+	 * Only accessed by the writing thread.
+	 */
+	private Checkpoint lastCheckpoint;
+
+	// =========================================================================
+
+	public CheckpointTracker(CheckpointLog log)
+	{
+		this(log, DEFAULT_INTERVAL);
+	}
+
+	/**
+	 * @param interval
+	 *            The number of stored jobs after which a new checkpoint is
+	 *            written.
+	 */
+	public CheckpointTracker(CheckpointLog log, int interval)
+	{
+		if (interval < 1)
+			throw new IllegalArgumentException("Interval must be at least 1!");
+
+		this.log = log;
+		this.interval = interval;
+		this.resumeCheckpoint = log.getLastCheckpoint();
+		this.lastCheckpoint = resumeCheckpoint;
+
+		if (resumeCheckpoint != null)
+		{
+			logger.info("Resuming from " + resumeCheckpoint);
+
+			lastSequenceNumber = resumeCheckpoint.getStoredJobs();
+			lastOffset = resumeCheckpoint.getOffset();
+			lastJobsBeforeOffset = resumeCheckpoint.getJobsBeforeOffset();
+		}
+	}
+
+	// =========================================================================
+
+	/**
+	 * @return The checkpoint of an earlier run or null if the run starts from
+	 *         the beginning.
+	 */
+	public Checkpoint getResumeCheckpoint()
+	{
+		return resumeCheckpoint;
+	}
+
+	/**
+	 * @return Whether the job with the given sequence number was stored by an
+	 *         earlier run and must not be generated again.
+	 */
+	public boolean isStored(long sequenceNumber)
+	{
+		return resumeCheckpoint != null
+				&& sequenceNumber <= resumeCheckpoint.getStoredJobs();
+	}
+
+	/**
+	 * Must be called for every job in generation order before the job is
+	 * handed to the Nexus.
+	 *
+	 * @param sequenceNumber
+	 *            The number of the job in generation order.
+	 * @param offset
+	 *            The offset at which the job generator has to start reading
+	 *            to generate the job again.
+	 * @param jobsBeforeOffset
+	 *            The number of jobs that are generated from the input before
+	 *            that offset.
+	 */
+	public synchronized void generated(
+			JobTrace trace,
+			long sequenceNumber,
+			long offset,
+			long jobsBeforeOffset)
+	{
+		if (sequenceNumber <= lastSequenceNumber)
+			throw new IllegalArgumentException("Jobs must be registered in generation order");
+
+		PendingJob job = new PendingJob(sequenceNumber, offset, jobsBeforeOffset);
+		pendingBySequence.put(sequenceNumber, job);
+		pendingByJobId.put(trace.getJobId(), job);
+
+		lastSequenceNumber = sequenceNumber;
+		lastOffset = offset;
+		lastJobsBeforeOffset = jobsBeforeOffset;
+	}
+
+	/**
+	 * Called when a job has been stored.
+	 */
+	public void stored(JobTrace trace) throws IOException
+	{
+		synchronized (this)
+		{
+			PendingJob job = pendingByJobId.remove(trace.getJobId());
+			if (job == null)
+				return;
+
+			pendingBySequence.remove(job.sequenceNumber);
+
+			if (++storedSinceCheckpoint < interval)
+				return;
+
+			queueCheckpoint();
+		}
+
+		writeQueuedCheckpoints();
+	}
+
+	/**
+	 * Writes a checkpoint covering all jobs stored so far. If another thread
+	 * is writing a checkpoint at the same time, that thread writes this
+	 * checkpoint as well.
+	 */
+	public void checkpoint() throws IOException
+	{
+		synchronized (this)
+		{
+			queueCheckpoint();
+		}
+
+		writeQueuedCheckpoints();
+	}
+
+	/**
+	 * Writes a final checkpoint and closes the log.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			synchronized (this)
+			{
+				queueCheckpoint();
+			}
+
+			// Wait until all checkpoints were written, including those
+			// written by other threads, before the log is closed
+			while (true)
+			{
+				writeQueuedCheckpoints();
+
+				synchronized (this)
+				{
+					while (writing)
+						wait();
+
+					if (queuedCheckpoint == null)
+						break;
+				}
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while writing final checkpoint");
+		}
+		finally
+		{
+			log.close();
+		}
+	}
+
+	// =========================================================================
+
+	private void queueCheckpoint()
+	{
+		storedSinceCheckpoint = 0;
+
+		if (pendingBySequence.isEmpty())
+		{
+			queuedCheckpoint = new Checkpoint(
+					lastSequenceNumber,
+					lastOffset,
+					lastJobsBeforeOffset);
+		}
+		else
+		{
+			PendingJob first = pendingBySequence.firstEntry().getValue();
+			queuedCheckpoint = new Checkpoint(
+					first.sequenceNumber - 1,
+					first.offset,
+					first.jobsBeforeOffset);
+		}
+	}
+
+	/**
+	 * Writes the queued checkpoint unless another thread is already writing.
+	 * Checkpoints queued while the log is forced to disk are written
+	 * afterwards by the same thread.
+	 */
+	private void writeQueuedCheckpoints() throws IOException
+	{
+		while (true)
+		{
+			Checkpoint checkpoint;
+			synchronized (this)
+			{
+				if (writing || queuedCheckpoint == null)
+					return;
+
+				checkpoint = queuedCheckpoint;
+				queuedCheckpoint = null;
+				writing = true;
+			}
+
+			try
+			{
+				if (!checkpoint.equals(lastCheckpoint))
+				{
+					log.append(checkpoint);
+					lastCheckpoint = checkpoint;
+				}
+			}
+			finally
+			{
+				synchronized (this)
+				{
+					writing = false;
+					notifyAll();
+				}
+			}
+		}
+	}
+
+	// =========================================================================
+
+	private static final class PendingJob
+	{
+		private final long sequenceNumber;
+
+		private final long offset;
+
+		private final long jobsBeforeOffset;
+
+		public PendingJob(long sequenceNumber, long offset, long jobsBeforeOffset)
+		{
+			this.sequenceNumber = sequenceNumber;
+			this.offset = offset;
+			this.jobsBeforeOffset = jobsBeforeOffset;
+		}
+	}
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.articlecruncher.dedup;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the results of the most recently processed jobs by their content
+ * key. A cache is shared by all {@link DedupProcessor} instances of a
+ * processing node and is thread-safe.
+ */
+public class DedupCache
+{
+	private final int capacity;
+
+	private final LinkedHashMap<String, Object> results;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong unkeyed = new AtomicLong();
+
+	// =========================================================================
+
+	public DedupCache(int capacity)
+	{
+		if (capacity < 1)
+			throw new IllegalArgumentException("Capacity must be at least 1!");
+
+		this.capacity = capacity;
+
+		this.results = new LinkedHashMap<String, Object>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Object> eldest)
+			{
+				return size() > DedupCache.this.capacity;
+			}
+		};
+	}
+
+	// =========================================================================
+
+	/**
+	 * @return The result of an earlier job with the same key or null.
+	 */
+	public Object get(String contentKey)
+	{
+		Object result;
+		synchronized (results)
+		{
+			result = results.get(contentKey);
+		}
+
+		if (result != null)
+			hits.incrementAndGet();
+		else
+			misses.incrementAndGet();
+
+		return result;
+	}
+
+	public void put(String contentKey, Object result)
+	{
+		if (contentKey == null || result == null)
+			throw new NullPointerException();
+
+		synchronized (results)
+		{
+			results.put(contentKey, result);
+		}
+	}
+
+	/**
+	 * Counts a job which could not be deduplicated because it has no content
+	 * key.
+	 */
+	public void unkeyed()
+	{
+		unkeyed.incrementAndGet();
+	}
+
+	public void clear()
+	{
+		synchronized (results)
+		{
+			results.clear();
+		}
+	}
+
+	// =========================================================================
+
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+	public int getSize()
+	{
+		synchronized (results)
+		{
+			return results.size();
+		}
+	}
+
+	/**
+	 * @return The number of jobs whose result was taken from the cache.
+	 */
+	public long getHits()
+	{
+		return hits.get();
+	}
+
+	/**
+	 * @return The number of jobs with a content key that had to be processed.
+	 */
+	public long getMisses()
+	{
+		return misses.get();
+	}
+
+	/**
+	 * @return The number of jobs without a content key.
+	 */
+	public long getUnkeyed()
+	{
+		return unkeyed.get();
+	}
+
+	/**
+	 * @return The fraction of all jobs which were not processed because an
+	 *         earlier job had the same content.
+	 */
+	public double getDedupRatio()
+	{
+		long hits = getHits();
+		long total = hits + getMisses() + getUnkeyed();
+		return (total == 0) ? 0. : (double) hits / total;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format(
+				"size: %d/%d, hits: %d, misses: %d, unkeyed: %d, dedup ratio: %.1f%%",
+				getSize(),
+				capacity,
+				getHits(),
+				getMisses(),
+				getUnkeyed(),
+				getDedupRatio() * 100);
+	}
+}
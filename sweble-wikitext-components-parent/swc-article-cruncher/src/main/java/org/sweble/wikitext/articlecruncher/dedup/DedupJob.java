@@ -0,0 +1,35 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.articlecruncher.dedup;
+
+/**
+ * Implemented by jobs whose result mostly depends on their content. Jobs
+ * with equal content keys are processed only once by a
+ * {@link DedupProcessor}.
+ */
+public interface DedupJob
+{
+	/**
+	 * @return A key which is equal for two jobs if their content is equal
+	 *         (e.g. a page title combined with the SHA1 of the revision text)
+	 *         or null if the job cannot be deduplicated. Parts of the result
+	 *         that do not depend on the content (e.g. the time of
+	 *         processing) are taken from the first job with that key.
+	 */
+	public String getContentKey();
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.articlecruncher.dedup;
+
+import org.sweble.wikitext.articlecruncher.Job;
+import org.sweble.wikitext.articlecruncher.Processor;
+
+/**
+ * A processor which skips jobs whose content was already processed and
+ * returns the earlier result instead. Jobs have to implement
+ * {@link DedupJob}, all other jobs are passed on to the wrapped processor.
+ *
+ * Without a {@link DedupResultAdapter} the same result object is returned
+ * for all jobs with equal content and must therefore not be modified by
+ * later stages. An adapter can derive a result for the skipped job from the
+ * shared result instead.
+ */
+public class DedupProcessor
+		implements
+			Processor
+{
+	private final Processor processor;
+
+	private final DedupCache cache;
+
+	private final DedupResultAdapter adapter;
+
+	// =========================================================================
+
+	public DedupProcessor(Processor processor, DedupCache cache)
+	{
+		this(processor, cache, null);
+	}
+
+	/**
+	 * @param adapter
+	 *            Adapts cached results to the job that is skipped or null if
+	 *            cached results are returned as is.
+	 */
+	public DedupProcessor(
+			Processor processor,
+			DedupCache cache,
+			DedupResultAdapter adapter)
+	{
+		this.processor = processor;
+		this.cache = cache;
+		this.adapter = adapter;
+	}
+
+	// =========================================================================
+
+	@Override
+	public Object process(Job job)
+	{
+		String key = null;
+		if (job instanceof DedupJob)
+			key = ((DedupJob) job).getContentKey();
+
+		if (key == null)
+		{
+			cache.unkeyed();
+			return processor.process(job);
+		}
+
+		Object result = cache.get(key);
+		if (result != null)
+		{
+			job.signOff(getClass(), "duplicate");
+			return (adapter != null) ? adapter.adapt(job, result) : result;
+		}
+
+		result = processor.process(job);
+		if (result != null)
+			cache.put(key, result);
+
+		return result;
+	}
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.articlecruncher.dedup;
+
+import org.sweble.wikitext.articlecruncher.Job;
+
+/**
+ * Adapts the result of an earlier job to a job with the same content key,
+ * e.g. to replace the revision id recorded in the result.
+ */
+public interface DedupResultAdapter
+{
+	/**
+	 * @param job
+	 *            The job which is skipped.
+	 * @param result
+	 *            The cached result of an earlier job with the same content
+	 *            key. It must not be modified.
+	 * @return The result of the given job.
+	 */
+	public Object adapt(Job job, Object result);
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.articlecruncher.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sweble.wikitext.articlecruncher.JobTraceSet;
+import org.sweble.wikitext.articlecruncher.metrics.MetricsSnapshot.QueueSnapshot;
+import org.sweble.wikitext.articlecruncher.metrics.MetricsSnapshot.WorkerSnapshot;
+
+/**
+ * Collects the metrics of a cruncher run: the depths of the queues between
+ * the stages, the busy time of the processing workers, the processing
+ * latencies, the number of failed jobs and the progress of the input.
+ *
+ * Recording is lock-free. Use {@link #snapshot()} to read the metrics and
+ * a {@link MetricsReporter} to export them periodically.
+ */
+public class CruncherMetrics
+{
+	private final long startTime = System.nanoTime();
+
+	private final Map<String, BlockingQueue<?>> queues =
+			new LinkedHashMap<String, BlockingQueue<?>>();
+
+	private final ConcurrentMap<String, WorkerStats> workers =
+			new ConcurrentHashMap<String, WorkerStats>();
+
+	private final LatencyHistogram processingLatency = new LatencyHistogram();
+
+	private final AtomicLong succeeded = new AtomicLong(0);
+
+	private final AtomicLong failed = new AtomicLong(0);
+
+	private volatile long inputItemsRead;
+
+	private volatile long inputBytesRead;
+
+	private volatile JobTraceSet jobTraces;
+
+	// =========================================================================
+
+	/**
+	 * Registers a queue whose depth is reported under the given name.
+	 */
+	public synchronized void registerQueue(String name, BlockingQueue<?> queue)
+	{
+		queues.put(name, queue);
+	}
+
+	/**
+	 * Reports the number of unfinished jobs of the given set.
+	 */
+	public void setJobTraces(JobTraceSet jobTraces)
+	{
+		this.jobTraces = jobTraces;
+	}
+
+	/**
+	 * @return The statistics of the worker with the given name. They are
+	 *         created on first access.
+	 */
+	public WorkerStats getWorkerStats(String name)
+	{
+		WorkerStats stats = workers.get(name);
+		if (stats == null)
+		{
+			WorkerStats newStats = new WorkerStats(name);
+			stats = workers.putIfAbsent(name, newStats);
+			if (stats == null)
+				stats = newStats;
+		}
+		return stats;
+	}
+
+	/**
+	 * Called for every job after it was processed.
+	 */
+	public void processed(long latencyInNanos, boolean failed)
+	{
+		processingLatency.record(latencyInNanos);
+		if (failed)
+			this.failed.incrementAndGet();
+		else
+			this.succeeded.incrementAndGet();
+	}
+
+	/**
+	 * Called by a job generator to report how far it got into its input.
+	 */
+	public void setInputProgress(long itemsRead, long bytesRead)
+	{
+		this.inputItemsRead = itemsRead;
+		this.inputBytesRead = bytesRead;
+	}
+
+	// =========================================================================
+
+	public MetricsSnapshot snapshot()
+	{
+		long now = System.nanoTime();
+
+		List<QueueSnapshot> queueSnapshots = new ArrayList<QueueSnapshot>();
+		synchronized (this)
+		{
+			for (Entry<String, BlockingQueue<?>> e : queues.entrySet())
+			{
+				BlockingQueue<?> queue = e.getValue();
+				int size = queue.size();
+				int remaining = queue.remainingCapacity();
+				int capacity = (remaining == Integer.MAX_VALUE) ? -1 : size + remaining;
+				queueSnapshots.add(new QueueSnapshot(e.getKey(), size, capacity));
+			}
+		}
+
+		List<WorkerSnapshot> workerSnapshots = new ArrayList<WorkerSnapshot>();
+		for (WorkerStats stats : workers.values())
+		{
+			workerSnapshots.add(new WorkerSnapshot(
+					stats.getName(),
+					stats.getBusyNanos(),
+					stats.getIdleNanos(now),
+					stats.getJobCount()));
+		}
+
+		JobTraceSet jobTraces = this.jobTraces;
+
+		return new MetricsSnapshot(
+				now - startTime,
+				queueSnapshots,
+				workerSnapshots,
+				succeeded.get(),
+				failed.get(),
+				processingLatency.getBuckets(),
+				processingLatency.getSum(),
+				processingLatency.getMax(),
+				inputItemsRead,
+				inputBytesRead,
+				(jobTraces != null) ? jobTraces.getUnfinishedCount() : -1);
+	}
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.articlecruncher.metrics;
+
+import java.util.Map;
+
+/**
+ * The management interface of the {@link JmxMetricsExporter}. All values
+ * refer to the interval between the last two snapshots.
+ */
+public interface CruncherMetricsMXBean
+{
+	long getSucceededJobs();
+
+	long getFailedJobs();
+
+	long getUnfinishedJobs();
+
+	double getJobsPerSecond();
+
+	double getFailureRate();
+
+	double getMeanLatencyMillis();
+
+	double getLatencyP50Millis();
+
+	double getLatencyP90Millis();
+
+	double getLatencyP99Millis();
+
+	long getInputItemsRead();
+
+	long getInputBytesRead();
+
+	double getInputBytesPerSecond();
+
+	double getWorkerUtilization();
+
+	Map<String, Integer> getQueueSizes();
+
+	Map<String, Double> getWorkerUtilizations();
+}
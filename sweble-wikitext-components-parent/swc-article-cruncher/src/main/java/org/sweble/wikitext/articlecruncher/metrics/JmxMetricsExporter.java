@@ -0,0 +1,229 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.articlecruncher.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sweble.wikitext.articlecruncher.metrics.MetricsSnapshot.QueueSnapshot;
+import org.sweble.wikitext.articlecruncher.metrics.MetricsSnapshot.WorkerSnapshot;
+
+/**
+ * Publishes the latest snapshot as an MXBean on the platform MBean server.
+ */
+public class JmxMetricsExporter
+		implements
+			MetricsExporter,
+			CruncherMetricsMXBean
+{
+	public static final String DEFAULT_OBJECT_NAME =
+			"org.sweble.wikitext.articlecruncher:type=CruncherMetrics";
+
+	private static final double NANOS_PER_MILLI = 1000. * 1000.;
+
+	private static final Logger logger = LoggerFactory.getLogger(JmxMetricsExporter.class);
+
+	private final MBeanServer server;
+
+	private final ObjectName objectName;
+
+	private volatile Interval latest;
+
+	// =========================================================================
+
+	public JmxMetricsExporter() throws JMException
+	{
+		this(DEFAULT_OBJECT_NAME);
+	}
+
+	public JmxMetricsExporter(String objectName) throws JMException
+	{
+		this.server = ManagementFactory.getPlatformMBeanServer();
+		this.objectName = new ObjectName(objectName);
+
+		server.registerMBean(this, this.objectName);
+	}
+
+	// =========================================================================
+
+	@Override
+	public void export(MetricsSnapshot snapshot, MetricsSnapshot previous)
+	{
+		this.latest = new Interval(snapshot, previous);
+	}
+
+	@Override
+	public void close()
+	{
+		try
+		{
+			server.unregisterMBean(objectName);
+		}
+		catch (JMException e)
+		{
+			logger.warn("Failed to unregister " + objectName, e);
+		}
+	}
+
+	// =========================================================================
+
+	@Override
+	public long getSucceededJobs()
+	{
+		Interval i = latest;
+		return (i != null) ? i.snapshot.getSucceededJobs() : 0;
+	}
+
+	@Override
+	public long getFailedJobs()
+	{
+		Interval i = latest;
+		return (i != null) ? i.snapshot.getFailedJobs() : 0;
+	}
+
+	@Override
+	public long getUnfinishedJobs()
+	{
+		Interval i = latest;
+		return (i != null) ? i.snapshot.getUnfinishedJobs() : 0;
+	}
+
+	@Override
+	public double getJobsPerSecond()
+	{
+		Interval i = latest;
+		return (i != null) ? i.snapshot.getJobsPerSecond(i.previous) : 0.;
+	}
+
+	@Override
+	public double getFailureRate()
+	{
+		Interval i = latest;
+		return (i != null) ? i.snapshot.getFailureRate(i.previous) : 0.;
+	}
+
+	@Override
+	public double getMeanLatencyMillis()
+	{
+		Interval i = latest;
+		return (i != null) ? i.snapshot.getMeanLatencyNanos(i.previous) / NANOS_PER_MILLI : 0.;
+	}
+
+	@Override
+	public double getLatencyP50Millis()
+	{
+		return getLatencyPercentileMillis(0.5);
+	}
+
+	@Override
+	public double getLatencyP90Millis()
+	{
+		return getLatencyPercentileMillis(0.9);
+	}
+
+	@Override
+	public double getLatencyP99Millis()
+	{
+		return getLatencyPercentileMillis(0.99);
+	}
+
+	@Override
+	public long getInputItemsRead()
+	{
+		Interval i = latest;
+		return (i != null) ? i.snapshot.getInputItemsRead() : 0;
+	}
+
+	@Override
+	public long getInputBytesRead()
+	{
+		Interval i = latest;
+		return (i != null) ? i.snapshot.getInputBytesRead() : 0;
+	}
+
+	@Override
+	public double getInputBytesPerSecond()
+	{
+		Interval i = latest;
+		return (i != null) ? i.snapshot.getInputBytesPerSecond(i.previous) : 0.;
+	}
+
+	@Override
+	public double getWorkerUtilization()
+	{
+		Interval i = latest;
+		return (i != null) ? i.snapshot.getUtilization(i.previous) : 0.;
+	}
+
+	@Override
+	public Map<String, Integer> getQueueSizes()
+	{
+		Interval i = latest;
+		if (i == null)
+			return Collections.emptyMap();
+
+		Map<String, Integer> sizes = new LinkedHashMap<String, Integer>();
+		for (QueueSnapshot queue : i.snapshot.getQueues())
+			sizes.put(queue.getName(), queue.getSize());
+		return sizes;
+	}
+
+	@Override
+	public Map<String, Double> getWorkerUtilizations()
+	{
+		Interval i = latest;
+		if (i == null)
+			return Collections.emptyMap();
+
+		Map<String, Double> utilizations = new LinkedHashMap<String, Double>();
+		for (WorkerSnapshot worker : i.snapshot.getWorkers())
+			utilizations.put(worker.getName(), i.snapshot.getUtilization(i.previous, worker));
+		return utilizations;
+	}
+
+	// =========================================================================
+
+	private double getLatencyPercentileMillis(double quantile)
+	{
+		Interval i = latest;
+		return (i != null) ? i.snapshot.getLatencyPercentile(i.previous, quantile) / NANOS_PER_MILLI : 0.;
+	}
+
+	// =========================================================================
+
+	private static final class Interval
+	{
+		private final MetricsSnapshot snapshot;
+
+		private final MetricsSnapshot previous;
+
+		public Interval(MetricsSnapshot snapshot, MetricsSnapshot previous)
+		{
+			this.snapshot = snapshot;
+			this.previous = previous;
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.articlecruncher.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies with exponentially growing buckets.
+ *
+ * Bucket 0 counts latencies below one microsecond, bucket <code>i</code>
+ * counts latencies from 2<sup>i-1</sup> up to 2<sup>i</sup> microseconds.
+ * Percentiles are therefore reported as the upper bound of the bucket they
+ * fall into, which is at most twice the real value.
+ */
+public final class LatencyHistogram
+{
+	public static final int NUM_BUCKETS = 40;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+
+	private final AtomicLong sum = new AtomicLong(0);
+
+	private final AtomicLong max = new AtomicLong(0);
+
+	// =========================================================================
+
+	public void record(long latencyInNanos)
+	{
+		if (latencyInNanos < 0)
+			latencyInNanos = 0;
+
+		buckets.incrementAndGet(getBucket(latencyInNanos));
+		sum.addAndGet(latencyInNanos);
+
+		long current;
+		while ((current = max.get()) < latencyInNanos)
+		{
+			if (max.compareAndSet(current, latencyInNanos))
+				break;
+		}
+	}
+
+	/**
+	 * @return A copy of the bucket counts.
+	 */
+	public long[] getBuckets()
+	{
+		long[] counts = new long[NUM_BUCKETS];
+		for (int i = 0; i < NUM_BUCKETS; ++i)
+			counts[i] = buckets.get(i);
+		return counts;
+	}
+
+	public long getSum()
+	{
+		return sum.get();
+	}
+
+	public long getMax()
+	{
+		return max.get();
+	}
+
+	// =========================================================================
+
+	static int getBucket(long latencyInNanos)
+	{
+		long micros = latencyInNanos / 1000;
+		int bucket = 64 - Long.numberOfLeadingZeros(micros);
+		return Math.min(bucket, NUM_BUCKETS - 1);
+	}
+
+	/**
+	 * @return The upper bound of the given bucket in nanoseconds.
+	 */
+	static long getUpperBound(int bucket)
+	{
+		return (1L << bucket) * 1000;
+	}
+
+	/**
+	 * @param quantile
+	 *            A value between 0 and 1, e.g. 0.99 for the 99th percentile.
+	 * @return The upper bound of the bucket the given quantile falls into in
+	 *         nanoseconds or 0 if no latencies were counted.
+	 */
+	static long getPercentile(long[] counts, double quantile)
+	{
+		long total = 0;
+		for (long count : counts)
+			total += count;
+
+		if (total == 0)
+			return 0;
+
+		long rank = (long) Math.ceil(quantile * total);
+		if (rank < 1)
+			rank = 1;
+
+		long seen = 0;
+		for (int i = 0; i < counts.length; ++i)
+		{
+			seen += counts[i];
+			if (seen >= rank)
+				return getUpperBound(i);
+		}
+
+		return getUpperBound(counts.length - 1);
+	}
+}
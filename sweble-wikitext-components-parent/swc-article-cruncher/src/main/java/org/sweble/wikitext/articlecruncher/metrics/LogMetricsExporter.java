@@ -0,0 +1,111 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.articlecruncher.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sweble.wikitext.articlecruncher.metrics.MetricsSnapshot.QueueSnapshot;
+import org.sweble.wikitext.articlecruncher.metrics.MetricsSnapshot.WorkerSnapshot;
+
+/**
+ * Writes one line per snapshot to the log. The utilization of the
+ * individual workers is logged at debug level.
+ */
+public class LogMetricsExporter
+		implements
+			MetricsExporter
+{
+	private static final double NANOS_PER_MILLI = 1000. * 1000.;
+
+	private static final double BYTES_PER_MIB = 1024. * 1024.;
+
+	private final Logger logger;
+
+	// =========================================================================
+
+	public LogMetricsExporter()
+	{
+		this(LoggerFactory.getLogger(LogMetricsExporter.class));
+	}
+
+	public LogMetricsExporter(Logger logger)
+	{
+		this.logger = logger;
+	}
+
+	// =========================================================================
+
+	@Override
+	public void export(MetricsSnapshot snapshot, MetricsSnapshot previous)
+	{
+		logger.info(format(snapshot, previous));
+
+		if (logger.isDebugEnabled())
+		{
+			for (WorkerSnapshot worker : snapshot.getWorkers())
+			{
+				logger.debug(String.format(
+						"%s: %d jobs, busy: %.1f%%",
+						worker.getName(),
+						worker.getJobCount(),
+						snapshot.getUtilization(previous, worker) * 100));
+			}
+		}
+	}
+
+	@Override
+	public void close()
+	{
+	}
+
+	// =========================================================================
+
+	public static String format(MetricsSnapshot snapshot, MetricsSnapshot previous)
+	{
+		StringBuilder b = new StringBuilder();
+
+		b.append(String.format(
+				"jobs: %d (%.1f/s), failed: %.2f%%, latency mean/p50/p99/max: %.1f/%.1f/%.1f/%.1f ms",
+				snapshot.getProcessedJobs(),
+				snapshot.getJobsPerSecond(previous),
+				snapshot.getFailureRate(previous) * 100,
+				snapshot.getMeanLatencyNanos(previous) / NANOS_PER_MILLI,
+				snapshot.getLatencyPercentile(previous, 0.5) / NANOS_PER_MILLI,
+				snapshot.getLatencyPercentile(previous, 0.99) / NANOS_PER_MILLI,
+				snapshot.getMaxLatencyNanos() / NANOS_PER_MILLI));
+
+		b.append(String.format(
+				", input: %d items (%.1f/s, %.2f MiB/s)",
+				snapshot.getInputItemsRead(),
+				snapshot.getInputItemsPerSecond(previous),
+				snapshot.getInputBytesPerSecond(previous) / BYTES_PER_MIB));
+
+		for (QueueSnapshot queue : snapshot.getQueues())
+			b.append(", ").append(queue);
+
+		b.append(String.format(
+				", workers: %d (busy: %.1f%%)",
+				snapshot.getWorkers().size(),
+				snapshot.getUtilization(previous) * 100));
+
+		if (snapshot.getUnfinishedJobs() != -1)
+			b.append(", unfinished: ").append(snapshot.getUnfinishedJobs());
+
+		return b.toString();
+	}
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.articlecruncher.metrics;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sweble.wikitext.articlecruncher.utils.DaemonThreadFactory;
+
+/**
+ * Takes a snapshot of the metrics at a fixed interval and passes it to all
+ * registered exporters. A final snapshot is exported when the reporter is
+ * closed.
+ */
+public class MetricsReporter
+		implements
+			Closeable
+{
+	private static final Logger logger = LoggerFactory.getLogger(MetricsReporter.class);
+
+	private final CruncherMetrics metrics;
+
+	private final long intervalInMillis;
+
+	private final List<MetricsExporter> exporters = new CopyOnWriteArrayList<MetricsExporter>();
+
+	private ScheduledExecutorService scheduler;
+
+	private MetricsSnapshot previous;
+
+	// =========================================================================
+
+	public MetricsReporter(CruncherMetrics metrics, long intervalInMillis)
+	{
+		if (intervalInMillis < 1)
+			throw new IllegalArgumentException("Interval must be at least 1ms!");
+
+		this.metrics = metrics;
+		this.intervalInMillis = intervalInMillis;
+	}
+
+	// =========================================================================
+
+	public void addExporter(MetricsExporter exporter)
+	{
+		exporters.add(exporter);
+	}
+
+	public synchronized void start()
+	{
+		if (scheduler != null)
+			throw new IllegalStateException("Metrics reporter was already started");
+
+		scheduler = Executors.newSingleThreadScheduledExecutor(
+				new DaemonThreadFactory(MetricsReporter.class.getSimpleName()));
+
+		scheduler.scheduleAtFixedRate(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				report();
+			}
+		}, intervalInMillis, intervalInMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Takes a snapshot and passes it to all exporters.
+	 */
+	public synchronized void report()
+	{
+		MetricsSnapshot snapshot = metrics.snapshot();
+		for (MetricsExporter exporter : exporters)
+		{
+			try
+			{
+				exporter.export(snapshot, previous);
+			}
+			catch (RuntimeException e)
+			{
+				logger.warn("Metrics exporter failed", e);
+			}
+		}
+		previous = snapshot;
+	}
+
+	@Override
+	public void close()
+	{
+		synchronized (this)
+		{
+			if (scheduler != null)
+			{
+				scheduler.shutdownNow();
+				scheduler = null;
+			}
+		}
+
+		report();
+
+		for (MetricsExporter exporter : exporters)
+			exporter.close();
+	}
+}
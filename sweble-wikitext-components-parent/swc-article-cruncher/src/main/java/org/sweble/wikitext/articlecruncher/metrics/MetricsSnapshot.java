@@ -0,0 +1,341 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.articlecruncher.metrics;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The metrics of a cruncher run at one point in time.
+ *
+ * All counters are totals since the start of the run. The rates and
+ * percentiles can either be computed for the whole run or, given an earlier
+ * snapshot, for the interval between the two snapshots.
+ */
+public final class MetricsSnapshot
+{
+	private static final double NANOS_PER_SECOND = 1000. * 1000. * 1000.;
+
+	private final long elapsedNanos;
+
+	private final List<QueueSnapshot> queues;
+
+	private final List<WorkerSnapshot> workers;
+
+	private final long succeededJobs;
+
+	private final long failedJobs;
+
+	private final long[] latencyBuckets;
+
+	private final long latencySum;
+
+	private final long latencyMax;
+
+	private final long inputItemsRead;
+
+	private final long inputBytesRead;
+
+	private final long unfinishedJobs;
+
+	// =========================================================================
+
+	MetricsSnapshot(
+			long elapsedNanos,
+			List<QueueSnapshot> queues,
+			List<WorkerSnapshot> workers,
+			long succeededJobs,
+			long failedJobs,
+			long[] latencyBuckets,
+			long latencySum,
+			long latencyMax,
+			long inputItemsRead,
+			long inputBytesRead,
+			long unfinishedJobs)
+	{
+		this.elapsedNanos = elapsedNanos;
+		this.queues = Collections.unmodifiableList(queues);
+		this.workers = Collections.unmodifiableList(workers);
+		this.succeededJobs = succeededJobs;
+		this.failedJobs = failedJobs;
+		this.latencyBuckets = latencyBuckets;
+		this.latencySum = latencySum;
+		this.latencyMax = latencyMax;
+		this.inputItemsRead = inputItemsRead;
+		this.inputBytesRead = inputBytesRead;
+		this.unfinishedJobs = unfinishedJobs;
+	}
+
+	// =========================================================================
+
+	public long getElapsedNanos()
+	{
+		return elapsedNanos;
+	}
+
+	public List<QueueSnapshot> getQueues()
+	{
+		return queues;
+	}
+
+	public List<WorkerSnapshot> getWorkers()
+	{
+		return workers;
+	}
+
+	public long getSucceededJobs()
+	{
+		return succeededJobs;
+	}
+
+	public long getFailedJobs()
+	{
+		return failedJobs;
+	}
+
+	public long getProcessedJobs()
+	{
+		return succeededJobs + failedJobs;
+	}
+
+	public long getInputItemsRead()
+	{
+		return inputItemsRead;
+	}
+
+	public long getInputBytesRead()
+	{
+		return inputBytesRead;
+	}
+
+	/**
+	 * @return The number of jobs that were generated but not stored yet or -1
+	 *         if unknown.
+	 */
+	public long getUnfinishedJobs()
+	{
+		return unfinishedJobs;
+	}
+
+	public long getMaxLatencyNanos()
+	{
+		return latencyMax;
+	}
+
+	// =========================================================================
+
+	/**
+	 * @param since
+	 *            An earlier snapshot or null to compute the rate for the whole
+	 *            run.
+	 */
+	public double getJobsPerSecond(MetricsSnapshot since)
+	{
+		long jobs = getProcessedJobs() - ((since != null) ? since.getProcessedJobs() : 0);
+		return perSecond(jobs, since);
+	}
+
+	public double getInputBytesPerSecond(MetricsSnapshot since)
+	{
+		long bytes = inputBytesRead - ((since != null) ? since.inputBytesRead : 0);
+		return perSecond(bytes, since);
+	}
+
+	public double getInputItemsPerSecond(MetricsSnapshot since)
+	{
+		long items = inputItemsRead - ((since != null) ? since.inputItemsRead : 0);
+		return perSecond(items, since);
+	}
+
+	/**
+	 * @return The fraction of processed jobs which failed.
+	 */
+	public double getFailureRate(MetricsSnapshot since)
+	{
+		long processed = getProcessedJobs() - ((since != null) ? since.getProcessedJobs() : 0);
+		long failed = failedJobs - ((since != null) ? since.failedJobs : 0);
+		return (processed == 0) ? 0. : (double) failed / processed;
+	}
+
+	public double getMeanLatencyNanos(MetricsSnapshot since)
+	{
+		long count = getProcessedJobs() - ((since != null) ? since.getProcessedJobs() : 0);
+		long sum = latencySum - ((since != null) ? since.latencySum : 0);
+		return (count == 0) ? 0. : (double) sum / count;
+	}
+
+	/**
+	 * @param quantile
+	 *            A value between 0 and 1, e.g. 0.99 for the 99th percentile.
+	 * @return An upper bound for the given percentile of the processing
+	 *         latency in nanoseconds. See {@link LatencyHistogram}.
+	 */
+	public long getLatencyPercentile(MetricsSnapshot since, double quantile)
+	{
+		long[] counts = latencyBuckets.clone();
+		if (since != null)
+		{
+			for (int i = 0; i < counts.length; ++i)
+				counts[i] -= since.latencyBuckets[i];
+		}
+		return LatencyHistogram.getPercentile(counts, quantile);
+	}
+
+	/**
+	 * @return The fraction of time the given worker was busy or 0 if no time
+	 *         passed.
+	 */
+	public double getUtilization(MetricsSnapshot since, WorkerSnapshot worker)
+	{
+		long busy = worker.getBusyNanos();
+		long idle = worker.getIdleNanos();
+
+		WorkerSnapshot before = (since != null) ? since.getWorker(worker.getName()) : null;
+		if (before != null)
+		{
+			busy -= before.getBusyNanos();
+			idle -= before.getIdleNanos();
+		}
+
+		long total = busy + idle;
+		return (total <= 0) ? 0. : Math.min(1., (double) busy / total);
+	}
+
+	/**
+	 * @return The mean utilization of all workers.
+	 */
+	public double getUtilization(MetricsSnapshot since)
+	{
+		if (workers.isEmpty())
+			return 0.;
+
+		double sum = 0.;
+		for (WorkerSnapshot worker : workers)
+			sum += getUtilization(since, worker);
+		return sum / workers.size();
+	}
+
+	public QueueSnapshot getQueue(String name)
+	{
+		for (QueueSnapshot queue : queues)
+		{
+			if (queue.getName().equals(name))
+				return queue;
+		}
+		return null;
+	}
+
+	public WorkerSnapshot getWorker(String name)
+	{
+		for (WorkerSnapshot worker : workers)
+		{
+			if (worker.getName().equals(name))
+				return worker;
+		}
+		return null;
+	}
+
+	// =========================================================================
+
+	private double perSecond(long delta, MetricsSnapshot since)
+	{
+		long nanos = elapsedNanos - ((since != null) ? since.elapsedNanos : 0);
+		return (nanos <= 0) ? 0. : delta * NANOS_PER_SECOND / nanos;
+	}
+
+	// =========================================================================
+
+	public static final class QueueSnapshot
+	{
+		private final String name;
+
+		private final int size;
+
+		private final int capacity;
+
+		QueueSnapshot(String name, int size, int capacity)
+		{
+			this.name = name;
+			this.size = size;
+			this.capacity = capacity;
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		public int getSize()
+		{
+			return size;
+		}
+
+		/**
+		 * @return The capacity of the queue or -1 if it is unbounded.
+		 */
+		public int getCapacity()
+		{
+			return capacity;
+		}
+
+		@Override
+		public String toString()
+		{
+			return name + ": " + size + "/" + ((capacity == -1) ? "-" : String.valueOf(capacity));
+		}
+	}
+
+	public static final class WorkerSnapshot
+	{
+		private final String name;
+
+		private final long busyNanos;
+
+		private final long idleNanos;
+
+		private final long jobCount;
+
+		WorkerSnapshot(String name, long busyNanos, long idleNanos, long jobCount)
+		{
+			this.name = name;
+			this.busyNanos = busyNanos;
+			this.idleNanos = idleNanos;
+			this.jobCount = jobCount;
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		public long getBusyNanos()
+		{
+			return busyNanos;
+		}
+
+		public long getIdleNanos()
+		{
+			return idleNanos;
+		}
+
+		public long getJobCount()
+		{
+			return jobCount;
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.articlecruncher.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The time a single worker thread spent processing jobs.
+ *
+ * A worker is assumed to process one job at a time. Its idle time is the
+ * time since the statistics were created, or until the worker terminated,
+ * minus the time it was busy.
+ */
+public final class WorkerStats
+{
+	private final String name;
+
+	private final long createdAt = System.nanoTime();
+
+	private final AtomicLong busyNanos = new AtomicLong(0);
+
+	private final AtomicLong jobCount = new AtomicLong(0);
+
+	private volatile long terminatedAt = -1;
+
+	// =========================================================================
+
+	WorkerStats(String name)
+	{
+		this.name = name;
+	}
+
+	// =========================================================================
+
+	/**
+	 * Called after the worker finished a job.
+	 */
+	public void busy(long nanos)
+	{
+		busyNanos.addAndGet(nanos);
+		jobCount.incrementAndGet();
+	}
+
+	/**
+	 * Called when the worker thread terminates. The worker is not counted as
+	 * idle afterwards.
+	 */
+	public void terminated()
+	{
+		terminatedAt = System.nanoTime();
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public long getBusyNanos()
+	{
+		return busyNanos.get();
+	}
+
+	public long getIdleNanos(long now)
+	{
+		long end = terminatedAt;
+		if (end == -1 || end > now)
+			end = now;
+		return Math.max(0, end - createdAt - busyNanos.get());
+	}
+
+	public long getJobCount()
+	{
+		return jobCount.get();
+	}
+}
@@ -44,6 +44,8 @@ public class LocalProcessingNode
 
 	private final LpnJobProcessorFactory jobProcessorFactory;
 
+	private final ExecutorType workerExecutorType;
+
 	private MyExecutorService executor;
 
 	private Semaphore backPressure;
@@ -60,6 +62,32 @@ public class LocalProcessingNode
 			BlockingQueue<Job> processedJobs,
 			LpnJobProcessorFactory jobProcessorFactory,
 			int numWorkers)
+	{
+		this(
+				abortHandler,
+				inTray,
+				processedJobs,
+				jobProcessorFactory,
+				numWorkers,
+				ExecutorType.CACHED_THREAD_POOL);
+	}
+
+	/**
+	 * @param workerExecutorType
+	 *            The type of executor that runs the processors. With
+	 *            {@link ExecutorType#VIRTUAL_THREAD_PER_TASK} every job gets a
+	 *            virtual thread and <code>numWorkers</code> only limits the
+	 *            number of jobs processed at the same time. It can then be
+	 *            much larger than the number of cores for processors which
+	 *            block on I/O.
+	 */
+	public LocalProcessingNode(
+			AbortHandler abortHandler,
+			BlockingQueue<Job> inTray,
+			BlockingQueue<Job> processedJobs,
+			LpnJobProcessorFactory jobProcessorFactory,
+			int numWorkers,
+			ExecutorType workerExecutorType)
 	{
 		super(getClassName(), abortHandler);
 
@@ -69,6 +97,7 @@ public class LocalProcessingNode
 		this.processedJobs = processedJobs;
 		this.jobProcessorFactory = jobProcessorFactory;
 		this.numWorkers = numWorkers;
+		this.workerExecutorType = workerExecutorType;
 	}
 
 	private static String getClassName()
@@ -114,7 +143,9 @@ public class LocalProcessingNode
 							executor.getThreadGroup(),
 							numWorkers,
 							jobProcessorFactory,
-							backPressure);
+							backPressure,
+							workerExecutorType);
+					d.setMetrics(getMetrics());
 					ecsQueue.add(d.getEcs());
 					return d;
 				}
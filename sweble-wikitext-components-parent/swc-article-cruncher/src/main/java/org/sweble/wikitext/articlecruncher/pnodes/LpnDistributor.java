@@ -27,7 +27,10 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import org.sweble.wikitext.articlecruncher.Job;
+import org.sweble.wikitext.articlecruncher.metrics.CruncherMetrics;
 import org.sweble.wikitext.articlecruncher.utils.AbortHandler;
+import org.sweble.wikitext.articlecruncher.utils.DaemonThreadFactory.ThreadListener;
+import org.sweble.wikitext.articlecruncher.utils.ExecutorType;
 import org.sweble.wikitext.articlecruncher.utils.MyExecutorCompletionService;
 import org.sweble.wikitext.articlecruncher.utils.WorkerBase;
 
@@ -45,6 +48,12 @@ public class LpnDistributor
 
 	private final LpnJobProcessorFactory jobProcessorFactory;
 
+	private final int numWorkers;
+
+	private final ExecutorType workerExecutorType;
+
+	private CruncherMetrics metrics;
+
 	private int count = 0;
 
 	// =========================================================================
@@ -56,6 +65,25 @@ public class LpnDistributor
 			int numWorkers,
 			LpnJobProcessorFactory jobProcessorFactory,
 			Semaphore backPressure)
+	{
+		this(
+				abortHandler,
+				inTray,
+				fatherThreadGroup,
+				numWorkers,
+				jobProcessorFactory,
+				backPressure,
+				ExecutorType.CACHED_THREAD_POOL);
+	}
+
+	public LpnDistributor(
+			AbortHandler abortHandler,
+			BlockingQueue<Job> inTray,
+			ThreadGroup fatherThreadGroup,
+			int numWorkers,
+			LpnJobProcessorFactory jobProcessorFactory,
+			Semaphore backPressure,
+			ExecutorType workerExecutorType)
 	{
 		super(getClassName(), abortHandler);
 
@@ -64,22 +92,70 @@ public class LpnDistributor
 		this.inTray = inTray;
 		this.backPressure = backPressure;
 		this.jobProcessorFactory = jobProcessorFactory;
+		this.numWorkers = numWorkers;
+		this.workerExecutorType = workerExecutorType;
 
-		int corePoolSize = numWorkers;
-		int maximumPoolSize = numWorkers;
+		switch (workerExecutorType)
+		{
+			case VIRTUAL_THREAD_PER_TASK:
+				// The back pressure semaphore limits the number of jobs in
+				// flight to the number of workers, no pool is needed.
+				info(getClass().getSimpleName() + " starts with up to " + numWorkers + " virtual workers");
+
+				execComplServ = new MyExecutorCompletionService<Job>(
+						workerExecutorType,
+						getLogger());
+				break;
+
+			default:
+				int corePoolSize = numWorkers;
+				int maximumPoolSize = numWorkers;
+
+				info(getClass().getSimpleName() + " starts with a pool of " + numWorkers + " workers");
+
+				execComplServ = new MyExecutorCompletionService<Job>(
+						getLogger(),
+						corePoolSize,
+						maximumPoolSize,
+						60,
+						TimeUnit.SECONDS,
+						new SynchronousQueue<Runnable>(),
+						new RejectedExecutionHandlerImpl());
+				break;
+		}
 
-		info(getClass().getSimpleName() + " starts with a pool of " + numWorkers + " workers");
+		execComplServ.setThreadNameTemplate(jobProcessorFactory.getProcessorNameTemplate());
+	}
 
-		execComplServ = new MyExecutorCompletionService<Job>(
-				getLogger(),
-				corePoolSize,
-				maximumPoolSize,
-				60,
-				TimeUnit.SECONDS,
-				new SynchronousQueue<Runnable>(),
-				new RejectedExecutionHandlerImpl());
+	/**
+	 * The busy time is reported per pool thread. If every job runs on its own
+	 * virtual thread, only the processing latencies of all jobs are reported.
+	 * 
+	 * Must be called before the distributor starts. Pool threads are then
+	 * registered as workers when they start, so that their idle time before
+	 * the first job is accounted for.
+	 */
+	public void setMetrics(final CruncherMetrics metrics)
+	{
+		this.metrics = metrics;
 
-		execComplServ.setThreadNameTemplate(jobProcessorFactory.getProcessorNameTemplate());
+		if (metrics != null && isReportWorkerStats())
+		{
+			execComplServ.setThreadListener(new ThreadListener()
+			{
+				@Override
+				public void threadStarted(Thread thread)
+				{
+					metrics.getWorkerStats(thread.getName());
+				}
+
+				@Override
+				public void threadTerminated(Thread thread)
+				{
+					metrics.getWorkerStats(thread.getName()).terminated();
+				}
+			});
+		}
 	}
 
 	protected static String getClassName()
@@ -87,11 +163,19 @@ public class LpnDistributor
 		return LpnDistributor.class.getSimpleName();
 	}
 
+	private boolean isReportWorkerStats()
+	{
+		return workerExecutorType != ExecutorType.VIRTUAL_THREAD_PER_TASK;
+	}
+
 	// =========================================================================
 
 	@Override
 	protected void work() throws Throwable
 	{
+		if (metrics != null && isReportWorkerStats())
+			execComplServ.prestartAllCoreThreads();
+
 		while (true)
 		{
 			// Prevent a accumulation of processed jobs in the gatherer.
@@ -102,7 +186,11 @@ public class LpnDistributor
 
 			job.signOff(getClass(), null);
 
-			Callable<Job> worker = new LpnWorker(jobProcessorFactory, job);
+			Callable<Job> worker = new LpnWorker(
+					jobProcessorFactory,
+					job,
+					metrics,
+					isReportWorkerStats());
 
 			execComplServ.submit(worker);
 		}
@@ -23,6 +23,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sweble.wikitext.articlecruncher.Job;
 import org.sweble.wikitext.articlecruncher.Processor;
+import org.sweble.wikitext.articlecruncher.metrics.CruncherMetrics;
 
 final class LpnWorker
 		implements
@@ -34,12 +35,27 @@ final class LpnWorker
 
 	private final Job job;
 
+	private final CruncherMetrics metrics;
+
+	private final boolean reportWorkerStats;
+
 	// =========================================================================
 
 	LpnWorker(LpnJobProcessorFactory jobProcessorFactory, Job jobHistory)
+	{
+		this(jobProcessorFactory, jobHistory, null, false);
+	}
+
+	LpnWorker(
+			LpnJobProcessorFactory jobProcessorFactory,
+			Job jobHistory,
+			CruncherMetrics metrics,
+			boolean reportWorkerStats)
 	{
 		this.jobProcessorFactory = jobProcessorFactory;
 		this.job = jobHistory;
+		this.metrics = metrics;
+		this.reportWorkerStats = reportWorkerStats;
 	}
 
 	// =========================================================================
@@ -47,6 +63,9 @@ final class LpnWorker
 	@Override
 	public Job call()
 	{
+		long start = System.nanoTime();
+		boolean failed = false;
+
 		try
 		{
 			job.signOff(getClass(), null);
@@ -60,6 +79,17 @@ final class LpnWorker
 			logger.warn("Processing failed with exception", t);
 
 			job.failed(t);
+
+			failed = true;
+		}
+
+		if (metrics != null)
+		{
+			long latency = System.nanoTime() - start;
+			metrics.processed(latency, failed);
+
+			if (reportWorkerStats)
+				metrics.getWorkerStats(Thread.currentThread().getName()).busy(latency);
 		}
 
 		return job;
@@ -0,0 +1,401 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.articlecruncher.pnodes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sweble.wikitext.articlecruncher.Job;
+import org.sweble.wikitext.articlecruncher.ProcessingNode;
+import org.sweble.wikitext.articlecruncher.Processor;
+import org.sweble.wikitext.articlecruncher.metrics.CruncherMetrics;
+import org.sweble.wikitext.articlecruncher.metrics.WorkerStats;
+import org.sweble.wikitext.articlecruncher.utils.AbortHandler;
+
+/**
+ * A processing node which hands jobs to a work-stealing pool in batches.
+ *
+ * Unlike the {@link LocalProcessingNode}, which passes every job through a
+ * distributor, a synchronous hand-off to a worker and a gatherer thread,
+ * this node takes up to <code>batchSize</code> jobs from the in tray at once
+ * and submits them as a single task. A worker processes its batch locally and
+ * puts the processed jobs directly into the processed jobs queue. If
+ * processing a batch takes longer than a millisecond and other workers are
+ * idle, the rest of the batch is split up for them to steal.
+ *
+ * Each worker thread creates one processor and uses it for all jobs it
+ * processes.
+ */
+public class WorkStealingProcessingNode
+		extends
+			ProcessingNode
+{
+	public static final int DEFAULT_BATCH_SIZE = 16;
+
+	private static final long SHUTDOWN_TIMEOUT_IN_SECONDS = 60 * 5;
+
+	private static final long SPLIT_THRESHOLD_IN_NANOS = 1000 * 1000;
+
+	// =========================================================================
+
+	private final BlockingQueue<Job> inTray;
+
+	private final BlockingQueue<Job> processedJobs;
+
+	private final int numWorkers;
+
+	private final int batchSize;
+
+	private final LpnJobProcessorFactory jobProcessorFactory;
+
+	private ForkJoinPool pool;
+
+	private Semaphore backPressure;
+
+	private long count = 0;
+
+	private long batchCount = 0;
+
+	private final AtomicLong failureCount = new AtomicLong(0);
+
+	private final AtomicLong successCount = new AtomicLong(0);
+
+	// =========================================================================
+
+	public WorkStealingProcessingNode(
+			AbortHandler abortHandler,
+			BlockingQueue<Job> inTray,
+			BlockingQueue<Job> processedJobs,
+			LpnJobProcessorFactory jobProcessorFactory,
+			int numWorkers)
+	{
+		this(
+				abortHandler,
+				inTray,
+				processedJobs,
+				jobProcessorFactory,
+				numWorkers,
+				DEFAULT_BATCH_SIZE);
+	}
+
+	public WorkStealingProcessingNode(
+			AbortHandler abortHandler,
+			BlockingQueue<Job> inTray,
+			BlockingQueue<Job> processedJobs,
+			LpnJobProcessorFactory jobProcessorFactory,
+			int numWorkers,
+			int batchSize)
+	{
+		super(getClassName(), abortHandler);
+
+		if (numWorkers < 1)
+			throw new IllegalArgumentException("Number of workers must be at least 1!");
+		if (batchSize < 1)
+			throw new IllegalArgumentException("Batch size must be at least 1!");
+
+		Thread.currentThread().setName(getClassName());
+
+		this.inTray = inTray;
+		this.processedJobs = processedJobs;
+		this.jobProcessorFactory = jobProcessorFactory;
+		this.numWorkers = numWorkers;
+		this.batchSize = batchSize;
+	}
+
+	private static String getClassName()
+	{
+		return WorkStealingProcessingNode.class.getSimpleName();
+	}
+
+	// =========================================================================
+
+	@Override
+	protected void work() throws Throwable
+	{
+		info(getClass().getSimpleName() + " starts with a pool of " + numWorkers
+				+ " workers and batches of up to " + batchSize + " jobs");
+
+		pool = new ForkJoinPool(
+				numWorkers,
+				new WorkerThreadFactory(jobProcessorFactory.getProcessorNameTemplate()),
+				null,
+				true);
+
+		// Every worker can process one batch while another one is waiting.
+		backPressure = new Semaphore(2 * numWorkers * batchSize);
+
+		try
+		{
+			while (true)
+			{
+				// Prevent an accumulation of processed jobs in the pool.
+				backPressure.acquire(batchSize);
+
+				List<Job> batch = new ArrayList<Job>(batchSize);
+				batch.add(inTray.take());
+				inTray.drainTo(batch, batchSize - 1);
+
+				backPressure.release(batchSize - batch.size());
+
+				for (Job job : batch)
+					job.signOff(getClass(), null);
+
+				count += batch.size();
+				++batchCount;
+
+				pool.execute(new BatchTask(batch, 0, batch.size()));
+			}
+		}
+		finally
+		{
+			info("Sending kill signal to workers");
+
+			pool.shutdown();
+			if (!pool.awaitTermination(SHUTDOWN_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS))
+			{
+				error("Workers are not responding to shutdown! Forcing shutdown.");
+				pool.shutdownNow();
+			}
+		}
+	}
+
+	@Override
+	protected void after()
+	{
+		info(getClass().getSimpleName() + " counts " + count + " items in " + batchCount + " batches");
+		info(getClass().getSimpleName() + " counts " + failureCount.get() + " items for which processing failed");
+		info(getClass().getSimpleName() + " counts " + successCount.get() + " items which were successfully processed");
+	}
+
+	// =========================================================================
+
+	private final class BatchTask
+			extends
+				RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final List<Job> batch;
+
+		private final int from;
+
+		private final int to;
+
+		public BatchTask(List<Job> batch, int from, int to)
+		{
+			this.batch = batch;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			try
+			{
+				WorkerThread worker = (WorkerThread) Thread.currentThread();
+
+				Processor processor = worker.getProcessor();
+
+				CruncherMetrics metrics = getMetrics();
+
+				long processingTime = 0;
+
+				int to = this.to;
+				for (int i = from; i < to; ++i)
+				{
+					// Cheap jobs are processed as one batch. Only if processing
+					// turns out to be slow the second half of the remaining jobs
+					// is offered to idle workers.
+					if (to - i > 1
+							&& processingTime > SPLIT_THRESHOLD_IN_NANOS
+							&& getSurplusQueuedTaskCount() <= 0)
+					{
+						int mid = (i + to) >>> 1;
+						new BatchTask(batch, mid, to).fork();
+						to = mid;
+					}
+
+					Job job = batch.get(i);
+
+					long start = System.nanoTime();
+					boolean failed = !process(processor, job);
+					long latency = System.nanoTime() - start;
+					processingTime += latency;
+
+					if (metrics != null)
+					{
+						metrics.processed(latency, failed);
+						if (worker.stats != null)
+							worker.stats.busy(latency);
+					}
+
+					// The queue may be full. Blocking in managed mode lets
+					// the pool compensate for the blocked worker.
+					ForkJoinPool.managedBlock(new PutProcessedJob(job));
+					backPressure.release();
+				}
+			}
+			catch (InterruptedException e)
+			{
+				// The pool is shutting down
+				Thread.currentThread().interrupt();
+			}
+			catch (Throwable t)
+			{
+				error("Worker failed with unhandled exception", t);
+
+				abort(t);
+			}
+		}
+
+		/**
+		 * @return Whether processing succeeded.
+		 */
+		private boolean process(Processor processor, Job job)
+		{
+			try
+			{
+				job.signOff(getClass(), null);
+
+				job.processed(processor.process(job));
+
+				successCount.incrementAndGet();
+				return true;
+			}
+			catch (Exception e)
+			{
+				warn("Processing failed with exception", e);
+
+				job.failed(e);
+
+				failureCount.incrementAndGet();
+				return false;
+			}
+		}
+	}
+
+	// =========================================================================
+
+	private final class PutProcessedJob
+			implements
+				ForkJoinPool.ManagedBlocker
+	{
+		private final Job job;
+
+		private boolean done = false;
+
+		public PutProcessedJob(Job job)
+		{
+			this.job = job;
+		}
+
+		@Override
+		public boolean block() throws InterruptedException
+		{
+			if (!done)
+			{
+				processedJobs.put(job);
+				done = true;
+			}
+			return true;
+		}
+
+		@Override
+		public boolean isReleasable()
+		{
+			if (!done)
+				done = processedJobs.offer(job);
+			return done;
+		}
+	}
+
+	// =========================================================================
+
+	private final class WorkerThreadFactory
+			implements
+				ForkJoinPool.ForkJoinWorkerThreadFactory
+	{
+		private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+		private final String threadNameTemplate;
+
+		public WorkerThreadFactory(String threadNameTemplate)
+		{
+			this.threadNameTemplate = threadNameTemplate;
+		}
+
+		@Override
+		public ForkJoinWorkerThread newThread(ForkJoinPool pool)
+		{
+			WorkerThread thread = new WorkerThread(pool);
+			thread.setName(String.format(threadNameTemplate, threadNumber.getAndIncrement()));
+			return thread;
+		}
+	}
+
+	private final class WorkerThread
+			extends
+				ForkJoinWorkerThread
+	{
+		private Processor processor;
+
+		private WorkerStats stats;
+
+		public WorkerThread(ForkJoinPool pool)
+		{
+			super(pool);
+		}
+
+		public Processor getProcessor()
+		{
+			if (processor == null)
+				processor = jobProcessorFactory.createProcessor();
+			return processor;
+		}
+
+		@Override
+		protected void onStart()
+		{
+			super.onStart();
+
+			// The pool replaces idle threads. Each thread reports under its
+			// own name and stops counting as idle when it terminates.
+			CruncherMetrics metrics = getMetrics();
+			if (metrics != null)
+				stats = metrics.getWorkerStats(getName());
+		}
+
+		@Override
+		protected void onTermination(Throwable exception)
+		{
+			if (stats != null)
+				stats.terminated();
+
+			super.onTermination(exception);
+		}
+	}
+}
@@ -30,6 +30,8 @@ public class DaemonThreadFactory
 
 	private String threadNameTemplate;
 
+	private volatile ThreadListener threadListener;
+
 	// =========================================================================
 
 	public DaemonThreadFactory(String poolName)
@@ -54,12 +56,49 @@ public class DaemonThreadFactory
 		this.threadNameTemplate = threadNameTemplate;
 	}
 
+	/**
+	 * Sets a listener that is informed when a thread created from now on
+	 * starts and terminates. The listener is called from the started thread.
+	 */
+	public void setThreadListener(ThreadListener threadListener)
+	{
+		this.threadListener = threadListener;
+	}
+
 	// =========================================================================
 
+	public String newThreadName()
+	{
+		return String.format(threadNameTemplate, threadNumber.getAndIncrement());
+	}
+
 	@Override
 	public Thread newThread(Runnable runnable)
 	{
-		String name = String.format(threadNameTemplate, threadNumber.getAndIncrement());
+		String name = newThreadName();
+
+		final ThreadListener listener = threadListener;
+		if (listener != null)
+		{
+			final Runnable target = runnable;
+			runnable = new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					Thread thread = Thread.currentThread();
+					listener.threadStarted(thread);
+					try
+					{
+						target.run();
+					}
+					finally
+					{
+						listener.threadTerminated(thread);
+					}
+				}
+			};
+		}
 
 		Thread thread = new Thread(group, runnable, name);
 
@@ -76,4 +115,13 @@ public class DaemonThreadFactory
 	{
 		return group;
 	}
+
+	// =========================================================================
+
+	public static interface ThreadListener
+	{
+		void threadStarted(Thread thread);
+
+		void threadTerminated(Thread thread);
+	}
 }
@@ -19,5 +19,13 @@ package org.sweble.wikitext.articlecruncher.utils;
 
 public enum ExecutorType
 {
-	CACHED_THREAD_POOL
+	CACHED_THREAD_POOL,
+
+	/**
+	 * Starts a new virtual thread for every task. Virtual threads are cheap
+	 * to block, which makes this type suitable for workers waiting on I/O,
+	 * like storers writing to a database. If the JVM does not support virtual
+	 * threads, a cached thread pool is used instead.
+	 */
+	VIRTUAL_THREAD_PER_TASK
 }
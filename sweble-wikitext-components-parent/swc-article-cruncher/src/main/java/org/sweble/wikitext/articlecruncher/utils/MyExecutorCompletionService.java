@@ -26,6 +26,7 @@ import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
+import org.sweble.wikitext.articlecruncher.utils.DaemonThreadFactory.ThreadListener;
 
 public class MyExecutorCompletionService<V>
 		implements
@@ -150,6 +151,16 @@ public class MyExecutorCompletionService<V>
 		executor.setThreadNameTemplate(threadNameTemplate);
 	}
 
+	public void setThreadListener(ThreadListener threadListener)
+	{
+		executor.setThreadListener(threadListener);
+	}
+
+	public int prestartAllCoreThreads()
+	{
+		return executor.prestartAllCoreThreads();
+	}
+
 	// =========================================================================
 
 	public Future<V> submit(Callable<V> task)
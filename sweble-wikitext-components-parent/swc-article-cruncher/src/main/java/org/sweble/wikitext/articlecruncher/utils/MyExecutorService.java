@@ -31,6 +31,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import org.slf4j.Logger;
+import org.sweble.wikitext.articlecruncher.utils.DaemonThreadFactory.ThreadListener;
 
 public class MyExecutorService
 		implements
@@ -69,6 +70,18 @@ public class MyExecutorService
 				this.executor = Executors.newCachedThreadPool(threadFactory);
 				break;
 
+			case VIRTUAL_THREAD_PER_TASK:
+				if (VirtualThreads.isSupported())
+				{
+					this.executor = VirtualThreads.newThreadPerTaskExecutor(threadFactory);
+				}
+				else
+				{
+					logger.warn("Virtual threads are not supported by this JVM, using a cached thread pool instead");
+					this.executor = Executors.newCachedThreadPool(threadFactory);
+				}
+				break;
+
 			default:
 				throw new IllegalArgumentException("Invalid executor type");
 		}
@@ -150,6 +163,24 @@ public class MyExecutorService
 		this.threadFactory.setThreadNameTemplate(threadNameTemplate);
 	}
 
+	public void setThreadListener(ThreadListener threadListener)
+	{
+		this.threadFactory.setThreadListener(threadListener);
+	}
+
+	/**
+	 * Starts all core threads of a thread pool, which otherwise would only be
+	 * started when tasks are submitted.
+	 * 
+	 * @return The number of threads started.
+	 */
+	public int prestartAllCoreThreads()
+	{
+		if (executor instanceof ThreadPoolExecutor)
+			return ((ThreadPoolExecutor) executor).prestartAllCoreThreads();
+		return 0;
+	}
+
 	// =========================================================================
 
 	/*
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.articlecruncher.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import de.fau.cs.osr.utils.WrappedException;
+
+/**
+ * Creates virtual threads on JVMs that support them (Java 21 and later).
+ *
+ * The methods are looked up using reflection since the code has to compile
+ * and run on older JVMs, too.
+ */
+final class VirtualThreads
+{
+	private static final Method OF_VIRTUAL = findMethod(Thread.class, "ofVirtual");
+
+	private static final Method FACTORY = (OF_VIRTUAL != null) ?
+			findMethod(OF_VIRTUAL.getReturnType(), "factory") :
+			null;
+
+	private static final Method NEW_THREAD_PER_TASK_EXECUTOR = findMethod(
+			Executors.class,
+			"newThreadPerTaskExecutor",
+			ThreadFactory.class);
+
+	// =========================================================================
+
+	private VirtualThreads()
+	{
+	}
+
+	// =========================================================================
+
+	public static boolean isSupported()
+	{
+		return OF_VIRTUAL != null
+				&& FACTORY != null
+				&& NEW_THREAD_PER_TASK_EXECUTOR != null;
+	}
+
+	/**
+	 * Creates an executor which starts a new virtual thread for each task.
+	 * The threads are named using the given thread factory.
+	 */
+	public static ExecutorService newThreadPerTaskExecutor(
+			final DaemonThreadFactory names)
+	{
+		if (!isSupported())
+			throw new UnsupportedOperationException("Virtual threads are not supported by this JVM");
+
+		try
+		{
+			final ThreadFactory virtualThreads =
+					(ThreadFactory) FACTORY.invoke(OF_VIRTUAL.invoke(null));
+
+			ThreadFactory namedVirtualThreads = new ThreadFactory()
+			{
+				@Override
+				public Thread newThread(Runnable runnable)
+				{
+					Thread thread = virtualThreads.newThread(runnable);
+					thread.setName(names.newThreadName());
+					return thread;
+				}
+			};
+
+			return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, namedVirtualThreads);
+		}
+		catch (Exception e)
+		{
+			throw new WrappedException(e);
+		}
+	}
+
+	// =========================================================================
+
+	private static Method findMethod(
+			Class<?> clazz,
+			String name,
+			Class<?>... parameterTypes)
+	{
+		try
+		{
+			return clazz.getMethod(name, parameterTypes);
+		}
+		catch (NoSuchMethodException e)
+		{
+			return null;
+		}
+	}
+}
@@ -0,0 +1,228 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.sweble.wikitext.articlecruncher.JobTrace;
+import org.sweble.wikitext.articlecruncher.checkpoint.Checkpoint;
+import org.sweble.wikitext.articlecruncher.checkpoint.CheckpointLog;
+import org.sweble.wikitext.articlecruncher.checkpoint.CheckpointTracker;
+
+public class CheckpointTest
+{
+	@Test
+	public void testLastCheckpointIsRecoveredAndTornRecordIsDropped() throws Exception
+	{
+		File file = createLogFile();
+
+		CheckpointLog log = new CheckpointLog(file);
+		assertNull(log.getLastCheckpoint());
+		log.append(new Checkpoint(10, 100, 5));
+		log.append(new Checkpoint(20, 200, 15));
+		log.close();
+
+		long length = file.length();
+
+		// Simulate a crash while the next record was written
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try
+		{
+			raf.seek(length);
+			raf.write(new byte[] { 1, 2, 3, 4, 5 });
+		}
+		finally
+		{
+			raf.close();
+		}
+
+		log = new CheckpointLog(file);
+		assertEquals(new Checkpoint(20, 200, 15), log.getLastCheckpoint());
+		assertEquals(length, file.length());
+
+		log.append(new Checkpoint(30, 300, 25));
+		log.close();
+
+		log = new CheckpointLog(file);
+		assertEquals(new Checkpoint(30, 300, 25), log.getLastCheckpoint());
+		log.close();
+	}
+
+	@Test
+	public void testLogIsCompacted() throws Exception
+	{
+		File file = createLogFile();
+
+		CheckpointLog log = new CheckpointLog(file);
+		for (int i = 1; i <= 5000; ++i)
+			log.append(new Checkpoint(i, i * 10, i - 1));
+		log.close();
+
+		assertTrue(file.length() < 5000 * 32);
+
+		log = new CheckpointLog(file);
+		assertEquals(new Checkpoint(5000, 50000, 4999), log.getLastCheckpoint());
+		log.close();
+	}
+
+	@Test
+	public void testCheckpointDoesNotSkipUnstoredJobs() throws Exception
+	{
+		File file = createLogFile();
+
+		CheckpointTracker tracker = new CheckpointTracker(new CheckpointLog(file), 2);
+		assertNull(tracker.getResumeCheckpoint());
+
+		JobTrace[] traces = new JobTrace[6];
+		for (int i = 0; i < traces.length; ++i)
+		{
+			traces[i] = new JobTrace();
+			// Three jobs per stream, streams start at 0 and 1000
+			long offset = (i < 3) ? 0 : 1000;
+			tracker.generated(traces[i], i + 1, offset, (i < 3) ? 0 : 3);
+		}
+
+		// Jobs 1, 2, 5 and 6 are stored, job 3 and 4 are still pending
+		tracker.stored(traces[0]);
+		tracker.stored(traces[4]);
+		tracker.stored(traces[1]);
+		tracker.stored(traces[5]);
+		tracker.close();
+
+		tracker = new CheckpointTracker(new CheckpointLog(file), 2);
+
+		Checkpoint resume = tracker.getResumeCheckpoint();
+		assertEquals(new Checkpoint(2, 0, 0), resume);
+		assertTrue(tracker.isStored(2));
+		assertFalse(tracker.isStored(3));
+
+		// The resumed run generates the remaining jobs again
+		JobTrace[] resumed = new JobTrace[4];
+		for (int i = 0; i < resumed.length; ++i)
+		{
+			resumed[i] = new JobTrace();
+			long offset = (i < 1) ? 0 : 1000;
+			tracker.generated(resumed[i], i + 3, offset, (i < 1) ? 0 : 3);
+		}
+
+		for (JobTrace trace : resumed)
+			tracker.stored(trace);
+		tracker.close();
+
+		CheckpointLog log = new CheckpointLog(file);
+		assertEquals(new Checkpoint(6, 1000, 3), log.getLastCheckpoint());
+		log.close();
+	}
+
+	@Test
+	public void testStoringDoesNotWaitForCheckpointBeingWritten() throws Exception
+	{
+		File file = createLogFile();
+
+		final CountDownLatch appending = new CountDownLatch(1);
+		final CountDownLatch proceed = new CountDownLatch(1);
+		final List<Checkpoint> appended = new ArrayList<Checkpoint>();
+
+		CheckpointLog log = new CheckpointLog(file)
+		{
+			@Override
+			public synchronized void append(Checkpoint checkpoint) throws IOException
+			{
+				appending.countDown();
+				try
+				{
+					proceed.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e)
+				{
+					throw new IOException(e);
+				}
+				appended.add(checkpoint);
+				super.append(checkpoint);
+			}
+		};
+
+		final CheckpointTracker tracker = new CheckpointTracker(log, 1);
+
+		final JobTrace[] traces = new JobTrace[4];
+		for (int i = 0; i < traces.length; ++i)
+		{
+			traces[i] = new JobTrace();
+			tracker.generated(traces[i], i + 1, i * 100, i);
+		}
+
+		Thread writer = new Thread()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					tracker.stored(traces[0]);
+				}
+				catch (IOException e)
+				{
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		writer.start();
+
+		assertTrue(appending.await(10, TimeUnit.SECONDS));
+
+		// The other jobs are stored while the first checkpoint is written
+		tracker.stored(traces[1]);
+		tracker.stored(traces[2]);
+		tracker.stored(traces[3]);
+
+		proceed.countDown();
+		writer.join(10000);
+		assertFalse(writer.isAlive());
+
+		tracker.close();
+
+		// Only the latest of the queued checkpoints was written
+		assertEquals(2, appended.size());
+		assertEquals(new Checkpoint(1, 100, 1), appended.get(0));
+		assertEquals(new Checkpoint(4, 300, 3), appended.get(1));
+
+		log = new CheckpointLog(file);
+		assertEquals(new Checkpoint(4, 300, 3), log.getLastCheckpoint());
+		log.close();
+	}
+
+	// =========================================================================
+
+	private static File createLogFile() throws IOException
+	{
+		File file = File.createTempFile("checkpoint", ".log");
+		file.delete();
+		file.deleteOnExit();
+		return file;
+	}
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.sweble.wikitext.articlecruncher.Job;
+import org.sweble.wikitext.articlecruncher.Processor;
+import org.sweble.wikitext.articlecruncher.dedup.DedupCache;
+import org.sweble.wikitext.articlecruncher.dedup.DedupJob;
+import org.sweble.wikitext.articlecruncher.dedup.DedupProcessor;
+import org.sweble.wikitext.articlecruncher.dedup.DedupResultAdapter;
+
+public class DedupProcessorTest
+{
+	private AtomicLong processed = new AtomicLong(0);
+
+	// =========================================================================
+
+	private static final class ContentJob
+			extends
+				Job
+			implements
+				DedupJob
+	{
+		private final String key;
+
+		public ContentJob(String key)
+		{
+			this.key = key;
+		}
+
+		@Override
+		public String getContentKey()
+		{
+			return key;
+		}
+	}
+
+	// =========================================================================
+
+	@Test
+	public void testJobsWithEqualKeysAreProcessedOnce() throws Throwable
+	{
+		DedupCache cache = new DedupCache(16);
+		Processor p = new DedupProcessor(createProcessor(), cache);
+
+		Object a = p.process(new ContentJob("a"));
+		Object b = p.process(new ContentJob("b"));
+
+		Job duplicate = new ContentJob("a");
+		assertSame(a, p.process(duplicate));
+		assertEquals(DedupProcessor.class, duplicate.getSigners().get(0).getSigner());
+
+		p.process(new ContentJob(null));
+
+		assertEquals(3, processed.get());
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.getMisses());
+		assertEquals(1, cache.getUnkeyed());
+		assertEquals(0.25, cache.getDedupRatio(), 0.);
+		assertEquals("b-2", b);
+	}
+
+	@Test
+	public void testLeastRecentlyUsedResultsAreEvicted() throws Throwable
+	{
+		DedupCache cache = new DedupCache(2);
+		Processor p = new DedupProcessor(createProcessor(), cache);
+
+		p.process(new ContentJob("a"));
+		p.process(new ContentJob("b"));
+		p.process(new ContentJob("a"));
+		p.process(new ContentJob("c"));
+		p.process(new ContentJob("b"));
+
+		assertEquals(4, processed.get());
+		assertEquals(2, cache.getSize());
+		assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	public void testAdapterDerivesResultOfSkippedJob() throws Throwable
+	{
+		DedupCache cache = new DedupCache(16);
+		DedupResultAdapter adapter = new DedupResultAdapter()
+		{
+			@Override
+			public Object adapt(Job job, Object result)
+			{
+				return result + " for " + ((DedupJob) job).getContentKey();
+			}
+		};
+		Processor p = new DedupProcessor(createProcessor(), cache, adapter);
+
+		assertEquals("a-1", p.process(new ContentJob("a")));
+		assertEquals("a-1 for a", p.process(new ContentJob("a")));
+		assertEquals(1, processed.get());
+	}
+
+	// =========================================================================
+
+	private Processor createProcessor()
+	{
+		return new Processor()
+		{
+			@Override
+			public Object process(Job job)
+			{
+				return ((DedupJob) job).getContentKey() + "-" + processed.incrementAndGet();
+			}
+		};
+	}
+}
@@ -0,0 +1,206 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.junit.Test;
+import org.sweble.wikitext.articlecruncher.JobTrace;
+import org.sweble.wikitext.articlecruncher.JobTraceSet;
+import org.sweble.wikitext.articlecruncher.TraceMode;
+import org.sweble.wikitext.articlecruncher.checkpoint.CheckpointLog;
+import org.sweble.wikitext.articlecruncher.checkpoint.CheckpointTracker;
+
+import de.fau.cs.osr.utils.WrappedException;
+
+public class JobTraceSetTest
+{
+	private static final int NUM_THREADS = 4;
+
+	private static final int NUM_JOBS = 10000;
+
+	// =========================================================================
+
+	@Test
+	public void testWaitForCompletionReturnsWhenAllTracesAreRemoved() throws Throwable
+	{
+		final JobTraceSet jobTraces = new JobTraceSet(NUM_THREADS);
+		final BlockingQueue<JobTrace> queue = new LinkedBlockingQueue<JobTrace>();
+
+		for (int i = 0; i < NUM_JOBS; ++i)
+		{
+			JobTrace trace = new JobTrace();
+			jobTraces.add(trace);
+			queue.add(trace);
+		}
+
+		final JobTrace unfinished = new JobTrace();
+		jobTraces.add(unfinished);
+
+		assertEquals(NUM_JOBS + 1, jobTraces.getUnfinishedCount());
+
+		List<Thread> storers = new ArrayList<Thread>();
+		for (int i = 0; i < NUM_THREADS; ++i)
+		{
+			Thread storer = new Thread()
+			{
+				@Override
+				public void run()
+				{
+					JobTrace trace;
+					while ((trace = queue.poll()) != null)
+						jobTraces.remove(trace);
+				}
+			};
+			storer.start();
+			storers.add(storer);
+		}
+
+		for (Thread storer : storers)
+			storer.join();
+
+		// Only the unfinished job is reported
+		assertEquals(1, jobTraces.getUnfinishedCount());
+		assertEquals(1, jobTraces.getTraces().size());
+		assertTrue(jobTraces.getTraces().contains(unfinished));
+
+		Thread storer = new Thread()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					Thread.sleep(100);
+				}
+				catch (InterruptedException e)
+				{
+				}
+				jobTraces.remove(unfinished);
+			}
+		};
+		storer.start();
+
+		jobTraces.waitForCompletion(60);
+		assertEquals(0, jobTraces.getUnfinishedCount());
+		assertTrue(jobTraces.getTraces().isEmpty());
+		assertFalse(jobTraces.remove(unfinished));
+	}
+
+	@Test(timeout = 10000)
+	public void testFailingCheckpointTrackerDoesNotBlockCompletion() throws Throwable
+	{
+		File file = File.createTempFile("checkpoint", ".log");
+		file.deleteOnExit();
+
+		final IOException cause = new IOException("Disk full");
+
+		final JobTraceSet jobTraces = new JobTraceSet();
+		jobTraces.setCheckpointTracker(new CheckpointTracker(new CheckpointLog(file))
+		{
+			@Override
+			public void stored(JobTrace trace) throws IOException
+			{
+				throw cause;
+			}
+		});
+
+		JobTrace trace = new JobTrace();
+		jobTraces.add(trace);
+
+		try
+		{
+			jobTraces.remove(trace);
+			fail();
+		}
+		catch (WrappedException e)
+		{
+			assertSame(cause, e.getCause());
+		}
+
+		assertEquals(0, jobTraces.getUnfinishedCount());
+		jobTraces.waitForCompletion(60);
+	}
+
+	@Test
+	public void testSampledTracesRecordSigners() throws Throwable
+	{
+		JobTraceSet jobTraces = new JobTraceSet();
+		assertEquals(TraceMode.FULL, jobTraces.getTraceMode());
+
+		jobTraces.setTraceMode(TraceMode.SAMPLED, 10);
+
+		int recording = 0;
+		for (int i = 0; i < 100; ++i)
+		{
+			JobTrace trace = new JobTrace();
+			jobTraces.add(trace);
+			trace.signOff(getClass(), null);
+			if (trace.isRecording())
+			{
+				assertEquals(1, trace.getSigners().size());
+				++recording;
+			}
+			else
+			{
+				assertTrue(trace.getSigners().isEmpty());
+			}
+		}
+
+		assertEquals(10, recording);
+
+		jobTraces.setTraceMode(TraceMode.DISABLED, 10);
+
+		JobTrace trace = new JobTrace();
+		jobTraces.add(trace);
+		trace.signOff(getClass(), null);
+		assertFalse(trace.isRecording());
+		assertTrue(trace.getSigners().isEmpty());
+		assertTrue(trace.toString().contains("not recorded"));
+	}
+
+	@Test
+	public void testTraceModeIsPerSet() throws Throwable
+	{
+		JobTraceSet disabled = new JobTraceSet();
+		disabled.setTraceMode(TraceMode.DISABLED, JobTraceSet.DEFAULT_SAMPLING_INTERVAL);
+
+		JobTraceSet full = new JobTraceSet();
+
+		JobTrace notRecorded = new JobTrace();
+		notRecorded.signOff(getClass(), null);
+		disabled.add(notRecorded);
+		assertFalse(notRecorded.isRecording());
+		assertTrue(notRecorded.getSigners().isEmpty());
+
+		JobTrace recorded = new JobTrace();
+		full.add(recorded);
+		recorded.signOff(getClass(), null);
+		assertTrue(recorded.isRecording());
+		assertEquals(1, recorded.getSigners().size());
+	}
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.BlockingQueue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sweble.wikitext.articlecruncher.Job;
+import org.sweble.wikitext.articlecruncher.Nexus;
+import org.sweble.wikitext.articlecruncher.ProcessingNodeFactory;
+import org.sweble.wikitext.articlecruncher.Processor;
+import org.sweble.wikitext.articlecruncher.metrics.MetricsSnapshot;
+import org.sweble.wikitext.articlecruncher.metrics.MetricsSnapshot.WorkerSnapshot;
+import org.sweble.wikitext.articlecruncher.pnodes.LocalProcessingNode;
+import org.sweble.wikitext.articlecruncher.pnodes.LpnJobProcessorFactory;
+import org.sweble.wikitext.articlecruncher.utils.AbortHandler;
+import org.sweble.wikitext.articlecruncher.utils.WorkerBase;
+
+public class LpnMetricsTest
+		extends
+			CruncherTestBase
+{
+	private Nexus nexus;
+
+	private static final int NUM_WORKERS = 8;
+
+	// =========================================================================
+
+	@Before
+	public void before() throws Throwable
+	{
+		nexus = new Nexus();
+
+		nexus.setUp(
+				16, /* in tray capacity */
+				16, /* processed jobs capacity */
+				16 /* out tray capacity */);
+
+		nexus.addJobGenerator(createJobFactory());
+		nexus.addProcessingNode(createPnFactory());
+		nexus.addStorer(createStorerFactory());
+	}
+
+	// =========================================================================
+
+	@Test
+	public void testJobsAreReportedPerWorkerThread() throws Throwable
+	{
+		nexus.start();
+
+		MetricsSnapshot metrics = nexus.getMetrics().snapshot();
+		assertEquals(NUM_JOBS_TO_GENERATE, metrics.getSucceededJobs());
+		assertEquals(0, metrics.getFailedJobs());
+		assertEquals(0, metrics.getQueue("inTray").getSize());
+		assertEquals(0, metrics.getUnfinishedJobs());
+
+		// All pool threads are registered when they start, even those
+		// which never processed a job
+		assertEquals(NUM_WORKERS, metrics.getWorkers().size());
+
+		long jobs = 0;
+		for (WorkerSnapshot worker : metrics.getWorkers())
+		{
+			assertTrue(worker.getName().startsWith("Processor-"));
+			assertTrue(worker.getIdleNanos() > 0);
+			jobs += worker.getJobCount();
+		}
+		assertEquals(NUM_JOBS_TO_GENERATE, jobs);
+
+		// The pool threads have terminated and no longer count as idle
+		long idle = nexus.getMetrics().snapshot().getWorkers().get(0).getIdleNanos();
+		Thread.sleep(20);
+		assertEquals(idle, nexus.getMetrics().snapshot().getWorkers().get(0).getIdleNanos());
+	}
+
+	// =========================================================================
+
+	private ProcessingNodeFactory createPnFactory()
+	{
+		return new ProcessingNodeFactory()
+		{
+			@Override
+			public WorkerBase create(
+					AbortHandler abortHandler,
+					BlockingQueue<Job> inTray,
+					BlockingQueue<Job> processedJobs)
+			{
+				return new LocalProcessingNode(
+						abortHandler,
+						inTray,
+						processedJobs,
+						createLpnFactory(),
+						NUM_WORKERS);
+			}
+		};
+	}
+
+	private LpnJobProcessorFactory createLpnFactory()
+	{
+		return new LpnJobProcessorFactory()
+		{
+			@Override
+			public Processor createProcessor()
+			{
+				return new Processor()
+				{
+					@Override
+					public Object process(Job job)
+					{
+						job.signOff(getClass(), null);
+						return null;
+					}
+				};
+			}
+
+			@Override
+			public String getProcessorNameTemplate()
+			{
+				return "Processor-%02d";
+			}
+		};
+	}
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+import org.sweble.wikitext.articlecruncher.metrics.CruncherMetrics;
+import org.sweble.wikitext.articlecruncher.metrics.JmxMetricsExporter;
+import org.sweble.wikitext.articlecruncher.metrics.LogMetricsExporter;
+import org.sweble.wikitext.articlecruncher.metrics.MetricsReporter;
+import org.sweble.wikitext.articlecruncher.metrics.MetricsSnapshot;
+import org.sweble.wikitext.articlecruncher.metrics.WorkerStats;
+
+public class MetricsTest
+{
+	private static final long MILLI = 1000 * 1000;
+
+	// =========================================================================
+
+	@Test
+	public void testLatencyPercentilesAreBucketUpperBounds() throws Throwable
+	{
+		CruncherMetrics metrics = new CruncherMetrics();
+
+		for (int i = 0; i < 90; ++i)
+			metrics.processed(3 * MILLI, false);
+		for (int i = 0; i < 10; ++i)
+			metrics.processed(100 * MILLI, true);
+
+		MetricsSnapshot s = metrics.snapshot();
+
+		assertEquals(90, s.getSucceededJobs());
+		assertEquals(10, s.getFailedJobs());
+		assertEquals(0.1, s.getFailureRate(null), 1e-9);
+		assertEquals(12.7 * MILLI, s.getMeanLatencyNanos(null), 1.);
+		assertEquals(100 * MILLI, s.getMaxLatencyNanos());
+
+		// 3ms falls into the bucket [2.048ms, 4.096ms)
+		assertEquals(4096 * 1000, s.getLatencyPercentile(null, 0.5));
+		assertEquals(4096 * 1000, s.getLatencyPercentile(null, 0.9));
+		assertEquals(131072 * 1000, s.getLatencyPercentile(null, 0.99));
+	}
+
+	@Test
+	public void testIntervalsAreComputedFromConsecutiveSnapshots() throws Throwable
+	{
+		CruncherMetrics metrics = new CruncherMetrics();
+
+		metrics.processed(100 * MILLI, false);
+		metrics.setInputProgress(1, 1000);
+
+		MetricsSnapshot first = metrics.snapshot();
+
+		metrics.processed(1 * MILLI, true);
+		metrics.setInputProgress(3, 5000);
+
+		MetricsSnapshot second = metrics.snapshot();
+
+		assertEquals(1., second.getFailureRate(first), 0.);
+		assertEquals(0.5, second.getFailureRate(null), 0.);
+		assertEquals(1024 * 1000, second.getLatencyPercentile(first, 0.99));
+		assertEquals(2, second.getInputItemsRead() - first.getInputItemsRead());
+		assertTrue(second.getInputBytesPerSecond(first) > 0);
+	}
+
+	@Test
+	public void testQueueDepthsAndWorkerUtilization() throws Throwable
+	{
+		CruncherMetrics metrics = new CruncherMetrics();
+
+		BlockingQueue<String> bounded = new ArrayBlockingQueue<String>(4);
+		bounded.add("a");
+		metrics.registerQueue("bounded", bounded);
+		metrics.registerQueue("unbounded", new LinkedBlockingQueue<String>());
+
+		WorkerStats worker = metrics.getWorkerStats("worker");
+
+		MetricsSnapshot first = metrics.snapshot();
+		Thread.sleep(20);
+		worker.busy(5 * MILLI);
+		MetricsSnapshot second = metrics.snapshot();
+
+		assertEquals(1, second.getQueue("bounded").getSize());
+		assertEquals(4, second.getQueue("bounded").getCapacity());
+		assertEquals(-1, second.getQueue("unbounded").getCapacity());
+		assertEquals("bounded", second.getQueues().get(0).getName());
+
+		assertEquals(1, second.getWorkers().size());
+		assertEquals(1, second.getWorker("worker").getJobCount());
+
+		double utilization = second.getUtilization(first);
+		assertTrue(utilization > 0.);
+		assertTrue(utilization < 1.);
+
+		assertTrue(LogMetricsExporter.format(second, first).contains("bounded: 1/4"));
+	}
+
+	@Test
+	public void testTerminatedWorkerIsNoLongerIdle() throws Throwable
+	{
+		CruncherMetrics metrics = new CruncherMetrics();
+
+		WorkerStats worker = metrics.getWorkerStats("worker");
+		Thread.sleep(5);
+		worker.terminated();
+
+		long idle = metrics.snapshot().getWorker("worker").getIdleNanos();
+		assertTrue(idle > 0);
+
+		Thread.sleep(20);
+		assertEquals(idle, metrics.snapshot().getWorker("worker").getIdleNanos());
+	}
+
+	@Test
+	public void testReporterPublishesFinalSnapshotViaJmx() throws Throwable
+	{
+		CruncherMetrics metrics = new CruncherMetrics();
+
+		String name = "org.sweble.wikitext.articlecruncher:type=CruncherMetrics,name=MetricsTest";
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+		MetricsReporter reporter = new MetricsReporter(metrics, 60 * 1000);
+		reporter.addExporter(new LogMetricsExporter());
+		reporter.addExporter(new JmxMetricsExporter(name));
+		reporter.start();
+
+		metrics.processed(MILLI, false);
+		reporter.report();
+
+		assertEquals(1L, server.getAttribute(new ObjectName(name), "SucceededJobs"));
+
+		reporter.close();
+		assertTrue(!server.isRegistered(new ObjectName(name)));
+	}
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sweble.wikitext.articlecruncher.utils.ExecutorType;
+import org.sweble.wikitext.articlecruncher.utils.MyExecutorService;
+
+public class VirtualThreadExecutorTest
+{
+	private static final int NUM_TASKS = 1000;
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	// =========================================================================
+
+	@Test
+	public void testBlockingTasksRunConcurrently() throws Throwable
+	{
+		MyExecutorService executor = new MyExecutorService(
+				ExecutorType.VIRTUAL_THREAD_PER_TASK,
+				logger);
+
+		executor.setThreadNameTemplate("Virtual-%04d");
+
+		final CountDownLatch started = new CountDownLatch(NUM_TASKS);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		try
+		{
+			List<Future<String>> futures = new ArrayList<Future<String>>();
+			for (int i = 0; i < NUM_TASKS; ++i)
+			{
+				futures.add(executor.submit(new Callable<String>()
+				{
+					@Override
+					public String call() throws Exception
+					{
+						started.countDown();
+						release.await();
+						return Thread.currentThread().getName();
+					}
+				}));
+			}
+
+			// All tasks block at the same time
+			assertTrue(started.await(60, TimeUnit.SECONDS));
+
+			release.countDown();
+
+			Set<String> names = new HashSet<String>();
+			for (Future<String> f : futures)
+			{
+				String name = f.get();
+				assertTrue(name.startsWith("Virtual-"));
+				names.add(name);
+			}
+
+			assertEquals(NUM_TASKS, names.size());
+		}
+		finally
+		{
+			release.countDown();
+			executor.shutdownAndAwaitTermination();
+		}
+	}
+}
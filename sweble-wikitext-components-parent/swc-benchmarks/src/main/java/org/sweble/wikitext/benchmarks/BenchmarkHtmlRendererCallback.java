@@ -0,0 +1,73 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.benchmarks;
+
+import org.sweble.wikitext.engine.PageTitle;
+import org.sweble.wikitext.engine.output.HtmlRendererCallback;
+import org.sweble.wikitext.engine.output.MediaInfo;
+import org.sweble.wikitext.engine.utils.UrlEncoding;
+import org.sweble.wikitext.parser.nodes.WtUrl;
+
+/**
+ * A renderer callback which claims that every resource exists and builds URLs
+ * without consulting any service.
+ */
+public class BenchmarkHtmlRendererCallback
+		implements
+			HtmlRendererCallback
+{
+	private static final String LOCAL_URL = "http://localhost/wiki";
+
+	// =========================================================================
+
+	@Override
+	public boolean resourceExists(PageTitle target)
+	{
+		return true;
+	}
+
+	@Override
+	public MediaInfo getMediaInfo(String title, int width, int height)
+	{
+		return null;
+	}
+
+	@Override
+	public String makeUrl(PageTitle target)
+	{
+		String url = UrlEncoding.WIKI.encode(target.getNormalizedFullTitle());
+		String f = target.getFragment();
+		if (f != null && !f.isEmpty())
+			url += "#" + UrlEncoding.WIKI.encode(f);
+		return LOCAL_URL + "/" + url;
+	}
+
+	@Override
+	public String makeUrl(WtUrl target)
+	{
+		if (target.getProtocol().isEmpty())
+			return target.getPath();
+		return target.getProtocol() + ":" + target.getPath();
+	}
+
+	@Override
+	public String makeUrlMissingTarget(String path)
+	{
+		return LOCAL_URL + "?title=" + path + "&amp;action=edit&amp;redlink=1";
+	}
+}
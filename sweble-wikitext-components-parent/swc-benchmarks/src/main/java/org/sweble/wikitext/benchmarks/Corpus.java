@@ -0,0 +1,142 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.benchmarks;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Loads the pages the benchmarks operate on.
+ *
+ * A corpus is either one of the test corpora of the parser (e.g. "complex"
+ * for the pages in <code>nopkg-complex/input.wikitext</code>) or the
+ * generated corpus "synthetic". The directory holding the test corpora can be
+ * overridden with the system property <code>swc.benchmarks.corpus</code>.
+ */
+public final class Corpus
+{
+	public static final String SYNTHETIC = "synthetic";
+
+	public static final String CORPUS_DIR_PROPERTY = "swc.benchmarks.corpus";
+
+	private static final String INPUT_SUB_DIR = "input.wikitext";
+
+	private static final String WIKITEXT_EXT = "wikitext";
+
+	// =========================================================================
+
+	private Corpus()
+	{
+	}
+
+	// =========================================================================
+
+	public static List<Page> load(String name) throws IOException
+	{
+		if (SYNTHETIC.equals(name))
+			return SyntheticPages.generatePages();
+
+		File dir = new File(new File(getCorpusDir(), "nopkg-" + name), INPUT_SUB_DIR);
+		if (!dir.isDirectory())
+			throw new IOException("Corpus directory not found: " + dir);
+
+		File[] files = dir.listFiles(new FileFilter()
+		{
+			@Override
+			public boolean accept(File f)
+			{
+				return f.isFile() && FilenameUtils.isExtension(f.getName(), WIKITEXT_EXT);
+			}
+		});
+
+		// Always process the pages in the same order
+		Arrays.sort(files);
+
+		List<Page> pages = new ArrayList<Page>(files.length);
+		for (File f : files)
+		{
+			String title = URLDecoder.decode(FilenameUtils.getBaseName(f.getName()), "UTF-8");
+			pages.add(new Page(title, FileUtils.readFileToString(f, "UTF-8")));
+		}
+		return pages;
+	}
+
+	public static File getCorpusDir() throws IOException
+	{
+		String dir = System.getProperty(CORPUS_DIR_PROPERTY);
+		if (dir == null)
+		{
+			// Fall back to the location known at build time
+			Properties props = new Properties();
+			InputStream in = Corpus.class.getResourceAsStream("benchmarks.properties");
+			try
+			{
+				if (in != null)
+					props.load(in);
+			}
+			finally
+			{
+				IOUtils.closeQuietly(in);
+			}
+			dir = props.getProperty("corpus.dir");
+		}
+
+		if (dir == null)
+			throw new IOException(String.format(
+					"Location of the corpus unknown, set system property %s",
+					CORPUS_DIR_PROPERTY));
+
+		return new File(dir);
+	}
+
+	// =========================================================================
+
+	public static final class Page
+	{
+		private final String title;
+
+		private final String wikitext;
+
+		public Page(String title, String wikitext)
+		{
+			this.title = title;
+			this.wikitext = wikitext;
+		}
+
+		public String getTitle()
+		{
+			return title;
+		}
+
+		public String getWikitext()
+		{
+			return wikitext;
+		}
+	}
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sweble.wikitext.engine.ExpansionFrame;
+import org.sweble.wikitext.engine.PageId;
+import org.sweble.wikitext.engine.nodes.EngProcessedPage;
+import org.sweble.wikitext.engine.output.HtmlRenderer;
+import org.sweble.wikitext.engine.utils.Utf8ChannelWriter;
+import org.sweble.wikitext.parser.nodes.WtNode;
+import org.sweble.wikitext.parser.nodes.WtPreproWikitextPage;
+import org.sweble.wom3.swcadapter.AstToWomConverter;
+
+import de.fau.cs.osr.ptk.common.Warning;
+
+/**
+ * Benchmarks the engine: expansion, the whole pipeline, and the consumers of
+ * its output. Every invocation processes all pages of the selected corpus.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class EngineBenchmarks
+{
+	private static final DateTime TIMESTAMP =
+			DateTime.parse("2012-12-07T12:15:30.000+01:00");
+
+	// =========================================================================
+
+	@Benchmark
+	public void expand(PreparedCorpus c, PpAstCopies in, Blackhole bh) throws Exception
+	{
+		for (int i = 0; i < in.asts.length; ++i)
+		{
+			WtPreproWikitextPage ppAst = (WtPreproWikitextPage) in.asts[i];
+
+			ExpansionFrame frame = new ExpansionFrame(
+					c.engine,
+					c.callback,
+					null,
+					c.titles[i],
+					ppAst.getEntityMap(),
+					false,
+					new LinkedList<Warning>(),
+					c.config.getNodeFactory().logExpansionPass(),
+					false,
+					false);
+
+			bh.consume(frame.expand(ppAst));
+		}
+	}
+
+	@Benchmark
+	public void postprocess(PreparedCorpus c, Blackhole bh) throws Exception
+	{
+		for (int i = 0; i < c.wikitexts.length; ++i)
+		{
+			PageId pageId = new PageId(c.titles[i], -1);
+			bh.consume(c.engine.postprocess(pageId, c.wikitexts[i], c.callback));
+		}
+	}
+
+	@Benchmark
+	public void renderHtml(PreparedCorpus c, Blackhole bh)
+	{
+		for (int i = 0; i < c.processedPages.length; ++i)
+		{
+			bh.consume(HtmlRenderer.print(
+					c.rendererCallback,
+					c.config,
+					c.titles[i],
+					c.processedPages[i]));
+		}
+	}
+
+	@Benchmark
+	public void renderHtmlUtf8(PreparedCorpus c, Utf8Output out) throws Exception
+	{
+		for (int i = 0; i < c.processedPages.length; ++i)
+		{
+			HtmlRenderer.print(
+					c.rendererCallback,
+					c.config,
+					out.writer,
+					c.titles[i],
+					c.processedPages[i]);
+
+			out.writer.flush();
+		}
+	}
+
+	@Benchmark
+	public void convertToWom(PreparedCorpus c, Blackhole bh)
+	{
+		for (int i = 0; i < c.processedPages.length; ++i)
+		{
+			EngProcessedPage page = c.processedPages[i];
+
+			bh.consume(AstToWomConverter.convert(
+					c.parserConfig,
+					null,
+					null,
+					c.titles[i].getTitle(),
+					"Benchmark",
+					TIMESTAMP,
+					page.getPage()));
+		}
+	}
+
+	// =========================================================================
+
+	/**
+	 * Expansion modifies the preprocessed AST. Each invocation gets fresh
+	 * copies.
+	 */
+	@State(Scope.Thread)
+	public static class PpAstCopies
+	{
+		WtNode[] asts;
+
+		@Setup(Level.Invocation)
+		public void copy(PreparedCorpus c)
+		{
+			asts = PreparedCorpus.copyOf(c.ppAsts);
+		}
+	}
+
+	/**
+	 * Renders into a reused encoding buffer which is drained into a channel
+	 * that discards everything but counts the bytes.
+	 */
+	@State(Scope.Thread)
+	public static class Utf8Output
+	{
+		Utf8ChannelWriter writer;
+
+		long bytes;
+
+		@Setup(Level.Trial)
+		public void open()
+		{
+			writer = new Utf8ChannelWriter(new WritableByteChannel()
+			{
+				@Override
+				public boolean isOpen()
+				{
+					return true;
+				}
+
+				@Override
+				public void close()
+				{
+				}
+
+				@Override
+				public int write(ByteBuffer src)
+				{
+					int n = src.remaining();
+					src.position(src.limit());
+					bytes += n;
+					return n;
+				}
+			});
+		}
+	}
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.sweble.wikitext.engine.ExpansionCallback;
+import org.sweble.wikitext.engine.ExpansionFrame;
+import org.sweble.wikitext.engine.FullPage;
+import org.sweble.wikitext.engine.PageId;
+import org.sweble.wikitext.engine.PageTitle;
+import org.sweble.wikitext.engine.config.WikiConfig;
+import org.sweble.wikitext.parser.parser.LinkTargetException;
+
+/**
+ * Serves pages for transclusion from memory so that the expansion benchmarks
+ * do not measure I/O.
+ */
+public class InMemoryExpansionCallback
+		implements
+			ExpansionCallback
+{
+	private final Map<String, FullPage> pages = new HashMap<String, FullPage>();
+
+	// =========================================================================
+
+	public InMemoryExpansionCallback(
+			WikiConfig config,
+			Map<String, String> pages) throws LinkTargetException
+	{
+		for (Entry<String, String> e : pages.entrySet())
+		{
+			PageTitle title = PageTitle.make(config, e.getKey());
+			this.pages.put(
+					title.getNormalizedFullTitle(),
+					new FullPage(new PageId(title, -1), e.getValue()));
+		}
+	}
+
+	// =========================================================================
+
+	@Override
+	public FullPage retrieveWikitext(
+			ExpansionFrame expansionFrame,
+			PageTitle pageTitle)
+	{
+		return pages.get(pageTitle.getNormalizedFullTitle());
+	}
+
+	@Override
+	public String fileUrl(PageTitle pageTitle, int width, int height)
+	{
+		return "http://localhost/files/" + pageTitle.getNormalizedFullTitle();
+	}
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sweble.wikitext.parser.WikitextEncodingValidator;
+import org.sweble.wikitext.parser.WikitextParser;
+import org.sweble.wikitext.parser.WikitextPreprocessor;
+import org.sweble.wikitext.parser.WtEntityMapImpl;
+import org.sweble.wikitext.parser.encval.ValidatedWikitext;
+import org.sweble.wikitext.parser.nodes.WtNode;
+import org.sweble.wikitext.parser.postprocessor.TicksAnalyzer;
+import org.sweble.wikitext.parser.postprocessor.TreeBuilder;
+
+/**
+ * Benchmarks the stages of the parser module. Every invocation processes all
+ * pages of the selected corpus.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ParserBenchmarks
+{
+	@Benchmark
+	public void validate(PreparedCorpus c, Blackhole bh) throws Exception
+	{
+		WikitextEncodingValidator validator = new WikitextEncodingValidator();
+		for (int i = 0; i < c.wikitexts.length; ++i)
+		{
+			ValidatedWikitext validated = validator.validate(
+					c.parserConfig,
+					new WtEntityMapImpl(),
+					c.titles[i].getTitle(),
+					c.wikitexts[i]);
+
+			bh.consume(validated);
+		}
+	}
+
+	@Benchmark
+	public void preprocess(PreparedCorpus c, ValidatedInput in, Blackhole bh) throws Exception
+	{
+		WikitextPreprocessor preprocessor = new WikitextPreprocessor(c.parserConfig);
+		for (int i = 0; i < in.validated.length; ++i)
+			bh.consume(preprocessor.parseArticle(in.validated[i], c.titles[i].getTitle(), false));
+	}
+
+	@Benchmark
+	public void parse(PreparedCorpus c, Blackhole bh) throws Exception
+	{
+		WikitextParser parser = new WikitextParser(c.parserConfig);
+		for (int i = 0; i < c.ppWikitexts.length; ++i)
+			bh.consume(parser.parseArticle(c.ppWikitexts[i], c.titles[i].getTitle()));
+	}
+
+	@Benchmark
+	public void ticksAnalyzer(PreparedCorpus c, ParsedAstCopies in, Blackhole bh)
+	{
+		for (WtNode ast : in.asts)
+			bh.consume(TicksAnalyzer.process(c.parserConfig, ast));
+	}
+
+	@Benchmark
+	public void treeBuilder(PreparedCorpus c, TicksAnalyzedAstCopies in, Blackhole bh)
+	{
+		for (WtNode ast : in.asts)
+			bh.consume(TreeBuilder.process(c.parserConfig, ast));
+	}
+
+	// =========================================================================
+
+	/**
+	 * The preprocessor reads the entity map of the validated wikitext which is
+	 * why the validation is done once per trial.
+	 */
+	@State(Scope.Thread)
+	public static class ValidatedInput
+	{
+		ValidatedWikitext[] validated;
+
+		@Setup(Level.Trial)
+		public void validate(PreparedCorpus c) throws Exception
+		{
+			WikitextEncodingValidator validator = new WikitextEncodingValidator();
+
+			validated = new ValidatedWikitext[c.wikitexts.length];
+			for (int i = 0; i < validated.length; ++i)
+				validated[i] = validator.validate(
+						c.parserConfig,
+						new WtEntityMapImpl(),
+						c.titles[i].getTitle(),
+						c.wikitexts[i]);
+		}
+	}
+
+	/**
+	 * The TicksAnalyzer modifies its input. Each invocation gets fresh copies.
+	 */
+	@State(Scope.Thread)
+	public static class ParsedAstCopies
+	{
+		WtNode[] asts;
+
+		@Setup(Level.Invocation)
+		public void copy(PreparedCorpus c)
+		{
+			asts = PreparedCorpus.copyOf(c.parsedAsts);
+		}
+	}
+
+	/**
+	 * The TreeBuilder modifies its input. Each invocation gets fresh copies.
+	 */
+	@State(Scope.Thread)
+	public static class TicksAnalyzedAstCopies
+	{
+		WtNode[] asts;
+
+		@Setup(Level.Invocation)
+		public void copy(PreparedCorpus c)
+		{
+			asts = PreparedCorpus.copyOf(c.ticksAnalyzedAsts);
+		}
+	}
+}
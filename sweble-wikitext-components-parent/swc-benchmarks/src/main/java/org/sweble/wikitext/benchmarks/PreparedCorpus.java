@@ -0,0 +1,184 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.benchmarks;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.sweble.wikitext.benchmarks.Corpus.Page;
+import org.sweble.wikitext.engine.EngineException;
+import org.sweble.wikitext.engine.PageId;
+import org.sweble.wikitext.engine.PageTitle;
+import org.sweble.wikitext.engine.WtEngineImpl;
+import org.sweble.wikitext.engine.config.WikiConfig;
+import org.sweble.wikitext.engine.nodes.EngProcessedPage;
+import org.sweble.wikitext.engine.utils.DefaultConfigEnWp;
+import org.sweble.wikitext.parser.ParserConfig;
+import org.sweble.wikitext.parser.WikitextEncodingValidator;
+import org.sweble.wikitext.parser.WikitextParser;
+import org.sweble.wikitext.parser.WikitextPreprocessor;
+import org.sweble.wikitext.parser.WtEntityMapImpl;
+import org.sweble.wikitext.parser.encval.ValidatedWikitext;
+import org.sweble.wikitext.parser.nodes.WtNode;
+import org.sweble.wikitext.parser.nodes.WtPreproWikitextPage;
+import org.sweble.wikitext.parser.parser.LinkTargetException;
+import org.sweble.wikitext.parser.parser.PreprocessorToParserTransformer;
+import org.sweble.wikitext.parser.postprocessor.TicksAnalyzer;
+import org.sweble.wikitext.parser.preprocessor.PreprocessedWikitext;
+
+/**
+ * Holds the pages of a corpus together with the output of every stage of the
+ * processing pipeline. Each benchmark picks the output of the stage preceding
+ * the stage it measures as input.
+ *
+ * The prepared ASTs must not be modified. Benchmarks of stages which alter
+ * their input have to work on copies (see {@link #copyOf(WtNode[])}).
+ */
+@State(Scope.Benchmark)
+public class PreparedCorpus
+{
+	@Param({ "basic", "complex", Corpus.SYNTHETIC })
+	public String corpus;
+
+	// =========================================================================
+
+	WikiConfig config;
+
+	ParserConfig parserConfig;
+
+	WtEngineImpl engine;
+
+	InMemoryExpansionCallback callback;
+
+	BenchmarkHtmlRendererCallback rendererCallback;
+
+	PageTitle[] titles;
+
+	String[] wikitexts;
+
+	/** Output of the preprocessor (not expanded). */
+	WtPreproWikitextPage[] ppAsts;
+
+	/** Input for the parser. */
+	PreprocessedWikitext[] ppWikitexts;
+
+	/** Output of the parser (not postprocessed). */
+	WtNode[] parsedAsts;
+
+	/** Output of the TicksAnalyzer. */
+	WtNode[] ticksAnalyzedAsts;
+
+	/** Output of the whole pipeline including expansion. */
+	EngProcessedPage[] processedPages;
+
+	// =========================================================================
+
+	@Setup(Level.Trial)
+	public void prepare() throws Exception
+	{
+		config = DefaultConfigEnWp.generate();
+		parserConfig = config.getParserConfig();
+		engine = new WtEngineImpl(config);
+		callback = new InMemoryExpansionCallback(config, SyntheticPages.getTemplates());
+		rendererCallback = new BenchmarkHtmlRendererCallback();
+
+		List<Page> pages = Corpus.load(corpus);
+		int n = pages.size();
+
+		titles = new PageTitle[n];
+		wikitexts = new String[n];
+		ppAsts = new WtPreproWikitextPage[n];
+		ppWikitexts = new PreprocessedWikitext[n];
+		parsedAsts = new WtNode[n];
+		ticksAnalyzedAsts = new WtNode[n];
+		processedPages = new EngProcessedPage[n];
+
+		WikitextEncodingValidator validator = new WikitextEncodingValidator();
+		WikitextPreprocessor preprocessor = new WikitextPreprocessor(parserConfig);
+		WikitextParser parser = new WikitextParser(parserConfig);
+
+		for (int i = 0; i < n; ++i)
+		{
+			Page page = pages.get(i);
+			PageTitle title = makeTitle(page.getTitle(), i);
+
+			titles[i] = title;
+			wikitexts[i] = page.getWikitext();
+
+			ValidatedWikitext validated = validator.validate(
+					parserConfig,
+					new WtEntityMapImpl(),
+					title.getTitle(),
+					page.getWikitext());
+
+			ppAsts[i] = (WtPreproWikitextPage) preprocessor.parseArticle(
+					validated,
+					title.getTitle(),
+					false);
+
+			ppWikitexts[i] = PreprocessorToParserTransformer.transform(ppAsts[i]);
+
+			parsedAsts[i] = parser.parseArticle(ppWikitexts[i], title.getTitle());
+
+			ticksAnalyzedAsts[i] = TicksAnalyzer.process(
+					parserConfig,
+					copyOf(parsedAsts[i]));
+
+			processedPages[i] = process(title, page.getWikitext());
+		}
+	}
+
+	// =========================================================================
+
+	public static WtNode copyOf(WtNode ast)
+	{
+		return (WtNode) ast.deepCloneWrapException();
+	}
+
+	public static <T extends WtNode> WtNode[] copyOf(T[] asts)
+	{
+		WtNode[] copies = new WtNode[asts.length];
+		for (int i = 0; i < asts.length; ++i)
+			copies[i] = copyOf(asts[i]);
+		return copies;
+	}
+
+	// =========================================================================
+
+	private PageTitle makeTitle(String title, int index) throws LinkTargetException
+	{
+		try
+		{
+			return PageTitle.make(config, title);
+		}
+		catch (LinkTargetException e)
+		{
+			// Some file names of the corpus are not valid page titles
+			return PageTitle.make(config, "Benchmark page " + index);
+		}
+	}
+
+	private EngProcessedPage process(PageTitle title, String wikitext) throws EngineException
+	{
+		return engine.postprocess(new PageId(title, -1), wikitext, callback);
+	}
+}
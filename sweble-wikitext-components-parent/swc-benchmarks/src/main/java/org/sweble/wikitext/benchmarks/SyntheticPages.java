@@ -0,0 +1,285 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.sweble.wikitext.benchmarks.Corpus.Page;
+
+/**
+ * Generates large pages which mix the constructs found in typical articles:
+ * sections, formatted paragraphs, internal and external links, lists, tables,
+ * references, HTML elements, entities, comments, parser functions and
+ * transclusions of the templates returned by {@link #getTemplates()}.
+ *
+ * The output is deterministic so that runs can be compared.
+ */
+public final class SyntheticPages
+{
+	/** Approximate sizes (in characters) of the generated pages. */
+	private static final int[] PAGE_SIZES = { 100 * 1024, 1024 * 1024 };
+
+	private static final long SEED = 0x5eb1eL;
+
+	private static final String[] WORDS = {
+			"wiki", "article", "river", "history", "population", "century",
+			"government", "language", "railway", "district", "museum",
+			"election", "species", "mountain", "university", "festival" };
+
+	private static final Map<String, String> TEMPLATES;
+
+	static
+	{
+		Map<String, String> t = new LinkedHashMap<String, String>();
+
+		t.put("Template:Bench infobox", ""
+				+ "{| class=\"infobox\"\n"
+				+ "|+ '''{{{name|{{PAGENAME}}}}}'''\n"
+				+ "|-\n"
+				+ "! Value\n"
+				+ "| {{{value|}}}\n"
+				+ "{{#if:{{{note|}}}|\n|-\n| colspan=\"2\" {{!}} {{{note}}}\n}}"
+				+ "|}<noinclude>Documentation of the infobox.</noinclude>");
+
+		t.put("Template:Bench cite", ""
+				+ "<includeonly>{{{author|Anonymous}}}: ''[{{{url}}} {{{title}}}]''"
+				+ "{{#if:{{{year|}}}|&#32;({{{year}}})}}.</includeonly>");
+
+		t.put("Template:!", "|");
+
+		TEMPLATES = Collections.unmodifiableMap(t);
+	}
+
+	// =========================================================================
+
+	private final Random random = new Random(SEED);
+
+	private final StringBuilder sb = new StringBuilder();
+
+	// =========================================================================
+
+	private SyntheticPages()
+	{
+	}
+
+	// =========================================================================
+
+	/**
+	 * @return The templates used by the generated pages keyed by their full
+	 *         title.
+	 */
+	public static Map<String, String> getTemplates()
+	{
+		return TEMPLATES;
+	}
+
+	public static List<Page> generatePages()
+	{
+		List<Page> pages = new ArrayList<Page>(PAGE_SIZES.length);
+		for (int size : PAGE_SIZES)
+		{
+			String title = String.format("Synthetic page of %d KiB", size / 1024);
+			pages.add(new Page(title, generate(size)));
+		}
+		return pages;
+	}
+
+	public static String generate(int approxSize)
+	{
+		return new SyntheticPages().page(approxSize);
+	}
+
+	// =========================================================================
+
+	private String page(int approxSize)
+	{
+		sb.append("{{Bench infobox|value=");
+		words(3);
+		sb.append("|note=Generated for benchmarking}}\n");
+		sb.append("'''Synthetic page''' is a generated page.\n\n");
+
+		for (int section = 1; sb.length() < approxSize; ++section)
+		{
+			sb.append("== Section ").append(section).append(" ==\n");
+
+			int blocks = 3 + random.nextInt(5);
+			for (int i = 0; i < blocks; ++i)
+				block();
+
+			sb.append("=== References ===\n<references />\n\n");
+		}
+
+		sb.append("[[Category:Synthetic pages]]\n");
+
+		return sb.toString();
+	}
+
+	private void block()
+	{
+		switch (random.nextInt(6))
+		{
+			case 0:
+				list();
+				break;
+			case 1:
+				table();
+				break;
+			case 2:
+				sb.append("{{Bench infobox|name=");
+				words(2);
+				sb.append("|value=");
+				paragraphLine();
+				sb.append("}}\n");
+				break;
+			default:
+				paragraph();
+				break;
+		}
+		sb.append('\n');
+	}
+
+	private void paragraph()
+	{
+		int lines = 1 + random.nextInt(4);
+		for (int i = 0; i < lines; ++i)
+		{
+			paragraphLine();
+			sb.append('\n');
+		}
+	}
+
+	private void paragraphLine()
+	{
+		int sentences = 2 + random.nextInt(4);
+		for (int i = 0; i < sentences; ++i)
+		{
+			String w = word();
+			sb.append(Character.toUpperCase(w.charAt(0)));
+			sb.append(w, 1, w.length());
+			sb.append(' ');
+			phrase();
+			sb.append(". ");
+		}
+	}
+
+	private void phrase()
+	{
+		int n = 4 + random.nextInt(12);
+		for (int i = 0; i < n; ++i)
+		{
+			if (i > 0)
+				sb.append(' ');
+
+			switch (random.nextInt(24))
+			{
+				case 0:
+					sb.append("'''").append(word()).append("'''");
+					break;
+				case 1:
+					sb.append("''").append(word()).append("''");
+					break;
+				case 2:
+					sb.append("[[").append(word()).append(" (").append(word()).append(")|").append(word()).append("]]");
+					break;
+				case 3:
+					sb.append("[[").append(word()).append("]]s");
+					break;
+				case 4:
+					sb.append("[http://example.org/").append(word()).append(' ').append(word()).append(']');
+					break;
+				case 5:
+					sb.append("<ref>{{Bench cite|author=").append(word()).append("|title=").append(word())
+							.append("|url=http://example.org/").append(random.nextInt(1000)).append("|year=")
+							.append(1900 + random.nextInt(120)).append("}}</ref>");
+					break;
+				case 6:
+					sb.append("<span style=\"color:red\">").append(word()).append("</span>");
+					break;
+				case 7:
+					sb.append(word()).append(" &amp; ").append(word());
+					break;
+				case 8:
+					sb.append("<!-- ").append(word()).append(" -->");
+					break;
+				case 9:
+					sb.append("{{#if:").append(word()).append('|').append(word()).append('|').append(word()).append("}}");
+					break;
+				case 10:
+					sb.append("{{PAGENAME}}");
+					break;
+				default:
+					sb.append(word());
+					break;
+			}
+		}
+	}
+
+	private void list()
+	{
+		int items = 2 + random.nextInt(6);
+		for (int i = 0; i < items; ++i)
+		{
+			sb.append(random.nextInt(4) == 0 ? "**" : "*").append(' ');
+			phrase();
+			sb.append('\n');
+		}
+	}
+
+	private void table()
+	{
+		int rows = 2 + random.nextInt(6);
+		int cols = 2 + random.nextInt(3);
+
+		sb.append("{| class=\"wikitable\"\n|+ ");
+		words(2);
+		sb.append('\n');
+		for (int c = 0; c < cols; ++c)
+			sb.append("! ").append(word()).append('\n');
+		for (int r = 0; r < rows; ++r)
+		{
+			sb.append("|-\n");
+			for (int c = 0; c < cols; ++c)
+			{
+				sb.append("| ");
+				phrase();
+				sb.append('\n');
+			}
+		}
+		sb.append("|}\n");
+	}
+
+	private void words(int n)
+	{
+		for (int i = 0; i < n; ++i)
+		{
+			if (i > 0)
+				sb.append(' ');
+			sb.append(word());
+		}
+	}
+
+	private String word()
+	{
+		return WORDS[random.nextInt(WORDS.length)];
+	}
+}
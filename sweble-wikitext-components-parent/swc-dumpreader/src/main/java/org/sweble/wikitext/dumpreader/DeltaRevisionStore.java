@@ -0,0 +1,372 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.dumpreader;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.sweble.wikitext.dumpreader.model.Revision;
+
+/**
+ * An in-memory store for the texts of the revisions of a page history.
+ *
+ * A revision whose text has the same SHA1 as an earlier revision (e.g. a
+ * revert) is stored as a reference to that revision. Otherwise, if the
+ * revision's parent is in the store, only the difference to the parent's
+ * text is stored: the length of the common prefix and suffix and the text
+ * in between. Every revision whose delta chain would grow longer than the
+ * maximum chain length, or whose delta would not save much, is stored in
+ * full.
+ *
+ * Instances are thread-safe.
+ */
+public class DeltaRevisionStore
+{
+	public static final int DEFAULT_MAX_CHAIN_LENGTH = 32;
+
+	/**
+	 * A delta is only stored if it is smaller than this fraction of the full
+	 * text.
+	 */
+	private static final double MAX_DELTA_RATIO = 0.5;
+
+	private final int maxChainLength;
+
+	private final Map<Long, Entry> entries = new HashMap<Long, Entry>();
+
+	private final Map<String, Long> bySha1 = new HashMap<String, Long>();
+
+	private long lastRevisionId = -1;
+
+	private String lastText;
+
+	private long duplicateCount;
+
+	private long deltaCount;
+
+	private long fullCount;
+
+	private long rawLength;
+
+	private long storedLength;
+
+	// =========================================================================
+
+	public DeltaRevisionStore()
+	{
+		this(DEFAULT_MAX_CHAIN_LENGTH);
+	}
+
+	public DeltaRevisionStore(int maxChainLength)
+	{
+		if (maxChainLength < 0)
+			throw new IllegalArgumentException("Maximum chain length must not be negative!");
+
+		this.maxChainLength = maxChainLength;
+	}
+
+	// =========================================================================
+
+	/**
+	 * Stores the text of a revision read from a dump. The text of a revision
+	 * whose text was deleted is stored as empty string.
+	 */
+	public void put(Revision revision)
+	{
+		long parentId = (revision.getParentId() != null) ? revision.getParentId().longValue() : -1;
+		String text = (revision.getText() != null) ? revision.getText() : "";
+		put(revision.getId().longValue(), parentId, revision.getTextSha1(), text);
+	}
+
+	/**
+	 * @param parentId
+	 *            The id of the parent revision or -1 if there is none.
+	 * @param sha1
+	 *            The SHA1 of the text as found in the dump or null.
+	 */
+	public synchronized void put(
+			long revisionId,
+			long parentId,
+			String sha1,
+			CharSequence text)
+	{
+		if (text == null)
+			throw new NullPointerException();
+		if (entries.containsKey(revisionId))
+			throw new IllegalArgumentException("Revision " + revisionId + " is already stored");
+
+		String textStr = text.toString();
+		rawLength += textStr.length();
+
+		if (sha1 != null && !sha1.isEmpty())
+		{
+			Long same = bySha1.get(sha1);
+			if (same != null)
+			{
+				entries.put(revisionId, new Entry(same, resolve(same).depth));
+				++duplicateCount;
+				remember(revisionId, textStr);
+				return;
+			}
+			bySha1.put(sha1, revisionId);
+		}
+
+		Entry parent = (parentId != -1) ? entries.get(parentId) : null;
+		if (parent != null)
+		{
+			Entry base = resolve(parentId);
+			if (base.depth < maxChainLength)
+			{
+				String parentText = (parentId == lastRevisionId) ? lastText : get(parentId);
+				Entry delta = makeDelta(parentId, base.depth + 1, parentText, textStr);
+				if (delta.inserted.length() < textStr.length() * MAX_DELTA_RATIO)
+				{
+					entries.put(revisionId, delta);
+					++deltaCount;
+					storedLength += delta.inserted.length();
+					remember(revisionId, textStr);
+					return;
+				}
+			}
+		}
+
+		entries.put(revisionId, new Entry(textStr));
+		++fullCount;
+		storedLength += textStr.length();
+		remember(revisionId, textStr);
+	}
+
+	/**
+	 * @return The text of the given revision or null if the revision is not
+	 *         in the store.
+	 */
+	public synchronized String get(long revisionId)
+	{
+		if (revisionId == lastRevisionId)
+			return lastText;
+
+		Entry entry = entries.get(revisionId);
+		if (entry == null)
+			return null;
+
+		List<Entry> deltas = new ArrayList<Entry>();
+		while (entry.text == null)
+		{
+			if (entry.isDelta())
+				deltas.add(entry);
+			entry = entries.get(entry.base);
+		}
+
+		String text = entry.text;
+		for (int i = deltas.size() - 1; i >= 0; --i)
+			text = deltas.get(i).apply(text);
+		return text;
+	}
+
+	public synchronized boolean contains(long revisionId)
+	{
+		return entries.containsKey(revisionId);
+	}
+
+	public synchronized void clear()
+	{
+		entries.clear();
+		bySha1.clear();
+		lastRevisionId = -1;
+		lastText = null;
+	}
+
+	// =========================================================================
+
+	public synchronized long getRevisionCount()
+	{
+		return duplicateCount + deltaCount + fullCount;
+	}
+
+	/**
+	 * @return The number of revisions whose text is equal to the text of an
+	 *         earlier revision.
+	 */
+	public synchronized long getDuplicateCount()
+	{
+		return duplicateCount;
+	}
+
+	public synchronized long getDeltaCount()
+	{
+		return deltaCount;
+	}
+
+	public synchronized long getFullCount()
+	{
+		return fullCount;
+	}
+
+	/**
+	 * @return The fraction of revisions which were stored as a reference to
+	 *         an identical revision.
+	 */
+	public synchronized double getDedupRatio()
+	{
+		long count = getRevisionCount();
+		return (count == 0) ? 0. : (double) duplicateCount / count;
+	}
+
+	/**
+	 * @return The number of characters stored divided by the total length of
+	 *         all texts put into the store.
+	 */
+	public synchronized double getCompressionRatio()
+	{
+		return (rawLength == 0) ? 1. : (double) storedLength / rawLength;
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		return String.format(
+				"revisions: %d (full: %d, delta: %d, duplicate: %d), dedup ratio: %.1f%%, compression ratio: %.1f%%",
+				getRevisionCount(),
+				fullCount,
+				deltaCount,
+				duplicateCount,
+				getDedupRatio() * 100,
+				getCompressionRatio() * 100);
+	}
+
+	// =========================================================================
+
+	private void remember(long revisionId, String text)
+	{
+		lastRevisionId = revisionId;
+		lastText = text;
+	}
+
+	/**
+	 * @return The entry itself or, for a duplicate, the entry it refers to.
+	 */
+	private Entry resolve(long revisionId)
+	{
+		Entry entry = entries.get(revisionId);
+		if (entry.isDuplicate())
+			entry = entries.get(entry.base);
+		return entry;
+	}
+
+	private static Entry makeDelta(long base, int depth, String from, String to)
+	{
+		int max = Math.min(from.length(), to.length());
+
+		int prefix = 0;
+		while (prefix < max && from.charAt(prefix) == to.charAt(prefix))
+			++prefix;
+
+		int suffix = 0;
+		while (suffix < max - prefix
+				&& from.charAt(from.length() - 1 - suffix) == to.charAt(to.length() - 1 - suffix))
+			++suffix;
+
+		return new Entry(
+				base,
+				depth,
+				prefix,
+				suffix,
+				to.substring(prefix, to.length() - suffix));
+	}
+
+	// =========================================================================
+
+	private static final class Entry
+	{
+		/**
+		 * The full text or null for duplicates and deltas.
+		 */
+		private final String text;
+
+		/**
+		 * The revision this entry refers to or -1 for full texts.
+		 */
+		private final long base;
+
+		/**
+		 * The number of deltas that have to be applied to get the text.
+		 */
+		private final int depth;
+
+		private final int prefix;
+
+		private final int suffix;
+
+		/**
+		 * The text between prefix and suffix or null for duplicates.
+		 */
+		private final String inserted;
+
+		public Entry(String text)
+		{
+			this(text, -1, 0, 0, 0, null);
+		}
+
+		public Entry(long sameAs, int depth)
+		{
+			this(null, sameAs, depth, 0, 0, null);
+		}
+
+		public Entry(long base, int depth, int prefix, int suffix, String inserted)
+		{
+			this(null, base, depth, prefix, suffix, inserted);
+		}
+
+		private Entry(
+				String text,
+				long base,
+				int depth,
+				int prefix,
+				int suffix,
+				String inserted)
+		{
+			this.text = text;
+			this.base = base;
+			this.depth = depth;
+			this.prefix = prefix;
+			this.suffix = suffix;
+			this.inserted = inserted;
+		}
+
+		public boolean isDuplicate()
+		{
+			return text == null && inserted == null;
+		}
+
+		public boolean isDelta()
+		{
+			return inserted != null;
+		}
+
+		public String apply(String baseText)
+		{
+			StringBuilder b = new StringBuilder(prefix + inserted.length() + suffix);
+			b.append(baseText, 0, prefix);
+			b.append(inserted);
+			b.append(baseText, baseText.length() - suffix, baseText.length());
+			return b.toString();
+		}
+	}
+}
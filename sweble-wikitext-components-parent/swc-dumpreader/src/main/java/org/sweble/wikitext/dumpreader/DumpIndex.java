@@ -0,0 +1,1196 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.dumpreader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.transform.stream.StreamSource;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.sweble.wikitext.dumpreader.model.Page;
+import org.xml.sax.SAXException;
+
+import de.fau.cs.osr.utils.WrappedException;
+
+/**
+ * A random access index over a dump. The index maps page titles and page ids
+ * to the position of a page in the dump and is persisted in a binary file
+ * which is memory-mapped when the index is opened.
+ *
+ * For a bzip2 compressed dump the position of a page is the offset of the
+ * bzip2 stream that contains the page and the ordinal of the page within
+ * that stream. Random access is therefore only fast for multistream dumps.
+ * Decompressed streams are kept in a small LRU cache since pages are often
+ * looked up together with other pages from the same stream. For an
+ * uncompressed XML dump the position is the offset of the page element
+ * itself.
+ *
+ * An index is either built by scanning the dump or, much faster, by
+ * converting the index file which is published alongside each multistream
+ * dump (lines of the form "offset:pageid:title").
+ *
+ * Instances are thread-safe.
+ */
+public final class DumpIndex
+		implements
+			Closeable
+{
+	public static final int DEFAULT_BLOCK_CACHE_CAPACITY = 16;
+
+	/**
+	 * Decompressed streams larger than this are not cached but scanned on
+	 * every lookup.
+	 */
+	private static final int MAX_CACHED_BLOCK_SIZE = 64 * 1024 * 1024;
+
+	private static final int MAGIC = 0x53574458;
+
+	private static final int FORMAT_VERSION = 1;
+
+	private static final int KIND_XML = 0;
+
+	private static final int KIND_BZIP2 = 1;
+
+	private static final int HEADER_SIZE = 4 + 4 + 1 + 1 + 8 + 4 + 8;
+
+	/**
+	 * Title offset, page id, stream offset and ordinal.
+	 */
+	private static final int RECORD_SIZE = 8 + 8 + 8 + 4;
+
+	private static final int ID_RECORD_SIZE = 4;
+
+	private static final int MAX_TITLE_LENGTH = MappedFile.OVERLAP - 4;
+
+	private static final int HEADER_LOOKAHEAD = 4096;
+
+	private static final int READ_SIZE = 64 * 1024;
+
+	private static final int MAGIC_LENGTH = 10;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final RandomAccessFile dumpFile;
+
+	private final FileChannel dumpChannel;
+
+	private final MappedFile index;
+
+	private final int kind;
+
+	private final ExportSchemaVersion schemaVersion;
+
+	private final int count;
+
+	private final long idTableOffset;
+
+	private final BlockCache blockCache;
+
+	private final DumpUnmarshaller unmarshaller;
+
+	// =========================================================================
+
+	/**
+	 * Opens an index which was previously built for the given dump.
+	 */
+	public static DumpIndex open(File dumpFile, File indexFile) throws IOException, JAXBException
+	{
+		return open(dumpFile, indexFile, DEFAULT_BLOCK_CACHE_CAPACITY);
+	}
+
+	/**
+	 * Opens an index which was previously built for the given dump.
+	 *
+	 * @param blockCacheCapacity
+	 *            The number of decompressed streams which are cached.
+	 */
+	public static DumpIndex open(
+			File dumpFile,
+			File indexFile,
+			int blockCacheCapacity) throws IOException, JAXBException
+	{
+		return new DumpIndex(dumpFile, indexFile, blockCacheCapacity);
+	}
+
+	/**
+	 * Opens the index for the given dump if it exists and was built for a dump
+	 * of the same size. Otherwise the index is built by scanning the dump.
+	 */
+	public static DumpIndex openOrBuild(File dumpFile, File indexFile) throws IOException, JAXBException
+	{
+		if (!indexFile.exists() || readDumpLength(indexFile) != dumpFile.length())
+			writeIndex(dumpFile, scanDump(dumpFile), indexFile);
+		return open(dumpFile, indexFile);
+	}
+
+	/**
+	 * Builds an index by scanning the given dump.
+	 */
+	public static DumpIndex build(File dumpFile, File indexFile) throws IOException, JAXBException
+	{
+		writeIndex(dumpFile, scanDump(dumpFile), indexFile);
+		return open(dumpFile, indexFile);
+	}
+
+	/**
+	 * Builds an index from the index file that accompanies a multistream
+	 * dump.
+	 *
+	 * @param multistreamIndexFile
+	 *            The plain or bzip2 compressed multistream index file.
+	 */
+	public static DumpIndex build(
+			File dumpFile,
+			File multistreamIndexFile,
+			File indexFile) throws IOException, JAXBException
+	{
+		if (getKind(dumpFile) != KIND_BZIP2)
+			throw new IllegalArgumentException("A multistream index can only be used with a bzip2 compressed dump");
+
+		writeIndex(dumpFile, readMultistreamIndex(multistreamIndexFile), indexFile);
+		return open(dumpFile, indexFile);
+	}
+
+	private DumpIndex(File dumpFile, File indexFile, int blockCacheCapacity) throws IOException, JAXBException
+	{
+		RandomAccessFile raf = new RandomAccessFile(indexFile, "r");
+		try
+		{
+			this.index = new MappedFile(raf.getChannel());
+		}
+		finally
+		{
+			raf.close();
+		}
+
+		if (index.getInt(0) != MAGIC || index.getInt(4) != FORMAT_VERSION)
+			throw new IOException("Not a dump index: " + indexFile);
+
+		this.kind = index.get(8);
+		this.schemaVersion = ExportSchemaVersion.values()[index.get(9)];
+		this.count = index.getInt(18);
+		this.idTableOffset = HEADER_SIZE + (long) count * RECORD_SIZE;
+
+		if (index.getLong(10) != dumpFile.length())
+			throw new IOException("Index " + indexFile + " was not built for dump " + dumpFile);
+
+		if (getKind(dumpFile) != kind)
+			throw new IOException("Index " + indexFile + " was built for a different kind of dump");
+
+		this.blockCache = new BlockCache(blockCacheCapacity);
+
+		try
+		{
+			this.unmarshaller = new DumpUnmarshaller(schemaVersion, false);
+		}
+		catch (SAXException e)
+		{
+			throw new WrappedException(e);
+		}
+
+		this.dumpFile = new RandomAccessFile(dumpFile, "r");
+		this.dumpChannel = this.dumpFile.getChannel();
+	}
+
+	// =========================================================================
+
+	public ExportSchemaVersion getSchemaVersion()
+	{
+		return schemaVersion;
+	}
+
+	/**
+	 * @return The number of pages in the index.
+	 */
+	public int size()
+	{
+		return count;
+	}
+
+	public boolean contains(String title)
+	{
+		return findTitle(title) != -1;
+	}
+
+	/**
+	 * @return The page with the given title or null if the dump does not
+	 *         contain such a page.
+	 */
+	public Page getPage(String title) throws IOException, JAXBException
+	{
+		int record = findTitle(title);
+		if (record == -1)
+			return null;
+		return readPage(record);
+	}
+
+	/**
+	 * @return The page with the given id or null if the dump does not contain
+	 *         such a page.
+	 */
+	public Page getPage(long pageId) throws IOException, JAXBException
+	{
+		int record = findId(pageId);
+		if (record == -1)
+			return null;
+		return readPage(record);
+	}
+
+	/**
+	 * Looks up multiple pages at once. The pages are read in the order in
+	 * which they appear in the dump so that each stream is decompressed at
+	 * most once.
+	 *
+	 * @return A map from title to page which contains only the titles found
+	 *         in the dump.
+	 */
+	public Map<String, Page> getPages(Collection<String> titles) throws IOException, JAXBException
+	{
+		List<Lookup> lookups = new ArrayList<Lookup>(titles.size());
+		for (String title : titles)
+		{
+			int record = findTitle(title);
+			if (record != -1)
+				lookups.add(new Lookup(title, record));
+		}
+
+		Collections.sort(lookups, new Comparator<Lookup>()
+		{
+			@Override
+			public int compare(Lookup a, Lookup b)
+			{
+				int cmp = compareLongs(getStreamOffset(a.record), getStreamOffset(b.record));
+				if (cmp != 0)
+					return cmp;
+				return compareLongs(getOrdinal(a.record), getOrdinal(b.record));
+			}
+		});
+
+		Map<String, Page> pages = new LinkedHashMap<String, Page>();
+		for (Lookup lookup : lookups)
+			pages.put(lookup.title, readPage(lookup.record));
+		return pages;
+	}
+
+	/**
+	 * @return The offset at which reading has to start to read the page with
+	 *         the given id again: the offset of the bzip2 stream that
+	 *         contains the page or, for an uncompressed dump, the offset of
+	 *         the page itself. -1 if the dump does not contain such a page.
+	 */
+	public long getResumeOffset(long pageId)
+	{
+		int record = findId(pageId);
+		if (record == -1)
+			return -1;
+		return getStreamOffset(record);
+	}
+
+	/**
+	 * Reads the dump from an offset returned by {@link #getResumeOffset(long)}
+	 * to its end. Unless the offset is 0 a mediawiki start tag is prepended to
+	 * the decompressed pages so that the stream can be read by a
+	 * {@link DumpReader} (which must not decompress it again). The index must
+	 * not be closed while the stream is being read.
+	 *
+	 * @param decompressionThreads
+	 *            The number of threads decompressing a bzip2 compressed dump.
+	 */
+	public InputStream openFrom(long offset, int decompressionThreads) throws IOException
+	{
+		InputStream in = new ChannelInputStream(dumpChannel, offset);
+		if (kind == KIND_BZIP2)
+		{
+			if (decompressionThreads > 1)
+				in = new ParallelBZip2InputStream(in, decompressionThreads, true);
+			else
+				in = new BZip2CompressorInputStream(in, true);
+		}
+
+		if (offset == 0)
+			return in;
+
+		byte[] start = ("<mediawiki xmlns=\"" + schemaVersion.getMediaWikiNamespace() + "\">\n").getBytes(UTF8);
+		return new SequenceInputStream(new ByteArrayInputStream(start), in);
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		blockCache.clear();
+		dumpFile.close();
+	}
+
+	// =========================================================================
+
+	private int findTitle(String title)
+	{
+		byte[] key = title.getBytes(UTF8);
+
+		int lo = 0;
+		int hi = count - 1;
+		while (lo <= hi)
+		{
+			int mid = (lo + hi) >>> 1;
+			int cmp = compareTitle(index.getLong(recordOffset(mid)), key);
+			if (cmp < 0)
+				lo = mid + 1;
+			else if (cmp > 0)
+				hi = mid - 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+
+	private int findId(long pageId)
+	{
+		int lo = 0;
+		int hi = count - 1;
+		while (lo <= hi)
+		{
+			int mid = (lo + hi) >>> 1;
+			int record = index.getInt(idTableOffset + (long) mid * ID_RECORD_SIZE);
+			long id = getPageId(record);
+			if (id < pageId)
+				lo = mid + 1;
+			else if (id > pageId)
+				hi = mid - 1;
+			else
+				return record;
+		}
+		return -1;
+	}
+
+	private int compareTitle(long titleOffset, byte[] key)
+	{
+		int length = index.getInt(titleOffset);
+		int n = Math.min(length, key.length);
+		for (int i = 0; i < n; ++i)
+		{
+			int a = index.get(titleOffset + 4 + i) & 0xFF;
+			int b = key[i] & 0xFF;
+			if (a != b)
+				return a - b;
+		}
+		return length - key.length;
+	}
+
+	private static long recordOffset(int record)
+	{
+		return HEADER_SIZE + (long) record * RECORD_SIZE;
+	}
+
+	private long getPageId(int record)
+	{
+		return index.getLong(recordOffset(record) + 8);
+	}
+
+	private long getStreamOffset(int record)
+	{
+		return index.getLong(recordOffset(record) + 16);
+	}
+
+	private int getOrdinal(int record)
+	{
+		return index.getInt(recordOffset(record) + 24);
+	}
+
+	private static int compareLongs(long a, long b)
+	{
+		return (a < b) ? -1 : ((a == b) ? 0 : 1);
+	}
+
+	// =========================================================================
+
+	private Page readPage(int record) throws IOException, JAXBException
+	{
+		long streamOffset = getStreamOffset(record);
+		int ordinal = getOrdinal(record);
+
+		byte[] page;
+		if (kind == KIND_XML)
+		{
+			page = new PageScanner(new ChannelInputStream(dumpChannel, streamOffset)).extractPage(0);
+		}
+		else
+		{
+			byte[] block = getBlock(streamOffset);
+			if (block != null)
+			{
+				page = new PageScanner(new ByteArrayInputStream(block)).extractPage(ordinal);
+			}
+			else
+			{
+				InputStream in = openBlock(streamOffset);
+				try
+				{
+					page = new PageScanner(in).extractPage(ordinal);
+				}
+				finally
+				{
+					in.close();
+				}
+			}
+		}
+
+		if (page == null)
+			throw new IOException("Dump does not match index: page not found at offset " + streamOffset);
+
+		return unmarshal(page);
+	}
+
+	private byte[] getBlock(long streamOffset) throws IOException
+	{
+		byte[] block = blockCache.get(streamOffset);
+		if (block != null)
+			return block;
+
+		InputStream in = openBlock(streamOffset);
+		try
+		{
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[READ_SIZE];
+			int read;
+			while ((read = in.read(buffer)) != -1)
+			{
+				if (out.size() + read > MAX_CACHED_BLOCK_SIZE)
+					return null;
+				out.write(buffer, 0, read);
+			}
+			block = out.toByteArray();
+		}
+		finally
+		{
+			in.close();
+		}
+
+		blockCache.put(streamOffset, block);
+		return block;
+	}
+
+	private InputStream openBlock(long streamOffset) throws IOException
+	{
+		return new BZip2CompressorInputStream(
+				new ChannelInputStream(dumpChannel, streamOffset),
+				false);
+	}
+
+	/**
+	 * The page element of a dump does not declare a namespace, it inherits it
+	 * from the enclosing mediawiki element.
+	 */
+	private Page unmarshal(byte[] page) throws JAXBException
+	{
+		byte[] start = ("<page xmlns=\"" + schemaVersion.getMediaWikiNamespace() + "\">").getBytes(UTF8);
+
+		byte[] fragment = new byte[start.length + page.length - PageScanner.PAGE_START.length];
+		System.arraycopy(start, 0, fragment, 0, start.length);
+		System.arraycopy(
+				page, PageScanner.PAGE_START.length,
+				fragment, start.length,
+				page.length - PageScanner.PAGE_START.length);
+
+		synchronized (unmarshaller)
+		{
+			return unmarshaller.unmarshalToPage(
+					new StreamSource(new ByteArrayInputStream(fragment)));
+		}
+	}
+
+	// =========================================================================
+
+	private static int getKind(File dumpFile)
+	{
+		String name = dumpFile.getName();
+		if (name.endsWith(".bz2"))
+			return KIND_BZIP2;
+		if (name.endsWith(".gz"))
+			throw new IllegalArgumentException("Gzip compressed dumps do not support random access");
+		return KIND_XML;
+	}
+
+	private static long readDumpLength(File indexFile) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(indexFile, "r");
+		try
+		{
+			if (raf.length() < HEADER_SIZE || raf.readInt() != MAGIC || raf.readInt() != FORMAT_VERSION)
+				return -1;
+			raf.seek(10);
+			return raf.readLong();
+		}
+		finally
+		{
+			raf.close();
+		}
+	}
+
+	private static ExportSchemaVersion readSchemaVersion(File dumpFile) throws IOException
+	{
+		InputStream in = new BufferedInputStream(new FileInputStream(dumpFile));
+		try
+		{
+			if (getKind(dumpFile) == KIND_BZIP2)
+				in = new BZip2CompressorInputStream(in, true);
+
+			byte[] b = new byte[HEADER_LOOKAHEAD];
+			int read = 0;
+			int n;
+			while (read < b.length && (n = in.read(b, read, b.length - read)) != -1)
+				read += n;
+			return ExportSchemaVersion.fromHeader(new String(b, 0, read, UTF8));
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	private static List<Entry> scanDump(File dumpFile) throws IOException
+	{
+		List<Entry> entries = new ArrayList<Entry>();
+		if (getKind(dumpFile) == KIND_XML)
+		{
+			InputStream in = new FileInputStream(dumpFile);
+			try
+			{
+				scanPages(new PageScanner(in), -1, entries);
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		else
+		{
+			RandomAccessFile raf = new RandomAccessFile(dumpFile, "r");
+			try
+			{
+				FileChannel channel = raf.getChannel();
+				for (long streamOffset : findStreamStarts(dumpFile))
+				{
+					InputStream in = new BZip2CompressorInputStream(
+							new ChannelInputStream(channel, streamOffset),
+							false);
+					try
+					{
+						scanPages(new PageScanner(in), streamOffset, entries);
+					}
+					finally
+					{
+						in.close();
+					}
+				}
+			}
+			finally
+			{
+				raf.close();
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * @param streamOffset
+	 *            The offset of the bzip2 stream that is scanned or -1 if an
+	 *            uncompressed dump is scanned and pages are addressed by
+	 *            their own offset.
+	 */
+	private static void scanPages(
+			PageScanner scanner,
+			long streamOffset,
+			List<Entry> entries) throws IOException
+	{
+		int ordinal = 0;
+		long pageOffset;
+		while ((pageOffset = scanner.nextPage()) != -1)
+		{
+			String title = scanner.readElementText(PageScanner.TITLE_START);
+			long pageId = parseId(scanner.readElementText(PageScanner.ID_START));
+
+			if (streamOffset == -1)
+				entries.add(new Entry(title, pageId, pageOffset, 0));
+			else
+				entries.add(new Entry(title, pageId, streamOffset, ordinal++));
+		}
+	}
+
+	private static List<Long> findStreamStarts(File dumpFile) throws IOException
+	{
+		List<Long> starts = new ArrayList<Long>();
+
+		InputStream in = new FileInputStream(dumpFile);
+		try
+		{
+			byte[] buffer = new byte[READ_SIZE + MAGIC_LENGTH];
+			long base = 0;
+			int length = 0;
+			int read;
+			while ((read = in.read(buffer, length, buffer.length - length)) != -1)
+			{
+				length += read;
+
+				int end = length - MAGIC_LENGTH;
+				for (int i = 0; i <= end; ++i)
+				{
+					if (buffer[i] == 'B' && ParallelBZip2InputStream.isStreamStart(buffer, i))
+						starts.add(base + i);
+				}
+
+				int keep = length - Math.max(end + 1, 0);
+				System.arraycopy(buffer, length - keep, buffer, 0, keep);
+				base += length - keep;
+				length = keep;
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+
+		return starts;
+	}
+
+	private static List<Entry> readMultistreamIndex(File multistreamIndexFile) throws IOException
+	{
+		List<Entry> entries = new ArrayList<Entry>();
+
+		InputStream in = new BufferedInputStream(new FileInputStream(multistreamIndexFile));
+		try
+		{
+			if (multistreamIndexFile.getName().endsWith(".bz2"))
+				in = new BZip2CompressorInputStream(in, true);
+
+			BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF8));
+
+			long lastOffset = -1;
+			int ordinal = 0;
+			int lineNo = 0;
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				++lineNo;
+				if (line.isEmpty())
+					continue;
+
+				int i = line.indexOf(':');
+				int j = (i == -1) ? -1 : line.indexOf(':', i + 1);
+				if (j == -1)
+					throw new IOException(multistreamIndexFile + ":" + lineNo + ": Malformed index entry");
+
+				long offset = Long.parseLong(line.substring(0, i));
+				long pageId = Long.parseLong(line.substring(i + 1, j));
+				String title = PageScanner.unescape(line.substring(j + 1));
+
+				ordinal = (offset == lastOffset) ? ordinal + 1 : 0;
+				lastOffset = offset;
+
+				entries.add(new Entry(title, pageId, offset, ordinal));
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+
+		return entries;
+	}
+
+	private static long parseId(String id) throws IOException
+	{
+		try
+		{
+			return Long.parseLong(id.trim());
+		}
+		catch (NumberFormatException e)
+		{
+			throw new IOException("Malformed page id: " + id);
+		}
+	}
+
+	private static void writeIndex(
+			File dumpFile,
+			List<Entry> entries,
+			File indexFile) throws IOException
+	{
+		ExportSchemaVersion schemaVersion = readSchemaVersion(dumpFile);
+
+		Collections.sort(entries, new Comparator<Entry>()
+		{
+			@Override
+			public int compare(Entry a, Entry b)
+			{
+				return compareBytes(a.title, b.title);
+			}
+		});
+
+		long stringAreaLength = 0;
+		for (int i = 0; i < entries.size(); ++i)
+		{
+			Entry entry = entries.get(i);
+			if (entry.title.length > MAX_TITLE_LENGTH)
+				throw new IOException("Title of page " + entry.pageId + " is too long");
+			entry.record = i;
+			stringAreaLength += 4 + entry.title.length;
+		}
+
+		List<Entry> byId = new ArrayList<Entry>(entries);
+		Collections.sort(byId, new Comparator<Entry>()
+		{
+			@Override
+			public int compare(Entry a, Entry b)
+			{
+				return compareLongs(a.pageId, b.pageId);
+			}
+		});
+
+		int count = entries.size();
+		long stringAreaOffset = HEADER_SIZE
+				+ (long) count * RECORD_SIZE
+				+ (long) count * ID_RECORD_SIZE;
+
+		DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(indexFile), READ_SIZE));
+		try
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeByte(getKind(dumpFile));
+			out.writeByte(schemaVersion.ordinal());
+			out.writeLong(dumpFile.length());
+			out.writeInt(count);
+			out.writeLong(stringAreaLength);
+
+			long titleOffset = stringAreaOffset;
+			for (Entry entry : entries)
+			{
+				out.writeLong(titleOffset);
+				out.writeLong(entry.pageId);
+				out.writeLong(entry.streamOffset);
+				out.writeInt(entry.ordinal);
+				titleOffset += 4 + entry.title.length;
+			}
+
+			for (Entry entry : byId)
+				out.writeInt(entry.record);
+
+			for (Entry entry : entries)
+			{
+				out.writeInt(entry.title.length);
+				out.write(entry.title);
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	private static int compareBytes(byte[] a, byte[] b)
+	{
+		int n = Math.min(a.length, b.length);
+		for (int i = 0; i < n; ++i)
+		{
+			int cmp = (a[i] & 0xFF) - (b[i] & 0xFF);
+			if (cmp != 0)
+				return cmp;
+		}
+		return a.length - b.length;
+	}
+
+	// =========================================================================
+
+	private static final class Entry
+	{
+		private final byte[] title;
+
+		private final long pageId;
+
+		private final long streamOffset;
+
+		private final int ordinal;
+
+		private int record;
+
+		public Entry(String title, long pageId, long streamOffset, int ordinal)
+		{
+			this.title = title.getBytes(UTF8);
+			this.pageId = pageId;
+			this.streamOffset = streamOffset;
+			this.ordinal = ordinal;
+		}
+	}
+
+	// =========================================================================
+
+	private static final class Lookup
+	{
+		private final String title;
+
+		private final int record;
+
+		public Lookup(String title, int record)
+		{
+			this.title = title;
+			this.record = record;
+		}
+	}
+
+	// =========================================================================
+
+	/**
+	 * A read-only memory mapping of a file of arbitrary size. The file is
+	 * mapped in segments which overlap so that a value of at most OVERLAP
+	 * bytes never crosses a segment boundary.
+	 */
+	private static final class MappedFile
+	{
+		private static final long SEGMENT_SIZE = 1L << 30;
+
+		static final int OVERLAP = 64 * 1024;
+
+		private final MappedByteBuffer[] segments;
+
+		public MappedFile(FileChannel channel) throws IOException
+		{
+			long size = channel.size();
+			if (size < HEADER_SIZE)
+				throw new IOException("Not a dump index");
+
+			int n = (int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+			this.segments = new MappedByteBuffer[n];
+			for (int i = 0; i < n; ++i)
+			{
+				long start = i * SEGMENT_SIZE;
+				long length = Math.min(SEGMENT_SIZE + OVERLAP, size - start);
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+			}
+		}
+
+		public byte get(long pos)
+		{
+			return segments[(int) (pos / SEGMENT_SIZE)].get((int) (pos % SEGMENT_SIZE));
+		}
+
+		public int getInt(long pos)
+		{
+			return segments[(int) (pos / SEGMENT_SIZE)].getInt((int) (pos % SEGMENT_SIZE));
+		}
+
+		public long getLong(long pos)
+		{
+			return segments[(int) (pos / SEGMENT_SIZE)].getLong((int) (pos % SEGMENT_SIZE));
+		}
+	}
+
+	// =========================================================================
+
+	private static final class BlockCache
+	{
+		private final LinkedHashMap<Long, byte[]> map;
+
+		public BlockCache(final int capacity)
+		{
+			if (capacity < 1)
+				throw new IllegalArgumentException("Capacity must be at least 1!");
+
+			this.map = new LinkedHashMap<Long, byte[]>(16, 0.75f, true)
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest)
+				{
+					return size() > capacity;
+				}
+			};
+		}
+
+		public synchronized byte[] get(long streamOffset)
+		{
+			return map.get(streamOffset);
+		}
+
+		public synchronized void put(long streamOffset, byte[] block)
+		{
+			map.put(streamOffset, block);
+		}
+
+		public synchronized void clear()
+		{
+			map.clear();
+		}
+	}
+
+	// =========================================================================
+
+	/**
+	 * Reads a file channel from a given position on. Uses positional reads
+	 * and can therefore be used concurrently with other readers of the same
+	 * channel.
+	 */
+	private static final class ChannelInputStream
+			extends
+				InputStream
+	{
+		private final FileChannel channel;
+
+		private final ByteBuffer buffer = ByteBuffer.allocate(READ_SIZE);
+
+		private long position;
+
+		public ChannelInputStream(FileChannel channel, long position)
+		{
+			this.channel = channel;
+			this.position = position;
+			this.buffer.flip();
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			if (!buffer.hasRemaining() && !fill())
+				return -1;
+			return buffer.get() & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			if (len == 0)
+				return 0;
+			if (!buffer.hasRemaining() && !fill())
+				return -1;
+			int n = Math.min(len, buffer.remaining());
+			buffer.get(b, off, n);
+			return n;
+		}
+
+		private boolean fill() throws IOException
+		{
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			buffer.flip();
+			if (read <= 0)
+				return false;
+			position += read;
+			return true;
+		}
+	}
+
+	// =========================================================================
+
+	/**
+	 * Finds pages and extracts titles, ids and whole page elements from the
+	 * raw bytes of a dump without parsing the XML.
+	 */
+	private static final class PageScanner
+	{
+		static final byte[] PAGE_START = bytes("<page>");
+
+		static final byte[] PAGE_END = bytes("</page>");
+
+		static final byte[] TITLE_START = bytes("<title>");
+
+		static final byte[] ID_START = bytes("<id>");
+
+		private final InputStream in;
+
+		private final byte[] buffer = new byte[READ_SIZE];
+
+		private int pos;
+
+		private int limit;
+
+		private long offset;
+
+		public PageScanner(InputStream in)
+		{
+			this.in = in;
+		}
+
+		/**
+		 * Advances behind the next page start tag.
+		 *
+		 * @return The offset of the page start tag or -1 if there are no more
+		 *         pages.
+		 */
+		public long nextPage() throws IOException
+		{
+			if (!skipTo(PAGE_START, null))
+				return -1;
+			return offset - PAGE_START.length;
+		}
+
+		/**
+		 * Advances behind the end tag of the next element with the given
+		 * start tag and returns the unescaped text content of the element.
+		 */
+		public String readElementText(byte[] startTag) throws IOException
+		{
+			if (!skipTo(startTag, null))
+				throw new IOException("Unexpected end of dump");
+
+			ByteArrayOutputStream text = new ByteArrayOutputStream();
+			int b;
+			while ((b = read()) != '<')
+			{
+				if (b == -1)
+					throw new IOException("Unexpected end of dump");
+				text.write(b);
+			}
+
+			return unescape(new String(text.toByteArray(), UTF8));
+		}
+
+		/**
+		 * @return The bytes of the page with the given ordinal or null if
+		 *         there are not enough pages.
+		 */
+		public byte[] extractPage(int ordinal) throws IOException
+		{
+			for (int i = 0; i <= ordinal; ++i)
+			{
+				if (nextPage() == -1)
+					return null;
+			}
+
+			ByteArrayOutputStream page = new ByteArrayOutputStream();
+			page.write(PAGE_START);
+			if (!skipTo(PAGE_END, page))
+				throw new IOException("Unexpected end of dump");
+			return page.toByteArray();
+		}
+
+		/**
+		 * The first character of each pattern does not occur anywhere else in
+		 * the pattern which makes a simple restarting match sufficient.
+		 */
+		private boolean skipTo(byte[] pattern, ByteArrayOutputStream sink) throws IOException
+		{
+			int matched = 0;
+			int b;
+			while ((b = read()) != -1)
+			{
+				if (sink != null)
+					sink.write(b);
+
+				if (b == pattern[matched])
+				{
+					if (++matched == pattern.length)
+						return true;
+				}
+				else
+				{
+					matched = (b == pattern[0]) ? 1 : 0;
+				}
+			}
+			return false;
+		}
+
+		private int read() throws IOException
+		{
+			if (pos == limit)
+			{
+				limit = in.read(buffer);
+				pos = 0;
+				if (limit <= 0)
+				{
+					limit = 0;
+					return -1;
+				}
+			}
+			++offset;
+			return buffer[pos++] & 0xFF;
+		}
+
+		static String unescape(String text)
+		{
+			int i = text.indexOf('&');
+			if (i == -1)
+				return text;
+
+			StringBuilder sb = new StringBuilder(text.length());
+			sb.append(text, 0, i);
+			while (i < text.length())
+			{
+				char ch = text.charAt(i);
+				int end = (ch == '&') ? text.indexOf(';', i) : -1;
+				if (end == -1)
+				{
+					sb.append(ch);
+					++i;
+					continue;
+				}
+
+				String entity = text.substring(i + 1, end);
+				if (entity.equals("amp"))
+					sb.append('&');
+				else if (entity.equals("lt"))
+					sb.append('<');
+				else if (entity.equals("gt"))
+					sb.append('>');
+				else if (entity.equals("quot"))
+					sb.append('"');
+				else if (entity.equals("apos"))
+					sb.append('\'');
+				else if (entity.startsWith("#x") || entity.startsWith("#X"))
+					sb.appendCodePoint(Integer.parseInt(entity.substring(2), 16));
+				else if (entity.startsWith("#"))
+					sb.appendCodePoint(Integer.parseInt(entity.substring(1)));
+				else
+					sb.append('&').append(entity).append(';');
+
+				i = end + 1;
+			}
+			return sb.toString();
+		}
+
+		private static byte[] bytes(String s)
+		{
+			return s.getBytes(UTF8);
+		}
+	}
+}
@@ -75,6 +75,18 @@ public abstract class DumpReader
 
 	private boolean decompress;
 
+	private final int decompressionThreads;
+
+	private final boolean preservePageOrder;
+
+	private final boolean readModel;
+
+	private final long resumeOffset;
+
+	private final DumpReaderListener pageListener;
+
+	private DumpRevisionHandler revisionHandler;
+
 	private static final int LOOKAHEAD = 4096;
 
 	// =========================================================================
@@ -125,22 +137,112 @@ public abstract class DumpReader
 			Logger logger,
 			boolean useSchema) throws JAXBException, FactoryConfigurationError, XMLStreamException, IOException, SAXException
 	{
+		this(is, encoding, url, logger, useSchema, 1, true);
+	}
+
+	/**
+	 * @param decompressionThreads
+	 *            The number of threads decompressing a bzip2 compressed dump.
+	 *            Only multistream dumps can be decompressed by more than one
+	 *            thread.
+	 * @param preservePageOrder
+	 *            If false, the pages of a multistream dump are processed in
+	 *            the order in which their streams finish decompressing.
+	 */
+	public DumpReader(
+			InputStream is,
+			Charset encoding,
+			String url,
+			Logger logger,
+			boolean useSchema,
+			int decompressionThreads,
+			boolean preservePageOrder) throws JAXBException, FactoryConfigurationError, XMLStreamException, IOException, SAXException
+	{
+		this(is, encoding, url, logger, useSchema, decompressionThreads, preservePageOrder, false);
+	}
+
+	/**
+	 * @param decompressionThreads
+	 *            The number of threads decompressing a bzip2 compressed dump.
+	 *            Only multistream dumps can be decompressed by more than one
+	 *            thread.
+	 * @param preservePageOrder
+	 *            If false, the pages of a multistream dump are processed in
+	 *            the order in which their streams finish decompressing.
+	 * @param readModel
+	 *            If true, pages and revisions are read directly into
+	 *            model.Page and model.Revision objects by a StAX reader
+	 *            instead of being bound to the JAXB types of the dump's
+	 *            schema version. processPage() and processRevision() then
+	 *            receive model objects and the mediaWiki argument is always
+	 *            null. The dump is never validated in this mode, useSchema
+	 *            is ignored.
+	 */
+	public DumpReader(
+			InputStream is,
+			Charset encoding,
+			String url,
+			Logger logger,
+			boolean useSchema,
+			int decompressionThreads,
+			boolean preservePageOrder,
+			boolean readModel) throws JAXBException, FactoryConfigurationError, XMLStreamException, IOException, SAXException
+	{
+		this(is, encoding, url, logger, useSchema, decompressionThreads, preservePageOrder, readModel, -1);
+	}
+
+	/**
+	 * @param resumeOffset
+	 *            The offset passed to {@link DumpIndex#openFrom(long, int)}
+	 *            to open the given stream, which is therefore already
+	 *            decompressed. -1 if the given stream is the dump itself.
+	 */
+	public DumpReader(
+			InputStream is,
+			Charset encoding,
+			String url,
+			Logger logger,
+			boolean useSchema,
+			int decompressionThreads,
+			boolean preservePageOrder,
+			boolean readModel,
+			long resumeOffset) throws JAXBException, FactoryConfigurationError, XMLStreamException, IOException, SAXException
+	{
+		if (resumeOffset < -1)
+			throw new IllegalArgumentException("Resume offset must be -1 or an offset in the dump!");
+
 		this.dumpInputStream = is;
 		this.dumpUri = url;
 		this.logger = logger;
+		this.decompressionThreads = decompressionThreads;
+		this.preservePageOrder = preservePageOrder;
+		this.readModel = readModel;
+		this.resumeOffset = resumeOffset;
 
-		logger.info("Setting up parser for file " + dumpUri);
+		if (resumeOffset != -1)
+			logger.info("Setting up parser for file " + dumpUri + " at offset " + resumeOffset);
+		else
+			logger.info("Setting up parser for file " + dumpUri);
 
 		getDumpInputStream();
 
 		schemaVersion = determineExportVersion();
 
-		unmarshaller = createUnmarshaller(schemaVersion.getContextPath());
+		pageListener = createPageListener();
+
+		if (readModel)
+		{
+			unmarshaller = null;
+		}
+		else
+		{
+			unmarshaller = createUnmarshaller(schemaVersion.getContextPath());
 
-		installCallbacks();
+			installCallbacks();
 
-		if (useSchema)
-			setSchema(DumpReader.class.getResource(schemaVersion.getSchema()));
+			if (useSchema)
+				setSchema(DumpReader.class.getResource(schemaVersion.getSchema()));
+		}
 
 		xmlStreamReader = getXmlStreamReader(encoding);
 
@@ -154,7 +256,10 @@ public abstract class DumpReader
 	{
 		try
 		{
-			unmarshaller.unmarshal(xmlStreamReader);
+			if (readModel)
+				new StaxPageReader(schemaVersion, xmlStreamReader, pageListener, revisionHandler).read();
+			else
+				unmarshaller.unmarshal(xmlStreamReader);
 		}
 		finally
 		{
@@ -197,11 +302,32 @@ public abstract class DumpReader
 		}
 	}
 
+	/**
+	 * @return The offset in the dump at which reading started or -1 if the
+	 *         dump was read from its beginning.
+	 */
+	public long getResumeOffset()
+	{
+		return resumeOffset;
+	}
+
 	public long getParsedCount()
 	{
 		return parsedCount;
 	}
 
+	/**
+	 * Makes the reader hand each revision to the given handler as soon as it
+	 * was read instead of collecting the revisions of a page. Only supported
+	 * when reading into the model.
+	 */
+	void setRevisionHandler(DumpRevisionHandler revisionHandler)
+	{
+		if (!readModel)
+			throw new IllegalStateException("Revisions can only be streamed when reading into the model");
+		this.revisionHandler = revisionHandler;
+	}
+
 	// =========================================================================
 
 	protected abstract void processPage(Object mediaWiki, Object page);
@@ -250,13 +376,30 @@ public abstract class DumpReader
 	private void getDumpInputStream() throws IOException
 	{
 		InputStream decomp;
-		if (dumpUri.endsWith(".bz2"))
+		if (resumeOffset != -1)
+		{
+			// DumpIndex.openFrom() already decompressed the stream
+			decompress = false;
+
+			decomp = dumpInputStream;
+		}
+		else if (dumpUri.endsWith(".bz2"))
 		{
 			decompress = true;
 
 			compressedInputStream = new CountingInputStream(dumpInputStream);
 
-			decomp = new BZip2CompressorInputStream(compressedInputStream, true);
+			if (decompressionThreads > 1)
+			{
+				decomp = new ParallelBZip2InputStream(
+						compressedInputStream,
+						decompressionThreads,
+						preservePageOrder);
+			}
+			else
+			{
+				decomp = new BZip2CompressorInputStream(compressedInputStream, true);
+			}
 		}
 		else if (dumpUri.endsWith(".gz"))
 		{
@@ -287,34 +430,7 @@ public abstract class DumpReader
 
 		String header = new String(b, 0, read);
 
-		if (header.contains("xmlns=\"http://www.mediawiki.org/xml/export-0.5/\""))
-		{
-			return ExportSchemaVersion.V0_5;
-		}
-		else if (header.contains("xmlns=\"http://www.mediawiki.org/xml/export-0.6/\""))
-		{
-			return ExportSchemaVersion.V0_6;
-		}
-		else if (header.contains("xmlns=\"http://www.mediawiki.org/xml/export-0.7/\""))
-		{
-			return ExportSchemaVersion.V0_7;
-		}
-		else if (header.contains("xmlns=\"http://www.mediawiki.org/xml/export-0.8/\""))
-		{
-			return ExportSchemaVersion.V0_8;
-		}
-		else if (header.contains("xmlns=\"http://www.mediawiki.org/xml/export-0.9/\""))
-		{
-			return ExportSchemaVersion.V0_9;
-		}
-		else if (header.contains("xmlns=\"http://www.mediawiki.org/xml/export-0.10/\""))
-		{
-			return ExportSchemaVersion.V0_10;
-		}
-		else
-		{
-			throw new IllegalArgumentException("Unknown xmlns");
-		}
+		return ExportSchemaVersion.fromHeader(header);
 	}
 
 	/**
@@ -377,9 +493,9 @@ public abstract class DumpReader
 				});
 	}
 
-	private void installCallbacks()
+	private DumpReaderListener createPageListener()
 	{
-		final DumpReaderListener pageListener = new DumpReaderListener()
+		return new DumpReaderListener()
 		{
 			@Override
 			public void handlePage(Object mediaWiki, Object page)
@@ -417,7 +533,10 @@ public abstract class DumpReader
 				}
 			}
 		};
+	}
 
+	private void installCallbacks()
+	{
 		unmarshaller.setListener(new Unmarshaller.Listener()
 		{
 			public void beforeUnmarshal(Object target, Object parent)
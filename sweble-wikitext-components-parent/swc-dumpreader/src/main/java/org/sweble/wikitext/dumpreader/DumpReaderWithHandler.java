@@ -26,6 +26,7 @@ import javax.xml.stream.FactoryConfigurationError;
 import javax.xml.stream.XMLStreamException;
 
 import org.slf4j.Logger;
+import org.sweble.wikitext.dumpreader.model.Page;
 import org.xml.sax.SAXException;
 
 public class DumpReaderWithHandler
@@ -34,6 +35,8 @@ public class DumpReaderWithHandler
 {
 	private final DumpReaderListener listener;
 
+	private final DumpRevisionHandler revisionHandler;
+
 	// =========================================================================
 
 	public DumpReaderWithHandler(
@@ -46,6 +49,29 @@ public class DumpReaderWithHandler
 	{
 		super(is, encoding, url, logger, useSchema);
 		this.listener = listener;
+		this.revisionHandler = null;
+	}
+
+	/**
+	 * Reads the dump into the model and hands each revision to the given
+	 * handler as soon as its end tag was read. The text of a revision is
+	 * passed as a view of a reused buffer and pages do not retain their
+	 * revisions. Memory use therefore only depends on the size of the
+	 * largest revision, not on the length of a page's history.
+	 */
+	public DumpReaderWithHandler(
+			InputStream is,
+			Charset encoding,
+			DumpRevisionHandler revisionHandler,
+			String url,
+			Logger logger,
+			int decompressionThreads,
+			boolean preservePageOrder) throws JAXBException, FactoryConfigurationError, XMLStreamException, IOException, SAXException
+	{
+		super(is, encoding, url, logger, false, decompressionThreads, preservePageOrder, true);
+		this.listener = null;
+		this.revisionHandler = revisionHandler;
+		setRevisionHandler(revisionHandler);
 	}
 
 	// =========================================================================
@@ -53,7 +79,10 @@ public class DumpReaderWithHandler
 	@Override
 	protected void processPage(Object mediaWiki, Object page)
 	{
-		listener.handlePage(mediaWiki, page);
+		if (revisionHandler != null)
+			revisionHandler.handlePage((Page) page);
+		else
+			listener.handlePage(mediaWiki, page);
 	}
 
 	@Override
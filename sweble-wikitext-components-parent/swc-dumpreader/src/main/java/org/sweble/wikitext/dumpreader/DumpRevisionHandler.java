@@ -0,0 +1,47 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.dumpreader;
+
+import org.sweble.wikitext.dumpreader.model.Page;
+import org.sweble.wikitext.dumpreader.model.Revision;
+
+/**
+ * Receives the revisions of a dump one by one. Neither the page nor the dump
+ * reader hold on to a revision after it was handed to the handler.
+ */
+public interface DumpRevisionHandler
+{
+	/**
+	 * Called as soon as the end tag of a revision was read.
+	 *
+	 * @param page
+	 *            The page the revision belongs to. Its list of revisions is
+	 *            always empty.
+	 * @param revision
+	 *            The revision. Its text is not set.
+	 * @param text
+	 *            A view of the revision's text which is only valid until this
+	 *            method returns or null if the revision has no text element.
+	 */
+	void handleRevision(Page page, Revision revision, RevisionText text);
+
+	/**
+	 * Called after the last revision of a page was handled.
+	 */
+	void handlePage(Page page);
+}
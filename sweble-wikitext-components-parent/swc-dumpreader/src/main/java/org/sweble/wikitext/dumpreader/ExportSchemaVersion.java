@@ -321,6 +321,27 @@ public enum ExportSchemaVersion
 
 	// =========================================================================
 
+	/**
+	 * Determines the schema version from the beginning of a dump.
+	 * 
+	 * @param header
+	 *            The beginning of the dump which must include the opening
+	 *            mediawiki tag.
+	 * @throws IllegalArgumentException
+	 *             If the header does not declare a known export namespace.
+	 */
+	public static ExportSchemaVersion fromHeader(String header)
+	{
+		for (ExportSchemaVersion version : values())
+		{
+			if (header.contains("xmlns=\"" + version.getMediaWikiNamespace() + "\""))
+				return version;
+		}
+		throw new IllegalArgumentException("Unknown xmlns");
+	}
+
+	// =========================================================================
+
 	public void setPageListener(Object target, DumpReaderListener listener)
 	{
 		try
@@ -0,0 +1,487 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.dumpreader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+
+/**
+ * Decompresses a bzip2 file that consists of many concatenated bzip2 streams
+ * (like the pages-articles-multistream dumps published by Wikimedia) on
+ * multiple threads.
+ * 
+ * The compressed input is cut into chunks at stream boundaries. A stream
+ * boundary is recognized by the stream header ("BZh" and the block size)
+ * immediately followed by the magic number of the first block. Each chunk
+ * holds one or more complete streams and is decompressed independently.
+ * 
+ * By default the decompressed chunks are returned in the order of the input.
+ * If the order of pages does not matter, chunks can also be returned as soon
+ * as they are decompressed. This is only valid for Wikimedia multistream
+ * dumps, where the first stream holds the header of the XML document, the last
+ * stream holds its end and each stream in between holds complete pages. The
+ * first and the last chunk are always returned first and last.
+ * 
+ * If no stream boundary is found within a reasonable amount of input (e.g.
+ * because the file consists of a single stream) the remaining input is
+ * decompressed sequentially.
+ */
+public final class ParallelBZip2InputStream
+		extends
+			InputStream
+{
+	public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+	/**
+	 * Give up looking for a stream boundary if a chunk grows larger than this
+	 * multiple of the chunk size.
+	 */
+	private static final int MAX_CHUNK_SIZE_FACTOR = 32;
+
+	private static final int READ_SIZE = 64 * 1024;
+
+	/**
+	 * "BZh", the block size digit and the magic number of a block.
+	 */
+	private static final int MAGIC_LENGTH = 10;
+
+	private static final AtomicInteger instanceCount = new AtomicInteger();
+
+	private final InputStream in;
+
+	private final ExecutorService executor;
+
+	private final boolean preserveOrder;
+
+	private final int chunkSize;
+
+	private final int maxInFlight;
+
+	private final LinkedList<Chunk> inFlight = new LinkedList<Chunk>();
+
+	private byte[] pending = new byte[READ_SIZE];
+
+	private int pendingLength = 0;
+
+	private boolean eof = false;
+
+	private int chunkCount = 0;
+
+	private boolean firstReturned = false;
+
+	private InputStream tail;
+
+	private byte[] current;
+
+	private int pos;
+
+	private boolean closed = false;
+
+	// =========================================================================
+
+	public ParallelBZip2InputStream(InputStream in, int threads, boolean preserveOrder)
+	{
+		this(in, threads, preserveOrder, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * @param in
+	 *            The compressed input.
+	 * @param threads
+	 *            The number of threads decompressing chunks.
+	 * @param preserveOrder
+	 *            Whether chunks are returned in the order of the input.
+	 * @param chunkSize
+	 *            The minimum number of compressed bytes per chunk.
+	 */
+	public ParallelBZip2InputStream(
+			InputStream in,
+			int threads,
+			boolean preserveOrder,
+			int chunkSize)
+	{
+		if (in == null)
+			throw new NullPointerException();
+		if (threads < 1)
+			throw new IllegalArgumentException("Need at least one thread!");
+		if (chunkSize < 1)
+			throw new IllegalArgumentException("Chunk size must be at least 1!");
+
+		this.in = in;
+		this.preserveOrder = preserveOrder;
+		this.chunkSize = chunkSize;
+		this.maxInFlight = 2 * threads;
+		this.executor = Executors.newFixedThreadPool(
+				threads,
+				new DecompressorThreadFactory(instanceCount.incrementAndGet()));
+	}
+
+	// =========================================================================
+
+	@Override
+	public int read() throws IOException
+	{
+		if (!ensureData())
+			return -1;
+
+		if (tail != null)
+			return tail.read();
+
+		return current[pos++] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException
+	{
+		if (off < 0 || len < 0 || len > b.length - off)
+			throw new IndexOutOfBoundsException();
+		if (len == 0)
+			return 0;
+
+		if (!ensureData())
+			return -1;
+
+		if (tail != null)
+			return tail.read(b, off, len);
+
+		int n = Math.min(len, current.length - pos);
+		System.arraycopy(current, pos, b, off, n);
+		pos += n;
+		return n;
+	}
+
+	@Override
+	public int available() throws IOException
+	{
+		if (tail != null)
+			return tail.available();
+		return (current != null) ? current.length - pos : 0;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		if (closed)
+			return;
+		closed = true;
+
+		for (Chunk c : inFlight)
+			c.future.cancel(true);
+		inFlight.clear();
+
+		executor.shutdownNow();
+
+		current = null;
+		pending = null;
+
+		if (tail != null)
+			tail.close();
+		else
+			in.close();
+	}
+
+	// =========================================================================
+
+	/**
+	 * @return False at the end of the input.
+	 */
+	private boolean ensureData() throws IOException
+	{
+		if (closed)
+			throw new IOException("Stream closed");
+
+		if (tail != null)
+			return true;
+
+		while (current == null || pos == current.length)
+		{
+			submitChunks();
+
+			if (inFlight.isEmpty())
+			{
+				if (pending == null || pendingLength == 0)
+					return false;
+
+				// No stream boundary found, decompress the rest sequentially
+				tail = new BZip2CompressorInputStream(
+						new SequenceInputStream(
+								new ByteArrayInputStream(pending, 0, pendingLength),
+								in),
+						true);
+
+				current = null;
+				pending = null;
+				return true;
+			}
+
+			current = waitFor(nextChunk());
+			pos = 0;
+		}
+
+		return true;
+	}
+
+	private void submitChunks() throws IOException
+	{
+		while (inFlight.size() < maxInFlight && !eof)
+		{
+			byte[] compressed = cutChunk();
+			if (compressed == null)
+				break;
+
+			Future<byte[]> future = executor.submit(new Decompressor(compressed));
+			// The pending input is released once the end of the input was cut
+			inFlight.add(new Chunk(chunkCount++, future, pending == null));
+		}
+	}
+
+	private Chunk nextChunk()
+	{
+		if (preserveOrder || !firstReturned)
+		{
+			firstReturned = true;
+			return inFlight.removeFirst();
+		}
+
+		// Prefer any chunk that is already done, but keep the last chunk
+		// for the very end.
+		Chunk candidate = null;
+		for (Iterator<Chunk> i = inFlight.iterator(); i.hasNext();)
+		{
+			Chunk c = i.next();
+			if (c.last)
+				continue;
+
+			if (c.future.isDone())
+			{
+				i.remove();
+				return c;
+			}
+
+			if (candidate == null)
+				candidate = c;
+		}
+
+		if (candidate == null)
+			return inFlight.removeFirst();
+
+		inFlight.remove(candidate);
+		return candidate;
+	}
+
+	private byte[] waitFor(Chunk chunk) throws IOException
+	{
+		try
+		{
+			return chunk.future.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while decompressing chunk " + chunk.index);
+		}
+		catch (ExecutionException e)
+		{
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			throw new IOException("Failed to decompress chunk " + chunk.index, cause);
+		}
+	}
+
+	// =========================================================================
+
+	/**
+	 * Reads compressed input until the next stream boundary after at least
+	 * chunkSize bytes.
+	 * 
+	 * @return The compressed chunk or null if no boundary was found within
+	 *         the maximum chunk size. The pending input is then decompressed
+	 *         sequentially once all chunks in flight were returned.
+	 */
+	private byte[] cutChunk() throws IOException
+	{
+		int scanFrom = 1;
+		while (true)
+		{
+			int boundary = findStreamStart(Math.max(scanFrom, chunkSize));
+			if (boundary != -1)
+				return takePending(boundary);
+
+			if (eof)
+				return (pendingLength > 0) ? takePending(pendingLength) : null;
+
+			if (pendingLength >= MAX_CHUNK_SIZE_FACTOR * chunkSize)
+			{
+				// Stop cutting chunks
+				eof = true;
+				return null;
+			}
+
+			scanFrom = Math.max(1, pendingLength - MAGIC_LENGTH + 1);
+			readMore();
+		}
+	}
+
+	private void readMore() throws IOException
+	{
+		if (pending.length - pendingLength < READ_SIZE)
+		{
+			byte[] grown = new byte[Math.max(pending.length * 2, pendingLength + READ_SIZE)];
+			System.arraycopy(pending, 0, grown, 0, pendingLength);
+			pending = grown;
+		}
+
+		int read = in.read(pending, pendingLength, READ_SIZE);
+		if (read == -1)
+			eof = true;
+		else
+			pendingLength += read;
+	}
+
+	private byte[] takePending(int length)
+	{
+		byte[] chunk = new byte[length];
+		System.arraycopy(pending, 0, chunk, 0, length);
+
+		pendingLength -= length;
+		System.arraycopy(pending, length, pending, 0, pendingLength);
+
+		if (pendingLength == 0 && eof)
+			pending = null;
+
+		return chunk;
+	}
+
+	private int findStreamStart(int from)
+	{
+		int end = pendingLength - MAGIC_LENGTH;
+		for (int i = from; i <= end; ++i)
+		{
+			if (pending[i] == 'B' && isStreamStart(pending, i))
+				return i;
+		}
+		return -1;
+	}
+
+	static boolean isStreamStart(byte[] b, int i)
+	{
+		return b[i] == 'B'
+				&& b[i + 1] == 'Z'
+				&& b[i + 2] == 'h'
+				&& b[i + 3] >= '1' && b[i + 3] <= '9'
+				&& b[i + 4] == 0x31
+				&& b[i + 5] == 0x41
+				&& b[i + 6] == 0x59
+				&& b[i + 7] == 0x26
+				&& b[i + 8] == 0x53
+				&& b[i + 9] == 0x59;
+	}
+
+	// =========================================================================
+
+	private static final class Chunk
+	{
+		private final int index;
+
+		private final Future<byte[]> future;
+
+		private final boolean last;
+
+		public Chunk(int index, Future<byte[]> future, boolean last)
+		{
+			this.index = index;
+			this.future = future;
+			this.last = last;
+		}
+	}
+
+	// =========================================================================
+
+	private static final class Decompressor
+			implements
+				Callable<byte[]>
+	{
+		private final byte[] compressed;
+
+		public Decompressor(byte[] compressed)
+		{
+			this.compressed = compressed;
+		}
+
+		@Override
+		public byte[] call() throws Exception
+		{
+			BZip2CompressorInputStream in = new BZip2CompressorInputStream(
+					new ByteArrayInputStream(compressed),
+					true);
+			try
+			{
+				ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 5);
+				byte[] buffer = new byte[READ_SIZE];
+				int read;
+				while ((read = in.read(buffer)) != -1)
+					out.write(buffer, 0, read);
+				return out.toByteArray();
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+	}
+
+	// =========================================================================
+
+	private static final class DecompressorThreadFactory
+			implements
+				ThreadFactory
+	{
+		private final String prefix;
+
+		private final AtomicInteger threadCount = new AtomicInteger();
+
+		public DecompressorThreadFactory(int instance)
+		{
+			this.prefix = "bzip2-" + instance + "-decompressor-";
+		}
+
+		@Override
+		public Thread newThread(Runnable r)
+		{
+			Thread t = new Thread(r, prefix + threadCount.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+}
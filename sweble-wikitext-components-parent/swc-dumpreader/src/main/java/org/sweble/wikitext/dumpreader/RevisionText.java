@@ -0,0 +1,117 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.dumpreader;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * A view of the text of a revision. The view is backed by a buffer which the
+ * dump reader reuses for the next revision. It is therefore only valid until
+ * the DumpRevisionHandler.handleRevision() call it was passed to returns.
+ * Afterwards every method throws an IllegalStateException. Call toString()
+ * to keep a copy of the text.
+ */
+public final class RevisionText
+		implements
+			CharSequence
+{
+	private char[] buffer;
+
+	private final int length;
+
+	// =========================================================================
+
+	RevisionText(char[] buffer, int length)
+	{
+		this.buffer = buffer;
+		this.length = length;
+	}
+
+	// =========================================================================
+
+	@Override
+	public int length()
+	{
+		checkValid();
+		return length;
+	}
+
+	@Override
+	public char charAt(int index)
+	{
+		checkValid();
+		if (index < 0 || index >= length)
+			throw new IndexOutOfBoundsException();
+		return buffer[index];
+	}
+
+	/**
+	 * @return A copy of the given range of the text.
+	 */
+	@Override
+	public CharSequence subSequence(int start, int end)
+	{
+		checkValid();
+		if (start < 0 || end > length || start > end)
+			throw new IndexOutOfBoundsException();
+		return new String(buffer, start, end - start);
+	}
+
+	/**
+	 * @return A reader which reads the text directly from the buffer. Like
+	 *         the view itself the reader must not be used after the
+	 *         handleRevision() call returned.
+	 */
+	public Reader getReader()
+	{
+		checkValid();
+		return new CharArrayReader(buffer, 0, length);
+	}
+
+	public void writeTo(Writer writer) throws IOException
+	{
+		checkValid();
+		writer.write(buffer, 0, length);
+	}
+
+	/**
+	 * @return A copy of the text.
+	 */
+	@Override
+	public String toString()
+	{
+		checkValid();
+		return new String(buffer, 0, length);
+	}
+
+	// =========================================================================
+
+	void release()
+	{
+		buffer = null;
+	}
+
+	private void checkValid()
+	{
+		if (buffer == null)
+			throw new IllegalStateException("The revision text is only valid during the handleRevision() call");
+	}
+}
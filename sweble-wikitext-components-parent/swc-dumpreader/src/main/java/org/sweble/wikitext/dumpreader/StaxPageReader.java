@@ -0,0 +1,466 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.dumpreader;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.joda.time.DateTime;
+import org.sweble.wikitext.dumpreader.model.Contributor;
+import org.sweble.wikitext.dumpreader.model.Page;
+import org.sweble.wikitext.dumpreader.model.Revision;
+import org.sweble.wikitext.dumpreader.model.UnsupportedDumpFormat;
+
+import de.fau.cs.osr.utils.WrappedException;
+
+/**
+ * Reads the pages of a dump directly into the model classes using a StAX pull
+ * parser instead of binding them to the JAXB types first and converting them
+ * afterwards. The result is the same as that of the DumpConverter for export
+ * schema versions 0.5 to 0.10. The input is not validated and elements
+ * which have no counterpart in the model (site info, uploads, log items,
+ * etc.) are skipped.
+ *
+ * If a DumpRevisionHandler is given, revisions are not collected in their
+ * page but handed to the handler as soon as they were read. Their text is
+ * then read into a buffer which is reused for all revisions.
+ */
+final class StaxPageReader
+{
+	private static final BigInteger NO_PARENT_ID = new BigInteger("-1");
+
+	private static final int INITIAL_TEXT_BUFFER_SIZE = 64 * 1024;
+
+	private final XMLStreamReader reader;
+
+	private final DumpReaderListener listener;
+
+	private final DumpRevisionHandler revisionHandler;
+
+	private final DatatypeFactory datatypeFactory;
+
+	private final boolean hasNamespace;
+
+	private final boolean hasRedirectTitle;
+
+	private final boolean hasParentId;
+
+	private final boolean hasSha1;
+
+	private final boolean hasContentModel;
+
+	private final boolean wikitextOnly;
+
+	private char[] textBuffer;
+
+	private int textLength;
+
+	private boolean hasText;
+
+	// =========================================================================
+
+	public StaxPageReader(
+			ExportSchemaVersion version,
+			XMLStreamReader reader,
+			DumpReaderListener listener)
+	{
+		this(version, reader, listener, null);
+	}
+
+	public StaxPageReader(
+			ExportSchemaVersion version,
+			XMLStreamReader reader,
+			DumpReaderListener listener,
+			DumpRevisionHandler revisionHandler)
+	{
+		this.reader = reader;
+		this.listener = listener;
+		this.revisionHandler = revisionHandler;
+
+		try
+		{
+			this.datatypeFactory = DatatypeFactory.newInstance();
+		}
+		catch (DatatypeConfigurationException e)
+		{
+			throw new WrappedException(e);
+		}
+
+		int v = version.ordinal() - ExportSchemaVersion.V0_5.ordinal();
+		this.hasNamespace = v >= 1;
+		this.hasRedirectTitle = v >= 1;
+		this.hasSha1 = v >= 1;
+		this.hasParentId = v >= 2;
+		this.hasContentModel = v >= 3;
+		this.wikitextOnly = (version == ExportSchemaVersion.V0_8)
+				|| (version == ExportSchemaVersion.V0_9);
+	}
+
+	// =========================================================================
+
+	/**
+	 * Reads all pages. The listener is called with the model objects. The
+	 * mediaWiki argument of DumpReaderListener.handlePage() is always null.
+	 */
+	public void read() throws XMLStreamException
+	{
+		while (reader.hasNext())
+		{
+			if (reader.next() != XMLStreamConstants.START_ELEMENT)
+				continue;
+
+			String name = reader.getLocalName();
+			if (name.equals("page"))
+				readPage();
+			else if (!name.equals("mediawiki"))
+				skipElement();
+		}
+	}
+
+	// =========================================================================
+
+	private void readPage() throws XMLStreamException
+	{
+		BigInteger id = null;
+		BigInteger namespace = null;
+		String title = null;
+		String redirectTitle = null;
+
+		List<Revision> revisions = new ArrayList<Revision>();
+		Page page = null;
+
+		while (nextChild())
+		{
+			String name = reader.getLocalName();
+			if (name.equals("title"))
+			{
+				title = reader.getElementText();
+			}
+			else if (name.equals("ns") && hasNamespace)
+			{
+				namespace = readInteger();
+			}
+			else if (name.equals("id"))
+			{
+				id = readInteger();
+			}
+			else if (name.equals("redirect"))
+			{
+				redirectTitle = hasRedirectTitle ? reader.getAttributeValue(null, "title") : "";
+				skipElement();
+			}
+			else if (name.equals("revision"))
+			{
+				// The page's header elements always precede its revisions
+				if (page == null)
+					page = new Page(id, namespace, title, redirectTitle, revisions);
+
+				Revision revision = readRevision();
+				if (revisionHandler != null)
+					handleRevision(page, revision);
+				else if (listener.handleRevisionOrUploadOrLogitem(page, revision))
+					revisions.add(revision);
+			}
+			else
+			{
+				skipElement();
+			}
+		}
+
+		if (page == null)
+			page = new Page(id, namespace, title, redirectTitle, revisions);
+
+		listener.handlePage(null, page);
+	}
+
+	private void handleRevision(Page page, Revision revision)
+	{
+		RevisionText text = hasText ? new RevisionText(textBuffer, textLength) : null;
+		try
+		{
+			revisionHandler.handleRevision(page, revision, text);
+		}
+		finally
+		{
+			if (text != null)
+				text.release();
+		}
+	}
+
+	private Revision readRevision() throws XMLStreamException
+	{
+		BigInteger id = null;
+		BigInteger parentId = hasParentId ? null : NO_PARENT_ID;
+		DateTime timestamp = null;
+		boolean minor = false;
+		Contributor contributor = null;
+		String contributorIp = null;
+		String commentText = null;
+		boolean commentDeleted = false;
+		String text = null;
+		boolean textDeleted = false;
+		String sha1 = null;
+		String format = null;
+		String model = null;
+
+		hasText = false;
+		textLength = 0;
+
+		while (nextChild())
+		{
+			String name = reader.getLocalName();
+			if (name.equals("id"))
+			{
+				id = readInteger();
+			}
+			else if (name.equals("parentid") && hasParentId)
+			{
+				parentId = readInteger();
+			}
+			else if (name.equals("timestamp"))
+			{
+				timestamp = readTimestamp();
+			}
+			else if (name.equals("contributor"))
+			{
+				boolean deleted = isDeleted();
+				BigInteger contributorId = null;
+				String username = null;
+				String ip = null;
+				while (nextChild())
+				{
+					String field = reader.getLocalName();
+					if (field.equals("username"))
+						username = reader.getElementText();
+					else if (field.equals("id"))
+						contributorId = readInteger();
+					else if (field.equals("ip"))
+						ip = reader.getElementText();
+					else
+						skipElement();
+				}
+
+				if (ip == null)
+					contributor = new Contributor(contributorId, deleted, username);
+				else
+					contributorIp = ip;
+			}
+			else if (name.equals("minor"))
+			{
+				minor = true;
+				skipElement();
+			}
+			else if (name.equals("comment"))
+			{
+				commentDeleted = isDeleted();
+				commentText = reader.getElementText();
+			}
+			else if (name.equals("text"))
+			{
+				textDeleted = isDeleted();
+				if (revisionHandler != null)
+					readTextIntoBuffer();
+				else
+					text = reader.getElementText();
+			}
+			else if (name.equals("sha1") && hasSha1)
+			{
+				sha1 = reader.getElementText();
+			}
+			else if (name.equals("format") && hasContentModel)
+			{
+				format = reader.getElementText();
+			}
+			else if (name.equals("model") && hasContentModel)
+			{
+				model = reader.getElementText();
+			}
+			else
+			{
+				skipElement();
+			}
+		}
+
+		if (wikitextOnly)
+		{
+			if (!"text/x-wiki".equalsIgnoreCase(format))
+				throw new UnsupportedDumpFormat("revision/format = " + format);
+
+			if (!"wikitext".equalsIgnoreCase(model))
+				throw new UnsupportedDumpFormat("revision/model = " + model);
+		}
+
+		return new Revision(
+				id,
+				parentId,
+				timestamp,
+				minor,
+				contributor,
+				contributorIp,
+				commentText,
+				commentDeleted,
+				text,
+				sha1,
+				textDeleted,
+				format,
+				model);
+	}
+
+	// =========================================================================
+
+	private BigInteger readInteger() throws XMLStreamException
+	{
+		String value = reader.getElementText().trim();
+		try
+		{
+			return new BigInteger(value);
+		}
+		catch (NumberFormatException e)
+		{
+			throw new XMLStreamException("Not an integer: " + value, reader.getLocation(), e);
+		}
+	}
+
+	/**
+	 * Converts the timestamp the same way the JAXB binding and the
+	 * DumpConverter do it.
+	 */
+	private DateTime readTimestamp() throws XMLStreamException
+	{
+		String value = reader.getElementText().trim();
+		try
+		{
+			return new DateTime(datatypeFactory.newXMLGregorianCalendar(value).toGregorianCalendar());
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new XMLStreamException("Not a timestamp: " + value, reader.getLocation(), e);
+		}
+	}
+
+	/**
+	 * Reads the content of the current element into the text buffer without
+	 * creating intermediate strings.
+	 */
+	private void readTextIntoBuffer() throws XMLStreamException
+	{
+		if (textBuffer == null)
+			textBuffer = new char[INITIAL_TEXT_BUFFER_SIZE];
+
+		hasText = true;
+		textLength = 0;
+		while (true)
+		{
+			switch (reader.next())
+			{
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+					appendText(
+							reader.getTextCharacters(),
+							reader.getTextStart(),
+							reader.getTextLength());
+					break;
+				case XMLStreamConstants.ENTITY_REFERENCE:
+					String replacement = reader.getText();
+					appendText(replacement.toCharArray(), 0, replacement.length());
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					return;
+				case XMLStreamConstants.START_ELEMENT:
+					throw new XMLStreamException("Unexpected element in text", reader.getLocation());
+				case XMLStreamConstants.END_DOCUMENT:
+					throw new XMLStreamException("Unexpected end of document", reader.getLocation());
+				default:
+					break;
+			}
+		}
+	}
+
+	private void appendText(char[] chars, int start, int length)
+	{
+		int required = textLength + length;
+		if (required > textBuffer.length)
+		{
+			char[] grown = new char[Math.max(required, textBuffer.length * 2)];
+			System.arraycopy(textBuffer, 0, grown, 0, textLength);
+			textBuffer = grown;
+		}
+		System.arraycopy(chars, start, textBuffer, textLength, length);
+		textLength = required;
+	}
+
+	private boolean isDeleted()
+	{
+		return "deleted".equals(reader.getAttributeValue(null, "deleted"));
+	}
+
+	/**
+	 * Advances to the next child element of the current element.
+	 *
+	 * @return False if the end tag of the current element was reached.
+	 */
+	private boolean nextChild() throws XMLStreamException
+	{
+		while (true)
+		{
+			switch (reader.next())
+			{
+				case XMLStreamConstants.START_ELEMENT:
+					return true;
+				case XMLStreamConstants.END_ELEMENT:
+					return false;
+				case XMLStreamConstants.END_DOCUMENT:
+					throw new XMLStreamException("Unexpected end of document", reader.getLocation());
+				default:
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Skips the current element including all its children.
+	 */
+	private void skipElement() throws XMLStreamException
+	{
+		int depth = 1;
+		while (depth > 0)
+		{
+			switch (reader.next())
+			{
+				case XMLStreamConstants.START_ELEMENT:
+					++depth;
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					--depth;
+					break;
+				case XMLStreamConstants.END_DOCUMENT:
+					throw new XMLStreamException("Unexpected end of document", reader.getLocation());
+				default:
+					break;
+			}
+		}
+	}
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.dumpreader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestDeltaRevisionStore
+{
+	private static final String TEXT =
+			"'''Lorem ipsum''' dolor sit amet, consectetur adipisici elit, sed "
+					+ "eiusmod tempor incidunt ut labore et dolore magna aliqua.\n\n"
+					+ "== Section ==\nUt enim ad minim veniam, quis nostrud exercitation "
+					+ "ullamco laboris nisi ut aliquid ex ea commodi consequat.\n";
+
+	@Test
+	public void testEditsAreStoredAsDeltas() throws Exception
+	{
+		DeltaRevisionStore store = new DeltaRevisionStore();
+
+		List<String> texts = new ArrayList<String>();
+		String text = TEXT;
+		for (int i = 1; i <= 10; ++i)
+		{
+			text = text.replace("Section", "Section " + i);
+			texts.add(text);
+			store.put(i, i - 1, "sha" + i, text);
+		}
+
+		for (int i = 1; i <= 10; ++i)
+			assertEquals(texts.get(i - 1), store.get(i));
+
+		assertEquals(10, store.getRevisionCount());
+		assertEquals(1, store.getFullCount());
+		assertEquals(9, store.getDeltaCount());
+		assertEquals(0, store.getDuplicateCount());
+		assertTrue(store.getCompressionRatio() < 0.2);
+	}
+
+	@Test
+	public void testRevertsAreStoredAsDuplicates() throws Exception
+	{
+		DeltaRevisionStore store = new DeltaRevisionStore();
+
+		store.put(1, -1, "a", TEXT);
+		store.put(2, 1, "b", "vandalism");
+		store.put(3, 2, "a", TEXT);
+		store.put(4, 3, "c", TEXT + "more");
+
+		assertEquals(TEXT, store.get(1));
+		assertEquals("vandalism", store.get(2));
+		assertEquals(TEXT, store.get(3));
+		assertEquals(TEXT + "more", store.get(4));
+
+		assertEquals(1, store.getDuplicateCount());
+		assertEquals(1, store.getDeltaCount());
+		assertEquals(0.25, store.getDedupRatio(), 0.);
+	}
+
+	@Test
+	public void testChainLengthIsLimited() throws Exception
+	{
+		DeltaRevisionStore store = new DeltaRevisionStore(2);
+
+		String text = TEXT;
+		for (int i = 1; i <= 7; ++i)
+		{
+			text += i;
+			store.put(i, i - 1, null, text);
+		}
+
+		assertEquals(3, store.getFullCount());
+		assertEquals(4, store.getDeltaCount());
+		assertEquals(TEXT + "1234567", store.get(7));
+		assertEquals(TEXT + "12345", store.get(5));
+	}
+
+	@Test
+	public void testUnknownRevisions() throws Exception
+	{
+		DeltaRevisionStore store = new DeltaRevisionStore();
+
+		store.put(1, 42, null, TEXT);
+		assertTrue(store.contains(1));
+		assertFalse(store.contains(42));
+		assertNull(store.get(42));
+		assertEquals(1, store.getFullCount());
+
+		store.clear();
+		assertFalse(store.contains(1));
+		assertNull(store.get(1));
+	}
+}
@@ -0,0 +1,348 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.dumpreader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.sweble.wikitext.dumpreader.model.Page;
+
+public class TestDumpIndex
+{
+	private static final int PAGES = 250;
+
+	private static final int PAGES_PER_STREAM = 100;
+
+	private static final String HEADER = ""
+			+ "<mediawiki xmlns=\"http://www.mediawiki.org/xml/export-0.10/\" version=\"0.10\" xml:lang=\"en\">\n"
+			+ "  <siteinfo>\n"
+			+ "    <sitename>Wikipedia</sitename>\n"
+			+ "  </siteinfo>\n";
+
+	private static final String FOOTER = "</mediawiki>\n";
+
+	// =========================================================================
+
+	@Test
+	public void testPagesOfUncompressedDumpAreFoundByTitleAndId() throws Exception
+	{
+		File dump = createFile(".xml");
+		write(dump, (HEADER + pages(0, PAGES) + FOOTER).getBytes("UTF-8"));
+
+		DumpIndex index = DumpIndex.build(dump, createFile(".idx"));
+		try
+		{
+			checkIndex(index);
+		}
+		finally
+		{
+			index.close();
+		}
+	}
+
+	@Test
+	public void testPagesOfMultistreamDumpAreFoundByTitleAndId() throws Exception
+	{
+		File dump = createFile(".xml.bz2");
+		writeMultistreamDump(dump, null);
+
+		DumpIndex index = DumpIndex.build(dump, createFile(".idx"));
+		try
+		{
+			checkIndex(index);
+		}
+		finally
+		{
+			index.close();
+		}
+	}
+
+	@Test
+	public void testIndexCanBeBuiltFromMultistreamIndexFile() throws Exception
+	{
+		File dump = createFile(".xml.bz2");
+		StringBuilder multistreamIndex = new StringBuilder();
+		writeMultistreamDump(dump, multistreamIndex);
+
+		File multistreamIndexFile = createFile(".txt");
+		write(multistreamIndexFile, multistreamIndex.toString().getBytes("UTF-8"));
+
+		DumpIndex index = DumpIndex.build(dump, multistreamIndexFile, createFile(".idx"));
+		try
+		{
+			checkIndex(index);
+		}
+		finally
+		{
+			index.close();
+		}
+	}
+
+	@Test
+	public void testPersistedIndexIsReopened() throws Exception
+	{
+		File dump = createFile(".xml.bz2");
+		writeMultistreamDump(dump, null);
+
+		File indexFile = createFile(".idx");
+		indexFile.delete();
+
+		DumpIndex.openOrBuild(dump, indexFile).close();
+		long lastModified = indexFile.lastModified();
+
+		DumpIndex index = DumpIndex.openOrBuild(dump, indexFile);
+		try
+		{
+			assertEquals(lastModified, indexFile.lastModified());
+			checkIndex(index);
+		}
+		finally
+		{
+			index.close();
+		}
+	}
+
+	@Test
+	public void testUncompressedDumpCanBeReadFromResumeOffset() throws Exception
+	{
+		File dump = createFile(".xml");
+		write(dump, (HEADER + pages(0, PAGES) + FOOTER).getBytes("UTF-8"));
+
+		DumpIndex index = DumpIndex.build(dump, createFile(".idx"));
+		try
+		{
+			List<String> titles = readFrom(index, index.getResumeOffset(id(150)), 1);
+			assertEquals(PAGES - 150, titles.size());
+			assertEquals(title(150), titles.get(0));
+			assertEquals(title(PAGES - 1), titles.get(titles.size() - 1));
+
+			assertEquals(-1, index.getResumeOffset(-1));
+		}
+		finally
+		{
+			index.close();
+		}
+	}
+
+	@Test
+	public void testMultistreamDumpCanBeReadFromResumeOffset() throws Exception
+	{
+		File dump = createFile(".xml.bz2");
+		writeMultistreamDump(dump, null);
+
+		DumpIndex index = DumpIndex.build(dump, createFile(".idx"));
+		try
+		{
+			// Reading starts with the first page of the stream
+			for (int threads = 1; threads <= 2; ++threads)
+			{
+				List<String> titles = readFrom(index, index.getResumeOffset(id(150)), threads);
+				assertEquals(PAGES - 100, titles.size());
+				assertEquals(title(100), titles.get(0));
+				assertEquals(title(PAGES - 1), titles.get(titles.size() - 1));
+			}
+
+			assertEquals(PAGES, readFrom(index, 0, 1).size());
+		}
+		finally
+		{
+			index.close();
+		}
+	}
+
+	// =========================================================================
+
+	private static List<String> readFrom(DumpIndex index, long offset, int threads) throws Exception
+	{
+		final List<String> titles = new ArrayList<String>();
+
+		InputStream in = index.openFrom(offset, threads);
+		DumpReader reader = new DumpReader(
+				in,
+				null,
+				"resumed.xml.bz2",
+				LoggerFactory.getLogger(TestDumpIndex.class),
+				false,
+				1,
+				true,
+				true,
+				offset)
+		{
+			@Override
+			protected void processPage(Object mediaWiki, Object page)
+			{
+				titles.add(((Page) page).getTitle());
+			}
+		};
+
+		try
+		{
+			reader.unmarshal();
+		}
+		finally
+		{
+			reader.close();
+		}
+
+		return titles;
+	}
+
+	private static void checkIndex(DumpIndex index) throws Exception
+	{
+		assertEquals(ExportSchemaVersion.V0_10, index.getSchemaVersion());
+		assertEquals(PAGES, index.size());
+
+		for (int i = 0; i < PAGES; ++i)
+		{
+			Page byTitle = index.getPage(title(i));
+			assertEquals(title(i), byTitle.getTitle());
+			assertEquals(BigInteger.valueOf(id(i)), byTitle.getId());
+			assertEquals(text(i), byTitle.getRevisions().get(0).getText());
+
+			Page byId = index.getPage(id(i));
+			assertEquals(title(i), byId.getTitle());
+		}
+
+		assertFalse(index.contains("Missing"));
+		assertNull(index.getPage("Missing"));
+		assertNull(index.getPage(-1));
+
+		Map<String, Page> pages = index.getPages(Arrays.asList(
+				title(200), "Missing", title(1), title(101)));
+		assertEquals(3, pages.size());
+		assertTrue(pages.containsKey(title(1)));
+		assertEquals(BigInteger.valueOf(id(101)), pages.get(title(101)).getId());
+	}
+
+	private static String title(int i)
+	{
+		return (i % 7 == 0) ? "Page " + i + " & Co" : "Page " + i;
+	}
+
+	private static long id(int i)
+	{
+		return 1000 - i;
+	}
+
+	private static String text(int i)
+	{
+		return "Text of <page> " + i;
+	}
+
+	private static String pages(int from, int to)
+	{
+		StringBuilder b = new StringBuilder();
+		for (int i = from; i < to; ++i)
+		{
+			b.append("  <page>\n");
+			b.append("    <title>").append(escape(title(i))).append("</title>\n");
+			b.append("    <ns>0</ns>\n");
+			b.append("    <id>").append(id(i)).append("</id>\n");
+			b.append("    <revision>\n");
+			b.append("      <id>").append(5000 + i).append("</id>\n");
+			b.append("      <timestamp>2012-05-21T11:11:11Z</timestamp>\n");
+			b.append("      <contributor>\n");
+			b.append("        <username>USERNAME</username>\n");
+			b.append("        <id>1</id>\n");
+			b.append("      </contributor>\n");
+			b.append("      <model>wikitext</model>\n");
+			b.append("      <format>text/x-wiki</format>\n");
+			b.append("      <text xml:space=\"preserve\">").append(escape(text(i))).append("</text>\n");
+			b.append("      <sha1>abcdfeghijklmnopqrstuvwxyz01234</sha1>\n");
+			b.append("    </revision>\n");
+			b.append("  </page>\n");
+		}
+		return b.toString();
+	}
+
+	private static String escape(String text)
+	{
+		return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+	}
+
+	/**
+	 * Writes the header, the footer and every PAGES_PER_STREAM pages into
+	 * separate bzip2 streams like the multistream dumps do.
+	 */
+	private static void writeMultistreamDump(File dump, StringBuilder multistreamIndex) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(compress(HEADER));
+		for (int i = 0; i < PAGES; i += PAGES_PER_STREAM)
+		{
+			int to = Math.min(PAGES, i + PAGES_PER_STREAM);
+			if (multistreamIndex != null)
+			{
+				for (int j = i; j < to; ++j)
+				{
+					multistreamIndex.append(out.size()).append(':').append(id(j))
+							.append(':').append(escape(title(j))).append('\n');
+				}
+			}
+			out.write(compress(pages(i, to)));
+		}
+		out.write(compress(FOOTER));
+
+		write(dump, out.toByteArray());
+	}
+
+	private static byte[] compress(String text) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BZip2CompressorOutputStream bz2 = new BZip2CompressorOutputStream(out);
+		bz2.write(text.getBytes("UTF-8"));
+		bz2.close();
+		return out.toByteArray();
+	}
+
+	private static File createFile(String suffix) throws IOException
+	{
+		File file = File.createTempFile("dump-index-", suffix);
+		file.deleteOnExit();
+		return file;
+	}
+
+	private static void write(File file, byte[] content) throws IOException
+	{
+		FileOutputStream out = new FileOutputStream(file);
+		try
+		{
+			out.write(content);
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.dumpreader;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class TestParallelBZip2InputStream
+{
+	private static final int STREAMS = 50;
+
+	@Test
+	public void testMultistreamInputIsDecompressedInOrder() throws Exception
+	{
+		String[] parts = makeParts();
+
+		byte[] decompressed = decompress(multistream(parts), true, 4 * 1024);
+
+		assertArrayEquals(join(parts).getBytes("UTF-8"), decompressed);
+	}
+
+	@Test
+	public void testUnorderedOutputKeepsHeaderFirstAndFooterLast() throws Exception
+	{
+		String[] parts = makeParts();
+
+		String decompressed = new String(decompress(multistream(parts), false, 4 * 1024), "UTF-8");
+
+		assertTrue(decompressed.startsWith(parts[0]));
+		assertTrue(decompressed.endsWith(parts[parts.length - 1]));
+
+		String[] expectedLines = join(parts).split("\n");
+		String[] actualLines = decompressed.split("\n");
+		Arrays.sort(expectedLines);
+		Arrays.sort(actualLines);
+		assertArrayEquals(expectedLines, actualLines);
+	}
+
+	@Test
+	public void testSingleStreamInputIsDecompressedSequentially() throws Exception
+	{
+		String text = join(makeParts());
+
+		byte[] decompressed = decompress(compress(text), true, 1024);
+
+		assertEquals(text, new String(decompressed, "UTF-8"));
+	}
+
+	// =========================================================================
+
+	private static String[] makeParts()
+	{
+		String[] parts = new String[STREAMS + 2];
+		parts[0] = "<mediawiki>\n";
+		for (int i = 1; i <= STREAMS; ++i)
+		{
+			StringBuilder b = new StringBuilder();
+			for (int j = 0; j < 100; ++j)
+			{
+				b.append("<page>").append(i * 100 + j);
+				for (int k = 0; k < (i * 31 + j * 17) % 200; ++k)
+					b.append(' ').append(Integer.toHexString(i * k + j));
+				b.append("</page>\n");
+			}
+			parts[i] = b.toString();
+		}
+		parts[STREAMS + 1] = "</mediawiki>\n";
+		return parts;
+	}
+
+	private static String join(String[] parts)
+	{
+		StringBuilder b = new StringBuilder();
+		for (String part : parts)
+			b.append(part);
+		return b.toString();
+	}
+
+	private static byte[] multistream(String[] parts) throws Exception
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (String part : parts)
+			out.write(compress(part));
+		return out.toByteArray();
+	}
+
+	private static byte[] compress(String text) throws Exception
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BZip2CompressorOutputStream bz2 = new BZip2CompressorOutputStream(out);
+		bz2.write(text.getBytes("UTF-8"));
+		bz2.close();
+		return out.toByteArray();
+	}
+
+	private static byte[] decompress(
+			byte[] compressed,
+			boolean preserveOrder,
+			int chunkSize) throws Exception
+	{
+		InputStream in = new ParallelBZip2InputStream(
+				new ByteArrayInputStream(compressed),
+				3,
+				preserveOrder,
+				chunkSize);
+		try
+		{
+			return IOUtils.toByteArray(in);
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+}
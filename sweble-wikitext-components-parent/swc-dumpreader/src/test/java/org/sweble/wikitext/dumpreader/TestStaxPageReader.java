@@ -0,0 +1,251 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.dumpreader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sweble.wikitext.dumpreader.model.DumpConverter;
+import org.sweble.wikitext.dumpreader.model.Page;
+import org.sweble.wikitext.dumpreader.model.Revision;
+
+import de.fau.cs.osr.utils.StringTools;
+
+public class TestStaxPageReader
+{
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	@Test
+	public void testExport_0_5() throws Exception
+	{
+		compare("/input-0.5.xml");
+	}
+
+	@Test
+	public void testExport_0_6() throws Exception
+	{
+		compare("/input-0.6.xml");
+	}
+
+	@Test
+	public void testExport_0_8() throws Exception
+	{
+		compare("/input-0.8.xml");
+	}
+
+	@Test
+	public void testExport_0_9() throws Exception
+	{
+		compare("/input-0.9.xml");
+	}
+
+	@Test
+	public void testExport_0_10() throws Exception
+	{
+		compare("/input-0.10.xml");
+	}
+
+	@Test
+	public void testRevisionsAreStreamedWithoutBeingRetained() throws Exception
+	{
+		StringBuilder dump = new StringBuilder();
+		dump.append("<mediawiki xmlns=\"http://www.mediawiki.org/xml/export-0.10/\" version=\"0.10\">\n");
+		dump.append("  <page>\n");
+		dump.append("    <title>TITLE</title>\n");
+		dump.append("    <ns>0</ns>\n");
+		dump.append("    <id>10</id>\n");
+		for (int i = 1; i <= 3; ++i)
+		{
+			dump.append("    <revision>\n");
+			dump.append("      <id>").append(i).append("</id>\n");
+			dump.append("      <timestamp>2012-05-21T11:11:11Z</timestamp>\n");
+			dump.append("      <model>wikitext</model>\n");
+			dump.append("      <format>text/x-wiki</format>\n");
+			dump.append("      <text xml:space=\"preserve\">Revision &lt;").append(i).append("&gt;<![CDATA[ & more]]></text>\n");
+			dump.append("      <sha1>abc</sha1>\n");
+			dump.append("    </revision>\n");
+		}
+		dump.append("    <revision>\n");
+		dump.append("      <id>4</id>\n");
+		dump.append("      <text deleted=\"deleted\" />\n");
+		dump.append("    </revision>\n");
+		dump.append("  </page>\n");
+		dump.append("</mediawiki>\n");
+
+		final List<String> texts = new ArrayList<String>();
+		final List<RevisionText> views = new ArrayList<RevisionText>();
+		final List<Page> pages = new ArrayList<Page>();
+
+		DumpRevisionHandler handler = new DumpRevisionHandler()
+		{
+			@Override
+			public void handleRevision(Page page, Revision revision, RevisionText text)
+			{
+				assertEquals("TITLE", page.getTitle());
+				assertTrue(page.getRevisions().isEmpty());
+				assertNull(revision.getText());
+				assertEquals("abc".equals(revision.getTextSha1()), !revision.isTextDeleted());
+
+				try
+				{
+					StringWriter w = new StringWriter();
+					IOUtils.copy(text.getReader(), w);
+					assertEquals(text.toString(), w.toString());
+				}
+				catch (Exception e)
+				{
+					throw new AssertionError(e);
+				}
+
+				texts.add(revision.getId() + ":" + text);
+				views.add(text);
+			}
+
+			@Override
+			public void handlePage(Page page)
+			{
+				pages.add(page);
+			}
+		};
+
+		DumpReaderWithHandler dr = new DumpReaderWithHandler(
+				new ByteArrayInputStream(dump.toString().getBytes("UTF-8")),
+				null,
+				handler,
+				"dump.xml",
+				logger,
+				1,
+				true);
+		try
+		{
+			dr.unmarshal();
+		}
+		finally
+		{
+			dr.close();
+		}
+
+		assertEquals(1, pages.size());
+		assertTrue(pages.get(0).getRevisions().isEmpty());
+		assertEquals(1, dr.getParsedCount());
+
+		assertEquals(4, texts.size());
+		assertEquals("1:Revision <1> & more", texts.get(0));
+		assertEquals("3:Revision <3> & more", texts.get(2));
+		assertEquals("4:", texts.get(3));
+
+		try
+		{
+			views.get(0).length();
+			fail("Revision text must not be accessible after the handler returned");
+		}
+		catch (IllegalStateException e)
+		{
+		}
+	}
+
+	// =========================================================================
+
+	/**
+	 * Reading a dump into the model must yield the same pages as binding it
+	 * to the JAXB types and converting those.
+	 */
+	private void compare(String resource) throws Exception
+	{
+		List<String> expected = read(resource, false);
+		List<String> actual = read(resource, true);
+
+		assertFalse(expected.isEmpty());
+		assertEquals(expected, actual);
+	}
+
+	private List<String> read(String resource, final boolean readModel) throws Exception
+	{
+		URL url = getClass().getResource(resource);
+		File file = new File(StringTools.decodeUsingDefaultCharset(url.getFile()));
+
+		final List<String> pages = new ArrayList<String>();
+		final DumpConverter converter = new DumpConverter();
+
+		InputStream is = new FileInputStream(file);
+		try
+		{
+			DumpReader dr = new DumpReader(
+					is,
+					null,
+					file.getAbsolutePath(),
+					logger,
+					false,
+					1,
+					true,
+					readModel)
+			{
+				@Override
+				protected void processPage(Object mediaWiki, Object page)
+				{
+					Page p;
+					if (readModel)
+					{
+						assertNull(mediaWiki);
+						p = (Page) page;
+					}
+					else
+					{
+						p = converter.convertPage(page);
+					}
+
+					StringBuilder b = new StringBuilder(p.toString());
+					for (Revision r : p.getRevisions())
+						b.append(", format=").append(r.getFormat()).append(", model=").append(r.getModel());
+					pages.add(b.toString());
+				}
+			};
+
+			try
+			{
+				dr.unmarshal();
+			}
+			finally
+			{
+				dr.close();
+			}
+		}
+		finally
+		{
+			is.close();
+		}
+
+		return pages;
+	}
+}
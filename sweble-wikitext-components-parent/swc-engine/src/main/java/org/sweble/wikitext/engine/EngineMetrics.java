@@ -0,0 +1,136 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.engine;
+
+import org.sweble.wikitext.parser.nodes.WtNode;
+
+/**
+ * Receives measurements from the engine. All methods do nothing by default.
+ * Override the ones you are interested in.
+ *
+ * The engine calls a listener from whatever thread is processing a page. An
+ * implementation must therefore be thread-safe if it is shared between
+ * multiple engine instances. Methods are called synchronously and should
+ * return quickly.
+ *
+ * Stages are also reported for pages which are pulled in for transclusion.
+ * All times are given in nanoseconds.
+ */
+public abstract class EngineMetrics
+{
+	/**
+	 * A listener which ignores all measurements. While it is installed the
+	 * expansion process does not time templates and parser functions.
+	 */
+	public static final EngineMetrics NONE = new EngineMetrics()
+	{
+	};
+
+	// =========================================================================
+
+	public static enum Stage
+	{
+		VALIDATION,
+		PREPROCESSING,
+		EXPANSION,
+		PARSING,
+		POSTPROCESSING
+	}
+
+	// =========================================================================
+
+	/**
+	 * A stage is about to process a page.
+	 */
+	public void stageStarted(Stage stage, PageTitle title)
+	{
+	}
+
+	/**
+	 * A stage finished processing a page.
+	 * 
+	 * @param inputSize
+	 *            The number of characters the stage was given or -1 if the
+	 *            stage received an AST.
+	 * @param result
+	 *            The AST produced by the stage or null if the stage does not
+	 *            produce an AST (validation).
+	 */
+	public void stageCompleted(
+			Stage stage,
+			PageTitle title,
+			int inputSize,
+			WtNode result,
+			long timeNeeded)
+	{
+	}
+
+	/**
+	 * A stage failed. The failure will be reported to the caller of the
+	 * engine as EngineException.
+	 */
+	public void stageFailed(
+			Stage stage,
+			PageTitle title,
+			long timeNeeded,
+			Throwable cause)
+	{
+	}
+
+	/**
+	 * A template was transcluded. The time includes the expansion of
+	 * templates and parser functions nested inside the transcluded page.
+	 * 
+	 * @param target
+	 *            The title of the transcluded page or null if the target of
+	 *            the transclusion is not a valid title or if
+	 *            {@link #isTransclusionTargetNeeded()} returns false.
+	 * @param success
+	 *            False if the page was not found or its expansion failed.
+	 */
+	public void transclusionResolved(
+			PageTitle target,
+			long timeNeeded,
+			boolean success)
+	{
+	}
+
+	/**
+	 * Whether {@link #transclusionResolved} needs the title of the
+	 * transcluded page. Making the title costs a normalization for every
+	 * transclusion, which listeners that do not track templates individually
+	 * can avoid by returning false.
+	 */
+	public boolean isTransclusionTargetNeeded()
+	{
+		return true;
+	}
+
+	/**
+	 * A parser function or magic word was invoked.
+	 * 
+	 * @param success
+	 *            False if the parser function threw an exception.
+	 */
+	public void parserFunctionResolved(
+			String name,
+			long timeNeeded,
+			boolean success)
+	{
+	}
+}
@@ -57,6 +57,13 @@ public class ExpansionFrame
 
 	private ExpansionVisitor expansionVisitor;
 
+	/**
+	 * Counts how often the expansion depended on the current date and time or
+	 * on the title of the page being rendered. Only maintained by the root
+	 * frame.
+	 */
+	private int uncacheableCount = 0;
+
 	// FIXME: That should have been initialized from a request!
 	//        And only once for the whole expansion process!
 	private UrlService urlService = new UrlService();
@@ -208,6 +215,20 @@ public class ExpansionFrame
 		return urlService;
 	}
 
+	/**
+	 * Records that the result of the current expansion depends on the date
+	 * and time or on the page being rendered and must not be cached.
+	 */
+	public void markUncacheable()
+	{
+		rootFrame.uncacheableCount++;
+	}
+
+	public int getUncacheableCount()
+	{
+		return rootFrame.uncacheableCount;
+	}
+
 	// =========================================================================
 
 	public WtNode expand(WtNode ppAst) throws ExpansionException
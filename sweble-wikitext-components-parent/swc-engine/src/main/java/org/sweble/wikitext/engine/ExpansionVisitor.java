@@ -27,8 +27,14 @@ import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.sweble.wikitext.engine.config.Namespace;
 import org.sweble.wikitext.engine.config.WikiConfig;
+import org.sweble.wikitext.engine.ext.core.CorePfnVariablesDateAndTime;
+import org.sweble.wikitext.engine.ext.core.CorePfnVariablesNamespaces;
+import org.sweble.wikitext.engine.ext.core.CorePfnVariablesPageNames;
+import org.sweble.wikitext.engine.ext.parser_functions.ParserFunctionTime;
 import org.sweble.wikitext.engine.nodes.EngLogContainer;
 import org.sweble.wikitext.engine.nodes.EngLogMagicWordResolution;
 import org.sweble.wikitext.engine.nodes.EngLogParameterResolution;
@@ -39,6 +45,7 @@ import org.sweble.wikitext.engine.nodes.EngLogTransclusionResolution;
 import org.sweble.wikitext.engine.nodes.EngNode;
 import org.sweble.wikitext.engine.nodes.EngProcessedPage;
 import org.sweble.wikitext.engine.nodes.EngineNodeFactory;
+import org.sweble.wikitext.engine.utils.CanonicalAstWriter;
 import org.sweble.wikitext.engine.utils.EngineAstTextUtils;
 import org.sweble.wikitext.parser.WikitextWarning.WarningSeverity;
 import org.sweble.wikitext.parser.nodes.WtName;
@@ -66,6 +73,8 @@ public final class ExpansionVisitor
 		extends
 			NodeTypeEngVisitor
 {
+	private static final Logger logger = LoggerFactory.getLogger(ExpansionVisitor.class);
+
 	private static final Pattern STARTS_WITH_BLOCK_ELEMENT =
 			Pattern.compile("^(\\{\\||:|;|#|\\*)");
 
@@ -83,6 +92,8 @@ public final class ExpansionVisitor
 
 	private final boolean catchAll;
 
+	private final EngineMetrics metrics;
+
 	private final EngineNodeFactory nf;
 
 	private final EngineAstTextUtils tu;
@@ -103,6 +114,7 @@ public final class ExpansionVisitor
 		this.hooks = hooks;
 		this.timingEnabled = timingEnabled;
 		this.catchAll = catchAll;
+		this.metrics = expFrame.getEngine().getEngineMetrics();
 		this.nf = expFrame.getWikiConfig().getNodeFactory();
 		this.tu = expFrame.getWikiConfig().getAstTextUtils();
 	}
@@ -653,7 +665,13 @@ public final class ExpansionVisitor
 			stopWatch.start();
 		}
 
+		long startTime = (metrics != EngineMetrics.NONE) ? System.nanoTime() : 0;
+
+		if (isTimeOrPageDependent(pfn))
+			expFrame.markUncacheable();
+
 		WtNode result = null;
+		boolean success = false;
 		try
 		{
 			result = pfn.invoke(n, expFrame, argsValues);
@@ -664,6 +682,7 @@ public final class ExpansionVisitor
 				result = treatBlockElements(n, result);
 
 			log.setSuccess(true);
+			success = true;
 		}
 		catch (Exception e)
 		{
@@ -679,6 +698,9 @@ public final class ExpansionVisitor
 		{
 			if (timingEnabled && log != null)
 				log.setTimeNeeded(stopWatch.getElapsedTime());
+
+			if (metrics != EngineMetrics.NONE)
+				reportParserFunction(pfn.getId(), System.nanoTime() - startTime, success);
 		}
 
 		return (hooks != null) ?
@@ -721,10 +743,14 @@ public final class ExpansionVisitor
 			stopWatch.start();
 		}
 
+		long startTime = (metrics != EngineMetrics.NONE) ? System.nanoTime() : 0;
+
 		WtNode result = null;
+		boolean success = false;
 		try
 		{
 			result = transcludePage(n, title, args, log);
+			success = (result != null && result != n);
 		}
 		catch (Exception e)
 		{
@@ -740,6 +766,9 @@ public final class ExpansionVisitor
 		{
 			if (timingEnabled && log != null)
 				log.setTimeNeeded(stopWatch.getElapsedTime());
+
+			if (metrics != EngineMetrics.NONE)
+				reportTransclusion(title, System.nanoTime() - startTime, success);
 		}
 
 		return (hooks != null) ?
@@ -747,6 +776,51 @@ public final class ExpansionVisitor
 				result;
 	}
 
+	private void reportParserFunction(String name, long timeNeeded, boolean success)
+	{
+		try
+		{
+			metrics.parserFunctionResolved(name, timeNeeded, success);
+		}
+		catch (RuntimeException e)
+		{
+			logger.warn("Engine metrics listener failed!", e);
+		}
+	}
+
+	/**
+	 * Reports a transclusion under the normalized title of its target so that
+	 * different spellings of the same template are counted together. The
+	 * title is only made if the listener needs it.
+	 */
+	private void reportTransclusion(String target, long timeNeeded, boolean success)
+	{
+		try
+		{
+			PageTitle title = null;
+			if (metrics.isTransclusionTargetNeeded())
+			{
+				try
+				{
+					title = PageTitle.make(
+							getWikiConfig(),
+							target,
+							getWikiConfig().getTemplateNamespace());
+				}
+				catch (LinkTargetException e)
+				{
+					// Reported without title
+				}
+			}
+
+			metrics.transclusionResolved(title, timeNeeded, success);
+		}
+		catch (RuntimeException e)
+		{
+			logger.warn("Engine metrics listener failed!", e);
+		}
+	}
+
 	/**
 	 * Expands the name of the template, the template parameters and then
 	 * preprocesses and expands the page to transclude.
@@ -789,15 +863,41 @@ public final class ExpansionVisitor
 			// EXPANDS ARGUMENTS!
 			Map<String, WtNodeList> tmplArgs = prepareTransclusionArguments(args, log);
 
-			EngProcessedPage processedPage = getEngine().preprocessAndExpand(
-					expFrame.getCallback(),
-					page.getId(),
-					page.getText(),
-					true,
-					expFrame.getEntityMap(),
-					tmplArgs,
-					expFrame.getRootFrame(),
-					expFrame);
+			TransclusionResultCache resultCache =
+					getEngine().getTransclusionResultCache();
+
+			// The arguments end up in the expanded AST and could be altered by
+			// the following expansion steps. Take the key before that.
+			String argsKey = null;
+			if (resultCache != null)
+				argsKey = CanonicalAstWriter.write(tmplArgs);
+
+			EngProcessedPage processedPage = null;
+			if (argsKey != null)
+				processedPage = resultCache.get(page.getId(), argsKey);
+
+			if (processedPage == null)
+			{
+				int uncacheableCount = expFrame.getUncacheableCount();
+				int entityCount = expFrame.getEntityMap().getMap().size();
+
+				processedPage = getEngine().preprocessAndExpand(
+						expFrame.getCallback(),
+						page.getId(),
+						page.getText(),
+						true,
+						expFrame.getEntityMap(),
+						tmplArgs,
+						expFrame.getRootFrame(),
+						expFrame);
+
+				if (argsKey != null &&
+						uncacheableCount == expFrame.getUncacheableCount() &&
+						entityCount == expFrame.getEntityMap().getMap().size())
+				{
+					resultCache.put(page.getId(), argsKey, processedPage);
+				}
+			}
 
 			log.setSuccess(true);
 
@@ -827,7 +927,11 @@ public final class ExpansionVisitor
 			if (f.getTitle().equals(title))
 			{
 				if (++count > 2)
+				{
+					// Whether we recurse depends on the frames above us
+					expFrame.markUncacheable();
 					throw new RecursiveTransclusionException(title, count);
+				}
 			}
 
 			f = f.getParentFrame();
@@ -900,6 +1004,23 @@ public final class ExpansionVisitor
 		return transclArgs;
 	}
 
+	/**
+	 * Returns true if the result of the parser function depends on the
+	 * current date and time or on the title of the page being rendered. The
+	 * result of a transclusion that calls such a parser function cannot be
+	 * cached.
+	 */
+	static boolean isTimeOrPageDependent(ParserFunctionBase pfn)
+	{
+		if (pfn instanceof ParserFunctionTime)
+			return true;
+
+		Class<?> group = pfn.getClass().getEnclosingClass();
+		return (group == CorePfnVariablesDateAndTime.class) ||
+				(group == CorePfnVariablesPageNames.class) ||
+				(group == CorePfnVariablesNamespaces.class);
+	}
+
 	// =========================================================================
 	// ==
 	// ==  T e m p l a t e  P a r a m e t e r
@@ -0,0 +1,556 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.engine;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sweble.wikitext.engine.config.WikiConfig;
+import org.sweble.wikitext.engine.nodes.EngProcessedPage;
+import org.sweble.wikitext.parser.ParallelWikitextParser;
+import org.sweble.wikitext.parser.nodes.WtPreproWikitextPage;
+
+import de.fau.cs.osr.utils.WrappedException;
+
+/**
+ * An engine whose settings are fixed at construction time. Unlike a
+ * {@link WtEngineImpl}, which may be reconfigured at any time, an instance of
+ * this class can be shared freely between threads. The wiki configuration and
+ * the caches are shared by all threads. Caches, debug hooks, metrics
+ * listeners and expansion callbacks must therefore be thread-safe (the LRU
+ * caches of this package and InProcessEngineMetrics are).
+ * 
+ * Use the {@link Builder} to create an instance and
+ * {@link #processAll(Iterator, ExpansionCallback, int)} to process many pages
+ * in parallel.
+ */
+public final class ImmutableWtEngine
+{
+	/**
+	 * How many pages per worker thread are submitted ahead of the consumer.
+	 */
+	private static final int PAGES_IN_FLIGHT_PER_THREAD = 2;
+
+	private static final AtomicInteger batchCount = new AtomicInteger();
+
+	// =========================================================================
+
+	/**
+	 * Never leaves this class and is not modified after construction.
+	 */
+	private final WtEngineImpl engine;
+
+	// =========================================================================
+
+	private ImmutableWtEngine(Builder b)
+	{
+		WtEngineImpl engine = new WtEngineImpl(b.wikiConfig);
+		engine.setDebugHooks(b.hooks);
+		engine.setPreprocessedPageCache(b.ppCache);
+		engine.setTransclusionResultCache(b.resultCache);
+		engine.setParallelParser(b.parallelParser);
+		engine.setEngineMetrics(b.metrics);
+		engine.setNoRedirect(b.noRedirect);
+		engine.setTimingEnabled(b.timingEnabled);
+		engine.setCatchAll(b.catchAll);
+
+		// Assigning the final field publishes the settings to all threads
+		this.engine = engine;
+	}
+
+	// =========================================================================
+
+	public WikiConfig getWikiConfig()
+	{
+		return engine.getWikiConfig();
+	}
+
+	public ExpansionDebugHooks getDebugHooks()
+	{
+		return engine.getDebugHooks();
+	}
+
+	public PreprocessedPageCache getPreprocessedPageCache()
+	{
+		return engine.getPreprocessedPageCache();
+	}
+
+	public TransclusionResultCache getTransclusionResultCache()
+	{
+		return engine.getTransclusionResultCache();
+	}
+
+	public ParallelWikitextParser getParallelParser()
+	{
+		return engine.getParallelParser();
+	}
+
+	public EngineMetrics getEngineMetrics()
+	{
+		return engine.getEngineMetrics();
+	}
+
+	public boolean isNoRedirect()
+	{
+		return engine.isNoRedirect();
+	}
+
+	public boolean isTimingEnabled()
+	{
+		return engine.isTimingEnabled();
+	}
+
+	public boolean isCatchAll()
+	{
+		return engine.isCatchAll();
+	}
+
+	// =========================================================================
+
+	/**
+	 * @see WtEngine#preprocess(PageId, String, boolean, ExpansionCallback)
+	 */
+	public EngProcessedPage preprocess(
+			PageId pageId,
+			String wikitext,
+			boolean forInclusion,
+			ExpansionCallback callback)
+			throws EngineException
+	{
+		return engine.preprocess(pageId, wikitext, forInclusion, callback);
+	}
+
+	/**
+	 * @see WtEngine#expand(PageId, String, boolean, ExpansionCallback)
+	 */
+	public EngProcessedPage expand(
+			PageId pageId,
+			String wikitext,
+			boolean forInclusion,
+			ExpansionCallback callback)
+			throws EngineException
+	{
+		return engine.expand(pageId, wikitext, forInclusion, callback);
+	}
+
+	/**
+	 * @see WtEngine#parse(PageId, String, ExpansionCallback)
+	 */
+	public EngProcessedPage parse(
+			PageId pageId,
+			String wikitext,
+			ExpansionCallback callback)
+			throws EngineException
+	{
+		return engine.parse(pageId, wikitext, callback);
+	}
+
+	/**
+	 * @see WtEngine#postprocess(PageId, String, ExpansionCallback)
+	 */
+	public EngProcessedPage postprocess(
+			PageId pageId,
+			String wikitext,
+			ExpansionCallback callback)
+			throws EngineException
+	{
+		return engine.postprocess(pageId, wikitext, callback);
+	}
+
+	/**
+	 * @see WtEngine#postprocessPpOrExpAst(PageId, WtPreproWikitextPage)
+	 */
+	public EngProcessedPage postprocessPpOrExpAst(
+			PageId pageId,
+			WtPreproWikitextPage pprAst)
+			throws EngineException
+	{
+		return engine.postprocessPpOrExpAst(pageId, pprAst);
+	}
+
+	// =========================================================================
+
+	/**
+	 * Runs all stages from validation to postprocessing on many pages in
+	 * parallel.
+	 * 
+	 * Pages are taken from the input as worker threads become available. Only
+	 * the consumer thread reads the input. Results are returned in the order
+	 * in which the pages were finished, not in input order. Failures are
+	 * reported as part of the result and do not stop the batch.
+	 * 
+	 * The worker threads are shut down when the last result was retrieved or
+	 * when the returned iterator is closed. Always close the iterator if you
+	 * stop consuming results early.
+	 * 
+	 * @param pages
+	 *            The pages to process.
+	 * @param callback
+	 *            The callback used to retrieve pages for transclusion. It is
+	 *            called from multiple threads concurrently. Pass null to skip
+	 *            expansion.
+	 * @param parallelism
+	 *            The number of worker threads.
+	 */
+	public ResultIterator processAll(
+			Iterator<PageInput> pages,
+			ExpansionCallback callback,
+			int parallelism)
+	{
+		if (pages == null)
+			throw new NullPointerException();
+
+		if (parallelism < 1)
+			throw new IllegalArgumentException("Parallelism must be at least 1!");
+
+		return new ResultIterator(pages, callback, parallelism);
+	}
+
+	// =========================================================================
+
+	/**
+	 * A page to be processed by the batch API.
+	 */
+	public static final class PageInput
+	{
+		private final PageId pageId;
+
+		private final String wikitext;
+
+		public PageInput(PageId pageId, String wikitext)
+		{
+			if (pageId == null || wikitext == null)
+				throw new NullPointerException();
+
+			this.pageId = pageId;
+			this.wikitext = wikitext;
+		}
+
+		public PageId getPageId()
+		{
+			return pageId;
+		}
+
+		public String getWikitext()
+		{
+			return wikitext;
+		}
+	}
+
+	// =========================================================================
+
+	/**
+	 * The outcome of processing a page with the batch API. Either the page or
+	 * the error is null.
+	 */
+	public static final class PageResult
+	{
+		private final PageInput input;
+
+		private final EngProcessedPage page;
+
+		private final EngineException error;
+
+		private PageResult(
+				PageInput input,
+				EngProcessedPage page,
+				EngineException error)
+		{
+			this.input = input;
+			this.page = page;
+			this.error = error;
+		}
+
+		public PageInput getInput()
+		{
+			return input;
+		}
+
+		public EngProcessedPage getPage()
+		{
+			return page;
+		}
+
+		public EngineException getError()
+		{
+			return error;
+		}
+
+		public boolean isSuccess()
+		{
+			return error == null;
+		}
+	}
+
+	// =========================================================================
+
+	/**
+	 * Hands out results in completion order. Not thread-safe: the results of
+	 * a batch must be consumed by one thread.
+	 */
+	public final class ResultIterator
+			implements
+				Iterator<PageResult>,
+				Closeable
+	{
+		private final Iterator<PageInput> pages;
+
+		private final ExpansionCallback callback;
+
+		private final int maxInFlight;
+
+		private final ExecutorService executor;
+
+		private final CompletionService<PageResult> completionService;
+
+		private int inFlight = 0;
+
+		private boolean closed = false;
+
+		private ResultIterator(
+				Iterator<PageInput> pages,
+				ExpansionCallback callback,
+				int parallelism)
+		{
+			this.pages = pages;
+			this.callback = callback;
+			this.maxInFlight = parallelism * PAGES_IN_FLIGHT_PER_THREAD;
+
+			this.executor = Executors.newFixedThreadPool(
+					parallelism,
+					new WorkerThreadFactory(batchCount.incrementAndGet()));
+
+			this.completionService =
+					new ExecutorCompletionService<PageResult>(executor);
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			if (closed)
+				return false;
+
+			submitPages();
+
+			if (inFlight == 0)
+			{
+				close();
+				return false;
+			}
+
+			return true;
+		}
+
+		@Override
+		public PageResult next()
+		{
+			if (!hasNext())
+				throw new NoSuchElementException();
+
+			try
+			{
+				PageResult result = completionService.take().get();
+				--inFlight;
+				return result;
+			}
+			catch (InterruptedException e)
+			{
+				close();
+				Thread.currentThread().interrupt();
+				throw new WrappedException(e);
+			}
+			catch (ExecutionException e)
+			{
+				close();
+				throw new WrappedException(e.getCause());
+			}
+		}
+
+		@Override
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * Stops the worker threads. Pages which are currently being processed
+		 * are abandoned.
+		 */
+		@Override
+		public void close()
+		{
+			if (!closed)
+			{
+				closed = true;
+				executor.shutdownNow();
+			}
+		}
+
+		private void submitPages()
+		{
+			while (inFlight < maxInFlight && pages.hasNext())
+			{
+				final PageInput input = pages.next();
+
+				completionService.submit(new Callable<PageResult>()
+				{
+					@Override
+					public PageResult call() throws Exception
+					{
+						try
+						{
+							EngProcessedPage page = engine.postprocess(
+									input.getPageId(),
+									input.getWikitext(),
+									callback);
+
+							return new PageResult(input, page, null);
+						}
+						catch (EngineException e)
+						{
+							return new PageResult(input, null, e);
+						}
+					}
+				});
+
+				++inFlight;
+			}
+		}
+	}
+
+	// =========================================================================
+
+	private static final class WorkerThreadFactory
+			implements
+				ThreadFactory
+	{
+		private final String prefix;
+
+		private final AtomicInteger threadCount = new AtomicInteger();
+
+		public WorkerThreadFactory(int batch)
+		{
+			this.prefix = "ImmutableWtEngine-batch-" + batch + "-worker-";
+		}
+
+		@Override
+		public Thread newThread(Runnable r)
+		{
+			Thread t = new Thread(r, prefix + threadCount.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+
+	// =========================================================================
+
+	/**
+	 * Collects the settings of an {@link ImmutableWtEngine}. The defaults
+	 * equal those of a freshly created {@link WtEngineImpl}.
+	 */
+	public static final class Builder
+	{
+		private final WikiConfig wikiConfig;
+
+		private ExpansionDebugHooks hooks;
+
+		private PreprocessedPageCache ppCache;
+
+		private TransclusionResultCache resultCache;
+
+		private ParallelWikitextParser parallelParser;
+
+		private EngineMetrics metrics = EngineMetrics.NONE;
+
+		private boolean noRedirect = false;
+
+		private boolean timingEnabled = false;
+
+		private boolean catchAll = true;
+
+		public Builder(WikiConfig wikiConfig)
+		{
+			if (wikiConfig == null)
+				throw new NullPointerException();
+
+			this.wikiConfig = wikiConfig;
+		}
+
+		public Builder setDebugHooks(ExpansionDebugHooks hooks)
+		{
+			this.hooks = hooks;
+			return this;
+		}
+
+		public Builder setPreprocessedPageCache(PreprocessedPageCache ppCache)
+		{
+			this.ppCache = ppCache;
+			return this;
+		}
+
+		public Builder setTransclusionResultCache(TransclusionResultCache resultCache)
+		{
+			this.resultCache = resultCache;
+			return this;
+		}
+
+		public Builder setParallelParser(ParallelWikitextParser parallelParser)
+		{
+			this.parallelParser = parallelParser;
+			return this;
+		}
+
+		public Builder setEngineMetrics(EngineMetrics metrics)
+		{
+			this.metrics = metrics;
+			return this;
+		}
+
+		public Builder setNoRedirect(boolean noRedirect)
+		{
+			this.noRedirect = noRedirect;
+			return this;
+		}
+
+		public Builder setTimingEnabled(boolean timingEnabled)
+		{
+			this.timingEnabled = timingEnabled;
+			return this;
+		}
+
+		public Builder setCatchAll(boolean catchAll)
+		{
+			this.catchAll = catchAll;
+			return this;
+		}
+
+		public ImmutableWtEngine build()
+		{
+			return new ImmutableWtEngine(this);
+		}
+	}
+}
@@ -0,0 +1,429 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.engine;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sweble.wikitext.engine.utils.Histogram;
+import org.sweble.wikitext.parser.nodes.WtNode;
+
+/**
+ * Aggregates the measurements of one or more engines in memory so that they
+ * can be scraped periodically. Thread-safe.
+ * 
+ * For every stage the following is recorded:
+ * <ul>
+ * <li>Counters: completed and failed runs</li>
+ * <li>Gauge: runs currently in progress</li>
+ * <li>Histograms: time needed, input size (characters) and number of nodes in
+ * the resulting AST</li>
+ * </ul>
+ * For all transclusions together and for every parser function a histogram
+ * of the time needed and a counter of failures are recorded. Metrics for
+ * individual templates are only recorded if enabled. They are keyed by the
+ * normalized title of the template and limited to a maximum number of
+ * templates. Transclusions of further templates and of invalid titles are
+ * recorded as untracked.
+ */
+public class InProcessEngineMetrics
+		extends
+			EngineMetrics
+{
+	private final boolean countNodes;
+
+	private final int maxTrackedTransclusions;
+
+	private final Map<Stage, StageMetrics> stages;
+
+	private final ExpansionMetrics transclusionTotal = new ExpansionMetrics();
+
+	private final ExpansionMetrics untrackedTransclusions = new ExpansionMetrics();
+
+	private final AtomicInteger trackedTransclusions = new AtomicInteger();
+
+	private final ConcurrentMap<String, ExpansionMetrics> transclusions =
+			new ConcurrentHashMap<String, ExpansionMetrics>();
+
+	private final ConcurrentMap<String, ExpansionMetrics> parserFunctions =
+			new ConcurrentHashMap<String, ExpansionMetrics>();
+
+	// =========================================================================
+
+	public InProcessEngineMetrics()
+	{
+		this(true);
+	}
+
+	public InProcessEngineMetrics(boolean countNodes)
+	{
+		this(countNodes, 0);
+	}
+
+	/**
+	 * @param countNodes
+	 *            Counting the nodes of an AST requires a traversal of the
+	 *            whole AST after each stage. Pass false to save that time.
+	 * @param maxTrackedTransclusions
+	 *            The maximum number of templates for which individual metrics
+	 *            are recorded. Pass 0 to only record the total.
+	 */
+	public InProcessEngineMetrics(boolean countNodes, int maxTrackedTransclusions)
+	{
+		if (maxTrackedTransclusions < 0)
+			throw new IllegalArgumentException("Maximum number of tracked transclusions must not be negative!");
+
+		this.countNodes = countNodes;
+		this.maxTrackedTransclusions = maxTrackedTransclusions;
+
+		EnumMap<Stage, StageMetrics> stages =
+				new EnumMap<Stage, StageMetrics>(Stage.class);
+		for (Stage stage : Stage.values())
+			stages.put(stage, new StageMetrics());
+		this.stages = Collections.unmodifiableMap(stages);
+	}
+
+	// =========================================================================
+
+	@Override
+	public void stageStarted(Stage stage, PageTitle title)
+	{
+		stages.get(stage).inProgress.incrementAndGet();
+	}
+
+	@Override
+	public void stageCompleted(
+			Stage stage,
+			PageTitle title,
+			int inputSize,
+			WtNode result,
+			long timeNeeded)
+	{
+		StageMetrics m = stages.get(stage);
+		m.inProgress.decrementAndGet();
+		m.completed.incrementAndGet();
+		m.timeNeeded.record(timeNeeded);
+		if (inputSize >= 0)
+			m.inputSize.record(inputSize);
+		if (countNodes && result != null)
+			m.nodeCount.record(countNodes(result));
+	}
+
+	@Override
+	public void stageFailed(
+			Stage stage,
+			PageTitle title,
+			long timeNeeded,
+			Throwable cause)
+	{
+		StageMetrics m = stages.get(stage);
+		m.inProgress.decrementAndGet();
+		m.failed.incrementAndGet();
+		m.timeNeeded.record(timeNeeded);
+	}
+
+	@Override
+	public boolean isTransclusionTargetNeeded()
+	{
+		return maxTrackedTransclusions > 0;
+	}
+
+	@Override
+	public void transclusionResolved(
+			PageTitle target,
+			long timeNeeded,
+			boolean success)
+	{
+		transclusionTotal.record(timeNeeded, success);
+
+		if (maxTrackedTransclusions == 0)
+			return;
+
+		ExpansionMetrics m = null;
+		if (target != null)
+			m = getTracked(target.getNormalizedFullTitle());
+		if (m == null)
+			m = untrackedTransclusions;
+		m.record(timeNeeded, success);
+	}
+
+	@Override
+	public void parserFunctionResolved(
+			String name,
+			long timeNeeded,
+			boolean success)
+	{
+		get(parserFunctions, name).record(timeNeeded, success);
+	}
+
+	// =========================================================================
+
+	public StageMetrics getStage(Stage stage)
+	{
+		return stages.get(stage);
+	}
+
+	/**
+	 * @return The metrics of all transclusions.
+	 */
+	public ExpansionMetrics getTransclusionTotal()
+	{
+		return transclusionTotal;
+	}
+
+	/**
+	 * @return The metrics of transclusions which are not tracked individually
+	 *         because the maximum number of tracked templates was reached or
+	 *         because the target was not a valid title.
+	 */
+	public ExpansionMetrics getUntrackedTransclusions()
+	{
+		return untrackedTransclusions;
+	}
+
+	/**
+	 * @return A snapshot of the transclusion metrics sorted by the normalized
+	 *         title of the template.
+	 */
+	public Map<String, ExpansionMetrics> getTransclusions()
+	{
+		return Collections.unmodifiableMap(
+				new TreeMap<String, ExpansionMetrics>(transclusions));
+	}
+
+	/**
+	 * @return A snapshot of the parser function metrics sorted by name.
+	 */
+	public Map<String, ExpansionMetrics> getParserFunctions()
+	{
+		return Collections.unmodifiableMap(
+				new TreeMap<String, ExpansionMetrics>(parserFunctions));
+	}
+
+	public void reset()
+	{
+		for (StageMetrics m : stages.values())
+			m.reset();
+		transclusionTotal.reset();
+		untrackedTransclusions.reset();
+		transclusions.clear();
+		trackedTransclusions.set(0);
+		parserFunctions.clear();
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder b = new StringBuilder();
+		for (Entry<Stage, StageMetrics> e : stages.entrySet())
+			b.append(e.getKey()).append(":\n").append(e.getValue());
+		b.append("Transclusions: ").append(transclusionTotal).append('\n');
+		if (maxTrackedTransclusions > 0)
+		{
+			appendTo(b, "Tracked transclusions", getTransclusions());
+			b.append("Untracked transclusions: ").append(untrackedTransclusions).append('\n');
+		}
+		appendTo(b, "Parser functions", getParserFunctions());
+		return b.toString();
+	}
+
+	// =========================================================================
+
+	/**
+	 * @return The metrics of the given template or null if the template is
+	 *         not tracked yet and the maximum number of tracked templates was
+	 *         reached.
+	 */
+	private ExpansionMetrics getTracked(String title)
+	{
+		ExpansionMetrics m = transclusions.get(title);
+		if (m != null)
+			return m;
+
+		if (trackedTransclusions.incrementAndGet() > maxTrackedTransclusions)
+		{
+			trackedTransclusions.decrementAndGet();
+			return null;
+		}
+
+		ExpansionMetrics newM = new ExpansionMetrics();
+		m = transclusions.putIfAbsent(title, newM);
+		if (m != null)
+		{
+			// Another thread was faster
+			trackedTransclusions.decrementAndGet();
+			return m;
+		}
+		return newM;
+	}
+
+	private static ExpansionMetrics get(
+			ConcurrentMap<String, ExpansionMetrics> map,
+			String name)
+	{
+		ExpansionMetrics m = map.get(name);
+		if (m == null)
+		{
+			ExpansionMetrics newM = new ExpansionMetrics();
+			m = map.putIfAbsent(name, newM);
+			if (m == null)
+				m = newM;
+		}
+		return m;
+	}
+
+	private static void appendTo(
+			StringBuilder b,
+			String heading,
+			Map<String, ExpansionMetrics> map)
+	{
+		b.append(heading).append(":\n");
+		for (Entry<String, ExpansionMetrics> e : map.entrySet())
+			b.append("  ").append(e.getKey()).append(": ").append(e.getValue()).append('\n');
+	}
+
+	private static long countNodes(WtNode n)
+	{
+		long count = 1;
+		for (WtNode c : n)
+			count += countNodes(c);
+		return count;
+	}
+
+	// =========================================================================
+
+	public static final class StageMetrics
+	{
+		private final AtomicLong completed = new AtomicLong();
+
+		private final AtomicLong failed = new AtomicLong();
+
+		private final AtomicInteger inProgress = new AtomicInteger();
+
+		private final Histogram timeNeeded = new Histogram();
+
+		private final Histogram inputSize = new Histogram();
+
+		private final Histogram nodeCount = new Histogram();
+
+		public long getCompleted()
+		{
+			return completed.get();
+		}
+
+		public long getFailed()
+		{
+			return failed.get();
+		}
+
+		public int getInProgress()
+		{
+			return inProgress.get();
+		}
+
+		public Histogram getTimeNeeded()
+		{
+			return timeNeeded;
+		}
+
+		public Histogram getInputSize()
+		{
+			return inputSize;
+		}
+
+		public Histogram getNodeCount()
+		{
+			return nodeCount;
+		}
+
+		private void reset()
+		{
+			completed.set(0);
+			failed.set(0);
+			timeNeeded.reset();
+			inputSize.reset();
+			nodeCount.reset();
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format(
+					"  completed: %d, failed: %d, in progress: %d\n"
+							+ "  time needed (ns): %s\n"
+							+ "  input size: %s\n"
+							+ "  node count: %s\n",
+					getCompleted(),
+					getFailed(),
+					getInProgress(),
+					timeNeeded,
+					inputSize,
+					nodeCount);
+		}
+	}
+
+	// =========================================================================
+
+	public static final class ExpansionMetrics
+	{
+		private final AtomicLong failed = new AtomicLong();
+
+		private final Histogram timeNeeded = new Histogram();
+
+		private void record(long time, boolean success)
+		{
+			timeNeeded.record(time);
+			if (!success)
+				failed.incrementAndGet();
+		}
+
+		private void reset()
+		{
+			failed.set(0);
+			timeNeeded.reset();
+		}
+
+		public long getInvocations()
+		{
+			return timeNeeded.getCount();
+		}
+
+		public long getFailed()
+		{
+			return failed.get();
+		}
+
+		public Histogram getTimeNeeded()
+		{
+			return timeNeeded;
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format("failed: %d, time needed (ns): %s", getFailed(), timeNeeded);
+		}
+	}
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.engine;
+
+import org.sweble.wikitext.engine.utils.LruCache;
+import org.sweble.wikitext.parser.nodes.WtPreproWikitextPage;
+
+/**
+ * A thread-safe preprocessed page cache which holds at most a fixed number of
+ * pages and evicts the least recently used page when it is full.
+ */
+public class LruPreprocessedPageCache
+		implements
+			PreprocessedPageCache
+{
+	private final LruCache<Key, WtPreproWikitextPage> cache;
+
+	// =========================================================================
+
+	public LruPreprocessedPageCache(int capacity)
+	{
+		this.cache = new LruCache<Key, WtPreproWikitextPage>(capacity);
+	}
+
+	// =========================================================================
+
+	@Override
+	public WtPreproWikitextPage get(PageId pageId, boolean forInclusion)
+	{
+		return cache.get(new Key(pageId, forInclusion));
+	}
+
+	@Override
+	public void put(
+			PageId pageId,
+			boolean forInclusion,
+			WtPreproWikitextPage ppAst)
+	{
+		cache.put(new Key(pageId, forInclusion), ppAst);
+	}
+
+	public void clear()
+	{
+		cache.clear();
+	}
+
+	// =========================================================================
+
+	public int getCapacity()
+	{
+		return cache.getCapacity();
+	}
+
+	public int getSize()
+	{
+		return cache.getSize();
+	}
+
+	public long getHits()
+	{
+		return cache.getHits();
+	}
+
+	public long getMisses()
+	{
+		return cache.getMisses();
+	}
+
+	public long getEvictions()
+	{
+		return cache.getEvictions();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "LruPreprocessedPageCache(" + cache + ")";
+	}
+
+	// =========================================================================
+
+	private static final class Key
+	{
+		private final PageId pageId;
+
+		private final boolean forInclusion;
+
+		public Key(PageId pageId, boolean forInclusion)
+		{
+			if (pageId == null)
+				throw new NullPointerException();
+
+			this.pageId = pageId;
+			this.forInclusion = forInclusion;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + (forInclusion ? 1231 : 1237);
+			result = prime * result + pageId.hashCode();
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			Key other = (Key) obj;
+			if (forInclusion != other.forInclusion)
+				return false;
+			if (!pageId.equals(other.pageId))
+				return false;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.engine;
+
+import org.sweble.wikitext.engine.nodes.EngProcessedPage;
+import org.sweble.wikitext.engine.utils.LruCache;
+
+/**
+ * A thread-safe transclusion result cache which holds at most a fixed number
+ * of results and evicts the least recently used result when it is full.
+ * 
+ * Copying a result costs about as much as a deep clone of the transcluded
+ * page. Most transclusions with a given set of arguments happen only once,
+ * therefore a result is only stored when it is offered for the second time.
+ * Until then only its key is remembered.
+ */
+public class LruTransclusionResultCache
+		implements
+			TransclusionResultCache
+{
+	private final LruCache<Key, EngProcessedPage> cache;
+
+	private final LruCache<Key, Boolean> offered;
+
+	// =========================================================================
+
+	public LruTransclusionResultCache(int capacity)
+	{
+		this.cache = new LruCache<Key, EngProcessedPage>(capacity);
+		this.offered = new LruCache<Key, Boolean>(capacity);
+	}
+
+	// =========================================================================
+
+	@Override
+	public EngProcessedPage get(PageId pageId, String arguments)
+	{
+		EngProcessedPage result = cache.get(new Key(pageId, arguments));
+		if (result == null)
+			return null;
+		return (EngProcessedPage) result.deepCloneWrapException();
+	}
+
+	@Override
+	public void put(PageId pageId, String arguments, EngProcessedPage result)
+	{
+		Key key = new Key(pageId, arguments);
+		if (offered.get(key) == null)
+		{
+			offered.put(key, Boolean.TRUE);
+			return;
+		}
+
+		cache.put(key, (EngProcessedPage) result.deepCloneWrapException());
+	}
+
+	public void clear()
+	{
+		cache.clear();
+		offered.clear();
+	}
+
+	// =========================================================================
+
+	public int getCapacity()
+	{
+		return cache.getCapacity();
+	}
+
+	public int getSize()
+	{
+		return cache.getSize();
+	}
+
+	public long getHits()
+	{
+		return cache.getHits();
+	}
+
+	public long getMisses()
+	{
+		return cache.getMisses();
+	}
+
+	public long getEvictions()
+	{
+		return cache.getEvictions();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "LruTransclusionResultCache(" + cache + ")";
+	}
+
+	// =========================================================================
+
+	private static final class Key
+	{
+		private final PageId pageId;
+
+		private final String arguments;
+
+		public Key(PageId pageId, String arguments)
+		{
+			if (pageId == null || arguments == null)
+				throw new NullPointerException();
+
+			this.pageId = pageId;
+			this.arguments = arguments;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + arguments.hashCode();
+			result = prime * result + pageId.hashCode();
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			Key other = (Key) obj;
+			if (!pageId.equals(other.pageId))
+				return false;
+			if (!arguments.equals(other.arguments))
+				return false;
+			return true;
+		}
+	}
+}
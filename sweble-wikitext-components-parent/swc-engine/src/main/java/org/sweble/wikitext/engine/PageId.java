@@ -43,4 +43,44 @@ public class PageId
 	{
 		return revision;
 	}
+
+	// =========================================================================
+
+	@Override
+	public int hashCode()
+	{
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + (int) (revision ^ (revision >>> 32));
+		result = prime * result + ((title == null) ? 0 : title.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		PageId other = (PageId) obj;
+		if (revision != other.revision)
+			return false;
+		if (title == null)
+		{
+			if (other.title != null)
+				return false;
+		}
+		else if (!title.equals(other.title))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "PageId(" + title + ", " + revision + ")";
+	}
 }
@@ -0,0 +1,45 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.engine;
+
+import org.sweble.wikitext.parser.nodes.WtPreproWikitextPage;
+
+/**
+ * Caches pages that were pulled in for transclusion or redirection after they
+ * have been validated and preprocessed but before they are expanded.
+ *
+ * The engine never modifies a page that it handed to or retrieved from the
+ * cache. Instead it expands a deep copy of the cached AST. An implementation
+ * must be thread-safe if it is shared between multiple engine instances.
+ */
+public interface PreprocessedPageCache
+{
+	/**
+	 * Retrieves a preprocessed page.
+	 *
+	 * @return The cached AST or null if no page was cached under the given
+	 *         page id and inclusion mode.
+	 */
+	WtPreproWikitextPage get(PageId pageId, boolean forInclusion);
+
+	/**
+	 * Stores a preprocessed page. The AST will not be altered by the engine
+	 * afterwards.
+	 */
+	void put(PageId pageId, boolean forInclusion, WtPreproWikitextPage ppAst);
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.engine;
+
+import org.sweble.wikitext.engine.nodes.EngProcessedPage;
+
+/**
+ * Caches the fully expanded result of a transclusion. Results are keyed by
+ * the transcluded page and the expanded arguments that were passed to it.
+ * The arguments are given as canonical string (see
+ * {@link org.sweble.wikitext.engine.utils.CanonicalAstWriter}), so that
+ * equal arguments written at different places are found.
+ *
+ * The engine only stores results of expansions which did not depend on the
+ * current date and time or the title of the page being rendered. The engine
+ * modifies the results it hands to and retrieves from the cache. An
+ * implementation therefore has to copy a result if it keeps it and has to
+ * return a copy of a stored result. An implementation must be thread-safe if
+ * it is shared between multiple engine instances.
+ */
+public interface TransclusionResultCache
+{
+	/**
+	 * Retrieves the result of a transclusion.
+	 * 
+	 * @return A copy of the cached result or null if the page was not yet
+	 *         transcluded with the given arguments.
+	 */
+	EngProcessedPage get(PageId pageId, String arguments);
+
+	/**
+	 * Offers the result of a transclusion to the cache. The result will be
+	 * modified by the engine after this call returns.
+	 */
+	void put(PageId pageId, String arguments, EngProcessedPage result);
+}
@@ -27,6 +27,12 @@ public interface WtEngine
 
 	public void setDebugHooks(ExpansionDebugHooks hooks);
 
+	public void setPreprocessedPageCache(PreprocessedPageCache ppCache);
+
+	public void setTransclusionResultCache(TransclusionResultCache resultCache);
+
+	public void setEngineMetrics(EngineMetrics metrics);
+
 	public void setNoRedirect(boolean noRedirect);
 
 	public void setTimingEnabled(boolean timingEnabled);
@@ -37,6 +43,12 @@ public interface WtEngine
 
 	public ExpansionDebugHooks getDebugHooks();
 
+	public PreprocessedPageCache getPreprocessedPageCache();
+
+	public TransclusionResultCache getTransclusionResultCache();
+
+	public EngineMetrics getEngineMetrics();
+
 	public boolean isNoRedirect();
 
 	public boolean isTimingEnabled();
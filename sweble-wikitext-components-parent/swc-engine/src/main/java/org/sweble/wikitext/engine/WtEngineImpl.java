@@ -28,6 +28,7 @@ import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sweble.wikitext.engine.EngineMetrics.Stage;
 import org.sweble.wikitext.engine.config.EngineConfig;
 import org.sweble.wikitext.engine.config.WikiConfig;
 import org.sweble.wikitext.engine.nodes.EngLogContainer;
@@ -37,8 +38,11 @@ import org.sweble.wikitext.engine.nodes.EngLogPostprocessorPass;
 import org.sweble.wikitext.engine.nodes.EngLogPreprocessorPass;
 import org.sweble.wikitext.engine.nodes.EngLogProcessingPass;
 import org.sweble.wikitext.engine.nodes.EngLogValidatorPass;
+import org.sweble.wikitext.engine.nodes.EngPage;
 import org.sweble.wikitext.engine.nodes.EngProcessedPage;
 import org.sweble.wikitext.engine.nodes.EngineNodeFactory;
+import org.sweble.wikitext.parser.IncrementalWikitextParser;
+import org.sweble.wikitext.parser.ParallelWikitextParser;
 import org.sweble.wikitext.parser.ParserConfig;
 import org.sweble.wikitext.parser.WikitextEncodingValidator;
 import org.sweble.wikitext.parser.WikitextParser;
@@ -47,7 +51,9 @@ import org.sweble.wikitext.parser.WikitextPreprocessor;
 import org.sweble.wikitext.parser.WtEntityMap;
 import org.sweble.wikitext.parser.WtEntityMapImpl;
 import org.sweble.wikitext.parser.encval.ValidatedWikitext;
+import org.sweble.wikitext.parser.nodes.WtNode;
 import org.sweble.wikitext.parser.nodes.WtNodeList;
+import org.sweble.wikitext.parser.nodes.WtPage;
 import org.sweble.wikitext.parser.nodes.WtParsedWikitextPage;
 import org.sweble.wikitext.parser.nodes.WtPreproWikitextPage;
 import org.sweble.wikitext.parser.parser.PreprocessorToParserTransformer;
@@ -56,6 +62,12 @@ import org.sweble.wikitext.parser.preprocessor.PreprocessedWikitext;
 import de.fau.cs.osr.ptk.common.Warning;
 import de.fau.cs.osr.utils.StopWatch;
 
+/**
+ * An engine may process multiple pages concurrently as long as its settings
+ * are not changed while pages are being processed and the settings were
+ * published safely to all threads. Prefer {@link ImmutableWtEngine} when
+ * sharing an engine between threads.
+ */
 public class WtEngineImpl
 		implements
 			WtEngine
@@ -70,8 +82,30 @@ public class WtEngineImpl
 
 	private EngineConfig engineConfig;
 
+	/**
+	 * The processing stages hold no per-page state and are shared by all
+	 * pages processed by this engine.
+	 */
+	private final WikitextEncodingValidator validator;
+
+	private final WikitextPreprocessor preprocessor;
+
+	private final WikitextParser parser;
+
+	private final WikitextPostprocessor postprocessor;
+
+	private final IncrementalWikitextParser incrementalParser;
+
 	private ExpansionDebugHooks hooks;
 
+	private PreprocessedPageCache ppCache;
+
+	private TransclusionResultCache resultCache;
+
+	private ParallelWikitextParser parallelParser;
+
+	private EngineMetrics metrics = EngineMetrics.NONE;
+
 	private boolean noRedirect = false;
 
 	private boolean timingEnabled = false;
@@ -86,6 +120,11 @@ public class WtEngineImpl
 		this.wikiConfig = wikiConfig;
 		this.parserConfig = wikiConfig.getParserConfig();
 		this.engineConfig = wikiConfig.getEngineConfig();
+		this.validator = new WikitextEncodingValidator();
+		this.preprocessor = new WikitextPreprocessor(parserConfig);
+		this.parser = new WikitextParser(parserConfig);
+		this.postprocessor = new WikitextPostprocessor(parserConfig);
+		this.incrementalParser = new IncrementalWikitextParser(parserConfig);
 	}
 
 	// =========================================================================
@@ -95,6 +134,37 @@ public class WtEngineImpl
 		this.hooks = hooks;
 	}
 
+	public void setPreprocessedPageCache(PreprocessedPageCache ppCache)
+	{
+		this.ppCache = ppCache;
+	}
+
+	public void setTransclusionResultCache(TransclusionResultCache resultCache)
+	{
+		this.resultCache = resultCache;
+	}
+
+	/**
+	 * @param parallelParser
+	 *            Parses large pages section by section on multiple threads
+	 *            after they have been preprocessed and expanded. Null to parse
+	 *            all pages on the calling thread.
+	 */
+	public void setParallelParser(ParallelWikitextParser parallelParser)
+	{
+		this.parallelParser = parallelParser;
+	}
+
+	/**
+	 * @param metrics
+	 *            The listener which receives measurements or null to stop
+	 *            reporting measurements.
+	 */
+	public void setEngineMetrics(EngineMetrics metrics)
+	{
+		this.metrics = (metrics != null) ? metrics : EngineMetrics.NONE;
+	}
+
 	public void setNoRedirect(boolean noRedirect)
 	{
 		this.noRedirect = noRedirect;
@@ -120,6 +190,26 @@ public class WtEngineImpl
 		return hooks;
 	}
 
+	public PreprocessedPageCache getPreprocessedPageCache()
+	{
+		return ppCache;
+	}
+
+	public TransclusionResultCache getTransclusionResultCache()
+	{
+		return resultCache;
+	}
+
+	public ParallelWikitextParser getParallelParser()
+	{
+		return parallelParser;
+	}
+
+	public EngineMetrics getEngineMetrics()
+	{
+		return metrics;
+	}
+
 	public boolean isNoRedirect()
 	{
 		return noRedirect;
@@ -377,6 +467,61 @@ public class WtEngineImpl
 				pAst.getWarnings());
 	}
 
+	/**
+	 * Updates a page that was processed by
+	 * {@link #parseAndPostprocess(PageId, String, ExpansionCallback)} after
+	 * its wikitext was edited. Only the top-level sections affected by the
+	 * edit are parsed again and spliced into the previous page. If the edit
+	 * cannot be applied incrementally the new wikitext is parsed and
+	 * postprocessed as a whole.
+	 * 
+	 * The previous page is modified and must not be used afterwards.
+	 * 
+	 * @param sections
+	 *            The offsets of the sections of the previous page. Pass the
+	 *            same object to every re-parse of a page.
+	 */
+	public EngProcessedPage reparseAndPostprocess(
+			PageId pageId,
+			EngProcessedPage previous,
+			IncrementalWikitextParser.SectionOffsets sections,
+			String previousWikitext,
+			String wikitext)
+			throws EngineException
+	{
+		if (pageId == null || previous == null || sections == null)
+			throw new NullPointerException();
+
+		PageTitle title = pageId.getTitle();
+
+		EngLogProcessingPass log = nf().logProcessingPass();
+		log.setTitle(title.getDenormalizedFullTitle());
+		log.setRevision(pageId.getRevision());
+
+		boolean updated;
+		try
+		{
+			updated = reparse(title, previous, sections, previousWikitext, wikitext, log);
+		}
+		catch (EngineException e)
+		{
+			e.attachLog(log);
+			throw e;
+		}
+		catch (Throwable e)
+		{
+			throw new EngineException(title, "Compilation failed!", e, log);
+		}
+
+		if (!updated)
+			return parseAndPostprocess(pageId, wikitext, null);
+
+		return nf().processedPage(
+				previous.getPage(),
+				log,
+				previous.getWarnings());
+	}
+
 	/**
 	 * Takes wikitext and parses the wikitext for viewing. The following steps
 	 * are performed:
@@ -520,14 +665,33 @@ public class WtEngineImpl
 		log.setTitle(title.getDenormalizedFullTitle());
 		log.setRevision(pageId.getRevision());
 
+		if (entityMap == null)
+			entityMap = new WtEntityMapImpl();
+
 		WtPreproWikitextPage pprAst;
 		try
 		{
-			ValidatedWikitext validatedWikitext =
-					validate(title, wikitext, log, entityMap);
+			WtPreproWikitextPage ppAst = null;
+			if (ppCache != null)
+				ppAst = retrieveCachedPpAst(pageId, forInclusion, entityMap);
 
-			WtPreproWikitextPage ppAst =
-					preprocess(title, validatedWikitext, forInclusion, log);
+			if (ppAst == null)
+			{
+				int entityCount = entityMap.getMap().size();
+
+				ValidatedWikitext validatedWikitext =
+						validate(title, wikitext, log, entityMap);
+
+				ppAst = preprocess(title, validatedWikitext, forInclusion, log);
+
+				/**
+				 * Entities registered by the validator are referenced by their
+				 * id in the entity map of the including page. An AST that
+				 * refers to such entities cannot be reused on another page.
+				 */
+				if (ppCache != null && entityMap.getMap().size() == entityCount)
+					cachePpAst(pageId, forInclusion, ppAst);
+			}
 
 			pprAst = expand(
 					callback,
@@ -609,6 +773,46 @@ public class WtEngineImpl
 
 	// =========================================================================
 
+	/**
+	 * Retrieves a preprocessed page from the cache and returns a copy of it
+	 * which can safely be expanded.
+	 */
+	private WtPreproWikitextPage retrieveCachedPpAst(
+			PageId pageId,
+			boolean forInclusion,
+			WtEntityMap entityMap)
+	{
+		WtPreproWikitextPage cached = ppCache.get(pageId, forInclusion);
+		if (cached == null)
+			return null;
+
+		WtPreproWikitextPage ppAst =
+				(WtPreproWikitextPage) cached.deepCloneWrapException();
+
+		ppAst.setEntityMap(entityMap);
+
+		return ppAst;
+	}
+
+	/**
+	 * Stores a pristine copy of a preprocessed page in the cache. The copy
+	 * must not hold on to the entity map of the page that included it.
+	 */
+	private void cachePpAst(
+			PageId pageId,
+			boolean forInclusion,
+			WtPreproWikitextPage ppAst)
+	{
+		WtPreproWikitextPage pristine =
+				(WtPreproWikitextPage) ppAst.deepCloneWrapException();
+
+		pristine.setEntityMap(WtPage.NO_ENTITIES);
+
+		ppCache.put(pageId, forInclusion, pristine);
+	}
+
+	// =========================================================================
+
 	/**
 	 * Validates wikitext.
 	 */
@@ -625,10 +829,10 @@ public class WtEngineImpl
 		StopWatch stopWatch = new StopWatch();
 		stopWatch.start();
 
+		long startTime = reportStarted(Stage.VALIDATION, title);
+
 		try
 		{
-			WikitextEncodingValidator validator = new WikitextEncodingValidator();
-
 			if (entityMap == null)
 				entityMap = new WtEntityMapImpl();
 
@@ -638,10 +842,14 @@ public class WtEngineImpl
 					title.getDenormalizedFullTitle(),
 					wikitext);
 
+			reportCompleted(Stage.VALIDATION, title, wikitext.length(), null, startTime);
+
 			return validatedWikitext;
 		}
 		catch (Exception e)
 		{
+			reportFailed(Stage.VALIDATION, title, startTime, e);
+
 			logger.error("Validation failed!", e);
 
 			StringWriter w = new StringWriter();
@@ -675,10 +883,10 @@ public class WtEngineImpl
 		StopWatch stopWatch = new StopWatch();
 		stopWatch.start();
 
+		long startTime = reportStarted(Stage.PREPROCESSING, title);
+
 		try
 		{
-			WikitextPreprocessor preprocessor = new WikitextPreprocessor(parserConfig);
-
 			/**
 			 * Entities generated and inserted into the source by the encoding
 			 * validator are recognized by the preprocessor parser and replaced
@@ -696,16 +904,27 @@ public class WtEngineImpl
 							title.getDenormalizedFullTitle(),
 							forInclusion);
 
+			reportCompleted(
+					Stage.PREPROCESSING,
+					title,
+					validatedWikitext.getLength(),
+					preprocessedAst,
+					startTime);
+
 			return preprocessedAst;
 		}
 		catch (xtc.parser.ParseException e)
 		{
+			reportFailed(Stage.PREPROCESSING, title, startTime, e);
+
 			log.add(nf().logParserError(e.getMessage()));
 
 			throw new EngineException(title, "Preprocessing failed!", e);
 		}
 		catch (Exception e)
 		{
+			reportFailed(Stage.PREPROCESSING, title, startTime, e);
+
 			logger.error("Preprocessing failed!", e);
 
 			StringWriter w = new StringWriter();
@@ -768,6 +987,8 @@ public class WtEngineImpl
 		StopWatch stopWatch = new StopWatch();
 		stopWatch.start();
 
+		long startTime = reportStarted(Stage.EXPANSION, title);
+
 		try
 		{
 			// Copy in case ppAst stores an immutable (empty) warning list.
@@ -814,10 +1035,14 @@ public class WtEngineImpl
 			if (!warnings.isEmpty())
 				ppAst.setWarnings(warnings);
 
+			reportCompleted(Stage.EXPANSION, title, -1, expanded, startTime);
+
 			return expanded;
 		}
 		catch (Exception e)
 		{
+			reportFailed(Stage.EXPANSION, title, startTime, e);
+
 			logger.error("Resolution failed!", e);
 
 			StringWriter w = new StringWriter();
@@ -848,25 +1073,105 @@ public class WtEngineImpl
 		StopWatch stopWatch = new StopWatch();
 		stopWatch.start();
 
+		long startTime = reportStarted(Stage.PARSING, title);
+
 		try
 		{
-			WikitextParser parser = new WikitextParser(parserConfig);
-
 			WtParsedWikitextPage parsedAst =
 					(WtParsedWikitextPage) parser.parseArticle(
 							wikitext,
 							title.getTitle());
 
+			reportCompleted(Stage.PARSING, title, wikitext.length(), parsedAst, startTime);
+
 			return parsedAst;
 		}
 		catch (xtc.parser.ParseException e)
 		{
+			reportFailed(Stage.PARSING, title, startTime, e);
+
+			log.add(nf().logParserError(e.getMessage()));
+
+			throw new EngineException(title, "Parsing failed!", e);
+		}
+		catch (Exception e)
+		{
+			reportFailed(Stage.PARSING, title, startTime, e);
+
+			logger.error("Parsing failed!", e);
+
+			StringWriter w = new StringWriter();
+			e.printStackTrace(new PrintWriter(w));
+			log.add(nf().logUnhandledError(e, w.toString()));
+
+			throw new EngineException(title, "Parsing failed!", e);
+		}
+		finally
+		{
+			stopWatch.stop();
+			log.setTimeNeeded(stopWatch.getElapsedTime());
+		}
+	}
+
+	/**
+	 * Parses the sections of a parsed and postprocessed page which were
+	 * affected by an edit.
+	 * 
+	 * @return False if the page has to be parsed as a whole.
+	 */
+	private boolean reparse(
+			PageTitle title,
+			EngProcessedPage previous,
+			IncrementalWikitextParser.SectionOffsets sections,
+			String previousWikitext,
+			String wikitext,
+			EngLogContainer parentLog)
+			throws EngineException
+	{
+		EngLogParserPass log = nf().logParserPass();
+		parentLog.add(log);
+
+		StopWatch stopWatch = new StopWatch();
+		stopWatch.start();
+
+		// The stage is only reported once its outcome is known. If the page
+		// has to be parsed as a whole, the full parse reports its own stages.
+		long startTime = (metrics == EngineMetrics.NONE) ? 0 : System.nanoTime();
+
+		try
+		{
+			EngPage page = previous.getPage();
+
+			boolean updated = incrementalParser.reparseInPlace(
+					page,
+					sections,
+					previous.getWarnings().isEmpty(),
+					previousWikitext,
+					wikitext,
+					title.getTitle());
+
+			if (updated)
+			{
+				reportStarted(Stage.PARSING, title);
+				reportCompleted(Stage.PARSING, title, wikitext.length(), page, startTime);
+			}
+
+			return updated;
+		}
+		catch (xtc.parser.ParseException e)
+		{
+			reportStarted(Stage.PARSING, title);
+			reportFailed(Stage.PARSING, title, startTime, e);
+
 			log.add(nf().logParserError(e.getMessage()));
 
 			throw new EngineException(title, "Parsing failed!", e);
 		}
 		catch (Exception e)
 		{
+			reportStarted(Stage.PARSING, title);
+			reportFailed(Stage.PARSING, title, startTime, e);
+
 			logger.error("Parsing failed!", e);
 
 			StringWriter w = new StringWriter();
@@ -898,6 +1203,8 @@ public class WtEngineImpl
 		StopWatch stopWatch = new StopWatch();
 		stopWatch.start();
 
+		long startTime = reportStarted(Stage.PARSING, title);
+
 		try
 		{
 			PreprocessedWikitext preprocessedWikitext =
@@ -905,12 +1212,19 @@ public class WtEngineImpl
 							ppAst,
 							engineConfig.isTrimTransparentBeforeParsing());
 
-			WikitextParser parser = new WikitextParser(parserConfig);
-
-			WtParsedWikitextPage parsedAst =
-					(WtParsedWikitextPage) parser.parseArticle(
-							preprocessedWikitext,
-							title.getTitle());
+			WtParsedWikitextPage parsedAst;
+			if (parallelParser != null)
+			{
+				parsedAst = (WtParsedWikitextPage) parallelParser.parseArticle(
+						preprocessedWikitext,
+						title.getTitle());
+			}
+			else
+			{
+				parsedAst = (WtParsedWikitextPage) parser.parseArticle(
+						preprocessedWikitext,
+						title.getTitle());
+			}
 
 			// if there were no warnings we would try to add to the EMPTY_LIST
 			if (parsedAst.getWarnings() == Collections.EMPTY_LIST)
@@ -922,16 +1236,27 @@ public class WtEngineImpl
 				parsedAst.getWarnings().addAll(ppAst.getWarnings());
 			}
 
+			reportCompleted(
+					Stage.PARSING,
+					title,
+					preprocessedWikitext.getLength(),
+					parsedAst,
+					startTime);
+
 			return parsedAst;
 		}
 		catch (xtc.parser.ParseException e)
 		{
+			reportFailed(Stage.PARSING, title, startTime, e);
+
 			log.add(nf().logParserError(e.getMessage()));
 
 			throw new EngineException(title, "Parsing failed!", e);
 		}
 		catch (Exception e)
 		{
+			reportFailed(Stage.PARSING, title, startTime, e);
+
 			logger.error("Parsing failed!", e);
 
 			StringWriter w = new StringWriter();
@@ -959,16 +1284,20 @@ public class WtEngineImpl
 		StopWatch stopWatch = new StopWatch();
 		stopWatch.start();
 
+		long startTime = reportStarted(Stage.POSTPROCESSING, title);
+
 		try
 		{
-			WikitextPostprocessor lpp = new WikitextPostprocessor(parserConfig);
+			pAst = (WtParsedWikitextPage) postprocessor.postprocess(pAst, title.getTitle());
 
-			pAst = (WtParsedWikitextPage) lpp.postprocess(pAst, title.getTitle());
+			reportCompleted(Stage.POSTPROCESSING, title, -1, pAst, startTime);
 
 			return pAst;
 		}
 		catch (Exception e)
 		{
+			reportFailed(Stage.POSTPROCESSING, title, startTime, e);
+
 			logger.error("Postprocessing failed!", e);
 
 			StringWriter w = new StringWriter();
@@ -983,4 +1312,70 @@ public class WtEngineImpl
 			log.setTimeNeeded(stopWatch.getElapsedTime());
 		}
 	}
+
+	// =========================================================================
+
+	/**
+	 * @return The start time of the stage or 0 if no metrics listener is
+	 *         installed.
+	 */
+	private long reportStarted(Stage stage, PageTitle title)
+	{
+		if (metrics == EngineMetrics.NONE)
+			return 0;
+
+		try
+		{
+			metrics.stageStarted(stage, title);
+		}
+		catch (RuntimeException e)
+		{
+			logger.warn("Engine metrics listener failed!", e);
+		}
+
+		return System.nanoTime();
+	}
+
+	/**
+	 * Exceptions thrown by the metrics listener are logged and must not fail
+	 * the stage that was measured.
+	 */
+	private void reportCompleted(
+			Stage stage,
+			PageTitle title,
+			int inputSize,
+			WtNode result,
+			long startTime)
+	{
+		if (metrics == EngineMetrics.NONE)
+			return;
+
+		try
+		{
+			metrics.stageCompleted(stage, title, inputSize, result, System.nanoTime() - startTime);
+		}
+		catch (RuntimeException e)
+		{
+			logger.warn("Engine metrics listener failed!", e);
+		}
+	}
+
+	private void reportFailed(
+			Stage stage,
+			PageTitle title,
+			long startTime,
+			Throwable cause)
+	{
+		if (metrics == EngineMetrics.NONE)
+			return;
+
+		try
+		{
+			metrics.stageFailed(stage, title, System.nanoTime() - startTime, cause);
+		}
+		catch (RuntimeException e)
+		{
+			logger.warn("Engine metrics listener failed!", e);
+		}
+	}
 }
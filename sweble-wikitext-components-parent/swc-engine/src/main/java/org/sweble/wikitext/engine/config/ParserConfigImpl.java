@@ -51,6 +51,8 @@ import org.sweble.wikitext.parser.utils.AstTextUtils;
 		"minSeverity",
 		"autoCorrect",
 		"gatherRtData",
+		"sourceOffsetRtData",
+		"stringPooling",
 		"internalLinkPrefixPattern",
 		"internalLinkPostfixPattern",
 		"jaxbAllowedUrlProtocols",
@@ -80,6 +82,12 @@ public class ParserConfigImpl
 	@XmlElement
 	private boolean gatherRtData;
 
+	@XmlElement
+	private boolean sourceOffsetRtData;
+
+	@XmlElement
+	private boolean stringPooling;
+
 	private final Set<String> allowedUrlProtocols = new HashSet<String>();
 
 	@XmlElement
@@ -186,6 +194,28 @@ public class ParserConfigImpl
 		return gatherRtData;
 	}
 
+	public void setSourceOffsetRtData(boolean sourceOffsetRtData)
+	{
+		this.sourceOffsetRtData = sourceOffsetRtData;
+	}
+
+	@Override
+	public boolean isSourceOffsetRtData()
+	{
+		return sourceOffsetRtData;
+	}
+
+	public void setStringPooling(boolean stringPooling)
+	{
+		this.stringPooling = stringPooling;
+	}
+
+	@Override
+	public boolean isStringPooling()
+	{
+		return stringPooling;
+	}
+
 	// ==[ AST creation ]=======================================================
 
 	@Override
@@ -617,11 +647,13 @@ public class ParserConfigImpl
 		result = prime * result + ((allowedUrlProtocols == null) ? 0 : allowedUrlProtocols.hashCode());
 		result = prime * result + (autoCorrect ? 1231 : 1237);
 		result = prime * result + (gatherRtData ? 1231 : 1237);
+		result = prime * result + (sourceOffsetRtData ? 1231 : 1237);
 		result = prime * result + ((internalLinkPostfixPattern == null) ? 0 : internalLinkPostfixPattern.hashCode());
 		result = prime * result + ((internalLinkPrefixPattern == null) ? 0 : internalLinkPrefixPattern.hashCode());
 		result = prime * result + ((lctFlagMap == null) ? 0 : lctFlagMap.hashCode());
 		result = prime * result + ((lctVariantMap == null) ? 0 : lctVariantMap.hashCode());
 		result = prime * result + ((minSeverity == null) ? 0 : minSeverity.hashCode());
+		result = prime * result + (stringPooling ? 1231 : 1237);
 		result = prime * result + (warningsEnabled ? 1231 : 1237);
 		result = prime * result + ((xmlEntities == null) ? 0 : xmlEntities.hashCode());
 		return result;
@@ -648,6 +680,8 @@ public class ParserConfigImpl
 			return false;
 		if (gatherRtData != other.gatherRtData)
 			return false;
+		if (sourceOffsetRtData != other.sourceOffsetRtData)
+			return false;
 		if (internalLinkPostfixPattern == null)
 		{
 			if (other.internalLinkPostfixPattern != null)
@@ -678,6 +712,8 @@ public class ParserConfigImpl
 			return false;
 		if (minSeverity != other.minSeverity)
 			return false;
+		if (stringPooling != other.stringPooling)
+			return false;
 		if (warningsEnabled != other.warningsEnabled)
 			return false;
 		if (xmlEntities == null)
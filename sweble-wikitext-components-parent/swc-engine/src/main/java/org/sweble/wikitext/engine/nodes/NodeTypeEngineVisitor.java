@@ -0,0 +1,80 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.engine.nodes;
+
+import org.sweble.wikitext.parser.nodes.NodeTypeWikitextVisitor;
+import org.sweble.wikitext.parser.nodes.WtNode;
+
+/**
+ * A {@link NodeTypeWikitextVisitor} which also dispatches the nodes of the
+ * engine. The {@link CompleteEngineVisitor} interface is the contract.
+ */
+public abstract class NodeTypeEngineVisitor<T>
+		extends
+			NodeTypeWikitextVisitor<T>
+		implements
+			CompleteEngineVisitor<T>
+{
+	@Override
+	protected Object visitUnknown(WtNode node)
+	{
+		switch (node.getNodeType())
+		{
+			case EngNode.NT_PROCESSED_PAGE:
+				return visit((EngProcessedPage) node);
+
+			case EngNode.NT_NOWIKI:
+				return visit((EngNowiki) node);
+
+			case EngNode.NT_PAGE:
+				return visit((EngPage) node);
+
+			case EngNode.NT_SOFT_ERROR:
+				return visit((EngSoftErrorNode) node);
+
+			default:
+				return super.visitUnknown(node);
+		}
+	}
+
+	// =========================================================================
+
+	@Override
+	public T visit(EngProcessedPage n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(EngNowiki n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(EngPage n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(EngSoftErrorNode n)
+	{
+		return visitUnspecific(n);
+	}
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.engine.nodes;
+
+import org.sweble.wikitext.parser.nodes.NodeTypeWikitextVisitorNoReturn;
+import org.sweble.wikitext.parser.nodes.WtNode;
+
+/**
+ * A {@link NodeTypeWikitextVisitorNoReturn} which also dispatches the nodes
+ * of the engine. The {@link CompleteEngineVisitorNoReturn} interface is the
+ * contract.
+ */
+public abstract class NodeTypeEngineVisitorNoReturn
+		extends
+			NodeTypeWikitextVisitorNoReturn
+		implements
+			CompleteEngineVisitorNoReturn
+{
+	@Override
+	protected void visitUnknown(WtNode node)
+	{
+		switch (node.getNodeType())
+		{
+			case EngNode.NT_PROCESSED_PAGE:
+				visit((EngProcessedPage) node);
+				break;
+
+			case EngNode.NT_NOWIKI:
+				visit((EngNowiki) node);
+				break;
+
+			case EngNode.NT_PAGE:
+				visit((EngPage) node);
+				break;
+
+			case EngNode.NT_SOFT_ERROR:
+				visit((EngSoftErrorNode) node);
+				break;
+
+			default:
+				super.visitUnknown(node);
+				break;
+		}
+	}
+
+	// =========================================================================
+
+	@Override
+	public void visit(EngProcessedPage n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(EngNowiki n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(EngPage n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(EngSoftErrorNode n)
+	{
+		visitUnspecific(n);
+	}
+}
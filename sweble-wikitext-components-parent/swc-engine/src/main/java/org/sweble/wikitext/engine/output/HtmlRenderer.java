@@ -16,9 +16,11 @@
  */
 package org.sweble.wikitext.engine.output;
 
+import java.io.IOException;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Set;
@@ -35,6 +37,7 @@ import org.sweble.wikitext.engine.nodes.EngSoftErrorNode;
 import org.sweble.wikitext.engine.nodes.EngineNodeFactory;
 import org.sweble.wikitext.engine.utils.EngineAstTextUtils;
 import org.sweble.wikitext.engine.utils.UrlEncoding;
+import org.sweble.wikitext.engine.utils.Utf8ChannelWriter;
 import org.sweble.wikitext.parser.nodes.WtBody;
 import org.sweble.wikitext.parser.nodes.WtBold;
 import org.sweble.wikitext.parser.nodes.WtDefinitionList;
@@ -1484,6 +1487,25 @@ public class HtmlRenderer
 		return writer;
 	}
 
+	/**
+	 * Renders the given node as UTF-8 encoded HTML directly into a channel.
+	 * The channel is not closed. To reuse the encoding buffer for many pages
+	 * pass a {@link Utf8ChannelWriter} to
+	 * {@link #print(HtmlRendererCallback, WikiConfig, Writer, PageTitle, WtNode)}
+	 * instead and flush it after each page.
+	 */
+	public static <T extends WtNode> void print(
+			HtmlRendererCallback callback,
+			WikiConfig wikiConfig,
+			WritableByteChannel channel,
+			PageTitle pageTitle,
+			T node) throws IOException
+	{
+		Utf8ChannelWriter writer = new Utf8ChannelWriter(channel);
+		print(callback, wikiConfig, writer, pageTitle, node);
+		writer.flush();
+	}
+
 	// =========================================================================
 
 	protected static final Logger logger = LoggerFactory.getLogger(HtmlRenderer.class);
@@ -17,18 +17,17 @@
 package org.sweble.wikitext.engine.output;
 
 import java.io.Writer;
-import java.util.ArrayList;
 
 import org.apache.commons.lang3.StringUtils;
+import org.sweble.wikitext.engine.nodes.NodeTypeEngineVisitorNoReturn;
 import org.sweble.wikitext.parser.nodes.WtNode;
 
-import de.fau.cs.osr.ptk.common.AstVisitor;
 import de.fau.cs.osr.utils.PrinterBase;
 import de.fau.cs.osr.utils.StringTools;
 
 public class HtmlRendererBase
 		extends
-			AstVisitor<WtNode>
+			NodeTypeEngineVisitorNoReturn
 {
 	protected final PrinterBase p;
 
@@ -64,83 +63,74 @@ public class HtmlRendererBase
 	 */
 	protected void pf(String format, Object... args)
 	{
-		p.print(String.format(format, args));
+		print(HtmlTemplate.forFormat(format), args);
 	}
 
 	/**
 	 * Print Tree
+	 * 
+	 * Works like String.format() but additionally understands the following
+	 * specifiers: %! renders a node, %= prints an HTML escaped string, %~ prints
+	 * a string escaped for an HTML attribute value.
 	 */
 	protected void pt(String format, Object... args)
 	{
-		ArrayList<Object> a = new ArrayList<Object>(args.length);
+		print(HtmlTemplate.forTree(format), args);
+	}
 
+	private void print(HtmlTemplate t, Object[] args)
+	{
 		int arg = 0;
-		int last = 0;
-		for (int i = 0; i < format.length(); ++i)
+		for (int i = 0; i < t.size(); ++i)
 		{
-			char ch = format.charAt(i);
-			if (ch == '%' && format.length() > i + 1)
+			switch (t.getKind(i))
 			{
-				char ch2 = format.charAt(i + 1);
-				switch (ch2)
+				case HtmlTemplate.LITERAL:
+					p.print(t.getText(i));
+					break;
+
+				case HtmlTemplate.VALUE:
+					p.print(String.valueOf(args[arg++]));
+					break;
+
+				case HtmlTemplate.NODE:
 				{
-					case '!':
+					WtNode n = (WtNode) args[arg++];
+					if (n.isList())
 					{
-						printPart(format, a, last, i);
-						last = i + 2;
-
-						WtNode n = (WtNode) args[arg++];
-						if (n.isList())
-						{
-							iterate(n);
-						}
-						else
-						{
-							dispatch(n);
-						}
-						break;
+						iterate(n);
 					}
-
-					case '=': // Escape string for HTML
-					case '~': // Escape string for HTML attribute value
+					else
 					{
-						printPart(format, a, last, i);
-						last = i + 2;
-
-						String s = (String) args[arg++];
-						p.print(esc(s, ch2 == '~'));
-
-						break;
+						dispatch(n);
 					}
-
-					case '%':
-						break;
-
-					default:
-						a.add(args[arg++]);
-						break;
+					break;
 				}
 
-				++i;
-			}
-		}
+				case HtmlTemplate.ESCAPED:
+					p.print(esc((String) args[arg++], false));
+					break;
 
-		printPart(format, a, last, format.length());
-	}
+				case HtmlTemplate.ESCAPED_ATTRIBUTE:
+					p.print(esc((String) args[arg++], true));
+					break;
 
-	private void printPart(String format, ArrayList<Object> a, int last, int i)
-	{
-		if (i - last > 0)
-		{
-			String f = format.substring(last, i);
-			if (a.isEmpty())
-			{
-				p.print(f);
-			}
-			else
-			{
-				p.print(String.format(f, a.toArray()));
-				a.clear();
+				case HtmlTemplate.FORMATTED:
+				{
+					int count = t.getArgCount(i);
+					if (count < 0)
+					{
+						p.print(String.format(t.getText(i), args));
+					}
+					else
+					{
+						Object[] a = new Object[count];
+						System.arraycopy(args, arg, a, 0, count);
+						arg += count;
+						p.print(String.format(t.getText(i), a));
+					}
+					break;
+				}
 			}
 		}
 	}
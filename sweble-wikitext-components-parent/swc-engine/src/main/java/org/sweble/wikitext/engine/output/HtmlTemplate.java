@@ -0,0 +1,283 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sweble.wikitext.engine.output;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A format string of {@link HtmlRendererBase#pt(String, Object...)} or
+ * {@link HtmlRendererBase#pf(String, Object...)} which was split into
+ * segments once so that rendering neither has to scan the format again nor
+ * call String.format() for the common specifiers %s and %d.
+ */
+final class HtmlTemplate
+{
+	static final int LITERAL = 0;
+
+	/** %s or %d */
+	static final int VALUE = 1;
+
+	/** %! */
+	static final int NODE = 2;
+
+	/** %= */
+	static final int ESCAPED = 3;
+
+	/** %~ */
+	static final int ESCAPED_ATTRIBUTE = 4;
+
+	/** Any other specifier, rendered using String.format() */
+	static final int FORMATTED = 5;
+
+	/**
+	 * Format strings are usually literals. Stop caching if a renderer builds
+	 * its format strings dynamically.
+	 */
+	private static final int MAX_CACHED = 1024;
+
+	private static final ConcurrentHashMap<String, HtmlTemplate> treeTemplates =
+			new ConcurrentHashMap<String, HtmlTemplate>();
+
+	private static final ConcurrentHashMap<String, HtmlTemplate> formatTemplates =
+			new ConcurrentHashMap<String, HtmlTemplate>();
+
+	private final int[] kinds;
+
+	private final String[] texts;
+
+	private final int[] argCounts;
+
+	// =========================================================================
+
+	private HtmlTemplate(Builder b)
+	{
+		int size = b.kinds.size();
+		this.kinds = new int[size];
+		this.texts = new String[size];
+		this.argCounts = new int[size];
+		for (int i = 0; i < size; ++i)
+		{
+			this.kinds[i] = b.kinds.get(i);
+			this.texts[i] = b.texts.get(i);
+			this.argCounts[i] = b.argCounts.get(i);
+		}
+	}
+
+	// =========================================================================
+
+	/**
+	 * Returns the template of a format string as understood by
+	 * {@link HtmlRendererBase#pt(String, Object...)}.
+	 */
+	static HtmlTemplate forTree(String format)
+	{
+		HtmlTemplate t = treeTemplates.get(format);
+		if (t == null)
+		{
+			t = compileTree(format);
+			if (treeTemplates.size() < MAX_CACHED)
+				treeTemplates.put(format, t);
+		}
+		return t;
+	}
+
+	/**
+	 * Returns the template of a format string as understood by
+	 * String.format().
+	 */
+	static HtmlTemplate forFormat(String format)
+	{
+		HtmlTemplate t = formatTemplates.get(format);
+		if (t == null)
+		{
+			t = compileFormat(format);
+			if (formatTemplates.size() < MAX_CACHED)
+				formatTemplates.put(format, t);
+		}
+		return t;
+	}
+
+	// =========================================================================
+
+	int size()
+	{
+		return kinds.length;
+	}
+
+	int getKind(int i)
+	{
+		return kinds[i];
+	}
+
+	String getText(int i)
+	{
+		return texts[i];
+	}
+
+	/**
+	 * The number of arguments consumed by a FORMATTED segment.
+	 */
+	int getArgCount(int i)
+	{
+		return argCounts[i];
+	}
+
+	// =========================================================================
+
+	private static HtmlTemplate compileTree(String format)
+	{
+		Builder b = new Builder();
+
+		int specs = 0;
+		int last = 0;
+		for (int i = 0; i < format.length(); ++i)
+		{
+			char ch = format.charAt(i);
+			if (ch == '%' && format.length() > i + 1)
+			{
+				char ch2 = format.charAt(i + 1);
+				switch (ch2)
+				{
+					case '!':
+						b.chunk(format.substring(last, i), specs, true);
+						b.add(NODE, null, 1);
+						last = i + 2;
+						specs = 0;
+						break;
+
+					case '=':
+						b.chunk(format.substring(last, i), specs, true);
+						b.add(ESCAPED, null, 1);
+						last = i + 2;
+						specs = 0;
+						break;
+
+					case '~':
+						b.chunk(format.substring(last, i), specs, true);
+						b.add(ESCAPED_ATTRIBUTE, null, 1);
+						last = i + 2;
+						specs = 0;
+						break;
+
+					case '%':
+						break;
+
+					default:
+						++specs;
+						break;
+				}
+
+				++i;
+			}
+		}
+
+		b.chunk(format.substring(last), specs, true);
+		return new HtmlTemplate(b);
+	}
+
+	private static HtmlTemplate compileFormat(String format)
+	{
+		Builder b = new Builder();
+		b.chunk(format, -1, false);
+		return new HtmlTemplate(b);
+	}
+
+	// =========================================================================
+
+	private static final class Builder
+	{
+		private final ArrayList<Integer> kinds = new ArrayList<Integer>();
+
+		private final ArrayList<String> texts = new ArrayList<String>();
+
+		private final ArrayList<Integer> argCounts = new ArrayList<Integer>();
+
+		public void add(int kind, String text, int argCount)
+		{
+			kinds.add(kind);
+			texts.add(text);
+			argCounts.add(argCount);
+		}
+
+		/**
+		 * Adds a chunk of the format string which does not contain the special
+		 * specifiers of pt().
+		 * 
+		 * @param specs
+		 *            The number of arguments the chunk consumes or -1 if the
+		 *            chunk consumes all arguments.
+		 * @param raw
+		 *            pt() prints chunks without specifiers as they are.
+		 */
+		public void chunk(String text, int specs, boolean raw)
+		{
+			if (text.isEmpty())
+				return;
+
+			if (specs == 0 && raw)
+			{
+				add(LITERAL, text, 0);
+				return;
+			}
+
+			int start = kinds.size();
+			StringBuilder literal = new StringBuilder();
+			for (int i = 0; i < text.length(); ++i)
+			{
+				char ch = text.charAt(i);
+				if (ch != '%')
+				{
+					literal.append(ch);
+					continue;
+				}
+
+				char ch2 = (i + 1 < text.length()) ? text.charAt(i + 1) : 0;
+				if (ch2 == '%')
+				{
+					literal.append('%');
+				}
+				else if (ch2 == 's' || ch2 == 'd')
+				{
+					if (literal.length() > 0)
+					{
+						add(LITERAL, literal.toString(), 0);
+						literal.setLength(0);
+					}
+					add(VALUE, null, 1);
+				}
+				else
+				{
+					// Leave everything else to String.format()
+					while (kinds.size() > start)
+					{
+						int last = kinds.size() - 1;
+						kinds.remove(last);
+						texts.remove(last);
+						argCounts.remove(last);
+					}
+					add(FORMATTED, text, specs);
+					return;
+				}
+				++i;
+			}
+
+			if (literal.length() > 0)
+				add(LITERAL, literal.toString(), 0);
+		}
+	}
+}
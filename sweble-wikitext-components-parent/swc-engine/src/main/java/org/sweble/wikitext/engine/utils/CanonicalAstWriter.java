@@ -0,0 +1,146 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.engine.utils;
+
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.sweble.wikitext.parser.nodes.WtNode;
+import org.sweble.wikitext.parser.nodes.WtNodeList;
+
+import de.fau.cs.osr.ptk.common.ast.AstNodePropertyIterator;
+
+/**
+ * Writes ASTs as strings which are equal if and only if the ASTs have the
+ * same structure, the same node types and the same property values. Round
+ * trip data, attributes and locations are ignored. Used to compare
+ * transclusion arguments written at different places of a page.
+ */
+public final class CanonicalAstWriter
+{
+	private CanonicalAstWriter()
+	{
+	}
+
+	// =========================================================================
+
+	/**
+	 * @return The canonical string of the given arguments or null if an
+	 *         argument contains a property value which cannot be written
+	 *         canonically.
+	 */
+	public static String write(Map<String, WtNodeList> arguments)
+	{
+		StringBuilder b = new StringBuilder();
+
+		// Argument order does not matter
+		Map<String, WtNodeList> sorted = arguments;
+		if (!(arguments instanceof TreeMap) && arguments.size() > 1)
+			sorted = new TreeMap<String, WtNodeList>(arguments);
+
+		for (Entry<String, WtNodeList> e : sorted.entrySet())
+		{
+			writeString(b, e.getKey());
+			if (!write(b, e.getValue()))
+				return null;
+		}
+
+		return b.toString();
+	}
+
+	/**
+	 * @return The canonical string of the given AST or null if it contains a
+	 *         property value which cannot be written canonically.
+	 */
+	public static String write(WtNode node)
+	{
+		StringBuilder b = new StringBuilder();
+		return write(b, node) ? b.toString() : null;
+	}
+
+	/**
+	 * @return False if the AST contains a property value which cannot be
+	 *         written canonically.
+	 */
+	public static boolean write(StringBuilder b, WtNode node)
+	{
+		if (node == null)
+		{
+			b.append('-');
+			return true;
+		}
+
+		b.append(node.getNodeType()).append('{');
+
+		AstNodePropertyIterator i = node.propertyIterator();
+		while (i.next())
+		{
+			if ("rtd".equals(i.getName()))
+				continue;
+			if (!writeValue(b, i.getValue()))
+				return false;
+		}
+
+		b.append(node.size()).append(':');
+		for (WtNode child : node)
+		{
+			if (!write(b, child))
+				return false;
+		}
+
+		b.append('}');
+		return true;
+	}
+
+	// =========================================================================
+
+	private static boolean writeValue(StringBuilder b, Object value)
+	{
+		if (value == null)
+		{
+			b.append('-');
+		}
+		else if (value instanceof CharSequence)
+		{
+			writeString(b, value.toString());
+		}
+		else if (value instanceof Boolean
+				|| value instanceof Number
+				|| value instanceof Character
+				|| value instanceof Enum)
+		{
+			b.append('=');
+			writeString(b, value.toString());
+		}
+		else
+		{
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Strings are prefixed with their length so that no string can be
+	 * mistaken for a delimiter.
+	 */
+	private static void writeString(StringBuilder b, String s)
+	{
+		b.append(s.length()).append('"').append(s);
+	}
+}
@@ -20,6 +20,7 @@ import java.io.StringWriter;
 import java.io.Writer;
 
 import org.sweble.wikitext.engine.nodes.CompleteEngineVisitorNoReturn;
+import org.sweble.wikitext.engine.nodes.EngNode;
 import org.sweble.wikitext.engine.nodes.EngNowiki;
 import org.sweble.wikitext.engine.nodes.EngPage;
 import org.sweble.wikitext.engine.nodes.EngProcessedPage;
@@ -66,6 +67,33 @@ public class EnginePrettyPrinter
 		visit((WtXmlElement) n);
 	}
 
+	@Override
+	protected void visitUnknown(WtNode n)
+	{
+		switch (n.getNodeType())
+		{
+			case EngNode.NT_PROCESSED_PAGE:
+				visit((EngProcessedPage) n);
+				break;
+
+			case EngNode.NT_NOWIKI:
+				visit((EngNowiki) n);
+				break;
+
+			case EngNode.NT_PAGE:
+				visit((EngPage) n);
+				break;
+
+			case EngNode.NT_SOFT_ERROR:
+				visit((EngSoftErrorNode) n);
+				break;
+
+			default:
+				super.visitUnknown(n);
+				break;
+		}
+	}
+
 	// =========================================================================
 
 	public static <T extends WtNode> String print(T node)
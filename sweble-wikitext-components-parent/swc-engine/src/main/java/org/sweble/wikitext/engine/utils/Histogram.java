@@ -0,0 +1,163 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.engine.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe histogram of non-negative values with power-of-two bucket
+ * boundaries. Recording a value neither locks nor allocates. Quantiles are
+ * estimated from the bucket boundaries and are therefore accurate up to a
+ * factor of two.
+ */
+public class Histogram
+{
+	/** Bucket i counts values v with 2^(i-1) <= v < 2^i. Bucket 0 counts 0. */
+	private static final int BUCKETS = 64;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+	private final AtomicLong count = new AtomicLong();
+
+	private final AtomicLong sum = new AtomicLong();
+
+	private final AtomicLong max = new AtomicLong();
+
+	// =========================================================================
+
+	public void record(long value)
+	{
+		if (value < 0)
+			value = 0;
+
+		buckets.incrementAndGet(bucketOf(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+
+		long m;
+		while (value > (m = max.get()))
+		{
+			if (max.compareAndSet(m, value))
+				break;
+		}
+	}
+
+	public void reset()
+	{
+		for (int i = 0; i < BUCKETS; ++i)
+			buckets.set(i, 0);
+		count.set(0);
+		sum.set(0);
+		max.set(0);
+	}
+
+	// =========================================================================
+
+	public long getCount()
+	{
+		return count.get();
+	}
+
+	public long getSum()
+	{
+		return sum.get();
+	}
+
+	public long getMax()
+	{
+		return max.get();
+	}
+
+	public double getMean()
+	{
+		long c = count.get();
+		return (c == 0) ? 0. : (double) sum.get() / c;
+	}
+
+	/**
+	 * Estimates the value below which the given fraction of all recorded
+	 * values lies.
+	 * 
+	 * @param quantile
+	 *            A value between 0 and 1, e.g. 0.99 for the 99th percentile.
+	 * @return The upper bound of the bucket which contains the quantile but
+	 *         never more than the largest value recorded.
+	 */
+	public long getQuantile(double quantile)
+	{
+		if (quantile < 0. || quantile > 1.)
+			throw new IllegalArgumentException("Quantile must be between 0 and 1!");
+
+		long total = 0;
+		long[] snapshot = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; ++i)
+			total += (snapshot[i] = buckets.get(i));
+
+		if (total == 0)
+			return 0;
+
+		long rank = (long) Math.ceil(quantile * total);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; ++i)
+		{
+			seen += snapshot[i];
+			if (seen >= rank && snapshot[i] > 0)
+				return Math.min(upperBoundOf(i), getMax());
+		}
+
+		return getMax();
+	}
+
+	/**
+	 * @return A copy of the bucket counts. Bucket i counts values v with
+	 *         2^(i-1) <= v < 2^i, bucket 0 counts zeros.
+	 */
+	public long[] getBuckets()
+	{
+		long[] snapshot = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; ++i)
+			snapshot[i] = buckets.get(i);
+		return snapshot;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format(
+				"count: %d, mean: %.1f, p50: %d, p90: %d, p99: %d, max: %d",
+				getCount(),
+				getMean(),
+				getQuantile(.5),
+				getQuantile(.9),
+				getQuantile(.99),
+				getMax());
+	}
+
+	// =========================================================================
+
+	private static int bucketOf(long value)
+	{
+		return Math.min(64 - Long.numberOfLeadingZeros(value), BUCKETS - 1);
+	}
+
+	private static long upperBoundOf(int bucket)
+	{
+		return (bucket >= BUCKETS - 1) ? Long.MAX_VALUE : (1L << bucket) - 1;
+	}
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.engine.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe map which holds at most a fixed number of entries and evicts
+ * the least recently used entry when it is full. Hits, misses and evictions
+ * are counted.
+ */
+public class LruCache<K, V>
+{
+	private final int capacity;
+
+	private final LinkedHashMap<K, V> map;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	// =========================================================================
+
+	public LruCache(int capacity)
+	{
+		if (capacity < 1)
+			throw new IllegalArgumentException("Capacity must be at least 1!");
+
+		this.capacity = capacity;
+
+		this.map = new LinkedHashMap<K, V>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest)
+			{
+				if (size() <= LruCache.this.capacity)
+					return false;
+
+				evictions.incrementAndGet();
+				return true;
+			}
+		};
+	}
+
+	// =========================================================================
+
+	/**
+	 * @return The cached value or null if there is no entry for the given key.
+	 */
+	public V get(K key)
+	{
+		V value;
+		synchronized (map)
+		{
+			value = map.get(key);
+		}
+
+		if (value != null)
+			hits.incrementAndGet();
+		else
+			misses.incrementAndGet();
+
+		return value;
+	}
+
+	public void put(K key, V value)
+	{
+		if (key == null || value == null)
+			throw new NullPointerException();
+
+		synchronized (map)
+		{
+			map.put(key, value);
+		}
+	}
+
+	public void clear()
+	{
+		synchronized (map)
+		{
+			map.clear();
+		}
+	}
+
+	// =========================================================================
+
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+	public int getSize()
+	{
+		synchronized (map)
+		{
+			return map.size();
+		}
+	}
+
+	public long getHits()
+	{
+		return hits.get();
+	}
+
+	public long getMisses()
+	{
+		return misses.get();
+	}
+
+	public long getEvictions()
+	{
+		return evictions.get();
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format(
+				"size: %d/%d, hits: %d, misses: %d, evictions: %d",
+				getSize(),
+				capacity,
+				getHits(),
+				getMisses(),
+				getEvictions());
+	}
+}
@@ -0,0 +1,258 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.engine.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A writer which encodes characters as UTF-8 into a buffer and writes the
+ * buffer to a channel whenever it is full. Unlike an OutputStreamWriter it
+ * does not go through a CharsetEncoder and does not allocate while writing.
+ * 
+ * The buffer can be reused for another channel by calling
+ * {@link #reset(WritableByteChannel)}. Unpaired surrogates are written as
+ * '?', like String.getBytes() does. Instances are not thread-safe.
+ */
+public final class Utf8ChannelWriter
+		extends
+			Writer
+{
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	/** The maximum number of bytes a single code point is encoded to. */
+	private static final int MAX_BYTES_PER_CHAR = 4;
+
+	private final ByteBuffer buffer;
+
+	private WritableByteChannel channel;
+
+	private char highSurrogate;
+
+	// =========================================================================
+
+	public Utf8ChannelWriter(WritableByteChannel channel)
+	{
+		this(channel, DEFAULT_BUFFER_SIZE);
+	}
+
+	public Utf8ChannelWriter(WritableByteChannel channel, int bufferSize)
+	{
+		if (channel == null)
+			throw new NullPointerException();
+		if (bufferSize < MAX_BYTES_PER_CHAR)
+			throw new IllegalArgumentException("Buffer must hold at least 4 bytes!");
+
+		this.buffer = ByteBuffer.allocate(bufferSize);
+		this.channel = channel;
+	}
+
+	public Utf8ChannelWriter(OutputStream out)
+	{
+		this(Channels.newChannel(out));
+	}
+
+	// =========================================================================
+
+	/**
+	 * Flushes all pending output to the current channel and continues writing
+	 * to the given channel. The current channel is not closed.
+	 */
+	public void reset(WritableByteChannel channel) throws IOException
+	{
+		if (channel == null)
+			throw new NullPointerException();
+
+		flush();
+		this.channel = channel;
+	}
+
+	// =========================================================================
+
+	@Override
+	public void write(int c) throws IOException
+	{
+		ensureOpen();
+		if (buffer.remaining() < MAX_BYTES_PER_CHAR)
+			flushBuffer();
+		encode((char) c);
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException
+	{
+		ensureOpen();
+		if (off < 0 || len < 0 || len > cbuf.length - off)
+			throw new IndexOutOfBoundsException();
+
+		int end = off + len;
+		for (int i = off; i < end; ++i)
+		{
+			if (buffer.remaining() < MAX_BYTES_PER_CHAR)
+				flushBuffer();
+			encode(cbuf[i]);
+		}
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException
+	{
+		ensureOpen();
+		if (off < 0 || len < 0 || len > str.length() - off)
+			throw new IndexOutOfBoundsException();
+
+		int end = off + len;
+		for (int i = off; i < end; ++i)
+		{
+			if (buffer.remaining() < MAX_BYTES_PER_CHAR)
+				flushBuffer();
+			encode(str.charAt(i));
+		}
+	}
+
+	@Override
+	public Writer append(CharSequence csq) throws IOException
+	{
+		if (csq == null)
+			csq = "null";
+		return append(csq, 0, csq.length());
+	}
+
+	@Override
+	public Writer append(CharSequence csq, int start, int end) throws IOException
+	{
+		ensureOpen();
+		if (csq == null)
+			csq = "null";
+		if (start < 0 || start > end || end > csq.length())
+			throw new IndexOutOfBoundsException();
+
+		for (int i = start; i < end; ++i)
+		{
+			if (buffer.remaining() < MAX_BYTES_PER_CHAR)
+				flushBuffer();
+			encode(csq.charAt(i));
+		}
+		return this;
+	}
+
+	/**
+	 * Writes all buffered bytes to the channel. A high surrogate at the very
+	 * end of the output so far is kept until its low surrogate is written.
+	 */
+	@Override
+	public void flush() throws IOException
+	{
+		ensureOpen();
+		flushBuffer();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		if (channel == null)
+			return;
+
+		try
+		{
+			if (highSurrogate != 0)
+			{
+				highSurrogate = 0;
+				if (buffer.remaining() < MAX_BYTES_PER_CHAR)
+					flushBuffer();
+				buffer.put((byte) '?');
+			}
+			flushBuffer();
+		}
+		finally
+		{
+			channel.close();
+			channel = null;
+		}
+	}
+
+	// =========================================================================
+
+	/**
+	 * Expects at least four bytes to be available in the buffer.
+	 */
+	private void encode(char c)
+	{
+		if (highSurrogate != 0)
+		{
+			char high = highSurrogate;
+			highSurrogate = 0;
+
+			if (Character.isLowSurrogate(c))
+			{
+				int cp = Character.toCodePoint(high, c);
+				buffer.put((byte) (0xF0 | (cp >> 18)));
+				buffer.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+				buffer.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+				buffer.put((byte) (0x80 | (cp & 0x3F)));
+				return;
+			}
+
+			// The high surrogate was unpaired. There is still room for the
+			// three bytes of a character from the BMP.
+			buffer.put((byte) '?');
+		}
+
+		if (c < 0x80)
+		{
+			buffer.put((byte) c);
+		}
+		else if (c < 0x800)
+		{
+			buffer.put((byte) (0xC0 | (c >> 6)));
+			buffer.put((byte) (0x80 | (c & 0x3F)));
+		}
+		else if (Character.isHighSurrogate(c))
+		{
+			highSurrogate = c;
+		}
+		else if (Character.isLowSurrogate(c))
+		{
+			buffer.put((byte) '?');
+		}
+		else
+		{
+			buffer.put((byte) (0xE0 | (c >> 12)));
+			buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+			buffer.put((byte) (0x80 | (c & 0x3F)));
+		}
+	}
+
+	private void flushBuffer() throws IOException
+	{
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	private void ensureOpen() throws IOException
+	{
+		if (channel == null)
+			throw new IOException("Writer closed");
+	}
+}
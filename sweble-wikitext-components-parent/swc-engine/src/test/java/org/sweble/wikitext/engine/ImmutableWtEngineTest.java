@@ -0,0 +1,91 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.sweble.wikitext.engine.ImmutableWtEngine.PageInput;
+import org.sweble.wikitext.engine.ImmutableWtEngine.PageResult;
+import org.sweble.wikitext.engine.ImmutableWtEngine.ResultIterator;
+import org.sweble.wikitext.engine.config.WikiConfig;
+import org.sweble.wikitext.engine.utils.DefaultConfigEnWp;
+
+public class ImmutableWtEngineTest
+{
+	WikiConfig config = DefaultConfigEnWp.generate();
+
+	@Test
+	public void testProcessAllReturnsOneResultPerPage() throws Exception
+	{
+		InProcessEngineMetrics metrics = new InProcessEngineMetrics(false);
+
+		ImmutableWtEngine engine = new ImmutableWtEngine.Builder(config)
+				.setPreprocessedPageCache(new LruPreprocessedPageCache(16))
+				.setEngineMetrics(metrics)
+				.build();
+
+		List<PageInput> pages = new ArrayList<PageInput>();
+		for (int i = 0; i < 50; ++i)
+		{
+			PageTitle title = PageTitle.make(config, "Page " + i);
+			String wikitext = "== Page " + i + " ==\n'''Bold''' and [[link]].\n";
+			pages.add(new PageInput(new PageId(title, i), wikitext));
+		}
+
+		Set<Long> seen = new HashSet<Long>();
+
+		ResultIterator results = engine.processAll(pages.iterator(), null, 4);
+		while (results.hasNext())
+		{
+			PageResult result = results.next();
+			assertTrue(result.isSuccess());
+			assertNotNull(result.getPage());
+			assertTrue(seen.add(result.getInput().getPageId().getRevision()));
+		}
+
+		assertEquals(pages.size(), seen.size());
+		assertFalse(results.hasNext());
+		assertEquals(pages.size(), metrics.getStage(EngineMetrics.Stage.POSTPROCESSING).getCompleted());
+	}
+
+	@Test
+	public void testClosedIteratorHasNoMoreResults() throws Exception
+	{
+		ImmutableWtEngine engine = new ImmutableWtEngine.Builder(config).build();
+
+		List<PageInput> pages = new ArrayList<PageInput>();
+		for (int i = 0; i < 10; ++i)
+			pages.add(new PageInput(new PageId(PageTitle.make(config, "Page"), i), "Text"));
+
+		ResultIterator results = engine.processAll(pages.iterator(), null, 2);
+		assertTrue(results.hasNext());
+		results.next();
+		results.close();
+
+		assertFalse(results.hasNext());
+	}
+}
@@ -0,0 +1,265 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.sweble.wikitext.engine.EngineMetrics.Stage;
+import org.sweble.wikitext.engine.InProcessEngineMetrics.ExpansionMetrics;
+import org.sweble.wikitext.engine.InProcessEngineMetrics.StageMetrics;
+import org.sweble.wikitext.engine.config.WikiConfig;
+import org.sweble.wikitext.engine.utils.DefaultConfigEnWp;
+import org.sweble.wikitext.parser.nodes.WtNode;
+
+public class InProcessEngineMetricsTest
+{
+	WikiConfig config = DefaultConfigEnWp.generate();
+
+	@Test
+	public void testAllStagesAndExpansionsAreRecorded() throws Exception
+	{
+		InProcessEngineMetrics metrics = new InProcessEngineMetrics(true, 16);
+
+		WtEngineImpl engine = new WtEngineImpl(config);
+		engine.setEngineMetrics(metrics);
+
+		String wikitext = "Hello {{lc:WORLD}} {{Greeting}}";
+		engine.postprocess(pageId("Main Page"), wikitext, new TestCallback());
+
+		for (Stage stage : Stage.values())
+		{
+			StageMetrics m = metrics.getStage(stage);
+			assertTrue(stage + " was not recorded", m.getCompleted() > 0);
+			assertEquals(0, m.getFailed());
+			assertEquals(0, m.getInProgress());
+			assertEquals(m.getCompleted(), m.getTimeNeeded().getCount());
+		}
+
+		// The transcluded page is validated, preprocessed and expanded, too
+		assertEquals(2, metrics.getStage(Stage.VALIDATION).getCompleted());
+		assertEquals(wikitext.length(), metrics.getStage(Stage.VALIDATION).getInputSize().getMax());
+		assertEquals(1, metrics.getStage(Stage.PARSING).getCompleted());
+		assertTrue(metrics.getStage(Stage.POSTPROCESSING).getNodeCount().getMax() > 1);
+
+		ExpansionMetrics lc = metrics.getParserFunctions().get("lc");
+		assertEquals(1, lc.getInvocations());
+		assertEquals(0, lc.getFailed());
+
+		ExpansionMetrics greeting = metrics.getTransclusions().get("Template:Greeting");
+		assertEquals(1, greeting.getInvocations());
+		assertEquals(0, greeting.getFailed());
+	}
+
+	@Test
+	public void testMissingTemplateIsRecordedAsFailure() throws Exception
+	{
+		InProcessEngineMetrics metrics = new InProcessEngineMetrics(false, 16);
+
+		WtEngineImpl engine = new WtEngineImpl(config);
+		engine.setEngineMetrics(metrics);
+
+		engine.postprocess(pageId("Main Page"), "{{Missing}}", new TestCallback());
+
+		assertEquals(1, metrics.getTransclusions().get("Template:Missing").getFailed());
+		assertEquals(0, metrics.getStage(Stage.POSTPROCESSING).getNodeCount().getCount());
+	}
+
+	@Test
+	public void testTransclusionsAreKeyedByTitleAndLimited() throws Exception
+	{
+		InProcessEngineMetrics metrics = new InProcessEngineMetrics(false, 1);
+
+		WtEngineImpl engine = new WtEngineImpl(config);
+		engine.setEngineMetrics(metrics);
+
+		String wikitext = "{{greeting}} {{Template:Greeting}} {{Missing}}";
+		engine.postprocess(pageId("Main Page"), wikitext, new TestCallback());
+
+		assertEquals(1, metrics.getTransclusions().size());
+		assertEquals(2, metrics.getTransclusions().get("Template:Greeting").getInvocations());
+		assertEquals(1, metrics.getUntrackedTransclusions().getInvocations());
+		assertEquals(1, metrics.getUntrackedTransclusions().getFailed());
+		assertEquals(3, metrics.getTransclusionTotal().getInvocations());
+	}
+
+	@Test
+	public void testTransclusionsAreNotTrackedByDefault() throws Exception
+	{
+		InProcessEngineMetrics metrics = new InProcessEngineMetrics();
+
+		WtEngineImpl engine = new WtEngineImpl(config);
+		engine.setEngineMetrics(metrics);
+
+		engine.postprocess(pageId("Main Page"), "{{Greeting}}", new TestCallback());
+
+		assertTrue(metrics.getTransclusions().isEmpty());
+		assertEquals(1, metrics.getTransclusionTotal().getInvocations());
+	}
+
+	@Test
+	public void testFailingListenerDoesNotFailStage() throws Exception
+	{
+		final InProcessEngineMetrics metrics = new InProcessEngineMetrics(false);
+
+		WtEngineImpl engine = new WtEngineImpl(config);
+		engine.setEngineMetrics(new EngineMetrics()
+		{
+			@Override
+			public void stageStarted(Stage stage, PageTitle title)
+			{
+				metrics.stageStarted(stage, title);
+			}
+
+			@Override
+			public void stageCompleted(
+					Stage stage,
+					PageTitle title,
+					int inputSize,
+					WtNode result,
+					long timeNeeded)
+			{
+				metrics.stageCompleted(stage, title, inputSize, result, timeNeeded);
+				throw new IllegalStateException();
+			}
+
+			@Override
+			public void stageFailed(
+					Stage stage,
+					PageTitle title,
+					long timeNeeded,
+					Throwable cause)
+			{
+				metrics.stageFailed(stage, title, timeNeeded, cause);
+			}
+		});
+
+		engine.postprocess(pageId("Main Page"), "Hello", new TestCallback());
+
+		for (Stage stage : Stage.values())
+		{
+			assertEquals(0, metrics.getStage(stage).getFailed());
+			assertEquals(0, metrics.getStage(stage).getInProgress());
+		}
+	}
+
+	@Test
+	public void testFailingExpansionListenerDoesNotFailExpansion() throws Exception
+	{
+		final List<String> resolved = new ArrayList<String>();
+
+		WtEngineImpl engine = new WtEngineImpl(config);
+		engine.setEngineMetrics(new EngineMetrics()
+		{
+			@Override
+			public void transclusionResolved(
+					PageTitle target,
+					long timeNeeded,
+					boolean success)
+			{
+				resolved.add(target.getNormalizedFullTitle());
+				throw new IllegalStateException();
+			}
+
+			@Override
+			public void parserFunctionResolved(
+					String name,
+					long timeNeeded,
+					boolean success)
+			{
+				resolved.add(name);
+				throw new IllegalStateException();
+			}
+		});
+
+		engine.postprocess(pageId("Main Page"), "{{lc:WORLD}} {{Greeting}}", new TestCallback());
+
+		assertEquals(2, resolved.size());
+		assertTrue(resolved.contains("lc"));
+		assertTrue(resolved.contains("Template:Greeting"));
+	}
+
+	@Test
+	public void testTransclusionTargetIsOnlyMadeIfNeeded() throws Exception
+	{
+		final List<PageTitle> targets = new ArrayList<PageTitle>();
+
+		InProcessEngineMetrics metrics = new InProcessEngineMetrics(false, 0);
+		assertFalse(metrics.isTransclusionTargetNeeded());
+		assertTrue(new InProcessEngineMetrics(false, 1).isTransclusionTargetNeeded());
+
+		WtEngineImpl engine = new WtEngineImpl(config);
+		engine.setEngineMetrics(new EngineMetrics()
+		{
+			@Override
+			public boolean isTransclusionTargetNeeded()
+			{
+				return false;
+			}
+
+			@Override
+			public void transclusionResolved(
+					PageTitle target,
+					long timeNeeded,
+					boolean success)
+			{
+				targets.add(target);
+			}
+		});
+
+		engine.postprocess(pageId("Main Page"), "{{Greeting}}", new TestCallback());
+
+		assertEquals(1, targets.size());
+		assertNull(targets.get(0));
+	}
+
+	// =========================================================================
+
+	private PageId pageId(String title) throws Exception
+	{
+		return new PageId(PageTitle.make(config, title), -1);
+	}
+
+	private final class TestCallback
+			implements
+				ExpansionCallback
+	{
+		@Override
+		public FullPage retrieveWikitext(
+				ExpansionFrame expansionFrame,
+				PageTitle pageTitle)
+		{
+			if (!pageTitle.getNormalizedFullTitle().equals("Template:Greeting"))
+				return null;
+
+			return new FullPage(new PageId(pageTitle, -1), "Hi!");
+		}
+
+		@Override
+		public String fileUrl(PageTitle pageTitle, int width, int height)
+		{
+			return null;
+		}
+	}
+}
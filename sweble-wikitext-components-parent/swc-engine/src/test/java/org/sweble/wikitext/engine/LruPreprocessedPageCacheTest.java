@@ -0,0 +1,206 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.junit.Test;
+import org.sweble.wikitext.engine.config.WikiConfig;
+import org.sweble.wikitext.engine.nodes.EngProcessedPage;
+import org.sweble.wikitext.engine.nodes.EngineNodeFactory;
+import org.sweble.wikitext.engine.utils.DefaultConfigEnWp;
+import org.sweble.wikitext.parser.nodes.WtNode;
+import org.sweble.wikitext.parser.nodes.WtPreproWikitextPage;
+
+public class LruPreprocessedPageCacheTest
+{
+	WikiConfig config = DefaultConfigEnWp.generate();
+
+	EngineNodeFactory nf = config.getNodeFactory();
+
+	@Test
+	public void testPageIsFoundUnderSameTitleRevisionAndInclusionMode() throws Exception
+	{
+		LruPreprocessedPageCache cache = new LruPreprocessedPageCache(4);
+
+		WtPreproWikitextPage page = nf.preproPage(nf.list(nf.text("Hello")));
+		cache.put(pageId("Template:Hello", 1), true, page);
+
+		assertSame(page, cache.get(pageId("Template:Hello", 1), true));
+		assertNull(cache.get(pageId("Template:Hello", 1), false));
+		assertNull(cache.get(pageId("Template:Hello", 2), true));
+		assertNull(cache.get(pageId("Template:World", 1), true));
+
+		assertEquals(1, cache.getHits());
+		assertEquals(3, cache.getMisses());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedPageIsEvicted() throws Exception
+	{
+		LruPreprocessedPageCache cache = new LruPreprocessedPageCache(2);
+
+		cache.put(pageId("Template:A", 1), true, nf.preproPage(nf.list()));
+		cache.put(pageId("Template:B", 1), true, nf.preproPage(nf.list()));
+
+		// Touch A so that B becomes the eldest entry
+		cache.get(pageId("Template:A", 1), true);
+
+		cache.put(pageId("Template:C", 1), true, nf.preproPage(nf.list()));
+
+		assertEquals(2, cache.getSize());
+		assertEquals(1, cache.getEvictions());
+		assertNull(cache.get(pageId("Template:B", 1), true));
+	}
+
+	@Test
+	public void testEngineRetrievesTransclusionFromCache() throws Exception
+	{
+		LruPreprocessedPageCache cache = new LruPreprocessedPageCache(16);
+
+		WtEngineImpl engine = new WtEngineImpl(config);
+		engine.setPreprocessedPageCache(cache);
+
+		String wikitext = "{{Greeting}} {{Greeting|you}}";
+		EngProcessedPage cached = engine.postprocess(
+				pageId("Main Page", -1),
+				wikitext,
+				new TestCallback("Hi {{{1|there}}}!"));
+
+		assertEquals(1, cache.getSize());
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.getHits());
+		assertNotNull(cache.get(pageId("Template:Greeting", 1), true));
+
+		EngProcessedPage uncached = new WtEngineImpl(config).postprocess(
+				pageId("Main Page", -1),
+				wikitext,
+				new TestCallback("Hi {{{1|there}}}!"));
+
+		assertEquals(uncached.getPage(), cached.getPage());
+	}
+
+	@Test
+	public void testEngineExpandsCopyOfCachedPage() throws Exception
+	{
+		final WtPreproWikitextPage[] pristine = new WtPreproWikitextPage[1];
+
+		LruPreprocessedPageCache cache = new LruPreprocessedPageCache(16)
+		{
+			@Override
+			public void put(
+					PageId pageId,
+					boolean forInclusion,
+					WtPreproWikitextPage ppAst)
+			{
+				pristine[0] = (WtPreproWikitextPage) ppAst.deepCloneWrapException();
+				super.put(pageId, forInclusion, ppAst);
+			}
+		};
+
+		WtEngineImpl engine = new WtEngineImpl(config);
+		engine.setPreprocessedPageCache(cache);
+
+		EngProcessedPage page = engine.expand(
+				pageId("Main Page", -1),
+				"{{Greeting|you}} {{Greeting|me}}",
+				new TestCallback("Hi {{{1|there}}}!"));
+
+		assertEquals(1, cache.getHits());
+
+		// Expansion did not alter the cached page
+		WtPreproWikitextPage cached = cache.get(pageId("Template:Greeting", 1), true);
+		assertEquals(pristine[0], cached);
+
+		Set<WtNode> expanded = Collections.newSetFromMap(new IdentityHashMap<WtNode, Boolean>());
+		collectNodes(page, expanded);
+		assertFalse(expanded.contains(cached));
+		for (WtNode n : cached)
+			assertFalse(expanded.contains(n));
+	}
+
+	@Test
+	public void testEngineDoesNotCachePageWithRegisteredEntities() throws Exception
+	{
+		LruPreprocessedPageCache cache = new LruPreprocessedPageCache(16);
+
+		WtEngineImpl engine = new WtEngineImpl(config);
+		engine.setPreprocessedPageCache(cache);
+
+		// The validator registers the illegal code point as entity
+		engine.postprocess(
+				pageId("Main Page", -1),
+				"{{Greeting}} {{Greeting}}",
+				new TestCallback("Hi\u0007!"));
+
+		assertEquals(0, cache.getSize());
+		assertEquals(0, cache.getHits());
+		assertEquals(2, cache.getMisses());
+	}
+
+	// =========================================================================
+
+	private PageId pageId(String title, long revision) throws Exception
+	{
+		return new PageId(PageTitle.make(config, title), revision);
+	}
+
+	private static void collectNodes(WtNode node, Set<WtNode> nodes)
+	{
+		nodes.add(node);
+		for (WtNode c : node)
+			collectNodes(c, nodes);
+	}
+
+	private static final class TestCallback
+			implements
+				ExpansionCallback
+	{
+		private final String template;
+
+		public TestCallback(String template)
+		{
+			this.template = template;
+		}
+
+		@Override
+		public FullPage retrieveWikitext(
+				ExpansionFrame expansionFrame,
+				PageTitle pageTitle)
+		{
+			if (!pageTitle.getNormalizedFullTitle().equals("Template:Greeting"))
+				return null;
+
+			return new FullPage(new PageId(pageTitle, 1), template);
+		}
+
+		@Override
+		public String fileUrl(PageTitle pageTitle, int width, int height)
+		{
+			return null;
+		}
+	}
+}
@@ -0,0 +1,196 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.Test;
+import org.sweble.wikitext.engine.config.WikiConfig;
+import org.sweble.wikitext.engine.ext.core.CorePfnFunctionsFormatting;
+import org.sweble.wikitext.engine.ext.core.CorePfnVariablesDateAndTime;
+import org.sweble.wikitext.engine.ext.core.CorePfnVariablesNamespaces;
+import org.sweble.wikitext.engine.ext.core.CorePfnVariablesPageNames;
+import org.sweble.wikitext.engine.ext.parser_functions.ParserFunctionTime;
+import org.sweble.wikitext.engine.nodes.EngProcessedPage;
+import org.sweble.wikitext.engine.nodes.EngineNodeFactory;
+import org.sweble.wikitext.engine.utils.DefaultConfigEnWp;
+import org.sweble.wikitext.parser.nodes.WtNode;
+import org.sweble.wikitext.parser.nodes.WtText;
+
+import de.fau.cs.osr.ptk.common.Warning;
+
+public class LruTransclusionResultCacheTest
+{
+	WikiConfig config = DefaultConfigEnWp.generate();
+
+	EngineNodeFactory nf = config.getNodeFactory();
+
+	@Test
+	public void testResultIsStoredWhenOfferedTwice() throws Exception
+	{
+		LruTransclusionResultCache cache = new LruTransclusionResultCache(4);
+
+		EngProcessedPage result = result("Hello");
+		cache.put(pageId("Template:Hello", 1), "args", result);
+		assertNull(cache.get(pageId("Template:Hello", 1), "args"));
+
+		cache.put(pageId("Template:Hello", 1), "args", result);
+		EngProcessedPage copy = cache.get(pageId("Template:Hello", 1), "args");
+		assertNotNull(copy);
+		assertNotSame(result, copy);
+		assertEquals("Hello", text(copy));
+
+		assertNull(cache.get(pageId("Template:Hello", 1), "other args"));
+		assertNull(cache.get(pageId("Template:Hello", 2), "args"));
+
+		assertEquals(1, cache.getSize());
+		assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedResultIsEvicted() throws Exception
+	{
+		LruTransclusionResultCache cache = new LruTransclusionResultCache(2);
+
+		for (String title : new String[] { "Template:A", "Template:B", "Template:A", "Template:B" })
+			cache.put(pageId(title, 1), "", result(title));
+
+		// Touch A so that B becomes the eldest entry
+		assertNotNull(cache.get(pageId("Template:A", 1), ""));
+
+		cache.put(pageId("Template:C", 1), "", result("C"));
+		cache.put(pageId("Template:C", 1), "", result("C"));
+
+		assertEquals(2, cache.getSize());
+		assertEquals(1, cache.getEvictions());
+		assertNull(cache.get(pageId("Template:B", 1), ""));
+		assertNotNull(cache.get(pageId("Template:A", 1), ""));
+	}
+
+	@Test
+	public void testEqualArgumentsAtDifferentPlacesHitTheCache() throws Exception
+	{
+		LruTransclusionResultCache cache = new LruTransclusionResultCache(16);
+
+		String wikitext = ""
+				+ "{{Greeting|A}}\n"
+				+ "{{Greeting|A}}\n"
+				+ "{{Greeting|B}}\n"
+				+ "{{Greeting|A}}";
+
+		EngProcessedPage cached = postprocess(wikitext, cache);
+		EngProcessedPage uncached = postprocess(wikitext, null);
+
+		assertEquals(1, cache.getHits());
+		assertEquals(3, cache.getMisses());
+		assertEquals(1, cache.getSize());
+		assertEquals(text(uncached), text(cached));
+		assertTrue(text(cached).contains("Hi B!"));
+	}
+
+	@Test
+	public void testPageDependentResultsAreNotCached() throws Exception
+	{
+		LruTransclusionResultCache cache = new LruTransclusionResultCache(16);
+
+		postprocess("{{Here}} {{Here}} {{Here}}", cache);
+
+		assertEquals(0, cache.getHits());
+		assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	public void testTimeAndPageDependentParserFunctions() throws Exception
+	{
+		assertTrue(ExpansionVisitor.isTimeOrPageDependent(new CorePfnVariablesDateAndTime.CurrentYearPfn()));
+		assertTrue(ExpansionVisitor.isTimeOrPageDependent(new CorePfnVariablesPageNames.PagenamePfn()));
+		assertTrue(ExpansionVisitor.isTimeOrPageDependent(new CorePfnVariablesNamespaces.NamespacePfn()));
+		assertTrue(ExpansionVisitor.isTimeOrPageDependent(new ParserFunctionTime()));
+		assertFalse(ExpansionVisitor.isTimeOrPageDependent(new CorePfnFunctionsFormatting.LcPfn()));
+	}
+
+	// =========================================================================
+
+	private EngProcessedPage postprocess(
+			String wikitext,
+			TransclusionResultCache cache) throws Exception
+	{
+		WtEngineImpl engine = new WtEngineImpl(config);
+		engine.setTransclusionResultCache(cache);
+		return engine.postprocess(pageId("Main Page", -1), wikitext, new TestCallback());
+	}
+
+	private EngProcessedPage result(String text)
+	{
+		return nf.processedPage(
+				nf.page(nf.list(nf.text(text))),
+				nf.logProcessingPass(),
+				Collections.<Warning> emptyList());
+	}
+
+	private PageId pageId(String title, long revision) throws Exception
+	{
+		return new PageId(PageTitle.make(config, title), revision);
+	}
+
+	private static String text(WtNode node)
+	{
+		StringBuilder b = new StringBuilder();
+		appendText(b, node);
+		return b.toString();
+	}
+
+	private static void appendText(StringBuilder b, WtNode node)
+	{
+		if (node instanceof WtText)
+			b.append(((WtText) node).getContent());
+		for (WtNode child : node)
+			appendText(b, child);
+	}
+
+	private final class TestCallback
+			implements
+				ExpansionCallback
+	{
+		@Override
+		public FullPage retrieveWikitext(
+				ExpansionFrame expansionFrame,
+				PageTitle pageTitle)
+		{
+			String title = pageTitle.getNormalizedFullTitle();
+			if (title.equals("Template:Greeting"))
+				return new FullPage(new PageId(pageTitle, 1), "Hi {{{1}}}!");
+			if (title.equals("Template:Here"))
+				return new FullPage(new PageId(pageTitle, 1), "{{PAGENAME}}");
+			return null;
+		}
+
+		@Override
+		public String fileUrl(PageTitle pageTitle, int width, int height)
+		{
+			return null;
+		}
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.sweble.wikitext.engine.config.WikiConfigImpl;
+import org.sweble.wikitext.engine.nodes.EngProcessedPage;
+import org.sweble.wikitext.engine.utils.DefaultConfigEnWp;
+import org.sweble.wikitext.parser.WtRtData;
+import org.sweble.wikitext.parser.WtSourceSpan;
+import org.sweble.wikitext.parser.nodes.WtNode;
+import org.sweble.wikitext.parser.utils.WtRtDataPrinter;
+
+public class SourceOffsetRtDataTest
+{
+	private static final String WIKITEXT = ""
+			+ "Intro with '''bold''' text and a [[Link|title]].\n"
+			+ "== Section ==\n"
+			+ "* item <span class=\"a\">x</span>\n"
+			+ "<!-- comment --><nowiki>[[not a link]]</nowiki>\n"
+			+ "{|\n| cell || cell\n|}\n";
+
+	// =========================================================================
+
+	@Test
+	public void testPostprocessedPageIsPrintedFromSourceOffsets() throws Exception
+	{
+		WikiConfigImpl config = DefaultConfigEnWp.generate();
+		config.getParserConfig().setSourceOffsetRtData(true);
+
+		WtEngineImpl engine = new WtEngineImpl(config);
+		PageId pageId = new PageId(PageTitle.make(config, "Page"), -1);
+
+		EngProcessedPage page = engine.postprocess(pageId, WIKITEXT, null);
+
+		List<WtSourceSpan> spans = new ArrayList<WtSourceSpan>();
+		collectSpans(page.getPage(), spans);
+		assertFalse(spans.isEmpty());
+		for (WtSourceSpan span : spans)
+			assertTrue(span.length() > 0);
+
+		assertEquals(WIKITEXT, WtRtDataPrinter.print(page.getPage()));
+	}
+
+	@Test
+	public void testMappedPageEqualsCopiedPage() throws Exception
+	{
+		WikiConfigImpl config = DefaultConfigEnWp.generate();
+		PageId pageId = new PageId(PageTitle.make(config, "Page"), -1);
+
+		EngProcessedPage copied = new WtEngineImpl(config).postprocess(pageId, WIKITEXT, null);
+
+		config.getParserConfig().setSourceOffsetRtData(true);
+		EngProcessedPage mapped = new WtEngineImpl(config).postprocess(pageId, WIKITEXT, null);
+
+		assertEquals(
+				WtRtDataPrinter.print(copied.getPage()),
+				WtRtDataPrinter.print(mapped.getPage()));
+		assertEquals(copied.getPage(), mapped.getPage());
+	}
+
+	// =========================================================================
+
+	private static void collectSpans(WtNode node, List<WtSourceSpan> spans)
+	{
+		WtRtData rtd = node.getRtd();
+		if (rtd != null && !rtd.isSuppress())
+		{
+			for (int i = 0; i < rtd.size(); ++i)
+			{
+				for (Object o : rtd.getField(i))
+				{
+					if (o instanceof WtSourceSpan)
+						spans.add((WtSourceSpan) o);
+					else if (o instanceof WtNode)
+						collectSpans((WtNode) o, spans);
+				}
+			}
+		}
+
+		for (WtNode c : node)
+			collectSpans(c, spans);
+	}
+}
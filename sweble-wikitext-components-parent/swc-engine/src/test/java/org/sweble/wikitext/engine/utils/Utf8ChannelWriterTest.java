@@ -0,0 +1,80 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.engine.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+
+import org.junit.Test;
+
+public class Utf8ChannelWriterTest
+{
+	private static final String TEXT = "ASCII, äöü, €, 😀";
+
+	@Test
+	public void testOutputEqualsStringGetBytes() throws Exception
+	{
+		assertEncodes(TEXT, Utf8ChannelWriter.DEFAULT_BUFFER_SIZE);
+	}
+
+	@Test
+	public void testSmallBufferSplitsCharactersCorrectly() throws Exception
+	{
+		StringBuilder b = new StringBuilder();
+		for (int i = 0; i < 100; ++i)
+			b.append(TEXT);
+
+		assertEncodes(b.toString(), 5);
+	}
+
+	@Test
+	public void testUnpairedSurrogatesAreReplaced() throws Exception
+	{
+		assertEncodes("a\uDE00b\uD83Dc\uD83D", 16);
+	}
+
+	@Test
+	public void testSurrogatePairSplitAcrossWritesIsEncodedAsOneCodePoint() throws Exception
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Utf8ChannelWriter w = new Utf8ChannelWriter(Channels.newChannel(out), 4);
+		w.write("x\uD83D");
+		w.flush();
+		w.write("\uDE00y");
+		w.close();
+
+		assertArrayEquals("x😀y".getBytes("UTF-8"), out.toByteArray());
+	}
+
+	// =========================================================================
+
+	private static void assertEncodes(String text, int bufferSize) throws Exception
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Utf8ChannelWriter w = new Utf8ChannelWriter(Channels.newChannel(out), bufferSize);
+
+		// Write in odd chunks to cross buffer boundaries
+		for (int i = 0; i < text.length(); i += 3)
+			w.write(text, i, Math.min(3, text.length() - i));
+		w.close();
+
+		assertArrayEquals(text.getBytes("UTF-8"), out.toByteArray());
+	}
+}
@@ -33,11 +33,23 @@ import org.sweble.wikitext.articlecruncher.Nexus;
 import org.sweble.wikitext.articlecruncher.ProcessingNodeFactory;
 import org.sweble.wikitext.articlecruncher.Processor;
 import org.sweble.wikitext.articlecruncher.StorerFactory;
+import org.sweble.wikitext.articlecruncher.TraceMode;
+import org.sweble.wikitext.articlecruncher.checkpoint.CheckpointLog;
+import org.sweble.wikitext.articlecruncher.checkpoint.CheckpointTracker;
+import org.sweble.wikitext.articlecruncher.dedup.DedupCache;
+import org.sweble.wikitext.articlecruncher.dedup.DedupProcessor;
+import org.sweble.wikitext.articlecruncher.metrics.JmxMetricsExporter;
+import org.sweble.wikitext.articlecruncher.metrics.LogMetricsExporter;
+import org.sweble.wikitext.articlecruncher.metrics.MetricsReporter;
 import org.sweble.wikitext.articlecruncher.pnodes.LocalProcessingNode;
 import org.sweble.wikitext.articlecruncher.pnodes.LpnJobProcessorFactory;
+import org.sweble.wikitext.articlecruncher.pnodes.WorkStealingProcessingNode;
 import org.sweble.wikitext.articlecruncher.storers.DummyStorer;
 import org.sweble.wikitext.articlecruncher.utils.AbortHandler;
+import org.sweble.wikitext.articlecruncher.utils.ExecutorType;
 import org.sweble.wikitext.articlecruncher.utils.WorkerBase;
+import org.sweble.wikitext.dumpreader.DumpIndex;
+import org.sweble.wikitext.engine.ImmutableWtEngine;
 import org.sweble.wikitext.engine.config.WikiConfig;
 import org.sweble.wikitext.engine.utils.DefaultConfigEnWp;
 
@@ -57,6 +69,16 @@ public class DumpCruncher
 
 	private WikiConfig wikiConfig;
 
+	private ImmutableWtEngine engine;
+
+	private DedupCache dedupCache;
+
+	private CheckpointTracker checkpointTracker;
+
+	private DumpIndex dumpIndex;
+
+	private MetricsReporter metricsReporter;
+
 	// =========================================================================
 
 	public static void main(String[] args) throws Throwable
@@ -83,23 +105,56 @@ public class DumpCruncher
 				logger.warn("Unfinished job: " + trace.toString());
 
 			logger.info("Number of unfinished jobs: " + jobTraces.size());
+
+			if (dedupCache != null)
+				logger.info("Revision deduplication: " + dedupCache);
+
+			if (metricsReporter != null)
+				metricsReporter.close();
+
+			if (checkpointTracker != null)
+				checkpointTracker.close();
+
+			if (dumpIndex != null)
+				dumpIndex.close();
+
 			logger.info("Dump cruncher exiting");
 		}
 	}
 
 	public void setUp() throws Throwable
 	{
-		gui = new Gui(this);
+		if (!options.has("headless"))
+			gui = new Gui(this);
 
 		nexus = new Nexus();
 
+		nexus.setTraceMode(
+				TraceMode.valueOf(options.value("Nexus.TraceMode")),
+				options.value("Nexus.TraceSamplingInterval", int.class));
+
 		final File dumpFile = new File(options.value("dump"));
 
+		final int decompressionThreads =
+				options.value("DumpCruncher.DecompressionThreads", int.class);
+
 		nexus.setUp(
 				options.value("Nexus.InTrayCapacity", int.class),
 				options.value("Nexus.ProcessedJobsCapacity", int.class),
 				options.value("Nexus.OutTrayCapacity", int.class));
 
+		if (options.has("dump-index"))
+			dumpIndex = DumpIndex.openOrBuild(dumpFile, new File(options.value("dump-index")));
+
+		if (options.has("checkpoint"))
+		{
+			checkpointTracker = new CheckpointTracker(
+					new CheckpointLog(new File(options.value("checkpoint"))),
+					options.value("DumpCruncher.CheckpointInterval", int.class));
+
+			nexus.setCheckpointTracker(checkpointTracker);
+		}
+
 		nexus.addJobGenerator(new JobGeneratorFactory()
 		{
 			@Override
@@ -115,9 +170,12 @@ public class DumpCruncher
 							dumpFile,
 							// Are dumps always UTF8?
 							Charset.forName("UTF8"),
+							decompressionThreads,
 							abortHandler,
 							inTray,
-							jobTraces);
+							jobTraces,
+							checkpointTracker,
+							dumpIndex);
 				}
 				catch (Exception e)
 				{
@@ -151,12 +209,23 @@ public class DumpCruncher
 
 		wikiConfig = DefaultConfigEnWp.generate();
 
+		// One engine is shared by all processor threads
+		engine = new ImmutableWtEngine.Builder(wikiConfig).build();
+
+		// Revisions with the same text (e.g. reverts) are only processed once
+		final int dedupCacheSize = options.value("DumpCruncher.DedupCacheSize", int.class);
+		if (dedupCacheSize > 0)
+			dedupCache = new DedupCache(dedupCacheSize);
+
 		final LpnJobProcessorFactory lpnJPFactory = new LpnJobProcessorFactory()
 		{
 			@Override
 			public Processor createProcessor()
 			{
-				return new RevisionProcessor(DumpCruncher.this);
+				RevisionProcessor processor = new RevisionProcessor(DumpCruncher.this);
+				if (dedupCache != null)
+					return new DedupProcessor(processor, dedupCache, processor);
+				return processor;
 			}
 
 			@Override
@@ -176,12 +245,29 @@ public class DumpCruncher
 			{
 				final int numWorkers = options.value("Nexus.NumProcessingWorkers", int.class);
 
+				final int batchSize = options.value("Nexus.ProcessingBatchSize", int.class);
+
+				if (batchSize > 0)
+				{
+					return new WorkStealingProcessingNode(
+							abortHandler,
+							inTray,
+							completedJobs,
+							lpnJPFactory,
+							numWorkers,
+							batchSize);
+				}
+
+				final ExecutorType executorType = ExecutorType.valueOf(
+						options.value("Nexus.ProcessingExecutor"));
+
 				return new LocalProcessingNode(
 						abortHandler,
 						inTray,
 						completedJobs,
 						lpnJPFactory,
-						numWorkers);
+						numWorkers,
+						executorType);
 			}
 		});
 
@@ -212,9 +298,29 @@ public class DumpCruncher
 			}
 		});
 
+		int metricsInterval = options.value("DumpCruncher.MetricsInterval", int.class);
+		if (metricsInterval > 0)
+		{
+			metricsReporter = new MetricsReporter(nexus.getMetrics(), metricsInterval * 1000L);
+
+			for (String exporter : options.value("DumpCruncher.MetricsExport").split(","))
+			{
+				exporter = exporter.trim();
+				if (exporter.equals("log"))
+					metricsReporter.addExporter(new LogMetricsExporter());
+				else if (exporter.equals("jmx"))
+					metricsReporter.addExporter(new JmxMetricsExporter());
+				else
+					throw new IllegalArgumentException("Unknown metrics exporter: " + exporter);
+			}
+
+			metricsReporter.start();
+		}
+
 		nexus.start();
 
-		gui.close();
+		if (gui != null)
+			gui.close();
 	}
 
 	// =========================================================================
@@ -239,6 +345,11 @@ public class DumpCruncher
 		return wikiConfig;
 	}
 
+	public ImmutableWtEngine getEngine()
+	{
+		return engine;
+	}
+
 	// =========================================================================
 
 	private boolean options(String[] args) throws IOException
@@ -256,6 +367,41 @@ public class DumpCruncher
 				.withRequiredArg()
 				.create();
 
+		options.createOption("decompression-threads")
+				.withDescription("The number of threads decompressing a multistream bzip2 dump.")
+				.withPropertyKey("DumpCruncher.DecompressionThreads")
+				.withDefault("1")
+				.withArgName("N")
+				.create();
+
+		options.createOption("dump-index")
+				.withDescription("The index of the dump. Built if it does not exist. Used to resume a run at the bzip2 stream of the first revision that was not stored.")
+				.withPropertyKey("DumpCruncher.IndexFile")
+				.withArgName("FILE")
+				.withRequiredArg()
+				.create();
+
+		options.createOption("checkpoint")
+				.withDescription("The file to record the progress in. If it exists, the run is resumed from the last checkpoint.")
+				.withPropertyKey("DumpCruncher.CheckpointFile")
+				.withArgName("FILE")
+				.withRequiredArg()
+				.create();
+
+		options.createOption("checkpoint-interval")
+				.withDescription("The number of stored revisions after which a checkpoint is written.")
+				.withPropertyKey("DumpCruncher.CheckpointInterval")
+				.withDefault("1000")
+				.withArgName("N")
+				.create();
+
+		options.createOption("dedup-cache-size")
+				.withDescription("The number of processed revisions remembered to skip revisions with identical text (0 disables deduplication).")
+				.withPropertyKey("DumpCruncher.DedupCacheSize")
+				.withDefault("0")
+				.withArgName("N")
+				.create();
+
 		// ---
 
 		options.createPropertyOnlyOption("Nexus.InTrayCapacity")
@@ -284,6 +430,52 @@ public class DumpCruncher
 				.withArgName("N")
 				.create();
 
+		options.createOption("processing-batch-size")
+				.withDescription("Process jobs in batches of up to N jobs on a work-stealing pool (0 hands every job to a worker separately).")
+				.withPropertyKey("Nexus.ProcessingBatchSize")
+				.withDefault("0")
+				.withArgName("N")
+				.create();
+
+		options.createOption("processing-executor")
+				.withDescription("The executor running the processing workers: CACHED_THREAD_POOL or VIRTUAL_THREAD_PER_TASK (Java 21 and later).")
+				.withPropertyKey("Nexus.ProcessingExecutor")
+				.withDefault("CACHED_THREAD_POOL")
+				.withArgName("TYPE")
+				.create();
+
+		options.createOption("trace-mode")
+				.withDescription("Which jobs record the workers they passed: FULL, SAMPLED or DISABLED. Unfinished jobs are reported in all modes.")
+				.withPropertyKey("Nexus.TraceMode")
+				.withDefault("FULL")
+				.withArgName("MODE")
+				.create();
+
+		options.createOption("trace-sampling-interval")
+				.withDescription("In trace mode SAMPLED only every n-th job records the workers it passed.")
+				.withPropertyKey("Nexus.TraceSamplingInterval")
+				.withDefault("100")
+				.withArgName("N")
+				.create();
+
+		options.createOption("headless")
+				.withDescription("Do not show the progress dialog. Use the metrics to monitor the run.")
+				.create();
+
+		options.createOption("metrics-interval")
+				.withDescription("The interval in seconds in which metrics are exported. 0 disables metrics.")
+				.withPropertyKey("DumpCruncher.MetricsInterval")
+				.withDefault("10")
+				.withArgName("SECONDS")
+				.create();
+
+		options.createOption("metrics-export")
+				.withDescription("A comma separated list of metrics exporters: log and/or jmx.")
+				.withPropertyKey("DumpCruncher.MetricsExport")
+				.withDefault("log")
+				.withArgName("EXPORTERS")
+				.create();
+
 		options.createOption('P', "properties")
 				.withDescription("A properties file to load additional configuration options from.")
 				.withDefault("dump2db.properties")
@@ -309,10 +501,21 @@ public class DumpCruncher
 			options.expected("dump");
 
 			options.optional("P");
+			options.optional("DumpCruncher.DecompressionThreads");
+			options.optional("DumpCruncher.DedupCacheSize");
+			options.optional("DumpCruncher.IndexFile");
+			options.optional("DumpCruncher.CheckpointFile");
+			options.optional("DumpCruncher.CheckpointInterval");
 			options.optional("Nexus.InTrayCapacity");
 			options.optional("Nexus.ProcessedJobsCapacity");
 			options.optional("Nexus.OutTrayCapacity");
 			options.optional("Nexus.NumProcessingWorkers");
+			options.optional("Nexus.ProcessingBatchSize");
+			options.optional("Nexus.ProcessingExecutor");
+			options.optional("Nexus.TraceMode");
+			options.optional("Nexus.TraceSamplingInterval");
+			options.optional("DumpCruncher.MetricsInterval");
+			options.optional("DumpCruncher.MetricsExport");
 
 			options.checkForInvalidOptions();
 
@@ -27,11 +27,14 @@ import java.util.concurrent.BlockingQueue;
 import org.sweble.wikitext.articlecruncher.Job;
 import org.sweble.wikitext.articlecruncher.JobTrace;
 import org.sweble.wikitext.articlecruncher.JobTraceSet;
+import org.sweble.wikitext.articlecruncher.checkpoint.Checkpoint;
+import org.sweble.wikitext.articlecruncher.checkpoint.CheckpointTracker;
 import org.sweble.wikitext.articlecruncher.utils.AbortHandler;
 import org.sweble.wikitext.articlecruncher.utils.WorkerBase;
+import org.sweble.wikitext.dumpreader.DumpIndex;
 import org.sweble.wikitext.dumpreader.DumpReader;
-import org.sweble.wikitext.dumpreader.export_0_10.PageType;
-import org.sweble.wikitext.dumpreader.export_0_10.RevisionType;
+import org.sweble.wikitext.dumpreader.model.Page;
+import org.sweble.wikitext.dumpreader.model.Revision;
 
 import de.fau.cs.osr.utils.WrappedException;
 
@@ -47,33 +50,108 @@ public class DumpReaderJobGenerator
 
 	private final DumpReader dumpReader;
 
+	private final CheckpointTracker checkpointTracker;
+
+	private final DumpIndex dumpIndex;
+
 	private InputStream is;
 
+	/**
+	 * The number of revisions read from the dump so far, including the ones
+	 * skipped because an earlier run already stored them.
+	 */
+	private long sequenceNumber;
+
+	private long offset;
+
+	private long jobsBeforeOffset;
+
 	// =========================================================================
 
 	public DumpReaderJobGenerator(
 			DumpCruncher dumpCruncher,
 			File dumpFile,
 			Charset charset,
+			int decompressionThreads,
 			AbortHandler abortHandler,
 			BlockingQueue<Job> inTray,
 			JobTraceSet jobTraces)
+	{
+		this(
+				dumpCruncher,
+				dumpFile,
+				charset,
+				decompressionThreads,
+				abortHandler,
+				inTray,
+				jobTraces,
+				null,
+				null);
+	}
+
+	/**
+	 * @param checkpointTracker
+	 *            If not null, the progress is recorded and jobs stored by an
+	 *            earlier run are skipped.
+	 * @param dumpIndex
+	 *            If not null, an earlier run is resumed at the bzip2 stream
+	 *            (or the page of an uncompressed dump) where the first job
+	 *            that was not stored starts. Otherwise the dump is read from
+	 *            the beginning and the stored jobs are skipped.
+	 */
+	public DumpReaderJobGenerator(
+			DumpCruncher dumpCruncher,
+			File dumpFile,
+			Charset charset,
+			int decompressionThreads,
+			AbortHandler abortHandler,
+			BlockingQueue<Job> inTray,
+			JobTraceSet jobTraces,
+			CheckpointTracker checkpointTracker,
+			DumpIndex dumpIndex)
 	{
 		super(DumpReaderJobGenerator.class.getSimpleName(), abortHandler);
 
 		this.dumpCruncher = dumpCruncher;
 		this.inTray = inTray;
 		this.jobTraces = jobTraces;
+		this.checkpointTracker = checkpointTracker;
+		this.dumpIndex = dumpIndex;
 
 		try
 		{
-			is = new FileInputStream(dumpFile);
+			long resumeOffset = -1;
+
+			Checkpoint resume = (checkpointTracker != null) ?
+					checkpointTracker.getResumeCheckpoint() :
+					null;
+
+			if (resume != null && dumpIndex != null && resume.getOffset() > 0)
+			{
+				info("Resuming dump at offset " + resume.getOffset());
+
+				resumeOffset = resume.getOffset();
+				is = dumpIndex.openFrom(resumeOffset, decompressionThreads);
+
+				offset = resumeOffset;
+				sequenceNumber = resume.getJobsBeforeOffset();
+				jobsBeforeOffset = sequenceNumber;
+			}
+			else
+			{
+				is = new FileInputStream(dumpFile);
+			}
+
 			this.dumpReader = new DumpReader(
 					is,
 					charset,
 					dumpFile.getPath(),
 					getLogger(),
-					false)
+					false,
+					decompressionThreads,
+					true,
+					true,
+					resumeOffset)
 			{
 				@Override
 				protected void processPage(Object mediaWiki, Object page)
@@ -150,22 +228,45 @@ public class DumpReaderJobGenerator
 
 	protected void processPage(Object mediaWiki, Object page_) throws InterruptedException, IOException
 	{
-		PageType page = (PageType) page_;
+		Page page = (Page) page_;
 
-		for (Object o : page.getRevisionOrUpload())
+		if (dumpIndex != null)
 		{
-			if (o instanceof RevisionType)
+			// All pages of a bzip2 stream share the same offset
+			long pageOffset = dumpIndex.getResumeOffset(page.getId().longValue());
+			if (pageOffset != -1 && pageOffset != offset)
 			{
-				RevisionJob job = new RevisionJob(page, (RevisionType) o);
+				offset = pageOffset;
+				jobsBeforeOffset = sequenceNumber;
+			}
+		}
+
+		for (Revision revision : page.getRevisions())
+		{
+			++sequenceNumber;
+			if (checkpointTracker != null && checkpointTracker.isStored(sequenceNumber))
+				continue;
+
+			RevisionJob job = new RevisionJob(page, revision);
 
-				JobTrace trace = job.getTrace();
-				trace.signOff(getClass(), null);
+			// The set decides whether the trace records its signers
+			JobTrace trace = job.getTrace();
+			jobTraces.add(trace);
 
-				jobTraces.add(trace);
+			trace.signOff(getClass(), null);
 
-				inTray.put(job);
+			if (checkpointTracker != null)
+				checkpointTracker.generated(trace, sequenceNumber, offset, jobsBeforeOffset);
 
-				Gui gui = dumpCruncher.getGui();
+			inTray.put(job);
+
+			dumpCruncher.getNexus().getMetrics().setInputProgress(
+					getParsedCount(),
+					getCompressedBytesRead());
+
+			Gui gui = dumpCruncher.getGui();
+			if (gui != null)
+			{
 				gui.setPageCount((int) getParsedCount());
 				gui.setBytesRead(getCompressedBytesRead());
 				gui.redrawLater();
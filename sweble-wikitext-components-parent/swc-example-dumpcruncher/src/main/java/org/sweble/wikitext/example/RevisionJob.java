@@ -22,18 +22,16 @@ import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.TimeZone;
 
-import javax.xml.datatype.XMLGregorianCalendar;
-
 import org.sweble.wikitext.articlecruncher.Job;
-import org.sweble.wikitext.dumpreader.export_0_10.CommentType;
-import org.sweble.wikitext.dumpreader.export_0_10.ContributorType;
-import org.sweble.wikitext.dumpreader.export_0_10.PageType;
-import org.sweble.wikitext.dumpreader.export_0_10.RevisionType;
-import org.sweble.wikitext.dumpreader.export_0_10.TextType;
+import org.sweble.wikitext.articlecruncher.dedup.DedupJob;
+import org.sweble.wikitext.dumpreader.model.Page;
+import org.sweble.wikitext.dumpreader.model.Revision;
 
 public class RevisionJob
 		extends
 			Job
+		implements
+			DedupJob
 {
 	// -- page info --
 
@@ -59,79 +57,33 @@ public class RevisionJob
 
 	private final boolean isTextDeleted;
 
+	private final String textSha1;
+
 	// =========================================================================
 
-	public RevisionJob(PageType page, RevisionType rev)
+	public RevisionJob(Page page, Revision rev)
 	{
-		page.getDiscussionthreadinginfo();
-
 		this.pageId = page.getId();
 
-		this.pageNamespace = page.getNs();
-
-		if (page.getRedirect() != null)
-		{
-			this.pageRedirect = page.getRedirect().getTitle();
-		}
-		else
-		{
-			this.pageRedirect = null;
-		}
+		this.pageNamespace = page.getNamespace();
 
-		page.getRestrictions();
-		rev.getSha1();
+		this.pageRedirect = page.getRedirectTitle();
 
 		this.pageTitle = page.getTitle();
 
-		if (rev.getComment() != null)
-		{
-			CommentType comment = rev.getComment();
-			comment.getDeleted();
-			comment.getValue();
-		}
-
-		if (rev.getContributor() != null)
-		{
-			ContributorType contributor = rev.getContributor();
-			contributor.getDeleted();
-			contributor.getId();
-			contributor.getIp();
-			contributor.getUsername();
-		}
-
 		this.id = rev.getId();
 
-		this.minor = (rev.getMinor() != null);
+		this.minor = rev.isMinor();
 
-		rev.getSha1();
+		this.isTextDeleted = rev.isTextDeleted();
 
-		if (rev.getText() != null)
-		{
-			TextType text = rev.getText();
-			text.getBytes();
-			this.isTextDeleted = text.getDeleted() != null;
-			text.getSpace();
-			this.textText = text.getValue();
-		}
-		else
-		{
-			this.isTextDeleted = false;
-			this.textText = null;
-		}
+		this.textText = rev.getText();
+
+		this.textSha1 = rev.getTextSha1();
 
 		if (rev.getTimestamp() != null)
 		{
-			XMLGregorianCalendar ts = rev.getTimestamp();
-
-			this.timestamp = new GregorianCalendar();
-			this.timestamp.setTimeZone(ts.getTimeZone(0));
-			this.timestamp.set(
-					ts.getYear(),
-					ts.getMonth(),
-					ts.getDay(),
-					ts.getHour(),
-					ts.getMinute(),
-					ts.getSecond());
+			this.timestamp = rev.getTimestamp().toGregorianCalendar();
 		}
 		else
 		{
@@ -194,4 +146,29 @@ public class RevisionJob
 	{
 		return isTextDeleted;
 	}
+
+	public String getTextSha1()
+	{
+		return textSha1;
+	}
+
+	// =========================================================================
+
+	/**
+	 * The title is part of the key since the same text can render differently
+	 * on different pages (e.g. magic words like {{PAGENAME}}). Output which
+	 * depends on the revision or the time of processing (e.g.
+	 * {{REVISIONID}}, {{CURRENTTIME}}) is taken from the first revision with
+	 * the same text.
+	 * 
+	 * The parent revision is not part of the key. Reverts, the most common
+	 * duplicates, never have the same parent as the revision they restore.
+	 */
+	@Override
+	public String getContentKey()
+	{
+		if (isTextDeleted || textSha1 == null || textSha1.isEmpty())
+			return null;
+		return pageTitle + '\u0000' + textSha1;
+	}
 }
@@ -19,17 +19,21 @@ package org.sweble.wikitext.example;
 
 import org.sweble.wikitext.articlecruncher.Job;
 import org.sweble.wikitext.articlecruncher.Processor;
+import org.sweble.wikitext.articlecruncher.dedup.DedupResultAdapter;
+import org.sweble.wikitext.engine.ImmutableWtEngine;
 import org.sweble.wikitext.engine.PageId;
 import org.sweble.wikitext.engine.PageTitle;
-import org.sweble.wikitext.engine.WtEngineImpl;
 import org.sweble.wikitext.engine.config.WikiConfig;
+import org.sweble.wikitext.engine.nodes.EngLogProcessingPass;
 import org.sweble.wikitext.engine.nodes.EngProcessedPage;
+import org.sweble.wikitext.engine.nodes.EngineNodeFactory;
 
 import de.fau.cs.osr.utils.WrappedException;
 
 public class RevisionProcessor
 		implements
-			Processor
+			Processor,
+			DedupResultAdapter
 {
 	private final DumpCruncher dumpCruncher;
 
@@ -44,15 +48,17 @@ public class RevisionProcessor
 		try
 		{
 			Gui gui = dumpCruncher.getGui();
-			gui.processingStarted();
-			gui.redrawLater();
+			if (gui != null)
+			{
+				gui.processingStarted();
+				gui.redrawLater();
+			}
 
 			RevisionJob revJob = (RevisionJob) job;
 
 			WikiConfig config = dumpCruncher.getWikiConfig();
 
-			// Instantiate a compiler for wiki pages
-			WtEngineImpl engine = new WtEngineImpl(config);
+			ImmutableWtEngine engine = dumpCruncher.getEngine();
 
 			// Retrieve a page
 			PageTitle pageTitle = PageTitle.make(config, revJob.getPageTitle());
@@ -64,8 +70,11 @@ public class RevisionProcessor
 			// Compile the retrieved page
 			EngProcessedPage cp = engine.postprocess(pageId, wikitext, null);
 
-			gui.processingFinished();
-			gui.redrawLater();
+			if (gui != null)
+			{
+				gui.processingFinished();
+				gui.redrawLater();
+			}
 
 			return cp;
 		}
@@ -74,4 +83,31 @@ public class RevisionProcessor
 			throw new WrappedException(e);
 		}
 	}
+
+	/**
+	 * Wraps the processed page of an earlier revision with the same text in
+	 * a new processed page which records the id of the skipped revision. The
+	 * page and the logs of the processing passes are shared.
+	 */
+	@Override
+	public Object adapt(Job job, Object result)
+	{
+		RevisionJob revJob = (RevisionJob) job;
+
+		EngProcessedPage first = (EngProcessedPage) result;
+
+		EngineNodeFactory nf = dumpCruncher.getEngine().nf();
+
+		EngLogProcessingPass log = nf.logProcessingPass();
+		log.setTitle(first.getLog().getTitle());
+		log.setRevision(revJob.getId().longValue());
+		log.setTimeNeeded(first.getLog().getTimeNeeded());
+		log.addAll(first.getLog());
+
+		return nf.processedPage(
+				first.getPage(),
+				log,
+				first.getWarnings(),
+				first.getEntityMap());
+	}
 }
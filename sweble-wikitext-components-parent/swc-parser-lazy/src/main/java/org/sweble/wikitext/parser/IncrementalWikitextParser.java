@@ -0,0 +1,477 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.parser;
+
+import java.io.IOException;
+
+import org.sweble.wikitext.parser.comparer.WtComparer;
+import org.sweble.wikitext.parser.nodes.WtContentNode;
+import org.sweble.wikitext.parser.nodes.WtNode;
+import org.sweble.wikitext.parser.nodes.WtParsedWikitextPage;
+import org.sweble.wikitext.parser.nodes.WtSection;
+import org.sweble.wikitext.parser.utils.WtRtDataPrinter;
+
+import de.fau.cs.osr.ptk.common.ast.AstLocation;
+import xtc.parser.ParseException;
+
+/**
+ * Updates the AST of a page after the page's wikitext was edited by parsing
+ * only the top-level sections touched by the edit and splicing the result
+ * into the previous AST.
+ * 
+ * The ASTs handled by this class are the result of parsing and postprocessing
+ * wikitext without preprocessing or expansion. An edit is only applied
+ * incrementally if the outcome is guaranteed to equal a full parse:
+ * <ul>
+ * <li>The runtime data of the previous AST reproduces the previous wikitext.</li>
+ * <li>The edit does neither add nor remove characters which can open or close
+ * constructs spanning sections: tables, templates, XML elements, tag
+ * extensions like nowiki, and comments.</li>
+ * <li>The edit lies within top-level sections which start at the beginning of
+ * a line.</li>
+ * <li>The sections parse to the same AST in isolation as in the context of
+ * the whole page, before and after the edit, and neither produces warnings.</li>
+ * <li>The nesting of the surrounding sections is not changed by the edit.</li>
+ * </ul>
+ * Otherwise the whole page is parsed again.
+ * 
+ * The offsets of the top-level sections are kept in a {@link SectionOffsets}
+ * object between edits. The previous AST is only printed to find the
+ * offsets when a page is re-parsed for the first time. A section is only
+ * parsed in isolation to check that it does not depend on its context if it
+ * was not itself the result of an isolated parse.
+ */
+public class IncrementalWikitextParser
+{
+	/**
+	 * Characters which start or end constructs that can span multiple
+	 * sections.
+	 */
+	private static final String UNSAFE_CHARS = "<>{}";
+
+	private final WikitextParser parser;
+
+	private final WikitextPostprocessor postprocessor;
+
+	// =========================================================================
+
+	public IncrementalWikitextParser(ParserConfig config)
+	{
+		this.parser = new WikitextParser(config);
+		this.postprocessor = new WikitextPostprocessor(config);
+	}
+
+	// =========================================================================
+
+	/**
+	 * Parses and postprocesses the whole page.
+	 */
+	public WtParsedWikitextPage parse(String wikitext, String title) throws IOException, ParseException
+	{
+		WtNode ast = parser.parseArticle(wikitext, title);
+		return (WtParsedWikitextPage) postprocessor.postprocess(ast, title);
+	}
+
+	/**
+	 * Updates the AST of a page after an edit.
+	 * 
+	 * @param previous
+	 *            The AST of the previous revision as returned by
+	 *            {@link #parse(String, String)} or this method. The AST is
+	 *            modified and must not be used afterwards.
+	 * @param sections
+	 *            The offsets of the sections of the previous revision. Pass
+	 *            the same object to every re-parse of a page. It is updated
+	 *            to describe the returned AST.
+	 * @param previousWikitext
+	 *            The wikitext of the previous revision.
+	 * @param wikitext
+	 *            The wikitext of the edited revision.
+	 * @return The AST of the edited revision. Either the updated previous AST
+	 *         or the result of a full parse.
+	 */
+	public WtParsedWikitextPage reparse(
+			WtParsedWikitextPage previous,
+			SectionOffsets sections,
+			String previousWikitext,
+			String wikitext,
+			String title) throws IOException, ParseException
+	{
+		boolean keepWarnings = previous.getWarnings().isEmpty();
+		if (reparseInPlace(previous, sections, keepWarnings, previousWikitext, wikitext, title))
+			return previous;
+
+		return parse(wikitext, title);
+	}
+
+	/**
+	 * Tries to update the children of a page node after an edit.
+	 * 
+	 * @param page
+	 *            A node whose children are the top-level nodes of a parsed and
+	 *            postprocessed page.
+	 * @param sections
+	 *            The offsets of the top-level nodes of the page. Updated if
+	 *            the page was updated and reset otherwise.
+	 * @param warningsMayStay
+	 *            Whether the warnings of the previous revision may be kept if
+	 *            the edit adds or removes lines. Warnings carry line numbers
+	 *            which are not updated.
+	 * @return True if the page was updated. False if a full parse is
+	 *         required, in which case the page was not modified.
+	 */
+	public boolean reparseInPlace(
+			WtContentNode page,
+			SectionOffsets sections,
+			boolean warningsMayStay,
+			String previousWikitext,
+			String wikitext,
+			String title) throws IOException, ParseException
+	{
+		if (sections == null)
+			throw new NullPointerException();
+
+		boolean updated = false;
+		try
+		{
+			updated = update(page, sections, warningsMayStay, previousWikitext, wikitext, title);
+		}
+		finally
+		{
+			if (!updated)
+				sections.reset();
+		}
+		return updated;
+	}
+
+	private boolean update(
+			WtContentNode page,
+			SectionOffsets sections,
+			boolean warningsMayStay,
+			String previousWikitext,
+			String wikitext,
+			String title) throws IOException, ParseException
+	{
+		int count = page.size();
+		if (count == 0)
+			return false;
+
+		if (!sections.isKnown() && !sections.compute(page, previousWikitext))
+			return false;
+
+		int[] offsets = sections.offsets;
+		if (offsets.length != count + 1 || offsets[count] != previousWikitext.length())
+			return false;
+
+		int oldLength = previousWikitext.length();
+		int newLength = wikitext.length();
+
+		// -- Locate the edit ----
+
+		int prefix = 0;
+		int maxPrefix = Math.min(oldLength, newLength);
+		while (prefix < maxPrefix && previousWikitext.charAt(prefix) == wikitext.charAt(prefix))
+			++prefix;
+
+		if (prefix == oldLength && prefix == newLength)
+			return true;
+
+		int suffix = 0;
+		int maxSuffix = maxPrefix - prefix;
+		while (suffix < maxSuffix
+				&& previousWikitext.charAt(oldLength - 1 - suffix) == wikitext.charAt(newLength - 1 - suffix))
+			++suffix;
+
+		int removedEnd = oldLength - suffix;
+		int insertedEnd = newLength - suffix;
+
+		if (containsUnsafeChars(previousWikitext, prefix, removedEnd)
+				|| containsUnsafeChars(wikitext, prefix, insertedEnd))
+			return false;
+
+		int lineDelta =
+				countNewlines(wikitext, prefix, insertedEnd) -
+						countNewlines(previousWikitext, prefix, removedEnd);
+
+		if (lineDelta != 0 && !warningsMayStay)
+			return false;
+
+		// -- Determine the affected top-level sections ----
+
+		// Include the neighbor if the edit touches the boundary of a section
+		int first = chunkAt(offsets, Math.max(prefix - 1, 0));
+		int last = chunkAt(offsets, Math.min(removedEnd, oldLength - 1));
+
+		boolean isolated = true;
+		for (int i = first; i <= last; ++i)
+		{
+			if (!(page.get(i) instanceof WtSection))
+				return false;
+			isolated &= sections.isolated[i];
+		}
+
+		int fragmentStart = offsets[first];
+		if (fragmentStart > 0 && previousWikitext.charAt(fragmentStart - 1) != '\n')
+			return false;
+
+		int oldFragmentEnd = offsets[last + 1];
+		int newFragmentEnd = oldFragmentEnd + (newLength - oldLength);
+
+		// -- Make sure the old sections did not depend on their context ----
+
+		if (!isolated)
+		{
+			WtParsedWikitextPage oldFragment = parse(
+					previousWikitext.substring(fragmentStart, oldFragmentEnd),
+					title);
+
+			if (!oldFragment.getWarnings().isEmpty()
+					|| oldFragment.size() != last - first + 1)
+				return false;
+
+			for (int i = first; i <= last; ++i)
+			{
+				if (!WtComparer.compareNoThrow(page.get(i), oldFragment.get(i - first), false, false))
+					return false;
+			}
+		}
+
+		// -- Parse the edited sections ----
+
+		String newFragmentText = wikitext.substring(fragmentStart, newFragmentEnd);
+
+		WtParsedWikitextPage newFragment = parse(newFragmentText, title);
+
+		int newCount = newFragment.size();
+		if (!newFragment.getWarnings().isEmpty() || newCount == 0)
+			return false;
+
+		for (WtNode n : newFragment)
+		{
+			if (!(n instanceof WtSection))
+				return false;
+		}
+
+		// A section absorbs all following sections with a higher level
+		WtSection newFirst = (WtSection) newFragment.get(0);
+		WtSection newLast = (WtSection) newFragment.get(newCount - 1);
+
+		if (first > 0)
+		{
+			WtNode prev = page.get(first - 1);
+			if (prev instanceof WtSection
+					&& newFirst.getLevel() > ((WtSection) prev).getLevel())
+				return false;
+		}
+
+		if (last + 1 < count)
+		{
+			WtNode next = page.get(last + 1);
+			if (!(next instanceof WtSection)
+					|| ((WtSection) next).getLevel() > newLast.getLevel())
+				return false;
+		}
+
+		int[] fragmentOffsets = computeOffsets(newFragment, newFragmentText);
+		if (fragmentOffsets == null)
+			return false;
+
+		// -- Splice ----
+
+		int fragmentLine = countNewlines(previousWikitext, 0, fragmentStart);
+		if (fragmentLine != 0)
+		{
+			for (WtNode n : newFragment)
+				shiftLines(n, fragmentLine);
+		}
+
+		if (lineDelta != 0)
+		{
+			for (int i = last + 1; i < count; ++i)
+				shiftLines(page.get(i), lineDelta);
+		}
+
+		for (int i = first; i <= last; ++i)
+			page.remove(first);
+
+		for (int i = 0; i < newCount; ++i)
+			page.add(first + i, newFragment.get(i));
+
+		sections.splice(first, last, fragmentStart, fragmentOffsets, newLength - oldLength);
+
+		return true;
+	}
+
+	// =========================================================================
+
+	/**
+	 * @return The offset of each top-level node in the wikitext plus the
+	 *         length of the wikitext as last element. Null if the runtime data
+	 *         does not reproduce the wikitext.
+	 */
+	private static int[] computeOffsets(WtContentNode page, String wikitext)
+	{
+		int count = page.size();
+		int[] offsets = new int[count + 1];
+
+		int offset = 0;
+		for (int i = 0; i < count; ++i)
+		{
+			String text = WtRtDataPrinter.print(page.get(i));
+			if (!wikitext.startsWith(text, offset))
+				return null;
+
+			offsets[i] = offset;
+			offset += text.length();
+		}
+
+		if (offset != wikitext.length())
+			return null;
+
+		offsets[count] = offset;
+		return offsets;
+	}
+
+	private static int chunkAt(int[] offsets, int offset)
+	{
+		int i = 0;
+		while (offsets[i + 1] <= offset && i + 2 < offsets.length)
+			++i;
+		return i;
+	}
+
+	private static boolean containsUnsafeChars(String s, int from, int to)
+	{
+		for (int i = from; i < to; ++i)
+		{
+			if (UNSAFE_CHARS.indexOf(s.charAt(i)) != -1)
+				return true;
+		}
+		return false;
+	}
+
+	private static int countNewlines(String s, int from, int to)
+	{
+		int count = 0;
+		for (int i = from; i < to; ++i)
+		{
+			if (s.charAt(i) == '\n')
+				++count;
+		}
+		return count;
+	}
+
+	private static void shiftLines(WtNode n, int lineDelta)
+	{
+		AstLocation l = n.getNativeLocation();
+		if (l != null)
+			n.setNativeLocation(new AstLocation(l.getFile(), l.getLine() + lineDelta, l.getColumn()));
+
+		for (WtNode c : n)
+			shiftLines(c, lineDelta);
+	}
+
+	// =========================================================================
+
+	/**
+	 * The offsets of the top-level nodes of a page in its wikitext. They are
+	 * computed when a page is re-parsed for the first time and updated by
+	 * every edit that is applied incrementally.
+	 * 
+	 * Use one instance per page and pass it to every re-parse of that page.
+	 * It is reset whenever the page has to be parsed as a whole.
+	 */
+	public static final class SectionOffsets
+	{
+		/**
+		 * The offset of each top-level node plus the length of the wikitext.
+		 * Null if not known yet.
+		 */
+		private int[] offsets;
+
+		/**
+		 * Whether a top-level node is known to parse to the same AST in
+		 * isolation as in the context of the page.
+		 */
+		private boolean[] isolated;
+
+		// =====================================================================
+
+		public boolean isKnown()
+		{
+			return offsets != null;
+		}
+
+		public void reset()
+		{
+			offsets = null;
+			isolated = null;
+		}
+
+		// =====================================================================
+
+		private boolean compute(WtContentNode page, String wikitext)
+		{
+			offsets = computeOffsets(page, wikitext);
+			if (offsets == null)
+				return false;
+
+			isolated = new boolean[offsets.length - 1];
+			return true;
+		}
+
+		/**
+		 * Replaces the nodes first to last with the nodes of a fragment
+		 * which was parsed in isolation.
+		 */
+		private void splice(
+				int first,
+				int last,
+				int fragmentStart,
+				int[] fragmentOffsets,
+				int lengthDelta)
+		{
+			int newCount = fragmentOffsets.length - 1;
+			int count = offsets.length - 1 - (last - first + 1) + newCount;
+
+			int[] o = new int[count + 1];
+			boolean[] iso = new boolean[count];
+
+			System.arraycopy(offsets, 0, o, 0, first);
+			System.arraycopy(isolated, 0, iso, 0, first);
+
+			for (int i = 0; i < newCount; ++i)
+			{
+				o[first + i] = fragmentStart + fragmentOffsets[i];
+				iso[first + i] = true;
+			}
+
+			int from = last + 1;
+			int to = first + newCount;
+			for (int i = 0; from + i < offsets.length; ++i)
+			{
+				o[to + i] = offsets[from + i] + lengthDelta;
+				if (from + i < isolated.length)
+					iso[to + i] = isolated[from + i];
+			}
+
+			offsets = o;
+			isolated = iso;
+		}
+	}
+}
@@ -0,0 +1,404 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.parser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.sweble.wikitext.parser.nodes.WtNode;
+import org.sweble.wikitext.parser.nodes.WtParsedWikitextPage;
+import org.sweble.wikitext.parser.nodes.WtSection;
+import org.sweble.wikitext.parser.preprocessor.PreprocessedWikitext;
+
+import de.fau.cs.osr.ptk.common.Warning;
+import xtc.parser.ParseException;
+
+/**
+ * Parses large pages by splitting them at top-level headings and parsing the
+ * pieces concurrently. Each piece is parsed by its own Rats! parser and
+ * therefore with its own memoization chart. The resulting top-level sections
+ * are merged into one page before postprocessing.
+ * 
+ * A page is only split in front of a heading if the heading is guaranteed to
+ * start a top-level section:
+ * <ul>
+ * <li>The heading is not part of a table.</li>
+ * <li>The heading has the same number of equal signs on both sides and its
+ * title contains neither XML tags nor parser entities.</li>
+ * <li>No preceding line that might be a heading has a lower level.</li>
+ * </ul>
+ * Pages which are shorter than twice the minimum chunk length are parsed
+ * sequentially. If a piece does not parse to a list of sections the whole page
+ * is parsed sequentially.
+ */
+public class ParallelWikitextParser
+{
+	public static final int DEFAULT_MIN_CHUNK_LENGTH = 256 * 1024;
+
+	private static final char ENTITY_START = '\uE000';
+
+	private static final char ENTITY_END = '\uE001';
+
+	private static final int MAX_HEADING_LEVEL = 6;
+
+	private final WikitextParser parser;
+
+	private final ExecutorService executor;
+
+	private final int minChunkLength;
+
+	// =========================================================================
+
+	public ParallelWikitextParser(ParserConfig config, ExecutorService executor)
+	{
+		this(config, executor, DEFAULT_MIN_CHUNK_LENGTH);
+	}
+
+	/**
+	 * @param executor
+	 *            Parses all but the first chunk of a page. The first chunk is
+	 *            parsed by the calling thread.
+	 * @param minChunkLength
+	 *            The minimum number of characters per chunk.
+	 */
+	public ParallelWikitextParser(
+			ParserConfig config,
+			ExecutorService executor,
+			int minChunkLength)
+	{
+		if (executor == null)
+			throw new NullPointerException();
+		if (minChunkLength < 1)
+			throw new IllegalArgumentException("Minimum chunk length must be at least 1!");
+
+		this.parser = new WikitextParser(config);
+		this.executor = executor;
+		this.minChunkLength = minChunkLength;
+	}
+
+	// =========================================================================
+
+	public int getMinChunkLength()
+	{
+		return minChunkLength;
+	}
+
+	// =========================================================================
+
+	public WtNode parseArticle(PreprocessedWikitext wikitext, String title) throws IOException, ParseException
+	{
+		CharSequence chars = wikitext.getWikitextChars();
+
+		List<Integer> splits = findSplitPoints(chars, minChunkLength);
+		if (splits.size() <= 2)
+			return parser.parseArticle(wikitext, title);
+
+		WtEntityMap entityMap = wikitext.getEntityMap();
+
+		List<Future<WtNode>> futures = new ArrayList<Future<WtNode>>(splits.size() - 2);
+		try
+		{
+			int line = countNewlines(chars, 0, splits.get(1));
+			for (int i = 1; i < splits.size() - 1; ++i)
+			{
+				int from = splits.get(i);
+				int to = splits.get(i + 1);
+
+				futures.add(executor.submit(new ChunkParser(
+						new PreprocessedWikitext(chars.subSequence(from, to), entityMap),
+						title,
+						line)));
+
+				line += countNewlines(chars, from, to);
+			}
+
+			WtParsedWikitextPage page = (WtParsedWikitextPage) parser.parseArticle(
+					new PreprocessedWikitext(chars.subSequence(0, splits.get(1)), entityMap),
+					title);
+
+			List<Warning> warnings = page.getWarnings();
+			for (Future<WtNode> future : futures)
+			{
+				WtParsedWikitextPage chunk = (WtParsedWikitextPage) getChunk(future);
+				if (!isSectionList(chunk))
+					return parser.parseArticle(wikitext, title);
+
+				for (WtNode section : chunk)
+					page.add(section);
+
+				if (chunk.hasWarnings())
+				{
+					if (warnings == WtParsedWikitextPage.NO_WARNINGS)
+						warnings = new ArrayList<Warning>();
+					warnings.addAll(chunk.getWarnings());
+				}
+			}
+
+			page.setWarnings(warnings);
+			return page;
+		}
+		finally
+		{
+			for (Future<WtNode> future : futures)
+				future.cancel(true);
+		}
+	}
+
+	// =========================================================================
+
+	/**
+	 * Determines where the given wikitext can be split.
+	 * 
+	 * @return The offsets of the chunks including 0 for the first chunk and
+	 *         the length of the wikitext as last element.
+	 */
+	static List<Integer> findSplitPoints(CharSequence wikitext, int minChunkLength)
+	{
+		List<Integer> splits = new ArrayList<Integer>();
+		splits.add(0);
+
+		int length = wikitext.length();
+		if (length < 2 * minChunkLength)
+		{
+			splits.add(length);
+			return splits;
+		}
+
+		int tableDepth = 0;
+		int topLevel = MAX_HEADING_LEVEL + 1;
+		int lastSplit = 0;
+
+		int lineStart = 0;
+		while (lineStart < length)
+		{
+			int lineEnd = lineStart;
+			while (lineEnd < length && wikitext.charAt(lineEnd) != '\n')
+				++lineEnd;
+
+			int i = skipIndentation(wikitext, lineStart, lineEnd);
+			if (startsWith(wikitext, i, lineEnd, "{|"))
+			{
+				++tableDepth;
+			}
+			else if (startsWith(wikitext, i, lineEnd, "|}"))
+			{
+				if (tableDepth > 0)
+					--tableDepth;
+			}
+			else if (wikitext.charAt(lineStart) == '=' && tableDepth == 0)
+			{
+				int level = getPossibleHeadingLevel(wikitext, lineStart, lineEnd);
+				if (level > 0 && level <= topLevel)
+				{
+					topLevel = level;
+
+					if (lineStart - lastSplit >= minChunkLength
+							&& length - lineStart >= minChunkLength
+							&& isSafeHeading(wikitext, lineStart, lineEnd, level))
+					{
+						splits.add(lineStart);
+						lastSplit = lineStart;
+					}
+				}
+			}
+
+			lineStart = lineEnd + 1;
+		}
+
+		splits.add(length);
+		return splits;
+	}
+
+	/**
+	 * @return The level the given line would have if it was a heading or 0 if
+	 *         the line cannot be a heading.
+	 */
+	private static int getPossibleHeadingLevel(CharSequence s, int from, int to)
+	{
+		int end = to;
+		while (end > from && isBlank(s.charAt(end - 1)))
+			--end;
+
+		int open = 0;
+		while (from + open < end && s.charAt(from + open) == '=')
+			++open;
+
+		int close = 0;
+		while (end - close > from + open && s.charAt(end - close - 1) == '=')
+			++close;
+
+		if (open == 0 || close == 0)
+			return 0;
+
+		return Math.min(Math.min(open, close), MAX_HEADING_LEVEL);
+	}
+
+	/**
+	 * Whether the given line is a heading that parses the same way no matter
+	 * where it is cut out of the page.
+	 */
+	private static boolean isSafeHeading(CharSequence s, int from, int to, int level)
+	{
+		int end = to;
+		while (end > from && isBlank(s.charAt(end - 1)))
+			--end;
+
+		int titleStart = from + level;
+		int titleEnd = end - level;
+		if (titleEnd <= titleStart
+				|| s.charAt(titleStart) == '='
+				|| s.charAt(titleEnd - 1) == '=')
+			return false;
+
+		for (int i = titleStart; i < titleEnd; ++i)
+		{
+			switch (s.charAt(i))
+			{
+				case '<':
+				case '>':
+				case ENTITY_START:
+				case ENTITY_END:
+					return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static int skipIndentation(CharSequence s, int from, int to)
+	{
+		int i = from;
+		while (i < to)
+		{
+			char ch = s.charAt(i);
+			if (ch == ENTITY_START)
+			{
+				while (i < to && s.charAt(i) != ENTITY_END)
+					++i;
+			}
+			else if (ch != ':' && !isBlank(ch))
+			{
+				break;
+			}
+			++i;
+		}
+		return i;
+	}
+
+	private static boolean startsWith(CharSequence s, int from, int to, String prefix)
+	{
+		if (to - from < prefix.length())
+			return false;
+
+		for (int i = 0; i < prefix.length(); ++i)
+		{
+			if (s.charAt(from + i) != prefix.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean isBlank(char ch)
+	{
+		return ch == ' ' || ch == '\t' || ch == '\r';
+	}
+
+	private static int countNewlines(CharSequence s, int from, int to)
+	{
+		int count = 0;
+		for (int i = from; i < to; ++i)
+		{
+			if (s.charAt(i) == '\n')
+				++count;
+		}
+		return count;
+	}
+
+	private static boolean isSectionList(WtParsedWikitextPage chunk)
+	{
+		if (chunk.isEmpty())
+			return false;
+
+		for (WtNode n : chunk)
+		{
+			if (!(n instanceof WtSection))
+				return false;
+		}
+		return true;
+	}
+
+	private static WtNode getChunk(Future<WtNode> future) throws IOException, ParseException
+	{
+		try
+		{
+			return future.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for a chunk to be parsed", e);
+		}
+		catch (ExecutionException e)
+		{
+			Throwable cause = e.getCause();
+			if (cause instanceof ParseException)
+				throw (ParseException) cause;
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IOException(cause);
+		}
+	}
+
+	// =========================================================================
+
+	private final class ChunkParser
+			implements
+				Callable<WtNode>
+	{
+		private final PreprocessedWikitext chunk;
+
+		private final String title;
+
+		private final int lineOffset;
+
+		public ChunkParser(
+				PreprocessedWikitext chunk,
+				String title,
+				int lineOffset)
+		{
+			this.chunk = chunk;
+			this.title = title;
+			this.lineOffset = lineOffset;
+		}
+
+		@Override
+		public WtNode call() throws Exception
+		{
+			return parser.parseArticle(chunk, title, lineOffset);
+		}
+	}
+}
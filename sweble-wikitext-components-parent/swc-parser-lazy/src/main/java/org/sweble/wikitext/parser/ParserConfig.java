@@ -40,6 +40,28 @@ public interface ParserConfig
 
 	boolean isGatherRtData();
 
+	/**
+	 * Whether the glue strings in RtData are replaced by offsets into the
+	 * source text after parsing. Only has an effect if RtData is gathered.
+	 * The offsets refer to the text the tree was parsed from: the validated
+	 * wikitext given to the preprocessor or the preprocessed wikitext given
+	 * to the parser. Nodes which the parser substituted for entities keep
+	 * the RtData they got from the preprocessor.
+	 * 
+	 * @see org.sweble.wikitext.parser.utils.WtRtDataSourceMapper
+	 */
+	boolean isSourceOffsetRtData();
+
+	/**
+	 * Whether the node factory passes names, keywords and short texts of the
+	 * nodes it creates through its string pool. Pooling trades a hash lookup
+	 * per created node for less memory held by retained trees and is
+	 * therefore disabled by default.
+	 * 
+	 * @see org.sweble.wikitext.parser.utils.WtStringPool
+	 */
+	boolean isStringPooling();
+
 	// ==[ AST creation/processing ]============================================
 
 	WikitextNodeFactory getNodeFactory();
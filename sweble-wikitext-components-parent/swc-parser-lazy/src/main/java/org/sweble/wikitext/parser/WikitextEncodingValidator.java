@@ -19,13 +19,34 @@ package org.sweble.wikitext.parser;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.io.StringReader;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.sweble.wikitext.parser.encval.EncodingValidatorLexer;
 import org.sweble.wikitext.parser.encval.ValidatedWikitext;
+import org.sweble.wikitext.parser.utils.CharSequenceReader;
 
+/**
+ * Replaces illegal code points in wikitext with entities.
+ *
+ * Most pages do not contain a single illegal code point. Wikitext given as
+ * character sequence is therefore scanned first and, if it is clean, returned
+ * as is without running the lexer or copying it. Otherwise only the lines
+ * around illegal code points are run through the lexer, the lines in between
+ * are copied verbatim.
+ */
 public class WikitextEncodingValidator
 {
+	/**
+	 * Two lexed ranges are merged if fewer characters lie between them.
+	 */
+	private static final int MIN_CLEAN_GAP = 4096;
+
+	private final AtomicLong validatedCount = new AtomicLong(0);
+
+	private final AtomicLong fastPathCount = new AtomicLong(0);
+
+	// =========================================================================
+
 	public ValidatedWikitext validate(
 			ParserConfig parserConfig,
 			WtEntityMap entityMap,
@@ -33,19 +54,81 @@ public class WikitextEncodingValidator
 			String source)
 			throws IOException
 	{
-		StringReader in = new StringReader(source);
-		EncodingValidatorLexer lexer = new EncodingValidatorLexer(in);
+		return validate(parserConfig, entityMap, title, (CharSequence) source);
+	}
+
+	/**
+	 * Validates wikitext given as character sequence. Neither the input nor
+	 * the validated wikitext are copied into a String. If the input does not
+	 * contain illegal code points, the input itself is returned as validated
+	 * wikitext.
+	 */
+	public ValidatedWikitext validate(
+			ParserConfig parserConfig,
+			WtEntityMap entityMap,
+			String title,
+			CharSequence source)
+			throws IOException
+	{
+		validatedCount.incrementAndGet();
+
+		int length = source.length();
+
+		int suspicious = findSuspicious(source, 0, length);
+		if (suspicious == -1)
+		{
+			fastPathCount.incrementAndGet();
+			if (source instanceof String)
+				return new ValidatedWikitext((String) source, entityMap);
+			return new ValidatedWikitext(source, entityMap);
+		}
+
+		StringBuilder text = new StringBuilder(length + 64);
+
+		EncodingValidatorLexer lexer = new EncodingValidatorLexer(
+				new CharSequenceReader(source, 0, 0));
 
 		lexer.setFile(title);
 		lexer.setEntityMap(entityMap);
 		lexer.setWikitextNodeFactory(parserConfig.getNodeFactory());
+		lexer.setText(text);
 
-		while (lexer.yylex() != null)
-			;
+		int done = 0;
+		int line = 0;
+		while (suspicious != -1)
+		{
+			int start = getRangeStart(source, suspicious);
+			int end = getRangeEnd(source, suspicious);
+
+			// Merge ranges which are close to each other
+			while (true)
+			{
+				suspicious = findSuspicious(source, end, length);
+				if (suspicious == -1
+						|| getRangeStart(source, suspicious) - end >= MIN_CLEAN_GAP)
+					break;
+				end = getRangeEnd(source, suspicious);
+			}
+
+			text.append(source, done, start);
+			line += countLines(source, done, start);
+
+			CharSequenceReader in = new CharSequenceReader(source, start, end);
+			lexer.yyreset(in);
+			lexer.setLineOffset(line);
+
+			while (lexer.yylex() != null)
+				;
+
+			in.close();
+
+			line += countLines(source, start, end);
+			done = end;
+		}
 
-		in.close();
+		text.append(source, done, length);
 
-		return new ValidatedWikitext(lexer.getWikitext(), entityMap);
+		return new ValidatedWikitext(text, entityMap);
 	}
 
 	public ValidatedWikitext validate(
@@ -64,7 +147,7 @@ public class WikitextEncodingValidator
 		while (lexer.yylex() != null)
 			;
 
-		return new ValidatedWikitext(lexer.getWikitext(), entityMap);
+		return new ValidatedWikitext(lexer.getWikitextChars(), entityMap);
 	}
 
 	public ValidatedWikitext validate(
@@ -75,6 +158,14 @@ public class WikitextEncodingValidator
 		return validate(parserConfig, new WtEntityMapImpl(), title, source);
 	}
 
+	public ValidatedWikitext validate(
+			ParserConfig parserConfig,
+			CharSequence source,
+			String title) throws IOException
+	{
+		return validate(parserConfig, new WtEntityMapImpl(), title, source);
+	}
+
 	public ValidatedWikitext validate(
 			ParserConfig parserConfig,
 			Reader source,
@@ -82,4 +173,136 @@ public class WikitextEncodingValidator
 	{
 		return validate(parserConfig, new WtEntityMapImpl(), title, source);
 	}
+
+	// =========================================================================
+
+	/**
+	 * Returns the number of character sequences validated by this validator.
+	 * Wikitext given as Reader is not counted.
+	 */
+	public long getValidatedCount()
+	{
+		return validatedCount.get();
+	}
+
+	/**
+	 * Returns the number of character sequences which did not contain illegal
+	 * code points and were returned without running the lexer.
+	 */
+	public long getFastPathCount()
+	{
+		return fastPathCount.get();
+	}
+
+	// =========================================================================
+
+	/**
+	 * Returns the index of the first character in the given range which the
+	 * lexer might treat as illegal code point or -1 if there is none.
+	 */
+	private static int findSuspicious(CharSequence source, int from, int to)
+	{
+		for (int i = from; i < to; ++i)
+		{
+			char ch = source.charAt(i);
+			if (ch < 0x20)
+			{
+				if (ch != '\t' && ch != '\n' && ch != '\r' && ch < 0x1A)
+					return i;
+			}
+			else if (ch < 0xD800)
+			{
+				if (ch == 0x7F)
+					return i;
+			}
+			else if (ch < 0xDC00)
+			{
+				// High surrogate: Must be followed by a low surrogate and
+				// must not form a private-use or non-character code point.
+				if (ch >= 0xDB80 || i + 1 >= to)
+					return i;
+				char low = source.charAt(i + 1);
+				if (low < 0xDC00 || low > 0xDFFF)
+					return i;
+				if ((ch & 0x3F) == 0x3F && low >= 0xDFFE)
+					return i;
+				++i;
+			}
+			else if (ch < 0xE000)
+			{
+				// Low surrogate not preceded by a high surrogate
+				return i;
+			}
+			else if (ch < 0xF900
+					|| (ch >= 0xFDD0 && ch <= 0xFDEF)
+					|| ch >= 0xFFFE)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * A range starts at the beginning of a line. If the line starts with a
+	 * low surrogate, the lexer has to see the preceding line too.
+	 */
+	private static int getRangeStart(CharSequence source, int i)
+	{
+		while (true)
+		{
+			while (i > 0 && source.charAt(i - 1) != '\n')
+				--i;
+			if (i == 0 || !Character.isLowSurrogate(source.charAt(i)))
+				return i;
+			--i;
+		}
+	}
+
+	/**
+	 * A range ends after the newline that terminates a line, unless the
+	 * next line starts with a low surrogate.
+	 */
+	private static int getRangeEnd(CharSequence source, int i)
+	{
+		int length = source.length();
+		while (true)
+		{
+			while (i < length && source.charAt(i) != '\n')
+				++i;
+			if (i == length)
+				return length;
+			++i;
+			if (i == length || !Character.isLowSurrogate(source.charAt(i)))
+				return i;
+		}
+	}
+
+	/**
+	 * Counts line terminators the same way the lexer does.
+	 */
+	private static int countLines(CharSequence source, int from, int to)
+	{
+		int lines = 0;
+		for (int i = from; i < to; ++i)
+		{
+			switch (source.charAt(i))
+			{
+				case '\r':
+					if (i + 1 < to && source.charAt(i + 1) == '\n')
+						++i;
+					++lines;
+					break;
+				case '\n':
+				case 0x0B:
+				case 0x0C:
+				case 0x85:
+				case 0x2028:
+				case 0x2029:
+					++lines;
+					break;
+			}
+		}
+		return lines;
+	}
 }
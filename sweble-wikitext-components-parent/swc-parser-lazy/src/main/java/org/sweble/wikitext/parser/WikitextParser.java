@@ -19,18 +19,20 @@ package org.sweble.wikitext.parser;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.io.StringReader;
 
 import org.sweble.wikitext.parser.nodes.WtNode;
 import org.sweble.wikitext.parser.nodes.WtParsedWikitextPage;
 import org.sweble.wikitext.parser.parser.RatsWikitextParser;
 import org.sweble.wikitext.parser.preprocessor.PreprocessedWikitext;
+import org.sweble.wikitext.parser.utils.CharSequenceReader;
+import org.sweble.wikitext.parser.utils.WtRtDataSourceMapper;
 
 import de.fau.cs.osr.ptk.common.ParserCommon;
 import xtc.parser.ParseError;
 import xtc.parser.ParseException;
 import xtc.parser.Result;
 import xtc.parser.SemanticValue;
+import xtc.tree.Location;
 
 public class WikitextParser
 		extends
@@ -38,8 +40,6 @@ public class WikitextParser
 {
 	private final ParserConfig config;
 
-	private RatsWikitextParser parser;
-
 	// =========================================================================
 
 	public WikitextParser(ParserConfig config)
@@ -63,16 +63,54 @@ public class WikitextParser
 		PreprocessedWikitext ppWt =
 				new PreprocessedWikitext(src, new WtEntityMapImpl());
 
-		return parseArticle(ppWt, title);
+		return parse(ppWt, title, 0);
 	}
 
+	/**
+	 * Parses preprocessed wikitext. If enabled, the RtData of the resulting
+	 * tree is mapped to offsets into the preprocessed wikitext, the text the
+	 * parser actually read (see {@link ParserConfig#isSourceOffsetRtData()}).
+	 */
 	public WtNode parseArticle(PreprocessedWikitext wikitext, String title) throws IOException, ParseException
 	{
-		Reader in = new StringReader(wikitext.getWikitext());
+		return parse(wikitext, title, 0);
+	}
+
+	/**
+	 * Parses wikitext which was cut out of a larger page.
+	 * 
+	 * @param lineOffset
+	 *            The number of lines which precede the given wikitext in the
+	 *            page. Locations of nodes and warnings are reported relative to
+	 *            the beginning of the page.
+	 */
+	public WtNode parseArticle(
+			PreprocessedWikitext wikitext,
+			String title,
+			int lineOffset) throws IOException, ParseException
+	{
+		return parse(wikitext, title, lineOffset);
+	}
+
+	private WtNode parse(
+			PreprocessedWikitext wikitext,
+			String title,
+			int lineOffset) throws IOException, ParseException
+	{
+		Reader in = new CharSequenceReader(wikitext.getWikitextChars());
+
+		// The Rats! parser buffers characters, not bytes.
+		int inputSize = wikitext.getLength();
 
-		int inputSize = wikitext.getWikitext().getBytes().length;
+		// Don't keep the parser in a field. It would keep the memoization
+		// chart of the last parsed page alive.
+		RatsWikitextParser parser = new RatsWikitextParser(in, title, inputSize);
 
-		parser = new RatsWikitextParser(in, title, inputSize);
+		if (lineOffset != 0)
+		{
+			Location start = parser.location(0);
+			parser.setLocation(0, start.file, start.line + lineOffset, start.column);
+		}
 
 		parser.getState().init(config, wikitext.getEntityMap());
 
@@ -82,7 +120,7 @@ public class WikitextParser
 
 		//RatsWikitextParser.enableStats();
 		{
-			r = this.parser.pArticle(0);
+			r = parser.pArticle(0);
 		}
 		if (RatsWikitextParser.isStatsEnabled())
 			RatsWikitextParser.getStats().dump(System.err);
@@ -93,7 +131,14 @@ public class WikitextParser
 
 			if (v.value instanceof WtParsedWikitextPage)
 			{
-				return (WtNode) process((WtParsedWikitextPage) v.value);
+				WtNode result = (WtNode) process((WtParsedWikitextPage) v.value);
+
+				// The spans share the String of the preprocessed wikitext.
+				// Wikitext given as String is not copied.
+				if (config.isGatherRtData() && config.isSourceOffsetRtData())
+					WtRtDataSourceMapper.map(result, wikitext.getWikitext());
+
+				return result;
 			}
 			else
 			{
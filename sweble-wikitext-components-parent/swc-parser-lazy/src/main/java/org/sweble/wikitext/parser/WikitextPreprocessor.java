@@ -19,12 +19,13 @@ package org.sweble.wikitext.parser;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.io.StringReader;
 
 import org.sweble.wikitext.parser.encval.ValidatedWikitext;
 import org.sweble.wikitext.parser.nodes.WtNode;
 import org.sweble.wikitext.parser.nodes.WtPreproWikitextPage;
 import org.sweble.wikitext.parser.preprocessor.RatsWikitextPreprocessor;
+import org.sweble.wikitext.parser.utils.CharSequenceReader;
+import org.sweble.wikitext.parser.utils.WtRtDataSourceMapper;
 
 import de.fau.cs.osr.ptk.common.ParserCommon;
 import xtc.parser.ParseError;
@@ -36,8 +37,6 @@ public class WikitextPreprocessor
 		extends
 			ParserCommon<WtNode>
 {
-	private RatsWikitextPreprocessor preprocessor = null;
-
 	private final ParserConfig config;
 
 	// =========================================================================
@@ -68,17 +67,20 @@ public class WikitextPreprocessor
 			String title,
 			boolean forInclusion) throws IOException, ParseException
 	{
-		Reader in = new StringReader(wikitext.getWikitext());
+		Reader in = new CharSequenceReader(wikitext.getWikitextChars());
 
-		int inputSize = wikitext.getWikitext().getBytes().length;
+		// The Rats! parser buffers characters, not bytes.
+		int inputSize = wikitext.getLength();
 
-		preprocessor = new RatsWikitextPreprocessor(in, title, inputSize);
+		// Don't keep the parser in a field. It would keep the memoization
+		// chart of the last parsed page alive.
+		RatsWikitextPreprocessor preprocessor = new RatsWikitextPreprocessor(in, title, inputSize);
 
 		preprocessor.getState().init(config, wikitext.getEntityMap(), forInclusion);
 
 		preprocessor.setNodeFactory(config.getNodeFactory());
 
-		Result r = this.preprocessor.pArticle(0);
+		Result r = preprocessor.pArticle(0);
 
 		if (r.hasValue())
 		{
@@ -86,7 +88,12 @@ public class WikitextPreprocessor
 
 			if (v.value instanceof WtPreproWikitextPage)
 			{
-				return (WtNode) process((WtPreproWikitextPage) v.value);
+				WtNode result = (WtNode) process((WtPreproWikitextPage) v.value);
+
+				if (config.isGatherRtData() && config.isSourceOffsetRtData())
+					WtRtDataSourceMapper.map(result, wikitext.getWikitext());
+
+				return result;
 			}
 			else
 			{
@@ -103,6 +103,63 @@ public class WtRtData
 
 	// =========================================================================
 
+	/**
+	 * Glue is compared by its characters, so that RtData holding
+	 * {@link WtSourceSpan}s is equal to RtData holding the same glue as
+	 * strings. {@link #SUPPRESS} is only equal to itself.
+	 */
+	@Override
+	public int hashCode()
+	{
+		if (isSuppress())
+			return System.identityHashCode(this);
+
+		int h = size();
+		for (int i = 0; i < size(); ++i)
+		{
+			for (Object o : getField(i))
+				h = 31 * h + ((o == null) ? 0 : o.hashCode());
+		}
+		return h;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj)
+			return true;
+		if (!(obj instanceof WtRtData))
+			return false;
+		WtRtData other = (WtRtData) obj;
+		if (isSuppress() || other.isSuppress() || size() != other.size())
+			return false;
+		for (int i = 0; i < size(); ++i)
+		{
+			Object[] a = getField(i);
+			Object[] b = other.getField(i);
+			if (a.length != b.length)
+				return false;
+			for (int j = 0; j < a.length; ++j)
+			{
+				if (!glueEquals(a[j], b[j]))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean glueEquals(Object a, Object b)
+	{
+		if (a == b)
+			return true;
+		if (a == null || b == null)
+			return false;
+		if (a instanceof CharSequence && b instanceof CharSequence
+				&& (a instanceof WtSourceSpan || b instanceof WtSourceSpan))
+			return a.toString().contentEquals((CharSequence) b);
+		return a.equals(b);
+	}
+
 	@Override
 	public String toString()
 	{
@@ -0,0 +1,131 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.parser;
+
+import java.io.Serializable;
+
+/**
+ * A piece of round-trip glue which is stored as offsets into the source text
+ * of a page instead of as a copied string. All spans of a tree share the same
+ * source string.
+ * 
+ * The text is only extracted when {@link #toString()} is called. Two spans
+ * are equal if they contain the same characters, regardless of their
+ * offsets. A span is never equal to a string, since String.equals() could
+ * not return the same answer. {@link WtRtData} therefore compares glue by
+ * its characters. The hash code of a span is the hash code of the string
+ * with the same characters.
+ */
+public final class WtSourceSpan
+		implements
+			CharSequence,
+			Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	private final String source;
+
+	private final int start;
+
+	private final int end;
+
+	// =========================================================================
+
+	public WtSourceSpan(String source, int start, int end)
+	{
+		if (source == null)
+			throw new NullPointerException();
+		if (start < 0 || end > source.length() || start > end)
+			throw new IndexOutOfBoundsException();
+
+		this.source = source;
+		this.start = start;
+		this.end = end;
+	}
+
+	// =========================================================================
+
+	public String getSource()
+	{
+		return source;
+	}
+
+	public int getStart()
+	{
+		return start;
+	}
+
+	public int getEnd()
+	{
+		return end;
+	}
+
+	// =========================================================================
+
+	@Override
+	public int length()
+	{
+		return end - start;
+	}
+
+	@Override
+	public char charAt(int index)
+	{
+		if (index < 0 || index >= length())
+			throw new IndexOutOfBoundsException();
+		return source.charAt(start + index);
+	}
+
+	@Override
+	public CharSequence subSequence(int from, int to)
+	{
+		if (from < 0 || to > length() || from > to)
+			throw new IndexOutOfBoundsException();
+		return new WtSourceSpan(source, start + from, start + to);
+	}
+
+	@Override
+	public String toString()
+	{
+		return source.substring(start, end);
+	}
+
+	// =========================================================================
+
+	@Override
+	public int hashCode()
+	{
+		int h = 0;
+		for (int i = start; i < end; ++i)
+			h = 31 * h + source.charAt(i);
+		return h;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj)
+			return true;
+		if (obj == null || getClass() != obj.getClass())
+			return false;
+		WtSourceSpan other = (WtSourceSpan) obj;
+		if (length() != other.length())
+			return false;
+		return source.regionMatches(start, other.source, other.start, length());
+	}
+}
@@ -0,0 +1,693 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.parser.nodes;
+
+import de.fau.cs.osr.ptk.common.NodeTypeAstVisitor;
+import de.fau.cs.osr.ptk.common.ast.AstNode;
+import de.fau.cs.osr.ptk.common.ast.AstNodeList;
+import de.fau.cs.osr.ptk.common.ast.AstParserEntity;
+import de.fau.cs.osr.ptk.common.ast.AstText;
+
+/**
+ * A visitor which dispatches on the node type instead of looking up the
+ * visit() method for a node's class via reflection like the AstVisitor does.
+ * 
+ * The {@link CompleteWikitextVisitor} interface is the contract: there is one
+ * visit() method for every node class of the parser. Subclasses only
+ * override the methods for the nodes they are interested in, all other nodes
+ * are passed to {@link #visitUnspecific(WtNode)}. Node types which are not
+ * part of the contract (e.g. nodes defined outside of the parser) are passed
+ * to {@link #visitUnknown(WtNode)}.
+ */
+public abstract class NodeTypeWikitextVisitor<T>
+		extends
+			NodeTypeAstVisitor<WtNode>
+		implements
+			CompleteWikitextVisitor<T>
+{
+	@Override
+	protected Object resolveAndVisit(WtNode node, int type)
+	{
+		switch (type)
+		{
+			case WtNode.NT_LINK_OPTION_LINK_TARGET:
+				return visit((WtLinkOptionLinkTarget) node);
+
+			case WtNode.NT_REDIRECT:
+				return visit((WtRedirect) node);
+
+			case WtNode.NT_TABLE_IMPLICIT_TBODY:
+				return visit((WtTableImplicitTableBody) node);
+
+			case WtNode.NT_XML_ATTRIBUTE:
+				return visit((WtXmlAttribute) node);
+
+			case WtNode.NT_XML_EMPTY_TAG:
+				return visit((WtXmlEmptyTag) node);
+
+			case WtNode.NT_XML_START_TAG:
+				return visit((WtXmlStartTag) node);
+
+			case WtNode.NT_IM_START_TAG:
+				return visit((WtImStartTag) node);
+
+			case WtNode.NT_EXTERNAL_LINK:
+				return visit((WtExternalLink) node);
+
+			case WtNode.NT_INTERNAL_LINK:
+				return visit((WtInternalLink) node);
+
+			case WtNode.NT_SECTION:
+				return visit((WtSection) node);
+
+			case WtNode.NT_TABLE:
+				return visit((WtTable) node);
+
+			case WtNode.NT_TABLE_CAPTION:
+				return visit((WtTableCaption) node);
+
+			case WtNode.NT_TABLE_CELL:
+				return visit((WtTableCell) node);
+
+			case WtNode.NT_TABLE_HEADER:
+				return visit((WtTableHeader) node);
+
+			case WtNode.NT_TABLE_ROW:
+				return visit((WtTableRow) node);
+
+			case WtNode.NT_TAG_EXTENSION:
+				return visit((WtTagExtension) node);
+
+			case WtNode.NT_TEMPLATE:
+				return visit((WtTemplate) node);
+
+			case WtNode.NT_TEMPLATE_ARGUMENT:
+				return visit((WtTemplateArgument) node);
+
+			case WtNode.NT_XML_ELEMENT:
+				return visit((WtXmlElement) node);
+
+			case WtNode.NT_IMAGE_LINK:
+				return visit((WtImageLink) node);
+
+			case WtNode.NT_TEMPLATE_PARAMETER:
+				return visit((WtTemplateParameter) node);
+
+			case WtNode.NT_HORIZONTAL_RULE:
+				return visit((WtHorizontalRule) node);
+
+			case WtNode.NT_ILLEGAL_CODE_POINT:
+				return visit((WtIllegalCodePoint) node);
+
+			case WtNode.NT_LINK_OPTION_KEYWORD:
+				return visit((WtLinkOptionKeyword) node);
+
+			case WtNode.NT_LINK_OPTION_RESIZE:
+				return visit((WtLinkOptionResize) node);
+
+			case WtNode.NT_PAGE_SWITCH:
+				return visit((WtPageSwitch) node);
+
+			case WtNode.NT_SIGNATURE:
+				return visit((WtSignature) node);
+
+			case WtNode.NT_TICKS:
+				return visit((WtTicks) node);
+
+			case WtNode.NT_URL:
+				return visit((WtUrl) node);
+
+			case WtNode.NT_XML_CHAR_REF:
+				return visit((WtXmlCharRef) node);
+
+			case WtNode.NT_XML_END_TAG:
+				return visit((WtXmlEndTag) node);
+
+			case WtNode.NT_IM_END_TAG:
+				return visit((WtImEndTag) node);
+
+			case WtNode.NT_XML_ENTITY_REF:
+				return visit((WtXmlEntityRef) node);
+
+			case WtNode.NT_NODE_LIST:
+				return visit((WtNodeList) node);
+
+			case WtNode.NT_BODY:
+				return visit((WtBody) node);
+
+			case WtNode.NT_BOLD:
+				return visit((WtBold) node);
+
+			case WtNode.NT_DEFINITION_LIST:
+				return visit((WtDefinitionList) node);
+
+			case WtNode.NT_DEFINITION_LIST_DEF:
+				return visit((WtDefinitionListDef) node);
+
+			case WtNode.NT_DEFINITION_LIST_TERM:
+				return visit((WtDefinitionListTerm) node);
+
+			case WtNode.NT_HEADING:
+				return visit((WtHeading) node);
+
+			case WtNode.NT_ITALICS:
+				return visit((WtItalics) node);
+
+			case WtNode.NT_LINK_OPTION_ALT_TEXT:
+				return visit((WtLinkOptionAltText) node);
+
+			case WtNode.NT_LINK_OPTIONS:
+				return visit((WtLinkOptions) node);
+
+			case WtNode.NT_LINK_TITLE:
+				return visit((WtLinkTitle) node);
+
+			case WtNode.NT_LIST_ITEM:
+				return visit((WtListItem) node);
+
+			case WtNode.NT_NAME:
+				return visit((WtName) node);
+
+			case WtNode.NT_ONLY_INCLUDE:
+				return visit((WtOnlyInclude) node);
+
+			case WtNode.NT_ORDERED_LIST:
+				return visit((WtOrderedList) node);
+
+			case WtNode.NT_PARAGRAPH:
+				return visit((WtParagraph) node);
+
+			case WtNode.NT_SEMI_PRE:
+				return visit((WtSemiPre) node);
+
+			case WtNode.NT_SEMI_PRE_LINE:
+				return visit((WtSemiPreLine) node);
+
+			case WtNode.NT_TEMPLATE_ARGUMENTS:
+				return visit((WtTemplateArguments) node);
+
+			case WtNode.NT_UNORDERED_LIST:
+				return visit((WtUnorderedList) node);
+
+			case WtNode.NT_VALUE:
+				return visit((WtValue) node);
+
+			case WtNode.NT_WHITESPACE:
+				return visit((WtWhitespace) node);
+
+			case WtNode.NT_XML_ATTRIBUTES:
+				return visit((WtXmlAttributes) node);
+
+			case WtNode.NT_TEXT:
+				return visit((WtText) node);
+
+			case WtNode.NT_IGNORED:
+				return visit((WtIgnored) node);
+
+			case WtNode.NT_LINK_OPTION_GARBAGE:
+				return visit((WtLinkOptionGarbage) node);
+
+			case WtNode.NT_NEWLINE:
+				return visit((WtNewline) node);
+
+			case WtNode.NT_PAGE_NAME:
+				return visit((WtPageName) node);
+
+			case WtNode.NT_TAG_EXTENSION_BODY:
+				return visit((WtTagExtensionBody) node);
+
+			case WtNode.NT_XML_ATTRIBUTE_GARBAGE:
+				return visit((WtXmlAttributeGarbage) node);
+
+			case WtNode.NT_XML_COMMENT:
+				return visit((WtXmlComment) node);
+
+			case WtNode.NT_PARSED_WIKITEXT_PAGE:
+				// Both page types share one node type
+				if (node instanceof WtPreproWikitextPage)
+					return visit((WtPreproWikitextPage) node);
+				if (node instanceof WtParsedWikitextPage)
+					return visit((WtParsedWikitextPage) node);
+				return visitUnknown(node);
+
+			default:
+				return visitUnknown(node);
+		}
+	}
+
+	// =========================================================================
+
+	/**
+	 * Called for all nodes whose visit() method was not overridden.
+	 */
+	protected abstract T visitUnspecific(WtNode n);
+
+	/**
+	 * Called for all nodes whose node type is not covered by the
+	 * {@link CompleteWikitextVisitor} contract.
+	 */
+	protected Object visitUnknown(WtNode n)
+	{
+		return visitUnspecific(n);
+	}
+
+	// =========================================================================
+
+	@Override
+	public T visit(WtLinkOptionLinkTarget n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtRedirect n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtTableImplicitTableBody n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtXmlAttribute n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtXmlEmptyTag n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtXmlStartTag n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtImStartTag n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtExternalLink n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtInternalLink n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtSection n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtTable n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtTableCaption n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtTableCell n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtTableHeader n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtTableRow n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtTagExtension n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtTemplate n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtTemplateArgument n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtXmlElement n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtImageLink n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtTemplateParameter n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtHorizontalRule n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtIllegalCodePoint n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtLinkOptionKeyword n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtLinkOptionResize n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtPageSwitch n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtSignature n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtTicks n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtUrl n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtXmlCharRef n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtXmlEndTag n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtImEndTag n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtXmlEntityRef n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtNodeList n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtBody n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtBold n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtDefinitionList n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtDefinitionListDef n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtDefinitionListTerm n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtHeading n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtItalics n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtLinkOptionAltText n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtLinkOptions n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtLinkTitle n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtListItem n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtName n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtOnlyInclude n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtOrderedList n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtParsedWikitextPage n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtPreproWikitextPage n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtParagraph n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtSemiPre n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtSemiPreLine n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtTemplateArguments n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtUnorderedList n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtValue n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtWhitespace n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtXmlAttributes n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtText n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtIgnored n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtLinkOptionGarbage n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtNewline n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtPageName n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtTagExtensionBody n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtXmlAttributeGarbage n)
+	{
+		return visitUnspecific(n);
+	}
+
+	@Override
+	public T visit(WtXmlComment n)
+	{
+		return visitUnspecific(n);
+	}
+
+	// =========================================================================
+	// Make the original methods unusable
+
+	@Override
+	protected final Object visitUnspecific(AstNode<WtNode> node)
+	{
+		throw new InternalError();
+	}
+
+	@Override
+	protected final Object visit(AstText<WtNode> node)
+	{
+		throw new InternalError();
+	}
+
+	@Override
+	protected final Object visit(AstNodeList<WtNode> node)
+	{
+		throw new InternalError();
+	}
+
+	@Override
+	protected final Object visit(AstParserEntity<WtNode> node)
+	{
+		throw new InternalError();
+	}
+}
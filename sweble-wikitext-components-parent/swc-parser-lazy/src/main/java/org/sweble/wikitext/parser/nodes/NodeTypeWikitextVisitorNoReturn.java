@@ -0,0 +1,762 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.parser.nodes;
+
+import de.fau.cs.osr.ptk.common.NodeTypeAstVisitor;
+import de.fau.cs.osr.ptk.common.ast.AstNode;
+import de.fau.cs.osr.ptk.common.ast.AstNodeList;
+import de.fau.cs.osr.ptk.common.ast.AstParserEntity;
+import de.fau.cs.osr.ptk.common.ast.AstText;
+
+/**
+ * The {@link NodeTypeWikitextVisitor} for visitors whose visit() methods do
+ * not return anything, like the printers and renderers. The
+ * {@link CompleteWikitextVisitorNoReturn} interface is the contract.
+ * 
+ * Subclasses which used to extend the AstVisitor can switch to this class
+ * without changing their visit() methods. Nodes without a visit() method
+ * still fail like they did with the AstVisitor.
+ */
+public abstract class NodeTypeWikitextVisitorNoReturn
+		extends
+			NodeTypeAstVisitor<WtNode>
+		implements
+			CompleteWikitextVisitorNoReturn
+{
+	@Override
+	protected Object resolveAndVisit(WtNode node, int type)
+	{
+		switch (type)
+		{
+			case WtNode.NT_LINK_OPTION_LINK_TARGET:
+				visit((WtLinkOptionLinkTarget) node);
+				return null;
+
+			case WtNode.NT_REDIRECT:
+				visit((WtRedirect) node);
+				return null;
+
+			case WtNode.NT_TABLE_IMPLICIT_TBODY:
+				visit((WtTableImplicitTableBody) node);
+				return null;
+
+			case WtNode.NT_XML_ATTRIBUTE:
+				visit((WtXmlAttribute) node);
+				return null;
+
+			case WtNode.NT_XML_EMPTY_TAG:
+				visit((WtXmlEmptyTag) node);
+				return null;
+
+			case WtNode.NT_XML_START_TAG:
+				visit((WtXmlStartTag) node);
+				return null;
+
+			case WtNode.NT_IM_START_TAG:
+				visit((WtImStartTag) node);
+				return null;
+
+			case WtNode.NT_EXTERNAL_LINK:
+				visit((WtExternalLink) node);
+				return null;
+
+			case WtNode.NT_INTERNAL_LINK:
+				visit((WtInternalLink) node);
+				return null;
+
+			case WtNode.NT_SECTION:
+				visit((WtSection) node);
+				return null;
+
+			case WtNode.NT_TABLE:
+				visit((WtTable) node);
+				return null;
+
+			case WtNode.NT_TABLE_CAPTION:
+				visit((WtTableCaption) node);
+				return null;
+
+			case WtNode.NT_TABLE_CELL:
+				visit((WtTableCell) node);
+				return null;
+
+			case WtNode.NT_TABLE_HEADER:
+				visit((WtTableHeader) node);
+				return null;
+
+			case WtNode.NT_TABLE_ROW:
+				visit((WtTableRow) node);
+				return null;
+
+			case WtNode.NT_TAG_EXTENSION:
+				visit((WtTagExtension) node);
+				return null;
+
+			case WtNode.NT_TEMPLATE:
+				visit((WtTemplate) node);
+				return null;
+
+			case WtNode.NT_TEMPLATE_ARGUMENT:
+				visit((WtTemplateArgument) node);
+				return null;
+
+			case WtNode.NT_XML_ELEMENT:
+				visit((WtXmlElement) node);
+				return null;
+
+			case WtNode.NT_IMAGE_LINK:
+				visit((WtImageLink) node);
+				return null;
+
+			case WtNode.NT_TEMPLATE_PARAMETER:
+				visit((WtTemplateParameter) node);
+				return null;
+
+			case WtNode.NT_HORIZONTAL_RULE:
+				visit((WtHorizontalRule) node);
+				return null;
+
+			case WtNode.NT_ILLEGAL_CODE_POINT:
+				visit((WtIllegalCodePoint) node);
+				return null;
+
+			case WtNode.NT_LINK_OPTION_KEYWORD:
+				visit((WtLinkOptionKeyword) node);
+				return null;
+
+			case WtNode.NT_LINK_OPTION_RESIZE:
+				visit((WtLinkOptionResize) node);
+				return null;
+
+			case WtNode.NT_PAGE_SWITCH:
+				visit((WtPageSwitch) node);
+				return null;
+
+			case WtNode.NT_SIGNATURE:
+				visit((WtSignature) node);
+				return null;
+
+			case WtNode.NT_TICKS:
+				visit((WtTicks) node);
+				return null;
+
+			case WtNode.NT_URL:
+				visit((WtUrl) node);
+				return null;
+
+			case WtNode.NT_XML_CHAR_REF:
+				visit((WtXmlCharRef) node);
+				return null;
+
+			case WtNode.NT_XML_END_TAG:
+				visit((WtXmlEndTag) node);
+				return null;
+
+			case WtNode.NT_IM_END_TAG:
+				visit((WtImEndTag) node);
+				return null;
+
+			case WtNode.NT_XML_ENTITY_REF:
+				visit((WtXmlEntityRef) node);
+				return null;
+
+			case WtNode.NT_NODE_LIST:
+				visit((WtNodeList) node);
+				return null;
+
+			case WtNode.NT_BODY:
+				visit((WtBody) node);
+				return null;
+
+			case WtNode.NT_BOLD:
+				visit((WtBold) node);
+				return null;
+
+			case WtNode.NT_DEFINITION_LIST:
+				visit((WtDefinitionList) node);
+				return null;
+
+			case WtNode.NT_DEFINITION_LIST_DEF:
+				visit((WtDefinitionListDef) node);
+				return null;
+
+			case WtNode.NT_DEFINITION_LIST_TERM:
+				visit((WtDefinitionListTerm) node);
+				return null;
+
+			case WtNode.NT_HEADING:
+				visit((WtHeading) node);
+				return null;
+
+			case WtNode.NT_ITALICS:
+				visit((WtItalics) node);
+				return null;
+
+			case WtNode.NT_LINK_OPTION_ALT_TEXT:
+				visit((WtLinkOptionAltText) node);
+				return null;
+
+			case WtNode.NT_LINK_OPTIONS:
+				visit((WtLinkOptions) node);
+				return null;
+
+			case WtNode.NT_LINK_TITLE:
+				visit((WtLinkTitle) node);
+				return null;
+
+			case WtNode.NT_LIST_ITEM:
+				visit((WtListItem) node);
+				return null;
+
+			case WtNode.NT_NAME:
+				visit((WtName) node);
+				return null;
+
+			case WtNode.NT_ONLY_INCLUDE:
+				visit((WtOnlyInclude) node);
+				return null;
+
+			case WtNode.NT_ORDERED_LIST:
+				visit((WtOrderedList) node);
+				return null;
+
+			case WtNode.NT_PARAGRAPH:
+				visit((WtParagraph) node);
+				return null;
+
+			case WtNode.NT_SEMI_PRE:
+				visit((WtSemiPre) node);
+				return null;
+
+			case WtNode.NT_SEMI_PRE_LINE:
+				visit((WtSemiPreLine) node);
+				return null;
+
+			case WtNode.NT_TEMPLATE_ARGUMENTS:
+				visit((WtTemplateArguments) node);
+				return null;
+
+			case WtNode.NT_UNORDERED_LIST:
+				visit((WtUnorderedList) node);
+				return null;
+
+			case WtNode.NT_VALUE:
+				visit((WtValue) node);
+				return null;
+
+			case WtNode.NT_WHITESPACE:
+				visit((WtWhitespace) node);
+				return null;
+
+			case WtNode.NT_XML_ATTRIBUTES:
+				visit((WtXmlAttributes) node);
+				return null;
+
+			case WtNode.NT_TEXT:
+				visit((WtText) node);
+				return null;
+
+			case WtNode.NT_IGNORED:
+				visit((WtIgnored) node);
+				return null;
+
+			case WtNode.NT_LINK_OPTION_GARBAGE:
+				visit((WtLinkOptionGarbage) node);
+				return null;
+
+			case WtNode.NT_NEWLINE:
+				visit((WtNewline) node);
+				return null;
+
+			case WtNode.NT_PAGE_NAME:
+				visit((WtPageName) node);
+				return null;
+
+			case WtNode.NT_TAG_EXTENSION_BODY:
+				visit((WtTagExtensionBody) node);
+				return null;
+
+			case WtNode.NT_XML_ATTRIBUTE_GARBAGE:
+				visit((WtXmlAttributeGarbage) node);
+				return null;
+
+			case WtNode.NT_XML_COMMENT:
+				visit((WtXmlComment) node);
+				return null;
+
+			case WtNode.NT_PARSED_WIKITEXT_PAGE:
+				// Both page types share one node type
+				if (node instanceof WtPreproWikitextPage)
+					visit((WtPreproWikitextPage) node);
+				else if (node instanceof WtParsedWikitextPage)
+					visit((WtParsedWikitextPage) node);
+				else
+					visitUnknown(node);
+				return null;
+
+			default:
+				visitUnknown(node);
+				return null;
+		}
+	}
+
+	// =========================================================================
+
+	/**
+	 * Called for all nodes whose visit() method was not overridden. Fails
+	 * like the AstVisitor does for nodes it has no visit() method for.
+	 */
+	protected void visitUnspecific(WtNode n)
+	{
+		visitNotFound(n);
+	}
+
+	/**
+	 * Called for all nodes whose node type is not covered by the
+	 * {@link CompleteWikitextVisitor} contract.
+	 */
+	protected void visitUnknown(WtNode n)
+	{
+		visitUnspecific(n);
+	}
+
+	// =========================================================================
+
+	@Override
+	public void visit(WtLinkOptionLinkTarget n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtRedirect n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtTableImplicitTableBody n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtXmlAttribute n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtXmlEmptyTag n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtXmlStartTag n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtImStartTag n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtExternalLink n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtInternalLink n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtSection n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtTable n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtTableCaption n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtTableCell n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtTableHeader n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtTableRow n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtTagExtension n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtTemplate n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtTemplateArgument n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtXmlElement n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtImageLink n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtTemplateParameter n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtHorizontalRule n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtIllegalCodePoint n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtLinkOptionKeyword n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtLinkOptionResize n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtPageSwitch n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtSignature n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtTicks n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtUrl n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtXmlCharRef n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtXmlEndTag n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtImEndTag n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtXmlEntityRef n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtNodeList n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtBody n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtBold n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtDefinitionList n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtDefinitionListDef n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtDefinitionListTerm n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtHeading n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtItalics n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtLinkOptionAltText n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtLinkOptions n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtLinkTitle n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtListItem n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtName n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtOnlyInclude n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtOrderedList n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtParsedWikitextPage n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtPreproWikitextPage n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtParagraph n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtSemiPre n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtSemiPreLine n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtTemplateArguments n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtUnorderedList n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtValue n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtWhitespace n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtXmlAttributes n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtText n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtIgnored n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtLinkOptionGarbage n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtNewline n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtPageName n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtTagExtensionBody n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtXmlAttributeGarbage n)
+	{
+		visitUnspecific(n);
+	}
+
+	@Override
+	public void visit(WtXmlComment n)
+	{
+		visitUnspecific(n);
+	}
+
+	// =========================================================================
+	// Make the original methods unusable
+
+	@Override
+	protected final Object visitUnspecific(AstNode<WtNode> node)
+	{
+		throw new InternalError();
+	}
+
+	@Override
+	protected final Object visit(AstText<WtNode> node)
+	{
+		throw new InternalError();
+	}
+
+	@Override
+	protected final Object visit(AstNodeList<WtNode> node)
+	{
+		throw new InternalError();
+	}
+
+	@Override
+	protected final Object visit(AstParserEntity<WtNode> node)
+	{
+		throw new InternalError();
+	}
+}
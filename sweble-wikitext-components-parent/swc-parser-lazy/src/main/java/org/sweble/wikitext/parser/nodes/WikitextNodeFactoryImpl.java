@@ -61,6 +61,7 @@ import org.sweble.wikitext.parser.nodes.WtXmlAttributes.WtEmptyXmlAttributes;
 import org.sweble.wikitext.parser.nodes.WtXmlAttributes.WtXmlAttributesImpl;
 import org.sweble.wikitext.parser.parser.LinkBuilder;
 import org.sweble.wikitext.parser.postprocessor.IntermediateTags;
+import org.sweble.wikitext.parser.utils.WtStringPool;
 
 import de.fau.cs.osr.ptk.common.ast.AstNode;
 import de.fau.cs.osr.ptk.common.ast.AstNodeList;
@@ -85,14 +86,31 @@ public class WikitextNodeFactoryImpl
 
 	private final ParserConfig parserConfig;
 
+	private final WtStringPool stringPool;
+
 	// =========================================================================
 
 	public WikitextNodeFactoryImpl(ParserConfig parserConfig)
+	{
+		this(parserConfig, new WtStringPool());
+	}
+
+	/**
+	 * @param stringPool
+	 *            The pool through which names, keywords and short texts of
+	 *            created nodes are passed if
+	 *            {@link ParserConfig#isStringPooling()} is enabled, or null
+	 *            if strings should never be pooled.
+	 */
+	public WikitextNodeFactoryImpl(
+			ParserConfig parserConfig,
+			WtStringPool stringPool)
 	{
 		if (parserConfig == null)
 			throw new NullPointerException();
 
 		this.parserConfig = parserConfig;
+		this.stringPool = stringPool;
 
 		this.prototypes.put(WtLctRule.class, new WtLctRule());
 		this.prototypes.put(WtLinkOptionLinkTarget.class, new WtLinkOptionLinkTargetImpl());
@@ -232,6 +250,21 @@ public class WikitextNodeFactoryImpl
 		return parserConfig;
 	}
 
+	/**
+	 * @return The string pool or null if strings are not pooled.
+	 */
+	public WtStringPool getStringPool()
+	{
+		return stringPool;
+	}
+
+	protected String intern(String s)
+	{
+		if (stringPool == null || !parserConfig.isStringPooling())
+			return s;
+		return stringPool.intern(s);
+	}
+
 	protected Map<Class<?>, WtNode> getPrototypes()
 	{
 		return prototypes;
@@ -335,13 +368,13 @@ public class WikitextNodeFactoryImpl
 	@Override
 	public WtXmlEmptyTag emptyTag(String name, WtXmlAttributes xmlAttributes)
 	{
-		return new WtXmlEmptyTag(name, xmlAttributes);
+		return new WtXmlEmptyTag(intern(name), xmlAttributes);
 	}
 
 	@Override
 	public WtXmlStartTag startTag(String name, WtXmlAttributes xmlAttributes)
 	{
-		return new WtXmlStartTag(name, xmlAttributes);
+		return new WtXmlStartTag(intern(name), xmlAttributes);
 	}
 
 	@Override
@@ -368,7 +401,7 @@ public class WikitextNodeFactoryImpl
 			WtPageName target,
 			String postfix)
 	{
-		return new WtInternalLink(prefix, target, postfix);
+		return new WtInternalLink(intern(prefix), target, intern(postfix));
 	}
 
 	@Override
@@ -416,7 +449,7 @@ public class WikitextNodeFactoryImpl
 	@Override
 	public WtTagExtension tagExt(String name, WtXmlAttributes xmlAttributes)
 	{
-		return new WtTagExtension(name, xmlAttributes);
+		return new WtTagExtension(intern(name), xmlAttributes);
 	}
 
 	@Override
@@ -425,7 +458,7 @@ public class WikitextNodeFactoryImpl
 			WtXmlAttributes xmlAttributes,
 			WtTagExtensionBody body)
 	{
-		return new WtTagExtension(name, xmlAttributes, body);
+		return new WtTagExtension(intern(name), xmlAttributes, body);
 	}
 
 	@Override
@@ -449,7 +482,7 @@ public class WikitextNodeFactoryImpl
 	@Override
 	public WtXmlElement elem(String name, WtXmlAttributes xmlAttributes)
 	{
-		return new WtXmlElement(name, xmlAttributes);
+		return new WtXmlElement(intern(name), xmlAttributes);
 	}
 
 	@Override
@@ -458,7 +491,7 @@ public class WikitextNodeFactoryImpl
 			WtXmlAttributes xmlAttributes,
 			WtBody body)
 	{
-		return new WtXmlElement(name, xmlAttributes, body);
+		return new WtXmlElement(intern(name), xmlAttributes, body);
 	}
 
 	@Override
@@ -573,7 +606,7 @@ public class WikitextNodeFactoryImpl
 	@Override
 	public WtLinkOptionKeyword loKeyword(String keyword)
 	{
-		return new WtLinkOptionKeyword(keyword);
+		return new WtLinkOptionKeyword(intern(keyword));
 	}
 
 	@Override
@@ -585,7 +618,7 @@ public class WikitextNodeFactoryImpl
 	@Override
 	public WtPageSwitch pageSwitch(String name)
 	{
-		return new WtPageSwitch(name);
+		return new WtPageSwitch(intern(name));
 	}
 
 	@Override
@@ -603,7 +636,7 @@ public class WikitextNodeFactoryImpl
 	@Override
 	public WtUrl url(String protocol, String path)
 	{
-		return new WtUrl(protocol, path);
+		return new WtUrl(intern(protocol), path);
 	}
 
 	@Override
@@ -615,7 +648,7 @@ public class WikitextNodeFactoryImpl
 	@Override
 	public WtXmlEndTag endTag(String name)
 	{
-		return new WtXmlEndTag(name);
+		return new WtXmlEndTag(intern(name));
 	}
 
 	@Override
@@ -627,7 +660,7 @@ public class WikitextNodeFactoryImpl
 	@Override
 	public WtXmlEntityRef entityRef(String name, String resolved)
 	{
-		return new WtXmlEntityRef(name, resolved);
+		return new WtXmlEntityRef(intern(name), intern(resolved));
 	}
 
 	@Override
@@ -666,13 +699,13 @@ public class WikitextNodeFactoryImpl
 			String variant,
 			WtLctRuleText replace)
 	{
-		return new WtLctRule(search, variant, replace);
+		return new WtLctRule(search, intern(variant), replace);
 	}
 
 	@Override
 	public WtLctRule lctRule(String variant, WtLctRuleText replace)
 	{
-		return new WtLctRule(variant, replace);
+		return new WtLctRule(intern(variant), replace);
 	}
 
 	@Override
@@ -973,7 +1006,7 @@ public class WikitextNodeFactoryImpl
 	@Override
 	public WtNewline newline(String content)
 	{
-		return new WtNewline(content);
+		return new WtNewline(intern(content));
 	}
 
 	@Override
@@ -1003,7 +1036,7 @@ public class WikitextNodeFactoryImpl
 	@Override
 	public WtXmlComment comment(String prefix, String content, String suffix)
 	{
-		return new WtXmlComment(content, prefix, suffix);
+		return new WtXmlComment(content, intern(prefix), intern(suffix));
 	}
 
 	@Override
@@ -1015,6 +1048,6 @@ public class WikitextNodeFactoryImpl
 	@Override
 	public WtText text(String content)
 	{
-		return new WtText(content);
+		return new WtText(intern(content));
 	}
 }
@@ -18,6 +18,7 @@
 package org.sweble.wikitext.parser.parser;
 
 import org.sweble.wikitext.parser.WtEntityMap;
+import org.sweble.wikitext.parser.nodes.NodeTypeWikitextVisitorNoReturn;
 import org.sweble.wikitext.parser.nodes.WtIgnored;
 import org.sweble.wikitext.parser.nodes.WtNode;
 import org.sweble.wikitext.parser.nodes.WtNodeList;
@@ -27,8 +28,6 @@ import org.sweble.wikitext.parser.nodes.WtText;
 import org.sweble.wikitext.parser.nodes.WtXmlComment;
 import org.sweble.wikitext.parser.preprocessor.PreprocessedWikitext;
 
-import de.fau.cs.osr.ptk.common.AstVisitor;
-
 public class PreprocessorToParserTransformer
 {
 	public static PreprocessedWikitext transform(
@@ -49,7 +48,7 @@ public class PreprocessorToParserTransformer
 
 	protected static final class TransformVisitor
 			extends
-				AstVisitor<WtNode>
+				NodeTypeWikitextVisitorNoReturn
 	{
 		private StringBuilder builder;
 
@@ -76,27 +75,33 @@ public class PreprocessorToParserTransformer
 		@Override
 		protected PreprocessedWikitext after(WtNode node, Object result)
 		{
-			return new PreprocessedWikitext(builder.toString(), entityMap);
+			// The builder is not touched afterwards and can be handed to the
+			// parser without copying it.
+			return new PreprocessedWikitext(builder, entityMap);
 		}
 
 		// =====================================================================
 
+		@Override
 		public void visit(WtPreproWikitextPage n)
 		{
 			entityMap = n.getEntityMap();
 			iterate(n);
 		}
 
+		@Override
 		public void visit(WtNodeList n)
 		{
 			iterate(n);
 		}
 
+		@Override
 		public void visit(WtOnlyInclude n)
 		{
 			iterate(n);
 		}
 
+		@Override
 		public void visit(WtText n)
 		{
 			builder.append(n.getContent());
@@ -104,17 +109,20 @@ public class PreprocessorToParserTransformer
 
 		// =====================================================================
 
-		public void visit(WtNode n)
+		@Override
+		protected void visitUnspecific(WtNode n)
 		{
 			makeParserEntity(n);
 		}
 
+		@Override
 		public void visit(WtIgnored n)
 		{
 			if (!trim)
 				makeParserEntity(n);
 		}
 
+		@Override
 		public void visit(WtXmlComment n)
 		{
 			if (!trim)
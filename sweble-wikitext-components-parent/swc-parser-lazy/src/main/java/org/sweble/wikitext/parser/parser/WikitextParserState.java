@@ -17,6 +17,7 @@
 
 package org.sweble.wikitext.parser.parser;
 
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import org.sweble.wikitext.parser.ParserConfig;
@@ -31,6 +32,18 @@ public class WikitextParserState
 		extends
 			ParserState<WikitextParserContext>
 {
+	private static final int MAX_CACHED_PATTERNS = 64;
+
+	/**
+	 * A new parser state is created for every page that is parsed. Compiling
+	 * the internal link prefix and postfix patterns anew each time is wasteful
+	 * since they usually never change.
+	 */
+	private static final ConcurrentHashMap<String, Pattern> PATTERN_CACHE =
+			new ConcurrentHashMap<String, Pattern>();
+
+	// =========================================================================
+
 	private WtEntityMap entityMap = new WtEntityMapImpl();
 
 	private ParserConfig config;
@@ -84,13 +97,25 @@ public class WikitextParserState
 
 		this.gatherRtData = config.isGatherRtData();
 
-		this.prefixPattern = Pattern.compile(
+		this.prefixPattern = compilePattern(
 				"(" + config.getInternalLinkPrefixPattern() + ")$");
 
-		this.postfixPattern = Pattern.compile(
+		this.postfixPattern = compilePattern(
 				config.getInternalLinkPostfixPattern());
 	}
 
+	private static Pattern compilePattern(String regex)
+	{
+		Pattern pattern = PATTERN_CACHE.get(regex);
+		if (pattern == null)
+		{
+			pattern = Pattern.compile(regex);
+			if (PATTERN_CACHE.size() < MAX_CACHED_PATTERNS)
+				PATTERN_CACHE.putIfAbsent(regex, pattern);
+		}
+		return pattern;
+	}
+
 	// =========================================================================
 
 	public boolean isAutoCorrect()
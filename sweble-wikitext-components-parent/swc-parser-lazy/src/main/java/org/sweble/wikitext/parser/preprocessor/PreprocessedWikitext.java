@@ -25,21 +25,53 @@ import org.sweble.wikitext.parser.WtEntityMap;
 
 public final class PreprocessedWikitext
 {
-	private String wikitext;
+	private final CharSequence wikitext;
 
-	private WtEntityMap entityMap;
+	private String wikitextString;
+
+	private final WtEntityMap entityMap;
 
 	public PreprocessedWikitext(String wikitext, WtEntityMap entityMap)
+	{
+		this.wikitext = wikitext;
+		this.wikitextString = wikitext;
+		this.entityMap = entityMap;
+	}
+
+	/**
+	 * Wraps the given characters without copying them. The character sequence
+	 * must not be altered afterwards.
+	 */
+	public PreprocessedWikitext(CharSequence wikitext, WtEntityMap entityMap)
 	{
 		this.wikitext = wikitext;
 		this.entityMap = entityMap;
 	}
 
+	/**
+	 * Returns the wikitext as String. If the wikitext was not given as String
+	 * it will be converted on the first call.
+	 */
 	public String getWikitext()
+	{
+		if (wikitextString == null)
+			wikitextString = wikitext.toString();
+		return wikitextString;
+	}
+
+	/**
+	 * Returns the wikitext without converting it into a String.
+	 */
+	public CharSequence getWikitextChars()
 	{
 		return wikitext;
 	}
 
+	public int getLength()
+	{
+		return wikitext.length();
+	}
+
 	public WtEntityMap getEntityMap()
 	{
 		return entityMap;
@@ -0,0 +1,170 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.parser.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * A reader which reads directly from a character sequence. Unlike a
+ * StringReader it does not require the input to be converted into a String
+ * first. Strings, string builders and char buffers (e.g. a slice of a char
+ * array obtained via CharBuffer.wrap()) are copied in bulk.
+ */
+public final class CharSequenceReader
+		extends
+			Reader
+{
+	private CharSequence seq;
+
+	private final int end;
+
+	private int pos;
+
+	private int mark;
+
+	// =========================================================================
+
+	public CharSequenceReader(CharSequence seq)
+	{
+		this(seq, 0, seq.length());
+	}
+
+	/**
+	 * Reads the characters from <code>start</code> (inclusive) to
+	 * <code>end</code> (exclusive) of the given sequence.
+	 */
+	public CharSequenceReader(CharSequence seq, int start, int end)
+	{
+		if (seq == null)
+			throw new NullPointerException();
+		if (start < 0 || end > seq.length() || start > end)
+			throw new IndexOutOfBoundsException();
+
+		this.seq = seq;
+		this.end = end;
+		this.pos = start;
+		this.mark = start;
+	}
+
+	// =========================================================================
+
+	@Override
+	public int read() throws IOException
+	{
+		ensureOpen();
+		if (pos >= end)
+			return -1;
+		return seq.charAt(pos++);
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException
+	{
+		ensureOpen();
+		if (off < 0 || len < 0 || len > cbuf.length - off)
+			throw new IndexOutOfBoundsException();
+		if (len == 0)
+			return 0;
+		if (pos >= end)
+			return -1;
+
+		int n = Math.min(end - pos, len);
+		int to = pos + n;
+
+		if (seq instanceof String)
+		{
+			((String) seq).getChars(pos, to, cbuf, off);
+		}
+		else if (seq instanceof StringBuilder)
+		{
+			((StringBuilder) seq).getChars(pos, to, cbuf, off);
+		}
+		else if (seq instanceof StringBuffer)
+		{
+			((StringBuffer) seq).getChars(pos, to, cbuf, off);
+		}
+		else if (seq instanceof CharBuffer)
+		{
+			CharBuffer cb = ((CharBuffer) seq).duplicate();
+			cb.position(cb.position() + pos);
+			cb.get(cbuf, off, n);
+		}
+		else
+		{
+			for (int i = pos; i < to; ++i)
+				cbuf[off++] = seq.charAt(i);
+		}
+
+		pos = to;
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException
+	{
+		ensureOpen();
+		if (n <= 0)
+			return 0;
+		int skipped = (int) Math.min(end - pos, n);
+		pos += skipped;
+		return skipped;
+	}
+
+	@Override
+	public boolean ready() throws IOException
+	{
+		ensureOpen();
+		return true;
+	}
+
+	@Override
+	public boolean markSupported()
+	{
+		return true;
+	}
+
+	@Override
+	public void mark(int readAheadLimit) throws IOException
+	{
+		ensureOpen();
+		mark = pos;
+	}
+
+	@Override
+	public void reset() throws IOException
+	{
+		ensureOpen();
+		pos = mark;
+	}
+
+	@Override
+	public void close()
+	{
+		seq = null;
+	}
+
+	// =========================================================================
+
+	private void ensureOpen() throws IOException
+	{
+		if (seq == null)
+			throw new IOException("Reader closed");
+	}
+}
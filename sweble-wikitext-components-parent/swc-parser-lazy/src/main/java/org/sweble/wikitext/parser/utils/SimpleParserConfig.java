@@ -45,6 +45,10 @@ public class SimpleParserConfig
 
 	private final boolean autoCorrect;
 
+	private boolean sourceOffsetRtData = false;
+
+	private boolean stringPooling = false;
+
 	private final WikitextNodeFactory nodeFactory;
 
 	private final AstTextUtilsImpl textUtils;
@@ -94,6 +98,28 @@ public class SimpleParserConfig
 		return gatherRtd;
 	}
 
+	public void setSourceOffsetRtData(boolean sourceOffsetRtData)
+	{
+		this.sourceOffsetRtData = sourceOffsetRtData;
+	}
+
+	@Override
+	public boolean isSourceOffsetRtData()
+	{
+		return sourceOffsetRtData;
+	}
+
+	public void setStringPooling(boolean stringPooling)
+	{
+		this.stringPooling = stringPooling;
+	}
+
+	@Override
+	public boolean isStringPooling()
+	{
+		return stringPooling;
+	}
+
 	// ==[ AST creation ]=======================================================
 
 	@Override
@@ -0,0 +1,634 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.parser.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.sweble.wikitext.parser.WtRtData;
+import org.sweble.wikitext.parser.nodes.WikitextNodeFactory;
+import org.sweble.wikitext.parser.nodes.WtEmptyImmutableNode;
+import org.sweble.wikitext.parser.nodes.WtInnerImmutableNode1;
+import org.sweble.wikitext.parser.nodes.WtNode;
+
+import de.fau.cs.osr.ptk.common.ast.AstLocation;
+import de.fau.cs.osr.ptk.common.ast.AstNodePropertyIterator;
+
+/**
+ * A compact, array-backed representation of a WtNode tree for retaining
+ * parsed pages in memory.
+ * 
+ * Instead of one object per node (plus its RtData, attribute map and
+ * location) the tree is stored as a handful of int arrays indexed by node
+ * number: node type, class, parent and child range. The children of a node
+ * are stored next to each other, the root has index 0. Strings and other
+ * property values are kept once in a shared pool and referenced by index,
+ * the RtData glue of all nodes is stored in one array of pool indices.
+ * 
+ * The node types, the tree structure and the property values can be
+ * inspected without creating any nodes. For everything else, i.e. for running
+ * visitors, a subtree is materialized into regular WtNode objects using
+ * {@link #materialize(int)}. Materialized nodes are not backed by the compact
+ * tree, changes to them are not reflected in the compact tree.
+ * 
+ * Instances are immutable and can be shared between threads.
+ */
+public class WtCompactTree
+{
+	/**
+	 * The node has no RtData.
+	 */
+	private static final int NO_RTD = -1;
+
+	/**
+	 * The node's RtData is {@link WtRtData#SUPPRESS}.
+	 */
+	private static final int SUPPRESSED_RTD = -2;
+
+	/**
+	 * The node is a shared immutable instance (e.g. WtBody.EMPTY) and its
+	 * only property is the pool index of the instance itself.
+	 */
+	private static final int SHARED_NODE = -3;
+
+	private static final int NO_VALUE = -1;
+
+	// =========================================================================
+
+	private final WikitextNodeFactory nodeFactory;
+
+	private final int[] nodeTypes;
+
+	private final int[] classIds;
+
+	private final int[] parents;
+
+	private final int[] firstChildren;
+
+	private final int[] childCounts;
+
+	/**
+	 * The properties of node <code>i</code> are found at
+	 * <code>properties[propertyStarts[i]]</code> up to (excluding)
+	 * <code>properties[propertyStarts[i + 1]]</code>.
+	 */
+	private final int[] propertyStarts;
+
+	private final int[] properties;
+
+	/**
+	 * Index into <code>rtdFields</code> or one of the RtData constants.
+	 */
+	private final int[] rtds;
+
+	/**
+	 * For every RtData the number of fields <code>n</code> followed by the
+	 * <code>n + 1</code> boundaries of the fields in <code>glue</code>.
+	 */
+	private final int[] rtdFields;
+
+	/**
+	 * Pool indices of glue strings or <code>-(node + 1)</code> for nodes.
+	 */
+	private final int[] glue;
+
+	private final int[] files;
+
+	private final int[] lines;
+
+	private final int[] columns;
+
+	private final Map<Integer, Map<String, Object>> attributes;
+
+	private final Class<?>[] classes;
+
+	private final String[][] propertyNames;
+
+	private final Object[] pool;
+
+	// =========================================================================
+
+	private WtCompactTree(Builder b)
+	{
+		this.nodeFactory = b.nodeFactory;
+		this.nodeTypes = b.nodeTypes.toArray();
+		this.classIds = b.classIds.toArray();
+		this.parents = b.parents.toArray();
+		this.firstChildren = b.firstChildren.toArray();
+		this.childCounts = b.childCounts.toArray();
+		this.propertyStarts = b.propertyStarts.toArray();
+		this.properties = b.properties.toArray();
+		this.rtds = b.rtds.toArray();
+		this.rtdFields = b.rtdFields.toArray();
+		this.glue = b.glue.toArray();
+		this.files = (b.files != null) ? b.files.toArray() : null;
+		this.lines = (b.lines != null) ? b.lines.toArray() : null;
+		this.columns = (b.columns != null) ? b.columns.toArray() : null;
+		this.attributes = b.attributes;
+		this.classes = b.classes.toArray(new Class<?>[b.classes.size()]);
+		this.propertyNames = b.propertyNames.toArray(new String[b.propertyNames.size()][]);
+		this.pool = b.pool.toArray();
+	}
+
+	/**
+	 * Converts a tree into its compact representation. Node locations are
+	 * retained.
+	 * 
+	 * @param nodeFactory
+	 *            The factory used to instantiate nodes during
+	 *            materialization.
+	 */
+	public static WtCompactTree compact(
+			WtNode root,
+			WikitextNodeFactory nodeFactory)
+	{
+		return compact(root, nodeFactory, true);
+	}
+
+	/**
+	 * Converts a tree into its compact representation.
+	 * 
+	 * @param nodeFactory
+	 *            The factory used to instantiate nodes during
+	 *            materialization.
+	 * @param keepLocations
+	 *            Whether the native locations of the nodes are retained.
+	 */
+	public static WtCompactTree compact(
+			WtNode root,
+			WikitextNodeFactory nodeFactory,
+			boolean keepLocations)
+	{
+		if (root == null || nodeFactory == null)
+			throw new NullPointerException();
+
+		return new Builder(nodeFactory, keepLocations).build(root);
+	}
+
+	// =========================================================================
+
+	/**
+	 * @return The number of nodes in the tree, including the nodes which only
+	 *         appear in RtData glue.
+	 */
+	public int getNodeCount()
+	{
+		return nodeTypes.length;
+	}
+
+	public int getPoolSize()
+	{
+		return pool.length;
+	}
+
+	public int getNodeType(int node)
+	{
+		return nodeTypes[node];
+	}
+
+	public Class<?> getNodeClass(int node)
+	{
+		return classes[classIds[node]];
+	}
+
+	/**
+	 * @return The index of the parent node or -1 for the root and nodes which
+	 *         only appear in RtData glue.
+	 */
+	public int getParent(int node)
+	{
+		return parents[node];
+	}
+
+	public int getChildCount(int node)
+	{
+		return childCounts[node];
+	}
+
+	public int getChild(int node, int index)
+	{
+		if (index < 0 || index >= childCounts[node])
+			throw new IndexOutOfBoundsException();
+		return firstChildren[node] + index;
+	}
+
+	/**
+	 * @return The value of the property with the given name or null if the
+	 *         node does not have such a property. RtData is not available as
+	 *         property.
+	 */
+	public Object getProperty(int node, String name)
+	{
+		if (rtds[node] == SHARED_NODE)
+			return null;
+
+		String[] names = propertyNames[classIds[node]];
+		for (int i = 0; i < names.length; ++i)
+		{
+			if (names[i].equals(name))
+			{
+				int value = properties[propertyStarts[node] + i];
+				return (value == NO_VALUE) ? null : pool[value];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return The content of a string node or null if the node is not a
+	 *         string node.
+	 */
+	public String getContent(int node)
+	{
+		Object content = getProperty(node, "content");
+		return (content instanceof String) ? (String) content : null;
+	}
+
+	// =========================================================================
+
+	/**
+	 * @return A newly created copy of the whole tree.
+	 */
+	public WtNode materialize()
+	{
+		return materialize(0);
+	}
+
+	/**
+	 * @return A newly created copy of the subtree rooted at the given node.
+	 */
+	public WtNode materialize(int node)
+	{
+		if (rtds[node] == SHARED_NODE)
+			return (WtNode) pool[properties[propertyStarts[node]]];
+
+		WtNode n = nodeFactory.instantiateNode(getNodeClass(node));
+
+		String[] names = propertyNames[classIds[node]];
+		if (names.length > 0)
+		{
+			int value = propertyStarts[node];
+			AstNodePropertyIterator i = n.propertyIterator();
+			while (i.next())
+			{
+				if (isRtd(i.getName()))
+					continue;
+				int v = properties[value++];
+				i.setValue((v == NO_VALUE) ? null : pool[v]);
+			}
+		}
+
+		int first = firstChildren[node];
+		int count = childCounts[node];
+		if (n.isList())
+		{
+			for (int i = 0; i < count; ++i)
+				n.add(materialize(first + i));
+		}
+		else
+		{
+			for (int i = 0; i < count; ++i)
+				n.set(i, materialize(first + i));
+		}
+
+		int rtd = rtds[node];
+		if (rtd == SUPPRESSED_RTD)
+		{
+			n.suppressRtd();
+		}
+		else if (rtd != NO_RTD)
+		{
+			n.setRtd(materializeRtd(rtd));
+		}
+
+		if (files != null && files[node] != NO_VALUE)
+			n.setNativeLocation(new AstLocation(
+					(String) pool[files[node]],
+					lines[node],
+					columns[node]));
+
+		Map<String, Object> attrs = attributes.get(node);
+		if (attrs != null)
+			n.setAttributes(new HashMap<String, Object>(attrs));
+
+		return n;
+	}
+
+	private WtRtData materializeRtd(int rtd)
+	{
+		int fieldCount = rtdFields[rtd];
+		WtRtData data = new WtRtData(fieldCount);
+		for (int f = 0; f < fieldCount; ++f)
+		{
+			int from = rtdFields[rtd + 1 + f];
+			int to = rtdFields[rtd + 2 + f];
+
+			Object[] field = new Object[to - from];
+			for (int i = from; i < to; ++i)
+			{
+				int g = glue[i];
+				field[i - from] = (g < 0) ? materialize(-g - 1) : pool[g];
+			}
+			data.setField(f, field);
+		}
+		return data;
+	}
+
+	// =========================================================================
+
+	@Override
+	public String toString()
+	{
+		return String.format(
+				"%d nodes, %d pooled values, %d glue entries",
+				getNodeCount(),
+				pool.length,
+				glue.length);
+	}
+
+	private static boolean isRtd(String propertyName)
+	{
+		return "rtd".equals(propertyName);
+	}
+
+	// =========================================================================
+
+	private static final class Builder
+	{
+		private final WikitextNodeFactory nodeFactory;
+
+		private final IntArray nodeTypes = new IntArray();
+
+		private final IntArray classIds = new IntArray();
+
+		private final IntArray parents = new IntArray();
+
+		private final IntArray firstChildren = new IntArray();
+
+		private final IntArray childCounts = new IntArray();
+
+		private final IntArray propertyStarts = new IntArray();
+
+		private final IntArray properties = new IntArray();
+
+		private final IntArray rtds = new IntArray();
+
+		private final IntArray rtdFields = new IntArray();
+
+		private final IntArray glue = new IntArray();
+
+		private final IntArray files;
+
+		private final IntArray lines;
+
+		private final IntArray columns;
+
+		private final Map<Integer, Map<String, Object>> attributes =
+				new HashMap<Integer, Map<String, Object>>();
+
+		private final List<Class<?>> classes = new ArrayList<Class<?>>();
+
+		private final Map<Class<?>, Integer> classIndex = new HashMap<Class<?>, Integer>();
+
+		private final List<String[]> propertyNames = new ArrayList<String[]>();
+
+		private final List<Object> pool = new ArrayList<Object>();
+
+		/**
+		 * Immutable values like strings and numbers are deduplicated by
+		 * equality.
+		 */
+		private final Map<Object, Integer> valueIndex = new HashMap<Object, Integer>();
+
+		/**
+		 * All other values are only deduplicated if they are the same object.
+		 */
+		private final Map<Object, Integer> objectIndex = new IdentityHashMap<Object, Integer>();
+
+		/**
+		 * Nodes which have been numbered but not yet stored.
+		 */
+		private final List<WtNode> pending = new ArrayList<WtNode>();
+
+		private final IntArray pendingParents = new IntArray();
+
+		public Builder(WikitextNodeFactory nodeFactory, boolean keepLocations)
+		{
+			this.nodeFactory = nodeFactory;
+			this.files = keepLocations ? new IntArray() : null;
+			this.lines = keepLocations ? new IntArray() : null;
+			this.columns = keepLocations ? new IntArray() : null;
+		}
+
+		public WtCompactTree build(WtNode root)
+		{
+			enqueue(root, -1);
+
+			// Nodes are stored in breadth-first order. Thus the children of a
+			// node are numbered consecutively when the node is stored.
+			for (int i = 0; i < pending.size(); ++i)
+			{
+				WtNode n = pending.get(i);
+				pending.set(i, null);
+				add(i, n, pendingParents.get(i));
+			}
+
+			propertyStarts.add(properties.size());
+
+			return new WtCompactTree(this);
+		}
+
+		private int enqueue(WtNode n, int parent)
+		{
+			pending.add(n);
+			pendingParents.add(parent);
+			return pending.size() - 1;
+		}
+
+		private void add(int index, WtNode n, int parent)
+		{
+			nodeTypes.add(n.getNodeType());
+			parents.add(parent);
+			propertyStarts.add(properties.size());
+
+			if (n instanceof WtEmptyImmutableNode || n instanceof WtInnerImmutableNode1)
+			{
+				classIds.add(getClassId(n, false));
+				firstChildren.add(0);
+				childCounts.add(0);
+				properties.add(intern(n));
+				rtds.add(SHARED_NODE);
+				if (files != null)
+				{
+					files.add(NO_VALUE);
+					lines.add(0);
+					columns.add(0);
+				}
+				return;
+			}
+
+			classIds.add(getClassId(n, true));
+
+			AstNodePropertyIterator i = n.propertyIterator();
+			while (i.next())
+			{
+				if (!isRtd(i.getName()))
+					properties.add(intern(i.getValue()));
+			}
+
+			firstChildren.add(pending.size());
+			childCounts.add(n.size());
+			for (WtNode c : n)
+				enqueue(c, index);
+
+			WtRtData rtd = n.getRtd();
+			if (rtd == null)
+			{
+				rtds.add(NO_RTD);
+			}
+			else if (rtd.isSuppress())
+			{
+				rtds.add(SUPPRESSED_RTD);
+			}
+			else
+			{
+				rtds.add(rtdFields.size());
+				rtdFields.add(rtd.size());
+				rtdFields.add(glue.size());
+				for (Object[] field : rtd.getFields())
+				{
+					for (Object o : field)
+					{
+						if (o instanceof WtNode)
+						{
+							glue.add(-enqueue((WtNode) o, -1) - 1);
+						}
+						else
+						{
+							glue.add(intern(o));
+						}
+					}
+					rtdFields.add(glue.size());
+				}
+			}
+
+			if (files != null)
+			{
+				AstLocation l = n.getNativeLocation();
+				if (l != null)
+				{
+					files.add(intern(l.getFile()));
+					lines.add(l.getLine());
+					columns.add(l.getColumn());
+				}
+				else
+				{
+					files.add(NO_VALUE);
+					lines.add(0);
+					columns.add(0);
+				}
+			}
+
+			if (n.hasAttributes())
+				attributes.put(index, new HashMap<String, Object>(n.getAttributes()));
+		}
+
+		private int getClassId(WtNode n, boolean withProperties)
+		{
+			Class<?> clazz = n.getClass();
+			Integer id = classIndex.get(clazz);
+			if (id == null)
+			{
+				id = classes.size();
+				classes.add(clazz);
+				classIndex.put(clazz, id);
+
+				List<String> names = new ArrayList<String>();
+				if (withProperties)
+				{
+					AstNodePropertyIterator i = n.propertyIterator();
+					while (i.next())
+					{
+						if (!isRtd(i.getName()))
+							names.add(i.getName());
+					}
+				}
+				propertyNames.add(names.toArray(new String[names.size()]));
+			}
+			return id;
+		}
+
+		private int intern(Object value)
+		{
+			if (value == null)
+				return NO_VALUE;
+
+			boolean immutable = (value instanceof String)
+					|| (value instanceof Number)
+					|| (value instanceof Boolean)
+					|| (value instanceof Character)
+					|| (value instanceof Enum);
+
+			Map<Object, Integer> index = immutable ? valueIndex : objectIndex;
+
+			Integer i = index.get(value);
+			if (i == null)
+			{
+				i = pool.size();
+				pool.add(value);
+				index.put(value, i);
+			}
+			return i;
+		}
+	}
+
+	// =========================================================================
+
+	private static final class IntArray
+	{
+		private int[] values = new int[64];
+
+		private int size;
+
+		public void add(int value)
+		{
+			if (size == values.length)
+				values = Arrays.copyOf(values, size * 2);
+			values[size++] = value;
+		}
+
+		public int get(int index)
+		{
+			return values[index];
+		}
+
+		public int size()
+		{
+			return size;
+		}
+
+		public int[] toArray()
+		{
+			return Arrays.copyOf(values, size);
+		}
+	}
+}
@@ -24,6 +24,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.sweble.wikitext.parser.nodes.NodeTypeWikitextVisitorNoReturn;
 import org.sweble.wikitext.parser.nodes.WtBody;
 import org.sweble.wikitext.parser.nodes.WtBold;
 import org.sweble.wikitext.parser.nodes.WtDefinitionList;
@@ -99,13 +100,12 @@ import org.sweble.wikitext.parser.nodes.WtXmlEndTag;
 import org.sweble.wikitext.parser.nodes.WtXmlEntityRef;
 import org.sweble.wikitext.parser.nodes.WtXmlStartTag;
 
-import de.fau.cs.osr.ptk.common.AstVisitor;
 import de.fau.cs.osr.utils.PrinterBase;
 import de.fau.cs.osr.utils.StringTools;
 
 public class WtPrettyPrinter
 		extends
-			AstVisitor<WtNode>
+			NodeTypeWikitextVisitorNoReturn
 {
 	// --[ WtInnerNode1 ]-------------------------------------------------------
 
@@ -870,6 +870,46 @@ public class WtPrettyPrinter
 		p.print(n.getContent());
 	}
 
+	// --[ Nodes outside the visitor contract ]---------------------------------
+
+	@Override
+	protected void visitUnknown(WtNode n)
+	{
+		switch (n.getNodeType())
+		{
+			case WtNode.NT_LCT_FLAGS:
+				visit((WtLctFlags) n);
+				break;
+
+			case WtNode.NT_LCT_RULE:
+				visit((WtLctRule) n);
+				break;
+
+			case WtNode.NT_LCT_RULE_CONV:
+				visit((WtLctRuleConv) n);
+				break;
+
+			case WtNode.NT_LCT_RULE_GARBAGE:
+				visit((WtLctRuleGarbage) n);
+				break;
+
+			case WtNode.NT_LCT_RULES:
+				visit((WtLctRules) n);
+				break;
+
+			case WtNode.NT_LCT_VAR_CONV:
+				visit((WtLctVarConv) n);
+				break;
+
+			default:
+				if (n instanceof WtLinkTarget.WtNoLink)
+					visit((WtLinkTarget.WtNoLink) n);
+				else
+					super.visitUnknown(n);
+				break;
+		}
+	}
+
 	// =========================================================================
 
 	public static <T extends WtNode> String print(T node)
@@ -0,0 +1,203 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.parser.utils;
+
+import org.sweble.wikitext.parser.WtRtData;
+import org.sweble.wikitext.parser.WtSourceSpan;
+import org.sweble.wikitext.parser.nodes.WtContentNode;
+import org.sweble.wikitext.parser.nodes.WtNode;
+import org.sweble.wikitext.parser.nodes.WtStringNode;
+import org.sweble.wikitext.parser.nodes.WtText;
+
+/**
+ * Replaces the glue strings in the RtData of a tree with
+ * {@link WtSourceSpan}s into the source text the tree was parsed from.
+ * Afterwards the tree no longer holds copies of the source text's syntax
+ * fragments but only offsets and a reference to the source.
+ * 
+ * Only glue strings of at least {@link #MIN_SPAN_LENGTH} characters are
+ * replaced. Shorter glue is mostly made of the literals of the grammars
+ * (e.g. "[[" or "&lt;!--"), which are shared by all trees. Replacing them
+ * with a span would add an object instead of saving one.
+ * 
+ * The tree is walked in the order in which the {@link WtRtDataPrinter}
+ * prints it. Usually every glue string is found at the current position in
+ * the source. If not (e.g. because the tree was altered or the glue was
+ * generated), the glue string is searched in the next
+ * {@link #RESYNC_WINDOW} characters of the source. Glue strings that cannot
+ * be found are kept. Since a span always contains the same characters as the
+ * string it replaces, the printed text of the tree does not change.
+ */
+public class WtRtDataSourceMapper
+{
+	public static final int MIN_SPAN_LENGTH = 6;
+
+	public static final int RESYNC_WINDOW = 64;
+
+	// =========================================================================
+
+	private final String source;
+
+	private int pos = 0;
+
+	private int mapped = 0;
+
+	// =========================================================================
+
+	/**
+	 * @return The number of glue strings which were replaced.
+	 */
+	public static int map(WtNode node, String source)
+	{
+		WtRtDataSourceMapper mapper = new WtRtDataSourceMapper(source);
+		mapper.dispatch(node);
+		return mapper.mapped;
+	}
+
+	// =========================================================================
+
+	protected WtRtDataSourceMapper(String source)
+	{
+		if (source == null)
+			throw new NullPointerException();
+		this.source = source;
+	}
+
+	protected void iterate(WtNode node)
+	{
+		for (WtNode c : node)
+			dispatch(c);
+	}
+
+	protected void dispatch(WtNode node)
+	{
+		switch (node.getNodeType())
+		{
+			case WtNode.NT_TEXT:
+				skip(((WtText) node).getContent());
+				break;
+
+			case WtNode.NT_NODE_LIST:
+				iterate(node);
+				break;
+
+			default:
+				WtRtData rtd = node.getRtd();
+				if (rtd == null)
+				{
+					if (node instanceof WtStringNode)
+						skip(((WtStringNode) node).getContent());
+					else
+						iterate(node);
+				}
+				else if (!rtd.isSuppress())
+				{
+					if (node instanceof WtStringNode)
+					{
+						mapField(rtd, 0);
+					}
+					else if (node instanceof WtContentNode)
+					{
+						mapField(rtd, 0);
+						iterate(node);
+						mapField(rtd, 1);
+					}
+					else
+					{
+						int i = 0;
+						for (WtNode n : node)
+						{
+							mapField(rtd, i++);
+							dispatch(n);
+						}
+						mapField(rtd, i);
+					}
+				}
+				break;
+		}
+	}
+
+	private void mapField(WtRtData rtd, int index)
+	{
+		Object[] field = rtd.getField(index);
+
+		boolean changed = false;
+		for (int i = 0; i < field.length; ++i)
+		{
+			Object o = field[i];
+			if (o instanceof WtNode)
+			{
+				dispatch((WtNode) o);
+			}
+			else if (o instanceof String)
+			{
+				WtSourceSpan span = find((String) o);
+				if (span != null)
+				{
+					field[i] = span;
+					changed = true;
+					++mapped;
+				}
+			}
+			else if (o != null)
+			{
+				skip(o.toString());
+			}
+		}
+
+		if (changed)
+			rtd.setField(index, field);
+	}
+
+	private WtSourceSpan find(String glue)
+	{
+		if (glue.length() < MIN_SPAN_LENGTH)
+		{
+			skip(glue);
+			return null;
+		}
+
+		int start = pos;
+		if (!source.startsWith(glue, start))
+		{
+			start = -1;
+
+			int last = Math.min(pos + RESYNC_WINDOW, source.length() - glue.length());
+			for (int i = pos + 1; i <= last; ++i)
+			{
+				if (source.startsWith(glue, i))
+				{
+					start = i;
+					break;
+				}
+			}
+
+			if (start == -1)
+				return null;
+		}
+
+		pos = start + glue.length();
+		return new WtSourceSpan(source, start, pos);
+	}
+
+	private void skip(String text)
+	{
+		if (text != null && source.startsWith(text, pos))
+			pos += text.length();
+	}
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.parser.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of short strings that are used over and over again by the
+ * parser, e.g. element and attribute names, link prefixes or whitespace.
+ * Passing such strings through the pool makes equal strings share one
+ * instance, which reduces the memory needed by retained trees and lets
+ * equals() checks succeed on the identity comparison.
+ * 
+ * The pool is a direct-mapped cache: every string has exactly one slot,
+ * determined by its hash code. If another string occupies the slot it is
+ * replaced. Therefore the pool never holds more than <code>capacity</code>
+ * strings and never grows. Strings longer than the maximum length are not
+ * pooled at all.
+ * 
+ * Instances are thread-safe without synchronization. Strings are immutable,
+ * so a thread reading a slot sees either null or a complete string. Concurrent
+ * threads may occasionally replace each other's strings, which only costs a
+ * hit.
+ * 
+ * Statistics about hits and misses are only kept if requested on
+ * construction, since counting makes all parser threads write to shared
+ * counters. Strings which are too long or null are not counted.
+ */
+public class WtStringPool
+{
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	public static final int DEFAULT_MAX_LENGTH = 32;
+
+	// =========================================================================
+
+	private final String[] slots;
+
+	private final int mask;
+
+	private final int maxLength;
+
+	private final AtomicLong hits;
+
+	private final AtomicLong misses;
+
+	// =========================================================================
+
+	public WtStringPool()
+	{
+		this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH, false);
+	}
+
+	public WtStringPool(int capacity, int maxLength)
+	{
+		this(capacity, maxLength, false);
+	}
+
+	/**
+	 * @param capacity
+	 *            The maximum number of pooled strings. Rounded up to the next
+	 *            power of two.
+	 * @param maxLength
+	 *            Longer strings are returned as they are.
+	 * @param statistics
+	 *            Whether hits and misses are counted.
+	 */
+	public WtStringPool(int capacity, int maxLength, boolean statistics)
+	{
+		if (capacity < 1)
+			throw new IllegalArgumentException("Capacity must be at least 1!");
+		if (capacity > (1 << 30))
+			throw new IllegalArgumentException("Capacity is too large!");
+		if (maxLength < 0)
+			throw new IllegalArgumentException("Maximum length must not be negative!");
+
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity)
+			size <<= 1;
+
+		this.slots = new String[size];
+		this.mask = size - 1;
+		this.maxLength = maxLength;
+		this.hits = statistics ? new AtomicLong() : null;
+		this.misses = statistics ? new AtomicLong() : null;
+	}
+
+	// =========================================================================
+
+	/**
+	 * @return The pooled instance of the given string or the string itself
+	 *         if it is not pooled yet, too long or null.
+	 */
+	public String intern(String s)
+	{
+		if (s == null || s.length() > maxLength)
+			return s;
+
+		int h = s.hashCode();
+		int slot = (h ^ (h >>> 16)) & mask;
+
+		String pooled = slots[slot];
+		if (pooled != null && (pooled == s || pooled.equals(s)))
+		{
+			if (hits != null)
+				hits.incrementAndGet();
+			return pooled;
+		}
+
+		if (misses != null)
+			misses.incrementAndGet();
+
+		slots[slot] = s;
+		return s;
+	}
+
+	// =========================================================================
+
+	public int getCapacity()
+	{
+		return slots.length;
+	}
+
+	public int getMaxLength()
+	{
+		return maxLength;
+	}
+
+	public boolean isStatistics()
+	{
+		return hits != null;
+	}
+
+	/**
+	 * @return The number of strings for which a pooled instance was
+	 *         returned or -1 if no statistics are kept.
+	 */
+	public long getHits()
+	{
+		return (hits != null) ? hits.get() : -1;
+	}
+
+	/**
+	 * @return The number of strings which were not found in the pool or -1
+	 *         if no statistics are kept.
+	 */
+	public long getMisses()
+	{
+		return (misses != null) ? misses.get() : -1;
+	}
+
+	/**
+	 * @return The ratio of hits to all counted strings, 0 if no string was
+	 *         counted yet or -1 if no statistics are kept.
+	 */
+	public double getHitRate()
+	{
+		if (hits == null)
+			return -1;
+		long h = hits.get();
+		long total = h + misses.get();
+		return (total == 0) ? 0 : (double) h / total;
+	}
+
+	@Override
+	public String toString()
+	{
+		if (!isStatistics())
+		{
+			return String.format(
+					"string pool: capacity %d, max length %d",
+					getCapacity(),
+					getMaxLength());
+		}
+
+		return String.format(
+				"string pool: capacity %d, max length %d, %d hits, %d misses (%.1f%% hit rate)",
+				getCapacity(),
+				getMaxLength(),
+				getHits(),
+				getMisses(),
+				getHitRate() * 100);
+	}
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.sweble.wikitext.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.CharBuffer;
+
+import org.junit.Test;
+import org.sweble.wikitext.parser.comparer.WtComparer;
+import org.sweble.wikitext.parser.encval.ValidatedWikitext;
+import org.sweble.wikitext.parser.nodes.WtNode;
+import org.sweble.wikitext.parser.nodes.WtPreproWikitextPage;
+import org.sweble.wikitext.parser.parser.PreprocessorToParserTransformer;
+import org.sweble.wikitext.parser.preprocessor.PreprocessedWikitext;
+import org.sweble.wikitext.parser.utils.SimpleParserConfig;
+
+public class CharSequencePipelineTest
+{
+	private static final String TITLE = "Page";
+
+	private static final String WIKITEXT = ""
+			+ "Intro with an illegal \u0007 code point.\n"
+			+ "== Section ==\n"
+			+ "Some '''bold''' text and a [[link|label]].\n"
+			+ "<!-- comment -->\n"
+			+ "{|\n"
+			+ "| cell || {{template|arg}}\n"
+			+ "|}\n"
+			+ "* item <span>\uDC80</span>\n";
+
+	private final ParserConfig config = new SimpleParserConfig();
+
+	// =========================================================================
+
+	@Test
+	public void testStringBuilderProducesSameAstAsString() throws Exception
+	{
+		assertSameAstAsString(new StringBuilder(WIKITEXT));
+	}
+
+	@Test
+	public void testCharArraySliceProducesSameAstAsString() throws Exception
+	{
+		char[] chars = ("prefix" + WIKITEXT + "suffix").toCharArray();
+
+		assertSameAstAsString(CharBuffer.wrap(chars, 6, WIKITEXT.length()));
+	}
+
+	// =========================================================================
+
+	private void assertSameAstAsString(CharSequence source) throws Exception
+	{
+		assertFalse(source instanceof String);
+		assertEquals(WIKITEXT, source.toString());
+
+		WtNode expected = parse(WIKITEXT, true);
+		WtNode actual = parse(source, false);
+
+		assertTrue(WtComparer.compareNoThrow(expected, actual, true, true));
+	}
+
+	/**
+	 * Validates, preprocesses and parses the given wikitext.
+	 * 
+	 * @param asString
+	 *            Whether each stage passes its result on as String.
+	 */
+	private WtNode parse(CharSequence source, boolean asString) throws Exception
+	{
+		WikitextEncodingValidator validator = new WikitextEncodingValidator();
+		ValidatedWikitext validated = validator.validate(config, source, TITLE);
+		if (asString)
+			validated = new ValidatedWikitext(validated.getWikitext(), validated.getEntityMap());
+
+		WikitextPreprocessor preprocessor = new WikitextPreprocessor(config);
+		WtPreproWikitextPage ppAst =
+				(WtPreproWikitextPage) preprocessor.parseArticle(validated, TITLE, false);
+
+		PreprocessedWikitext preprocessed = PreprocessorToParserTransformer.transform(ppAst);
+		if (asString)
+			preprocessed = new PreprocessedWikitext(preprocessed.getWikitext(), preprocessed.getEntityMap());
+
+		WikitextParser parser = new WikitextParser(config);
+		return parser.parseArticle(preprocessed, TITLE);
+	}
+}
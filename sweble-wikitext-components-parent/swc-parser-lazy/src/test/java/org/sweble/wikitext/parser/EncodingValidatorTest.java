@@ -18,6 +18,7 @@
 package org.sweble.wikitext.parser;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.io.IOException;
 
@@ -104,4 +105,55 @@ public class EncodingValidatorTest
 
 		assertEquals(ref.toString(), validatedWikitext);
 	}
+
+	@Test
+	public void testCleanWikitextIsNotCopied() throws IOException
+	{
+		String source = "Ein einfacher Test-String\r\nmit \u00FCblichen \uD83D\uDE00 Zeichen.";
+
+		WikitextEncodingValidator v = new WikitextEncodingValidator();
+		ValidatedWikitext result = v.validate(new SimpleParserConfig(), source, "dummy");
+
+		assertSame(source, result.getWikitextChars());
+		assertSame(source, result.getWikitext());
+		assertEquals(1, v.getValidatedCount());
+		assertEquals(1, v.getFastPathCount());
+	}
+
+	@Test
+	public void testOnlyLinesWithIllegalCodePointsAreLexed() throws IOException
+	{
+		String title = "dummy";
+
+		StringBuilder clean = new StringBuilder();
+		for (int i = 0; i < 1000; ++i)
+			clean.append("Ein langer Absatz ohne Fehler.\n");
+
+		StringBuilder source = new StringBuilder();
+		source.append("Vorne \u0007 und\n"); // L 0:6
+		source.append(clean); // L 1 - 1000
+		source.append("Hinten \uDC80\r\n"); // L 1001:7
+		source.append(clean);
+
+		WikitextEncodingValidator v = new WikitextEncodingValidator();
+		ValidatedWikitext result = v.validate(new SimpleParserConfig(), source, title);
+		WtEntityMap entityMap = result.getEntityMap();
+
+		WtIllegalCodePoint x0 = (WtIllegalCodePoint) entityMap.getEntity(0);
+		assertEquals(IllegalCodePointType.CONTROL_CHARACTER, x0.getType());
+		assertEquals(new AstLocation(title, 0, 6), x0.getNativeLocation());
+
+		WtIllegalCodePoint x1 = (WtIllegalCodePoint) entityMap.getEntity(1);
+		assertEquals(IllegalCodePointType.ISOLATED_SURROGATE, x1.getType());
+		assertEquals(new AstLocation(title, 1001, 7), x1.getNativeLocation());
+
+		StringBuilder ref = new StringBuilder();
+		ref.append("Vorne \uE0000\uE001 und\n");
+		ref.append(clean);
+		ref.append("Hinten \uE0001\uE001\r\n");
+		ref.append(clean);
+
+		assertEquals(ref.toString(), result.getWikitext());
+		assertEquals(0, v.getFastPathCount());
+	}
 }
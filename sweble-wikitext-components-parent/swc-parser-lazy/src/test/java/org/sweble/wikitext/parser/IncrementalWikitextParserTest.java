@@ -0,0 +1,170 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.parser;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.sweble.wikitext.parser.comparer.WtComparer;
+import org.sweble.wikitext.parser.nodes.WtParsedWikitextPage;
+import org.sweble.wikitext.parser.utils.SimpleParserConfig;
+
+public class IncrementalWikitextParserTest
+{
+	private static final String TITLE = "Page";
+
+	private static final String PAGE = ""
+			+ "Intro\n"
+			+ "== First ==\n"
+			+ "Some '''bold''' text.\n"
+			+ "== Second ==\n"
+			+ "* item\n"
+			+ "* another item\n"
+			+ "=== Nested ===\n"
+			+ "A [[link]].\n"
+			+ "== Third ==\n"
+			+ "The end.\n";
+
+	private final IncrementalWikitextParser parser =
+			new IncrementalWikitextParser(new SimpleParserConfig());
+
+	// =========================================================================
+
+	@Test
+	public void testEditWithinSectionIsAppliedToPreviousAst() throws Exception
+	{
+		String edited = PAGE.replace("* another item", "* another ''item''");
+
+		assertReparsedInPlace(PAGE, edited);
+	}
+
+	@Test
+	public void testEditAddingLinesIsAppliedToPreviousAst() throws Exception
+	{
+		String edited = PAGE.replace("Some '''bold''' text.\n", "Some\n\nmore '''bold''' text.\n");
+
+		assertReparsedInPlace(PAGE, edited);
+	}
+
+	@Test
+	public void testEditAddingSectionIsAppliedToPreviousAst() throws Exception
+	{
+		String edited = PAGE.replace("== Third ==\n", "== Inserted ==\nText.\n== Third ==\n");
+
+		assertReparsedInPlace(PAGE, edited);
+	}
+
+	@Test
+	public void testEditOpeningTableFallsBackToFullParse() throws Exception
+	{
+		String edited = PAGE.replace("Some '''bold''' text.\n", "{|\n| Some '''bold''' text.\n");
+
+		assertFullyReparsed(PAGE, edited);
+	}
+
+	@Test
+	public void testEditChangingNestingFallsBackToFullParse() throws Exception
+	{
+		String edited = PAGE.replace("== Second ==", "=== Second ===");
+
+		assertFullyReparsed(PAGE, edited);
+	}
+
+	@Test
+	public void testConsecutiveEditsReuseSectionOffsets() throws Exception
+	{
+		IncrementalWikitextParser.SectionOffsets sections =
+				new IncrementalWikitextParser.SectionOffsets();
+
+		String first = PAGE.replace("Some '''bold''' text.\n", "Some\n\nmore '''bold''' text.\n");
+		String second = first.replace("== Third ==\nThe end.", "== Third ==\nThe ''very'' end.");
+		String third = second.replace("Some\n\nmore", "More");
+
+		WtParsedWikitextPage page = parser.parse(PAGE, TITLE);
+
+		assertSame(page, parser.reparse(page, sections, PAGE, first, TITLE));
+		assertTrue(sections.isKnown());
+
+		assertSame(page, parser.reparse(page, sections, first, second, TITLE));
+		assertSame(page, parser.reparse(page, sections, second, third, TITLE));
+		assertTrue(sections.isKnown());
+
+		assertEqualsFullParse(third, page);
+	}
+
+	@Test
+	public void testFallbackResetsSectionOffsets() throws Exception
+	{
+		IncrementalWikitextParser.SectionOffsets sections =
+				new IncrementalWikitextParser.SectionOffsets();
+
+		String first = PAGE.replace("* another item", "* another ''item''");
+		String second = first.replace("== Second ==", "=== Second ===");
+		String third = second.replace("== Third ==\nThe end.", "== Third ==\nThe ''very'' end.");
+
+		WtParsedWikitextPage page = parser.parse(PAGE, TITLE);
+		assertSame(page, parser.reparse(page, sections, PAGE, first, TITLE));
+
+		WtParsedWikitextPage reparsed = parser.reparse(page, sections, first, second, TITLE);
+		assertNotSame(page, reparsed);
+		assertFalse(sections.isKnown());
+
+		assertSame(reparsed, parser.reparse(reparsed, sections, second, third, TITLE));
+		assertTrue(sections.isKnown());
+		assertEqualsFullParse(third, reparsed);
+	}
+
+	// =========================================================================
+
+	private void assertReparsedInPlace(String previousWikitext, String wikitext) throws Exception
+	{
+		WtParsedWikitextPage previous = parser.parse(previousWikitext, TITLE);
+		WtParsedWikitextPage reparsed = parser.reparse(
+				previous,
+				new IncrementalWikitextParser.SectionOffsets(),
+				previousWikitext,
+				wikitext,
+				TITLE);
+
+		assertSame(previous, reparsed);
+		assertEqualsFullParse(wikitext, reparsed);
+	}
+
+	private void assertFullyReparsed(String previousWikitext, String wikitext) throws Exception
+	{
+		WtParsedWikitextPage previous = parser.parse(previousWikitext, TITLE);
+		WtParsedWikitextPage reparsed = parser.reparse(
+				previous,
+				new IncrementalWikitextParser.SectionOffsets(),
+				previousWikitext,
+				wikitext,
+				TITLE);
+
+		assertNotSame(previous, reparsed);
+		assertEqualsFullParse(wikitext, reparsed);
+	}
+
+	private void assertEqualsFullParse(String wikitext, WtParsedWikitextPage reparsed) throws Exception
+	{
+		WtParsedWikitextPage expected = parser.parse(wikitext, TITLE);
+		assertTrue(WtComparer.compareNoThrow(expected, reparsed, true, true));
+	}
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.parser;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.sweble.wikitext.parser.nodes.NodeTypeWikitextVisitor;
+import org.sweble.wikitext.parser.nodes.NodeTypeWikitextVisitorNoReturn;
+import org.sweble.wikitext.parser.nodes.WtBold;
+import org.sweble.wikitext.parser.nodes.WtNode;
+import org.sweble.wikitext.parser.nodes.WtText;
+import org.sweble.wikitext.parser.utils.SimpleParserConfig;
+
+import de.fau.cs.osr.ptk.common.AstVisitor;
+
+public class NodeTypeWikitextVisitorTest
+{
+	private static final String WIKITEXT = ""
+			+ "Intro with '''bold''' text and a [[Link|title]].\n"
+			+ "== Section ==\n"
+			+ "* item <span class=\"a\">x</span> '''more bold'''\n"
+			+ "{{Template|arg=value}}\n"
+			+ "{|\n| cell || cell\n|}\n";
+
+	@Test
+	public void testVisitsSameNodesAsReflectiveVisitor() throws Exception
+	{
+		WtNode page = new WikitextParser(new SimpleParserConfig()).parseArticle(WIKITEXT, "Page");
+
+		ReflectiveCounter expected = new ReflectiveCounter();
+		expected.go(page);
+
+		NodeTypeCounter actual = new NodeTypeCounter();
+		actual.go(page);
+
+		assertEquals(expected.nodes, actual.nodes);
+		assertEquals(expected.texts, actual.texts);
+		assertEquals(expected.bolds, actual.bolds);
+	}
+
+	@Test
+	public void testNoReturnVisitorVisitsSameNodesAsReflectiveVisitor() throws Exception
+	{
+		WtNode page = new WikitextParser(new SimpleParserConfig()).parseArticle(WIKITEXT, "Page");
+
+		ReflectiveCounter expected = new ReflectiveCounter();
+		expected.go(page);
+
+		NoReturnNodeTypeCounter actual = new NoReturnNodeTypeCounter();
+		actual.go(page);
+
+		assertEquals(expected.nodes, actual.nodes);
+		assertEquals(expected.texts, actual.texts);
+		assertEquals(expected.bolds, actual.bolds);
+	}
+
+	// =========================================================================
+
+	protected static final class ReflectiveCounter
+			extends
+				AstVisitor<WtNode>
+	{
+		private int nodes;
+
+		private int texts;
+
+		private int bolds;
+
+		public void visit(WtNode n)
+		{
+			++nodes;
+			iterate(n);
+		}
+
+		public void visit(WtText n)
+		{
+			++nodes;
+			++texts;
+		}
+
+		public void visit(WtBold n)
+		{
+			++nodes;
+			++bolds;
+			iterate(n);
+		}
+	}
+
+	protected static final class NodeTypeCounter
+			extends
+				NodeTypeWikitextVisitor<Object>
+	{
+		private int nodes;
+
+		private int texts;
+
+		private int bolds;
+
+		@Override
+		protected Object visitUnspecific(WtNode n)
+		{
+			++nodes;
+			iterate(n);
+			return null;
+		}
+
+		@Override
+		public Object visit(WtText n)
+		{
+			++nodes;
+			++texts;
+			return null;
+		}
+
+		@Override
+		public Object visit(WtBold n)
+		{
+			++nodes;
+			++bolds;
+			iterate(n);
+			return null;
+		}
+	}
+
+	protected static final class NoReturnNodeTypeCounter
+			extends
+				NodeTypeWikitextVisitorNoReturn
+	{
+		private int nodes;
+
+		private int texts;
+
+		private int bolds;
+
+		@Override
+		protected void visitUnspecific(WtNode n)
+		{
+			++nodes;
+			iterate(n);
+		}
+
+		@Override
+		public void visit(WtText n)
+		{
+			++nodes;
+			++texts;
+		}
+
+		@Override
+		public void visit(WtBold n)
+		{
+			++nodes;
+			++bolds;
+			iterate(n);
+		}
+	}
+}
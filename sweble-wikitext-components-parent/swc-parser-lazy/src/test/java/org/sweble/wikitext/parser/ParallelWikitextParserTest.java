@@ -0,0 +1,123 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Test;
+import org.sweble.wikitext.parser.comparer.WtComparer;
+import org.sweble.wikitext.parser.nodes.WtNode;
+import org.sweble.wikitext.parser.preprocessor.PreprocessedWikitext;
+import org.sweble.wikitext.parser.utils.SimpleParserConfig;
+
+public class ParallelWikitextParserTest
+{
+	private static final String TITLE = "Page";
+
+	private final ParserConfig config = new SimpleParserConfig();
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+	// =========================================================================
+
+	@After
+	public void shutdown()
+	{
+		executor.shutdownNow();
+	}
+
+	// =========================================================================
+
+	@Test
+	public void testSplitsOnlyInFrontOfTopLevelHeadingsOutsideTables() throws Exception
+	{
+		String wikitext = ""
+				+ "Intro\n"
+				+ "== A ==\n"
+				+ "{|\n"
+				+ "|\n"
+				+ "== In table ==\n"
+				+ "|}\n"
+				+ "=== Nested ===\n"
+				+ "== B ==\n"
+				+ "== C <span>x</span> ==\n"
+				+ "== D ==\n";
+
+		List<Integer> splits = ParallelWikitextParser.findSplitPoints(wikitext, 1);
+
+		assertEquals(Arrays.asList(
+				0,
+				wikitext.indexOf("== A"),
+				wikitext.indexOf("== B"),
+				wikitext.indexOf("== D"),
+				wikitext.length()), splits);
+	}
+
+	@Test
+	public void testDoesNotSplitInFrontOfHeadingNestedInLowerLevelSection() throws Exception
+	{
+		String wikitext = ""
+				+ "== A ==\n"
+				+ "=== B ===\n"
+				+ "= C =\n"
+				+ "== D ==\n";
+
+		List<Integer> splits = ParallelWikitextParser.findSplitPoints(wikitext, 1);
+
+		assertEquals(Arrays.asList(
+				0,
+				wikitext.indexOf("= C"),
+				wikitext.length()), splits);
+	}
+
+	@Test
+	public void testParallelParseEqualsSequentialParse() throws Exception
+	{
+		StringBuilder b = new StringBuilder();
+		b.append("Intro with '''bold''' text.\n");
+		for (int i = 0; i < 50; ++i)
+		{
+			b.append("== Section " + i + " ==\n");
+			b.append("* item [[Link " + i + "]]\n");
+			b.append("{|\n| cell\n== Not a split point ==\n|}\n");
+			b.append("=== Subsection " + i + " ===\n");
+			b.append("Some ''italic'' text.\n\n");
+		}
+		String wikitext = b.toString();
+
+		ParallelWikitextParser parallelParser =
+				new ParallelWikitextParser(config, executor, 200);
+
+		assertTrue(ParallelWikitextParser.findSplitPoints(wikitext, 200).size() > 3);
+
+		WtNode expected = new WikitextParser(config).parseArticle(wikitext, TITLE);
+
+		WtNode actual = parallelParser.parseArticle(
+				new PreprocessedWikitext(wikitext, new WtEntityMapImpl()),
+				TITLE);
+
+		assertTrue(WtComparer.compareNoThrow(expected, actual, true, true));
+	}
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.sweble.wikitext.parser.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+import org.junit.Test;
+
+public class CharSequenceReaderTest
+{
+	private static final String TEXT = "0123456789";
+
+	// =========================================================================
+
+	@Test
+	public void testBulkReadOfAllSequenceTypes() throws IOException
+	{
+		char[] array = ("xx" + TEXT + "yy").toCharArray();
+
+		CharSequence[] seqs = {
+				TEXT,
+				new StringBuilder(TEXT),
+				new StringBuffer(TEXT),
+				CharBuffer.wrap(array, 2, TEXT.length()),
+				CharBuffer.wrap(array).subSequence(2, 2 + TEXT.length()),
+				new Wrapper(TEXT) };
+
+		for (CharSequence seq : seqs)
+		{
+			String name = seq.getClass().getName();
+
+			CharSequenceReader r = new CharSequenceReader(seq, 1, 9);
+
+			char[] cbuf = new char[] { '-', '-', '-', '-', '-', '-', '-' };
+			assertEquals(name, 5, r.read(cbuf, 1, 5));
+			assertEquals(name, "-12345-", new String(cbuf));
+
+			// Only the characters up to the end of the range are returned
+			assertEquals(name, 3, r.read(cbuf, 0, 7));
+			assertEquals(name, "678", new String(cbuf, 0, 3));
+
+			assertEquals(name, -1, r.read(cbuf, 0, 7));
+			assertEquals(name, 0, r.read(cbuf, 0, 0));
+			assertEquals(name, -1, r.read());
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testReadBeyondBufferFails() throws IOException
+	{
+		new CharSequenceReader(TEXT).read(new char[4], 2, 3);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testRangeBeyondSequenceFails() throws IOException
+	{
+		new CharSequenceReader(TEXT, 2, TEXT.length() + 1);
+	}
+
+	@Test
+	public void testSkipStopsAtEndOfRange() throws IOException
+	{
+		CharSequenceReader r = new CharSequenceReader(TEXT, 2, 8);
+
+		assertEquals(0, r.skip(0));
+		assertEquals(0, r.skip(-3));
+		assertEquals(3, r.skip(3));
+		assertEquals('5', r.read());
+		assertEquals(2, r.skip(Long.MAX_VALUE));
+		assertEquals(0, r.skip(1));
+		assertEquals(-1, r.read());
+	}
+
+	@Test
+	public void testResetReturnsToMarkOrStartOfRange() throws IOException
+	{
+		CharSequenceReader r = new CharSequenceReader(TEXT, 2, 8);
+		assertTrue(r.markSupported());
+
+		// Without a mark reset returns to the start of the range
+		r.skip(4);
+		r.reset();
+		assertEquals('2', r.read());
+
+		r.mark(0);
+		char[] cbuf = new char[10];
+		assertEquals(5, r.read(cbuf, 0, 10));
+		assertEquals(-1, r.read());
+
+		// The mark is not invalidated by reading past the read-ahead limit
+		r.reset();
+		assertEquals(5, r.read(cbuf, 0, 10));
+		assertEquals("34567", new String(cbuf, 0, 5));
+
+		r.mark(0);
+		r.reset();
+		assertEquals(-1, r.read());
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadAfterCloseFails() throws IOException
+	{
+		CharSequenceReader r = new CharSequenceReader(TEXT);
+		r.close();
+		r.read();
+	}
+
+	// =========================================================================
+
+	/**
+	 * A character sequence which is not copied in bulk.
+	 */
+	private static final class Wrapper
+			implements
+				CharSequence
+	{
+		private final String s;
+
+		public Wrapper(String s)
+		{
+			this.s = s;
+		}
+
+		@Override
+		public int length()
+		{
+			return s.length();
+		}
+
+		@Override
+		public char charAt(int index)
+		{
+			return s.charAt(index);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end)
+		{
+			return new Wrapper(s.substring(start, end));
+		}
+
+		@Override
+		public String toString()
+		{
+			return s;
+		}
+	}
+}
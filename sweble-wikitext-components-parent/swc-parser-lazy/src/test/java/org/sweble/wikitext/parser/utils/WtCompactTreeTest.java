@@ -0,0 +1,80 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.parser.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.sweble.wikitext.parser.ParserConfig;
+import org.sweble.wikitext.parser.WikitextParser;
+import org.sweble.wikitext.parser.comparer.WtComparer;
+import org.sweble.wikitext.parser.nodes.WtNode;
+
+public class WtCompactTreeTest
+{
+	private static final String TITLE = "Page";
+
+	private static final String WIKITEXT = ""
+			+ "Intro with '''bold''' text and a [[Link|title]].\n"
+			+ "== Section ==\n"
+			+ "* item <span class=\"a\">x</span>\n"
+			+ "* item <span class=\"a\">y</span>\n"
+			+ "{{Template|arg=value}}\n"
+			+ "{|\n| cell || cell\n|}\n";
+
+	private final ParserConfig config = new SimpleParserConfig();
+
+	// =========================================================================
+
+	@Test
+	public void testMaterializedTreeEqualsOriginalTree() throws Exception
+	{
+		WtNode expected = new WikitextParser(config).parseArticle(WIKITEXT, TITLE);
+
+		WtCompactTree compact = WtCompactTree.compact(expected, config.getNodeFactory());
+
+		WtNode actual = compact.materialize();
+
+		assertTrue(WtComparer.compareNoThrow(expected, actual, true, true));
+		assertEquals(WtRtDataPrinter.print(expected), WtRtDataPrinter.print(actual));
+	}
+
+	@Test
+	public void testTreeCanBeNavigatedWithoutMaterialization() throws Exception
+	{
+		WtNode root = new WikitextParser(config).parseArticle(WIKITEXT, TITLE);
+
+		WtCompactTree compact = WtCompactTree.compact(root, config.getNodeFactory(), false);
+
+		assertEquals(root.getNodeType(), compact.getNodeType(0));
+		assertEquals(root.size(), compact.getChildCount(0));
+		assertEquals(-1, compact.getParent(0));
+
+		int child = compact.getChild(0, 0);
+		assertEquals(0, compact.getParent(child));
+		assertEquals(root.get(0).getClass(), compact.getNodeClass(child));
+		assertNull(compact.getContent(0));
+
+		// Equal strings are only stored once
+		assertTrue(compact.getPoolSize() < compact.getNodeCount());
+
+		assertTrue(WtComparer.compareNoThrow(root.get(0), compact.materialize(child), true, false));
+	}
+}
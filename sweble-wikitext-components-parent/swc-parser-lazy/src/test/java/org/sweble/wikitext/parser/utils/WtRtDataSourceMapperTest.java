@@ -0,0 +1,212 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.parser.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.sweble.wikitext.parser.WikitextParser;
+import org.sweble.wikitext.parser.WikitextPreprocessor;
+import org.sweble.wikitext.parser.WtEntityMapImpl;
+import org.sweble.wikitext.parser.WtRtData;
+import org.sweble.wikitext.parser.WtSourceSpan;
+import org.sweble.wikitext.parser.nodes.WtNode;
+import org.sweble.wikitext.parser.preprocessor.PreprocessedWikitext;
+
+public class WtRtDataSourceMapperTest
+{
+	private static final String TITLE = "Page";
+
+	private static final String WIKITEXT = ""
+			+ "Intro with '''bold''' text and a [[Link|title]].\n"
+			+ "== Section ==\n"
+			+ "* item <span class=\"a\">x</span>\n"
+			+ "<!-- comment -->{{Template|arg=value}}\n"
+			+ "{|\n| cell || cell\n|}\n";
+
+	// =========================================================================
+
+	@Test
+	public void testParsedPageIsPrintedFromSourceOffsets() throws Exception
+	{
+		SimpleParserConfig config = new SimpleParserConfig();
+		WtNode copied = new WikitextParser(config).parseArticle(WIKITEXT, TITLE);
+
+		config.setSourceOffsetRtData(true);
+		WtNode mapped = new WikitextParser(config).parseArticle(WIKITEXT, TITLE);
+
+		assertEquals(WtRtDataPrinter.print(copied), WtRtDataPrinter.print(mapped));
+		assertEquals(WIKITEXT, WtRtDataPrinter.print(mapped));
+
+		// Already mapped
+		assertEquals(0, WtRtDataSourceMapper.map(mapped, WIKITEXT));
+		assertTrue(WtRtDataSourceMapper.map(copied, WIKITEXT) > 0);
+	}
+
+	@Test
+	public void testSpansPointIntoThePageSource() throws Exception
+	{
+		SimpleParserConfig config = new SimpleParserConfig();
+		config.setSourceOffsetRtData(true);
+		WtNode mapped = new WikitextParser(config).parseArticle(WIKITEXT, TITLE);
+
+		List<WtSourceSpan> spans = new ArrayList<WtSourceSpan>();
+		List<String> glue = new ArrayList<String>();
+		collectGlue(mapped, spans, glue);
+
+		// The comment is long enough to be mapped
+		assertFalse(spans.isEmpty());
+
+		int end = 0;
+		for (WtSourceSpan span : spans)
+		{
+			assertSame(WIKITEXT, span.getSource());
+			assertTrue(span.length() >= WtRtDataSourceMapper.MIN_SPAN_LENGTH);
+			assertTrue(span.getStart() >= end);
+			assertEquals(WIKITEXT.substring(span.getStart(), span.getEnd()), span.toString());
+			end = span.getEnd();
+		}
+
+		for (String s : glue)
+			assertTrue(s.length() < WtRtDataSourceMapper.MIN_SPAN_LENGTH || WIKITEXT.indexOf(s) == -1);
+	}
+
+	@Test
+	public void testMappedTreeEqualsCopiedTree() throws Exception
+	{
+		SimpleParserConfig config = new SimpleParserConfig();
+		WtNode copied = new WikitextParser(config).parseArticle(WIKITEXT, TITLE);
+
+		config.setSourceOffsetRtData(true);
+		WtNode mapped = new WikitextParser(config).parseArticle(WIKITEXT, TITLE);
+
+		assertEquals(copied, mapped);
+		assertEquals(mapped, copied);
+		assertRtDataEquals(copied, mapped);
+	}
+
+	@Test
+	public void testSpanGlueEqualsStringGlue() throws Exception
+	{
+		String source = "<span>text</span>";
+		WtRtData spans = new WtRtData(2,
+				new WtSourceSpan(source, 0, 6),
+				new WtSourceSpan(source, 10, 17));
+		WtRtData strings = new WtRtData(2, "<span>", "</span>");
+
+		assertEquals(strings, spans);
+		assertEquals(spans, strings);
+		assertEquals(strings.hashCode(), spans.hashCode());
+
+		assertFalse(strings.equals(new WtRtData(2, "<span>", "</SPAN>")));
+	}
+
+	@Test
+	public void testSuppressIsOnlyEqualToItself() throws Exception
+	{
+		WtRtData empty = new WtRtData(0);
+
+		assertEquals(WtRtData.SUPPRESS, WtRtData.SUPPRESS);
+		assertFalse(WtRtData.SUPPRESS.equals(empty));
+		assertFalse(empty.equals(WtRtData.SUPPRESS));
+	}
+
+	@Test
+	public void testPreprocessedWikitextIsMappedToItsText() throws Exception
+	{
+		SimpleParserConfig config = new SimpleParserConfig();
+		config.setSourceOffsetRtData(true);
+
+		PreprocessedWikitext ppWt =
+				new PreprocessedWikitext(WIKITEXT, new WtEntityMapImpl());
+		WtNode parsed = new WikitextParser(config).parseArticle(ppWt, TITLE);
+
+		List<WtSourceSpan> spans = new ArrayList<WtSourceSpan>();
+		collectGlue(parsed, spans, new ArrayList<String>());
+		assertFalse(spans.isEmpty());
+		for (WtSourceSpan span : spans)
+			assertSame(ppWt.getWikitext(), span.getSource());
+
+		assertEquals(WIKITEXT, WtRtDataPrinter.print(parsed));
+	}
+
+	@Test
+	public void testPreprocessedPageIsPrintedFromSourceOffsets() throws Exception
+	{
+		SimpleParserConfig config = new SimpleParserConfig();
+		config.setSourceOffsetRtData(true);
+
+		WtNode mapped = new WikitextPreprocessor(config).parseArticle(WIKITEXT, TITLE);
+
+		assertEquals(WIKITEXT, WtRtDataPrinter.print(mapped));
+	}
+
+	// =========================================================================
+
+	private static void collectGlue(
+			WtNode node,
+			List<WtSourceSpan> spans,
+			List<String> glue)
+	{
+		WtRtData rtd = node.getRtd();
+		if (rtd != null && !rtd.isSuppress())
+		{
+			for (int i = 0; i < rtd.size(); ++i)
+			{
+				for (Object o : rtd.getField(i))
+				{
+					if (o instanceof WtSourceSpan)
+						spans.add((WtSourceSpan) o);
+					else if (o instanceof String)
+						glue.add((String) o);
+					else if (o instanceof WtNode)
+						collectGlue((WtNode) o, spans, glue);
+				}
+			}
+		}
+
+		for (WtNode c : node)
+			collectGlue(c, spans, glue);
+	}
+
+	private static void assertRtDataEquals(WtNode a, WtNode b)
+	{
+		WtRtData x = a.getRtd();
+		WtRtData y = b.getRtd();
+		if (x == null || y == null)
+		{
+			assertSame(x, y);
+		}
+		else if (!x.isSuppress())
+		{
+			assertEquals(x, y);
+			assertEquals(y, x);
+			assertEquals(x.hashCode(), y.hashCode());
+		}
+
+		assertEquals(a.size(), b.size());
+		for (int i = 0; i < a.size(); ++i)
+			assertRtDataEquals(a.get(i), b.get(i));
+	}
+}
@@ -0,0 +1,219 @@
+/**
+ * Copyright 2011 The Open Source Research Group,
+ *                University of Erlangen-Nürnberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sweble.wikitext.parser.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.sweble.wikitext.parser.WikitextParser;
+import org.sweble.wikitext.parser.WikitextPostprocessor;
+import org.sweble.wikitext.parser.nodes.WtLinkOptionKeyword;
+import org.sweble.wikitext.parser.nodes.WtNamedXmlElement;
+import org.sweble.wikitext.parser.nodes.WtNode;
+import org.sweble.wikitext.parser.nodes.WtXmlAttribute;
+
+public class WtStringPoolTest
+{
+	@Test
+	public void testEqualStringsShareOneInstance() throws Exception
+	{
+		WtStringPool pool = new WtStringPool(16, 8);
+
+		String a = new String("span");
+		String b = new String("span");
+
+		assertSame(a, pool.intern(a));
+		assertSame(a, pool.intern(b));
+
+		String tooLong = new String("longer than eight");
+		assertSame(tooLong, pool.intern(tooLong));
+		assertNotSame(tooLong, pool.intern(new String(tooLong)));
+		assertNull(pool.intern(null));
+	}
+
+	@Test
+	public void testPoolIsBounded() throws Exception
+	{
+		WtStringPool pool = new WtStringPool(5, 8);
+		assertEquals(8, pool.getCapacity());
+
+		int hits = 0;
+		for (int i = 0; i < 1000; ++i)
+		{
+			String s = "s" + i;
+			if (pool.intern(s) != s)
+				++hits;
+		}
+
+		assertEquals(0, hits);
+	}
+
+	@Test
+	public void testStatisticsAreOptIn() throws Exception
+	{
+		WtStringPool pool = new WtStringPool(16, 8);
+		pool.intern(new String("span"));
+		pool.intern(new String("span"));
+
+		assertFalse(pool.isStatistics());
+		assertEquals(-1, pool.getHits());
+		assertEquals(-1, pool.getMisses());
+		assertEquals(-1., pool.getHitRate(), 0.);
+	}
+
+	@Test
+	public void testStatisticsCountHitsAndMisses() throws Exception
+	{
+		WtStringPool pool = new WtStringPool(16, 8, true);
+		assertEquals(0., pool.getHitRate(), 0.);
+
+		pool.intern(new String("span"));
+		pool.intern(new String("span"));
+		pool.intern(new String("span"));
+		pool.intern(new String("div"));
+
+		// Neither counted as hit nor as miss
+		pool.intern(new String("longer than eight"));
+		pool.intern(null);
+
+		assertTrue(pool.isStatistics());
+		assertEquals(2, pool.getHits());
+		assertEquals(2, pool.getMisses());
+		assertEquals(0.5, pool.getHitRate(), 0.);
+	}
+
+	@Test
+	public void testParserPoolsNamesAcrossParses() throws Exception
+	{
+		SimpleParserConfig config = new SimpleParserConfig();
+		config.setStringPooling(true);
+
+		WikitextParser parser = new WikitextParser(config);
+		String wikitext = ""
+				+ "<span class=\"a\">a</span> [[File:A.png|thumb]]\n"
+				+ "<span>unclosed\n";
+
+		WtNode first = parser.parseArticle(wikitext, "Page");
+		WtNode second = parser.parseArticle(wikitext, "Page");
+
+		assertAllSame(collectNames(first), collectNames(second));
+
+		// Elements synthesized by the postprocessor for unclosed tags
+		WikitextPostprocessor postprocessor = new WikitextPostprocessor(config);
+		List<String> names = new ArrayList<String>();
+		collectNames(postprocessor.postprocess(first, "Page"), names);
+		collectNames(postprocessor.postprocess(second, "Page"), names);
+
+		int i = names.indexOf("span");
+		assertTrue(i != -1);
+		for (String name : names)
+		{
+			if (name.equals("span"))
+				assertSame(names.get(i), name);
+		}
+	}
+
+	@Test
+	public void testParserPoolsElementNames() throws Exception
+	{
+		SimpleParserConfig config = new SimpleParserConfig();
+		config.setStringPooling(true);
+
+		WtNode page = new WikitextParser(config).parseArticle(
+				"<span>a</span> <span>b</span>\n",
+				"Page");
+
+		List<WtNamedXmlElement> elements = new ArrayList<WtNamedXmlElement>();
+		findElements(page, elements);
+
+		assertTrue(elements.size() >= 2);
+		for (WtNamedXmlElement e : elements)
+			assertSame(elements.get(0).getName(), e.getName());
+	}
+
+	@Test
+	public void testParserDoesNotPoolByDefault() throws Exception
+	{
+		SimpleParserConfig config = new SimpleParserConfig();
+		assertFalse(config.isStringPooling());
+
+		WtNode page = new WikitextParser(config).parseArticle(
+				"<span>a</span> <span>b</span>\n",
+				"Page");
+
+		List<WtNamedXmlElement> elements = new ArrayList<WtNamedXmlElement>();
+		findElements(page, elements);
+
+		assertTrue(elements.size() >= 2);
+		assertNotSame(elements.get(0).getName(), elements.get(1).getName());
+	}
+
+	private static List<String> collectNames(WtNode node)
+	{
+		List<String> names = new ArrayList<String>();
+		collectNames(node, names);
+		return names;
+	}
+
+	/**
+	 * Collects element and tag names, attribute names and link option
+	 * keywords.
+	 */
+	private static void collectNames(WtNode node, List<String> names)
+	{
+		for (WtNode c : node)
+		{
+			if (c instanceof WtNamedXmlElement)
+				names.add(((WtNamedXmlElement) c).getName());
+			else if (c instanceof WtXmlAttribute)
+				names.add(((WtXmlAttribute) c).getName().getAsString());
+			else if (c instanceof WtLinkOptionKeyword)
+				names.add(((WtLinkOptionKeyword) c).getKeyword());
+			collectNames(c, names);
+		}
+	}
+
+	private static void assertAllSame(List<String> expected, List<String> actual)
+	{
+		assertTrue(expected.contains("span"));
+		assertTrue(expected.contains("class"));
+		assertTrue(expected.contains("thumb"));
+
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); ++i)
+			assertSame(expected.get(i), actual.get(i));
+	}
+
+	private static void findElements(WtNode node, List<WtNamedXmlElement> elements)
+	{
+		for (WtNode c : node)
+		{
+			if (c instanceof WtNamedXmlElement)
+				elements.add((WtNamedXmlElement) c);
+			findElements(c, elements);
+		}
+	}
+}
@@ -27,6 +27,7 @@ import java.util.Map;
 import org.joda.time.DateTime;
 import org.sweble.wikitext.parser.ParserConfig;
 import org.sweble.wikitext.parser.WtRtData;
+import org.sweble.wikitext.parser.nodes.NodeTypeWikitextVisitor;
 import org.sweble.wikitext.parser.nodes.WikitextNodeFactory;
 import org.sweble.wikitext.parser.nodes.WtBody;
 import org.sweble.wikitext.parser.nodes.WtBold;
@@ -164,12 +165,11 @@ import org.sweble.wom3.swcadapter.nodes.impl.DefaultSwcNodeImplementations.SwcNo
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
-import de.fau.cs.osr.ptk.common.AstVisitor;
 import de.fau.cs.osr.utils.XmlGrammar;
 
 public class AstToWomConverter
 		extends
-			AstVisitor<WtNode>
+			NodeTypeWikitextVisitor<Wom3ElementNode>
 {
 	public static final String MWW_NS_URI = SwcNode.MWW_NS_URI;
 
@@ -1846,6 +1846,14 @@ public class AstToWomConverter
 		return null;
 	}
 
+	@Override
+	protected Wom3ElementNode visitUnspecific(WtNode n)
+	{
+		// There is a visit() method for every node of the contract
+		visitNotFound(n);
+		return null;
+	}
+
 	// =========================================================================
 
 	private Wom3ElementNode getScope()